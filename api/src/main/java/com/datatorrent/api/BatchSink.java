@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.util.List;
+
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * A {@link Sink} that can consume a run of data tuples at once. Streams which buffer the tuples hand the sink all the
+ * data tuples available up to the next control tuple, amortizing the per tuple overhead of the delivery.
+ *
+ * @param <T>
+ */
+@InterfaceStability.Evolving
+public interface BatchSink<T> extends Sink<T>
+{
+  /**
+   * Process a batch of data tuples. The list is reused by the caller once the method returns, so the implementation
+   * should not hold on to it.
+   *
+   * @param tuples tuples to be processed, in the order they arrived
+   */
+  void putBatch(List<T> tuples);
+
+}
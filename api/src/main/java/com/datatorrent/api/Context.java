@@ -119,6 +119,19 @@ public interface Context
     ENABLE, FOLLOW_HADOOP_AUTH, FOLLOW_HADOOP_HTTP_AUTH, DISABLE
   }
 
+  /**
+   * The strategy used by an operator thread to wait when there are no tuples to process.<br/><br/>
+   * SLEEP - Sleep for a period that grows by a millisecond with every idle iteration up to SPIN_MILLIS.<br/>
+   * BUSY_SPIN - Keep polling the input ports without giving up the CPU. Lowest latency, uses a core per operator.<br/>
+   * YIELD - Yield the CPU to other threads between polls.<br/>
+   * PARK - Park the thread till tuples arrive on any of the input ports, for at most SPIN_MILLIS.<br/>
+   * HYBRID - Spin, then yield and finally park when the operator stays idle.
+   */
+  enum WaitStrategy
+  {
+    SLEEP, BUSY_SPIN, YIELD, PARK, HYBRID
+  }
+
   interface PortContext extends Context
   {
     /**
@@ -203,6 +216,17 @@ public interface Context
      * Default value is 10 milliseconds.
      */
     Attribute<Integer> SPIN_MILLIS = new Attribute<>(10);
+    /**
+     * The strategy used by the operator thread to wait when there are no tuples available on any of the input ports of
+     * the operator. Default value is SLEEP.
+     */
+    Attribute<WaitStrategy> WAIT_STRATEGY = new Attribute<>(WaitStrategy.SLEEP);
+    /**
+     * Number of tuples the operator thread processes from an input port before it moves on to the next input port.
+     * When set, the operator keeps draining a port till the port is empty, reaches the end of the window or the batch
+     * is consumed. Default value is 0, which moves on to the next port after every control tuple.
+     */
+    Attribute<Integer> INPUT_BATCH_SIZE = new Attribute<>(0);
     /**
      * The maximum number of attempts to restart a failing operator before shutting down the application.
      * Until this number is reached, when an operator fails to start it is re-spawned in a new container. Once all the
@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * Input port that processes the data tuples in batches. The engine delivers all the data tuples buffered for the port
+ * up to the next control tuple in a single call to {@link #processBatch(List)}, so an operator can amortize the per
+ * tuple overhead such as lookups, locks or writes over the batch. Batches never span windows.
+ *
+ * Tuples delivered one at a time, for example by a thread local stream, are passed as a batch of one.
+ *
+ * @param <T>
+ */
+@InterfaceStability.Evolving
+public abstract class DefaultBatchInputPort<T> extends DefaultInputPort<T> implements BatchSink<T>
+{
+  private final List<T> single = new ArrayList<>(1);
+
+  /** {@inheritDoc} */
+  @Override
+  public void putBatch(List<T> tuples)
+  {
+    incrementCount(tuples.size());
+    processBatch(tuples);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void process(T tuple)
+  {
+    single.add(tuple);
+    try {
+      processBatch(single);
+    } finally {
+      single.clear();
+    }
+  }
+
+  /**
+   * Process a batch of tuples. The list is reused once the method returns and should not be held on to.
+   *
+   * @param tuples tuples in the order they arrived
+   */
+  public abstract void processBatch(List<T> tuples);
+
+}
@@ -116,4 +116,10 @@ public abstract class DefaultInputPort<T> implements InputPort<T>, Sink<T>
   {
     return ++count;
   }
+
+  @InterfaceStability.Evolving
+  protected int incrementCount(int delta)
+  {
+    return count += delta;
+  }
 }
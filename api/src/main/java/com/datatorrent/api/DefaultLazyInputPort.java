@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import org.apache.hadoop.classification.InterfaceStability;
+
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * Input port for operators that do not always need the value of the tuples, for example operators that forward, count,
+ * route or persist them. The tuples received from the buffer server are passed to {@link #processLazy(LazyTuple)}
+ * without being deserialized and are deserialized only if the operator calls {@link LazyTuple#get()}. Emitting such a
+ * tuple untouched with {@link DefaultOutputPort#emitLazy(LazyTuple)} on a stream with the same stream codec sends the
+ * serialized bytes again instead of serializing the tuple.
+ *
+ * Tuples delivered deserialized, for example by a container local stream, are passed wrapped in a lazy tuple.
+ *
+ * With the default stream codec, whose serialized form depends on the state of the stream, a lazy tuple has to be
+ * deserialized before the next checkpoint of the stream.
+ *
+ * @param <T>
+ */
+@InterfaceStability.Evolving
+public abstract class DefaultLazyInputPort<T> extends DefaultInputPort<T> implements LazyTupleSink<T>
+{
+  /** {@inheritDoc} */
+  @Override
+  public void putLazy(LazyTuple<T> tuple)
+  {
+    incrementCount(1);
+    processLazy(tuple);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void process(final T tuple)
+  {
+    processLazy(new LazyTuple<T>()
+    {
+      @Override
+      public T get()
+      {
+        return tuple;
+      }
+
+      @Override
+      public boolean isDeserialized()
+      {
+        return true;
+      }
+
+      @Override
+      public Slice getSerializedData()
+      {
+        return null;
+      }
+
+    });
+  }
+
+  /**
+   * Process a tuple which may not have been deserialized yet.
+   *
+   * @param tuple the tuple
+   */
+  public abstract void processLazy(LazyTuple<T> tuple);
+
+}
@@ -59,6 +59,19 @@ public class DefaultOutputPort<T> implements Operator.OutputPort<T>
     sink.put(tuple);
   }
 
+  /**
+   * Emit a tuple received by a {@link DefaultLazyInputPort} without deserializing it. If the tuple is not deserialized
+   * by the time it is published on a stream with the same stream codec, the bytes it was received as are sent again.
+   * Streams that need the value of the tuple, for example container local streams, deserialize it.
+   *
+   * @param tuple tuple which needs to be emitted.
+   */
+  public void emitLazy(LazyTuple<? extends T> tuple)
+  {
+    verifyOperatorThread();
+    sink.put(tuple);
+  }
+
   protected void verifyOperatorThread()
   {
     // operatorThread could be null if setup() never got called.
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * An operator with large state can implement this interface to checkpoint only the state that changed since the
+ * previous checkpoint. Storage agents which support incremental checkpoints save a full copy of the operator as the
+ * base of a chain and then save the deltas returned by {@link #getCheckpointDelta()} for the following checkpoints,
+ * starting a new base every so often to bound the length of the chain. Storage agents that do not support it
+ * serialize the full operator as usual.
+ * <p>
+ * The delta is serialized with the same serializer as the operator, so it should not reference the operator itself.
+ */
+@InterfaceStability.Evolving
+public interface DeltaCheckpointable
+{
+  /**
+   * Returns the state that changed since the previous checkpoint and starts tracking the changes for the next one.
+   *
+   * @return the changes since the previous checkpoint
+   */
+  Object getCheckpointDelta();
+
+  /**
+   * Called before the full operator is serialized as the base of a new chain. The operator should discard the
+   * changes tracked so far.
+   */
+  void resetCheckpointDelta();
+
+  /**
+   * Applies a delta returned by {@link #getCheckpointDelta()} to the operator restored from a previous checkpoint.
+   * Deltas are applied in the order they were saved.
+   *
+   * @param delta the changes to apply
+   */
+  void applyCheckpointDelta(Object delta);
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import org.apache.hadoop.classification.InterfaceStability;
+
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * A data tuple that is deserialized only when its value is first accessed. Input ports implementing
+ * {@link LazyTupleSink} receive the tuples coming from the buffer server this way, so operators that only forward,
+ * count, route or persist the tuples do not pay for the deserialization.
+ *
+ * When a lazy tuple that was not deserialized is emitted with {@link DefaultOutputPort#emitLazy(LazyTuple)} and its
+ * stream goes through the buffer server with the same stream codec, the serialized bytes are sent as they are. In all
+ * the other cases the value of the tuple is emitted.
+ *
+ * @param <T> type of the tuple
+ */
+@InterfaceStability.Evolving
+public interface LazyTuple<T>
+{
+  /**
+   * Returns the value of the tuple, deserializing it on the first call.
+   *
+   * @return the tuple
+   */
+  T get();
+
+  /**
+   * @return true if the value of the tuple is available without deserialization
+   */
+  boolean isDeserialized();
+
+  /**
+   * Returns the tuple as serialized by the stream codec of the stream. The slice must not be modified.
+   *
+   * @return the serialized tuple or null if the tuple was not received serialized
+   */
+  Slice getSerializedData();
+
+}
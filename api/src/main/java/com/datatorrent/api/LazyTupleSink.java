@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * A {@link Sink} that accepts the data tuples without having them deserialized first. Streams which receive serialized
+ * tuples hand them to the sink as {@link LazyTuple}s, the other streams deliver the tuples through
+ * {@link #put(Object)}.
+ *
+ * @param <T>
+ */
+@InterfaceStability.Evolving
+public interface LazyTupleSink<T> extends Sink<T>
+{
+  /**
+   * Process a data tuple which may not have been deserialized yet.
+   *
+   * @param tuple tuple to be processed
+   */
+  void putLazy(LazyTuple<T> tuple);
+
+}
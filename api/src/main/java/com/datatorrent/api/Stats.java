@@ -40,11 +40,29 @@ public interface Stats extends Serializable
   {
     public long checkpointStartTime;
     public long checkpointTime;
+    /**
+     * Size of the serialized checkpoint in bytes, 0 when not reported by the storage agent.
+     */
+    public long checkpointBytes;
+    /**
+     * Time spent serializing the checkpoint in nanoseconds, 0 when not reported by the storage agent.
+     */
+    public long serializationTime;
+    /**
+     * Bytes written to the storage for the checkpoint, 0 when not reported by the storage agent.
+     */
+    public long storedBytes;
+    /**
+     * Bytes per second written to the storage for the checkpoint, 0 when not reported by the storage agent.
+     */
+    public long storeThroughput;
 
     @Override
     public String toString()
     {
-      return "CheckpointStats{" + "checkpointStartTime=" + checkpointStartTime + ", checkpointTime=" + checkpointTime + '}';
+      return "CheckpointStats{" + "checkpointStartTime=" + checkpointStartTime + ", checkpointTime=" + checkpointTime +
+          ", checkpointBytes=" + checkpointBytes + ", serializationTime=" + serializationTime +
+          ", storedBytes=" + storedBytes + ", storeThroughput=" + storeThroughput + '}';
     }
   }
 
@@ -75,6 +93,11 @@ public interface Stats extends Serializable
       public int tupleCount;
       public long endWindowTimestamp;
       public long bufferServerBytes;
+      /**
+       * Number of writes to the buffer server the bytes of an output port were sent with, 0 when the publisher does not
+       * track them
+       */
+      public long bufferServerWrites;
       public int queueSize;
       /**
        * If there is a recording on the port, this contains the recording id, otherwise null
@@ -89,7 +112,7 @@ public interface Stats extends Serializable
       @Override
       public String toString()
       {
-        return "PortStats{" + "portname=" + id + ", processedCount=" + tupleCount + ", bufferServerBytes = " + bufferServerBytes + ", queueSize = " + queueSize + ", endWindowTimestamp=" + endWindowTimestamp + '}';
+        return "PortStats{" + "portname=" + id + ", processedCount=" + tupleCount + ", bufferServerBytes = " + bufferServerBytes + ", bufferServerWrites = " + bufferServerWrites + ", queueSize = " + queueSize + ", endWindowTimestamp=" + endWindowTimestamp + '}';
       }
 
     }
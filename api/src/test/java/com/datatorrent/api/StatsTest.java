@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+
+public class StatsTest
+{
+  @Test
+  public void testPortStatsToString()
+  {
+    PortStats stats = new PortStats("output");
+    stats.tupleCount = 10;
+    stats.bufferServerBytes = 1024;
+    stats.bufferServerWrites = 3;
+    stats.queueSize = 2;
+    stats.endWindowTimestamp = 5;
+    Assert.assertEquals("PortStats{portname=output, processedCount=10, bufferServerBytes = 1024,"
+        + " bufferServerWrites = 3, queueSize = 2, endWindowTimestamp=5}", stats.toString());
+  }
+}
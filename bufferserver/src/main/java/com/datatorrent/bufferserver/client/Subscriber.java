@@ -18,11 +18,17 @@
  */
 package com.datatorrent.bufferserver.client;
 
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
+
 import static com.datatorrent.bufferserver.packet.SubscribeRequestTuple.getSerializedRequest;
 
 /**
@@ -38,7 +44,11 @@ import static com.datatorrent.bufferserver.packet.SubscribeRequestTuple.getSeria
  */
 public abstract class Subscriber extends AuthClient
 {
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
   private final String id;
+  private volatile SharedMemoryReader sharedMemoryReader;
+  private volatile boolean readSuspended;
 
   public Subscriber(String id)
   {
@@ -49,8 +59,126 @@ public abstract class Subscriber extends AuthClient
   public void activate(final String version, final String type, final String sourceId, final int mask,
       final Collection<Integer> partitions, final long windowId, final int bufferSize)
   {
+    activate(version, type, sourceId, mask, partitions, windowId, bufferSize, 0);
+  }
+
+  /**
+   * Subscribes to the stream. When the buffer server runs on the same host, the subscriber can ask it to pass the
+   * tuples through a ring of the given size in shared memory instead of the connection, which is then only used to
+   * detect the end of the subscription. The buffer server falls back to the connection when it cannot map the ring.
+   *
+   * @param sharedMemorySize size of the ring in bytes, 0 to receive the tuples through the connection
+   */
+  public void activate(final String version, final String type, final String sourceId, final int mask,
+      final Collection<Integer> partitions, final long windowId, final int bufferSize, final int sharedMemorySize)
+  {
+    String sharedMemoryPath = null;
+    if (sharedMemorySize > 0) {
+      try {
+        SharedMemoryReader reader = new SharedMemoryReader(SharedMemoryRing.create(sharedMemorySize));
+        sharedMemoryPath = reader.ring.getPath();
+        sharedMemoryReader = reader;
+        reader.start();
+      } catch (IOException ex) {
+        logger.warn("Receiving {} through the connection, failed to create the shared memory", id, ex);
+      }
+    }
     sendAuthenticate();
-    write(getSerializedRequest(version, id, type, sourceId, mask, partitions, windowId, bufferSize));
+    write(getSerializedRequest(version, id, type, sourceId, mask, partitions, windowId, bufferSize,
+        sharedMemoryPath));
+  }
+
+  /**
+   * Called for every message read from the shared memory before it is passed to {@link #onMessage(byte[], int, int)}.
+   *
+   * @param length the length of the message
+   */
+  protected void readSharedMemory(int length)
+  {
+  }
+
+  @Override
+  public void suspendRead()
+  {
+    readSuspended = true;
+    super.suspendRead();
+  }
+
+  @Override
+  public void resumeRead()
+  {
+    readSuspended = false;
+    super.resumeRead();
+    SharedMemoryReader reader = sharedMemoryReader;
+    if (reader != null) {
+      LockSupport.unpark(reader);
+    }
+  }
+
+  @Override
+  public void unregistered(SelectionKey key)
+  {
+    SharedMemoryReader reader = sharedMemoryReader;
+    if (reader != null) {
+      sharedMemoryReader = null;
+      reader.shutdown();
+    }
+    super.unregistered(key);
+  }
+
+  /**
+   * Reads the messages from the shared memory and passes them to the subscriber, backing off while the ring is empty
+   * or the reads are suspended.
+   */
+  private class SharedMemoryReader extends Thread
+  {
+    private final SharedMemoryRing ring;
+    private volatile boolean running = true;
+
+    SharedMemoryReader(SharedMemoryRing ring)
+    {
+      super("SharedMemoryReader-" + id);
+      setDaemon(true);
+      this.ring = ring;
+    }
+
+    void shutdown()
+    {
+      running = false;
+      LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run()
+    {
+      byte[] chunk = new byte[CHUNK_SIZE];
+      int chunkOffset = 0;
+      long idleNanos = 1;
+      try {
+        while (running) {
+          int length = readSuspended ? -1 : ring.peekLength();
+          if (length < 0) {
+            LockSupport.parkNanos(idleNanos);
+            idleNanos = Math.min(idleNanos << 1, MAX_IDLE_NANOS);
+            continue;
+          }
+
+          if (chunk.length - chunkOffset < length) {
+            chunk = new byte[Math.max(CHUNK_SIZE, length)];
+            chunkOffset = 0;
+          }
+          ring.poll(chunk, chunkOffset);
+          readSharedMemory(length);
+          onMessage(chunk, chunkOffset, length);
+          chunkOffset += length;
+          idleNanos = 1;
+        }
+      } catch (RuntimeException ex) {
+        logger.error("Failed to read {} from {}", id, ring, ex);
+      } finally {
+        ring.delete();
+      }
+    }
   }
 
   @Override
@@ -19,7 +19,10 @@
 package com.datatorrent.bufferserver.internal;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -71,11 +74,16 @@ public class DataList
   protected ExecutorService storageExecutor;
   protected int size;
   protected int processingOffset;
+  private int tupleOffset;
   private final Set<AbstractClient> suspendedClients = newHashSet();
   private final AtomicInteger numberOfInMemBlockPermits;
   private MutableInt nextOffset = new MutableInt();
   private final ListenersNotifier listenersNotifier = new ListenersNotifier();
   private final boolean backPressureEnabled;
+  /**
+   * blocks released by purge that are reused for the new blocks instead of allocating them again.
+   */
+  private final ArrayDeque<byte[]> freeBuffers = new ArrayDeque<>();
 
   public DataList(final String identifier, final int blockSize, final int numberOfCacheBlocks, final boolean backPressureEnabled)
   {
@@ -206,6 +214,7 @@ public class DataList
             throw new IllegalStateException("Discarded block " + temp + " has positive reference count!");
           }
           if (temp.data != null) {
+            recycleBuffer(temp.data);
             temp.data = null;
             numberOfInMemBlockPurged++;
           }
@@ -237,6 +246,7 @@ public class DataList
     flush:
     do {
       while (size == 0) {
+        tupleOffset = processingOffset;
         size = VarInt.read(last.data, processingOffset, writeOffset, nextOffset);
         if (nextOffset.integer > -5 && nextOffset.integer < 1) {
           if (writeOffset == last.data.length) {
@@ -264,6 +274,13 @@ public class DataList
               last.ending_window = bwt.getWindowId();
               //logger.debug("assigned last window id {}", last);
             }
+            last.index(tupleOffset, bwt.getWindowId());
+            break;
+
+          case MessageType.CHECKPOINT_VALUE:
+          case MessageType.CODEC_STATE_VALUE:
+          case MessageType.END_STREAM_VALUE:
+            last.index(tupleOffset, Block.CONTROL_TUPLE);
             break;
 
           default:
@@ -451,7 +468,39 @@ public class DataList
           "Proceeding with allocating larger block that may cause out of memory exception.", size, blockSize);
       return new byte[size];
     }
-    return new byte[blockSize];
+    final byte[] buffer;
+    synchronized (freeBuffers) {
+      buffer = freeBuffers.pollFirst();
+    }
+    return buffer == null ? new byte[blockSize] : buffer;
+  }
+
+  /**
+   * Returns the block memory to the pool of the free blocks. The caller needs to ensure that no subscriber still
+   * sends the data from the buffer as the netlet clients queue the data for the write without copying it. Only
+   * the purged blocks satisfy this as the purged windows were already committed by all the subscribers.
+   *
+   * @param buffer memory of a block that is no longer used
+   */
+  protected void recycleBuffer(final byte[] buffer)
+  {
+    if (buffer.length == blockSize) {
+      synchronized (freeBuffers) {
+        if (freeBuffers.size() < MAX_COUNT_OF_INMEM_BLOCKS - 1) {
+          freeBuffers.offerFirst(buffer);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return number of the free blocks available for reuse.
+   */
+  public int getFreeBufferCount()
+  {
+    synchronized (freeBuffers) {
+      return freeBuffers.size();
+    }
   }
 
   public synchronized void addBuffer(byte[] array)
@@ -587,6 +636,18 @@ public class DataList
      */
     private final AtomicInteger refCount;
     private Future<?> future;
+    /**
+     * offsets of the begin window tuples and of the tuples that subscribers need even when they are catching up, the
+     * matching window id or CONTROL_TUPLE is in indexWindowIds. Subscribers use it to skip the payload tuples.
+     */
+    private int[] indexOffsets;
+    private long[] indexWindowIds;
+    private int indexSize;
+    /**
+     * difference between the current offsets and the indexed offsets after the block is loaded from the storage.
+     */
+    private int indexShift;
+    static final long CONTROL_TUPLE = Long.MIN_VALUE;
 
     public Block(String id, int size)
     {
@@ -608,6 +669,44 @@ public class DataList
       //logger.debug("Allocated new {}", this);
     }
 
+    synchronized void index(final int offset, final long windowId)
+    {
+      if (indexOffsets == null) {
+        indexOffsets = new int[16];
+        indexWindowIds = new long[16];
+      } else if (indexSize == indexOffsets.length) {
+        indexOffsets = Arrays.copyOf(indexOffsets, indexSize << 1);
+        indexWindowIds = Arrays.copyOf(indexWindowIds, indexSize << 1);
+      }
+      indexOffsets[indexSize] = offset - indexShift;
+      indexWindowIds[indexSize++] = windowId;
+    }
+
+    /**
+     * Finds the first tuple at or after the offset that a subscriber catching up to the window can not skip, that is
+     * either the first begin window tuple past the window or a checkpoint, codec state or end stream tuple.
+     *
+     * @param offset offset to search from
+     * @param baseSeconds base seconds of the subscriber
+     * @param windowId window the subscriber needs to catch up to
+     * @return offset of the tuple or -1 if the index does not have such tuple
+     */
+    synchronized int seek(final int offset, final long baseSeconds, final long windowId)
+    {
+      if (indexSize == 0) {
+        return -1;
+      }
+      int i = Arrays.binarySearch(indexOffsets, 0, indexSize, offset - indexShift);
+      for (i = i < 0 ? -i - 1 : i; i < indexSize; i++) {
+        final long indexWindowId = indexWindowIds[i];
+        if (indexWindowId == CONTROL_TUPLE || (baseSeconds | indexWindowId) > windowId) {
+          final int indexOffset = indexOffsets[i] + indexShift;
+          return indexOffset < writingOffset ? indexOffset : -1;
+        }
+      }
+      return -1;
+    }
+
     void getNextData(SerializedData current)
     {
       if (current.offset < writingOffset) {
@@ -633,6 +732,11 @@ public class DataList
               BeginWindowTuple bwt = (BeginWindowTuple)Tuple.getTuple(sd.buffer, sd.dataOffset, length);
               if (bwt.getWindowId() >= windowId) {
                 writingOffset = sd.offset;
+                synchronized (this) {
+                  while (indexSize > 0 && indexOffsets[indexSize - 1] + indexShift >= writingOffset) {
+                    indexSize--;
+                  }
+                }
                 break done;
               }
               break;
@@ -750,11 +854,30 @@ public class DataList
         @Override
         public void run()
         {
-          byte[] data = storage.retrieve(identifier, uniqueIdentifier);
+          final ByteBuffer buffer = storage.retrieveBuffer(identifier, uniqueIdentifier);
+          final byte[] data;
+          final int offset;
+          final boolean copied;
+          if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 &&
+              buffer.remaining() == buffer.array().length) {
+            data = buffer.array();
+            offset = 0;
+            copied = false;
+          } else {
+            copied = true;
+            /*
+             * The block is full when it is spooled, so the data is copied to the end of the block to keep the
+             * writingOffset at the end of the array which is what the iterators expect to switch to the next block.
+             */
+            data = buffer.remaining() > blockSize ? new byte[buffer.remaining()] : newBuffer(buffer.remaining());
+            offset = data.length - buffer.remaining();
+            buffer.get(data, offset, buffer.remaining());
+          }
           synchronized (Block.this) {
             if (Block.this.data == null) {
               Block.this.data = data;
-              readingOffset = 0;
+              indexShift += offset - readingOffset;
+              readingOffset = offset;
               writingOffset = data.length;
               Block.this.notifyAll();
               int numberOfInMemBlockPermits = DataList.this.numberOfInMemBlockPermits.decrementAndGet();
@@ -763,6 +886,9 @@ public class DataList
               }
             } else {
               logger.debug("Block {} was already loaded into memory", Block.this);
+              if (copied) {
+                recycleBuffer(data);
+              }
             }
           }
         }
@@ -1092,6 +1218,51 @@ public class DataList
       size = 0;
     }
 
+    /**
+     * Moves the iterator over the tuples in the current block that a subscriber catching up to the window skips.
+     *
+     * @param baseSeconds base seconds of the subscriber
+     * @param windowId window the subscriber needs to catch up to
+     * @return true if the iterator was moved
+     */
+    boolean skipTo(long baseSeconds, long windowId)
+    {
+      if (da == null) {
+        return false;
+      }
+      final int offset = da.seek(readOffset, baseSeconds, windowId);
+      if (offset > readOffset) {
+        rewind(offset);
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * @param other iterator over the same list
+     * @return true if both iterators read the next tuple from the same position
+     */
+    boolean isAt(DataListIterator other)
+    {
+      return da != null && da == other.da && readOffset == other.readOffset;
+    }
+
+    /**
+     * Moves the iterator forward to the position of another iterator over the same list that was at or after the
+     * position of this iterator.
+     *
+     * @param other iterator over the same list
+     */
+    void moveTo(DataListIterator other)
+    {
+      while (da != other.da) {
+        if (!switchToNextBlock()) {
+          throw new IllegalStateException("Iterator " + other + " is not ahead of " + this);
+        }
+      }
+      rewind(other.readOffset);
+    }
+
     @Override
     public String toString()
     {
@@ -1104,6 +1275,10 @@ public class DataList
   {
     private volatile Future<?> future;
     private boolean isMoreDataAvailable = false;
+    /**
+     * partitioned listeners that read the data list together, see {@link PartitionDispatch}.
+     */
+    private PartitionDispatch partitionDispatch;
 
     private void moreDataAvailable()
     {
@@ -1126,7 +1301,20 @@ public class DataList
     private boolean addedData()
     {
       boolean doesAtLeastOneListenerHaveDataToSend = false;
+      PartitionDispatch dispatch = partitionDispatch = PartitionDispatch.get(all_listeners, partitionDispatch);
+      if (dispatch != null) {
+        try {
+          doesAtLeastOneListenerHaveDataToSend = dispatch.dispatch();
+        } catch (RuntimeException e) {
+          // the listeners read on their own and are removed if they fail again
+          logger.warn("{} failed to dispatch {}", this, dispatch, e);
+          dispatch = partitionDispatch = null;
+        }
+      }
       for (DataListener dl : all_listeners) {
+        if (dispatch != null && dispatch.contains(dl)) {
+          continue;
+        }
         try {
           doesAtLeastOneListenerHaveDataToSend |= dl.addedData(false);
         } catch (RuntimeException e) {
@@ -75,6 +75,13 @@ public class FastDataList extends DataList
             } else {
               last.ending_window = btw.getWindowId();
             }
+            last.index(processingOffset - 2, btw.getWindowId());
+            break;
+
+          case MessageType.CHECKPOINT_VALUE:
+          case MessageType.CODEC_STATE_VALUE:
+          case MessageType.END_STREAM_VALUE:
+            last.index(processingOffset - 2, Block.CONTROL_TUPLE);
             break;
 
           default:
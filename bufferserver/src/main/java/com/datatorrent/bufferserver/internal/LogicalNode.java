@@ -26,12 +26,15 @@ import org.slf4j.LoggerFactory;
 
 import com.datatorrent.bufferserver.internal.DataList.DataListIterator;
 import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.bufferserver.packet.Tuple;
 import com.datatorrent.bufferserver.policy.GiveAll;
 import com.datatorrent.bufferserver.policy.Policy;
 import com.datatorrent.bufferserver.util.BitVector;
 import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.bufferserver.util.PartitionMatcher;
 import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
 import com.datatorrent.netlet.EventLoop;
 import com.datatorrent.netlet.WriteOnlyClient;
 
@@ -51,6 +54,7 @@ public class LogicalNode implements DataListener
   private final String group;
   private final HashSet<PhysicalNode> physicalNodes;
   private final HashSet<BitVector> partitions;
+  private PartitionMatcher partitionMatcher;
   private final Policy policy = GiveAll.getInstance();
   private final DataListIterator iterator;
   private final long skipWindowId;
@@ -103,7 +107,17 @@ public class LogicalNode implements DataListener
    */
   public void addConnection(WriteOnlyClient connection)
   {
-    PhysicalNode pn = new PhysicalNode(connection);
+    addConnection(connection, null);
+  }
+
+  /**
+   *
+   * @param connection
+   * @param ring shared memory ring to send the data through or null to send it through the connection
+   */
+  public void addConnection(WriteOnlyClient connection, SharedMemoryRing ring)
+  {
+    PhysicalNode pn = new PhysicalNode(connection, ring);
     if (!physicalNodes.contains(pn)) {
       physicalNodes.add(pn);
     }
@@ -126,6 +140,48 @@ public class LogicalNode implements DataListener
   public void addPartition(int partition, int mask)
   {
     partitions.add(new BitVector(partition, mask));
+    partitionMatcher = null;
+  }
+
+  /**
+   * Mask shared by the partitions of the node.
+   *
+   * @return the mask or -1 if the node does not subscribe to partitions or they do not share the mask
+   */
+  int getPartitionMask()
+  {
+    int mask = -1;
+    for (BitVector bv : partitions) {
+      if (mask == -1) {
+        mask = bv.getMask();
+      } else if (mask != bv.getMask()) {
+        return -1;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Sends the data to the physical nodes on behalf of the {@link PartitionDispatch} that reads the data list for the
+   * node, the node is disconnected if sending fails.
+   *
+   * @param data data to send
+   * @return false if a physical node can not take more data
+   */
+  boolean send(SerializedData data)
+  {
+    try {
+      ready = policy.distribute(physicalNodes, data);
+    } catch (Exception e) {
+      logger.error("Disconnecting {}", this, e);
+      boot();
+    }
+    return ready;
+  }
+
+  boolean isCaughtUp()
+  {
+    return caughtup;
   }
 
   boolean ready = true;
@@ -142,9 +198,14 @@ public class LogicalNode implements DataListener
     return ready;
   }
 
-  // make it run a lot faster by tracking faster!
   /**
-   *
+   * Number of payload tuples catch up scans before it looks up the block index again.
+   */
+  private static final int CATCH_UP_SKIP_INTERVAL = 1024;
+
+  /**
+   * Skips the tuples that are not sent to the subscriber until it reaches the first window past the skipWindowId.
+   * The block index of the data list is used to move past the payload tuples without scanning them.
    */
   private void catchUp()
   {
@@ -167,13 +228,16 @@ public class LogicalNode implements DataListener
         /*
          * fast forward to catch up with the windowId without consuming
          */
+        int indexSkips = iterator.skipTo(baseSeconds, skipWindowId) ? 1 : 0;
         outer:
         while (ready && iterator.hasNext()) {
           SerializedData data = iterator.next();
           switch (data.buffer[data.dataOffset]) {
 
             case MessageType.PAYLOAD_VALUE:
-              ++skippedPayloadTuples;
+              if (++skippedPayloadTuples % CATCH_UP_SKIP_INTERVAL == 0 && iterator.skipTo(baseSeconds, skipWindowId)) {
+                indexSkips++;
+              }
               break;
 
             case MessageType.BEGIN_WINDOW_VALUE:
@@ -181,7 +245,8 @@ public class LogicalNode implements DataListener
               logger.debug("{}->{} condition {} =? {}", upstream, group,
                   Codec.getStringWindowId(baseSeconds | tuple.getWindowId()), Codec.getStringWindowId(skipWindowId));
               if ((baseSeconds | tuple.getWindowId()) > skipWindowId) {
-                logger.debug("caught up {}->{} skipping {} payload tuples", upstream, group, skippedPayloadTuples);
+                logger.debug("caught up {}->{} skipping {} payload tuples and {} times using index", upstream, group,
+                    skippedPayloadTuples, indexSkips);
                 ready = GiveAll.getInstance().distribute(physicalNodes, data);
                 caughtup = true;
                 break outer;
@@ -194,6 +259,9 @@ public class LogicalNode implements DataListener
               ready = GiveAll.getInstance().distribute(physicalNodes, data);
               logger.debug("Message {} was distributed to {}", MessageType.valueOf(data.buffer[data.dataOffset]),
                   physicalNodes);
+              if (ready && iterator.skipTo(baseSeconds, skipWindowId)) {
+                indexSkips++;
+              }
               break;
             default:
               logger.debug("Message {} was not distributed to {}", MessageType.valueOf(data.buffer[data.dataOffset]),
@@ -241,18 +309,15 @@ public class LogicalNode implements DataListener
               }
             }
           } else {
+            if (partitionMatcher == null) {
+              partitionMatcher = new PartitionMatcher(partitions);
+            }
             while (ready && iterator.hasNext()) {
               SerializedData data = iterator.next();
-              final int length = data.length - data.dataOffset + data.offset;
               switch (data.buffer[data.dataOffset]) {
                 case MessageType.PAYLOAD_VALUE:
-                  Tuple tuple = Tuple.getTuple(data.buffer, data.dataOffset, length);
-                  int value = tuple.getPartition();
-                  for (BitVector bv : partitions) {
-                    if (bv.matches(value)) {
-                      ready = policy.distribute(physicalNodes, data);
-                      break;
-                    }
+                  if (partitionMatcher.matches(PayloadTuple.getPartition(data.buffer, data.dataOffset))) {
+                    ready = policy.distribute(physicalNodes, data);
                   }
                   break;
 
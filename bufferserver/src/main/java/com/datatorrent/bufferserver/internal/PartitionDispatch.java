@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.datatorrent.bufferserver.internal.DataList.DataListIterator;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.util.BitVector;
+import com.datatorrent.bufferserver.util.SerializedData;
+
+/**
+ * Reads a {@link DataList} once for all the partitioned {@link LogicalNode}s that are at the same position in it.
+ *
+ * The partition of a payload tuple is read once and looked up in a table keyed by the masked partition value that
+ * lists the nodes subscribed to it, so the cost per payload tuple does not depend on the number of partitioned
+ * subscribers. Nodes that are catching up, blocked or behind read the list on their own and are dispatched again once
+ * they reach the position of the others.
+ */
+class PartitionDispatch
+{
+  static final int MAX_TABLE_SIZE = 1 << 16;
+  private final LogicalNode[] nodes;
+  private final Set<LogicalNode> members;
+  private final PartitionIndex[] indexes;
+
+  /**
+   * Partitions of the nodes that share the mask.
+   */
+  private static class PartitionIndex
+  {
+    final int mask;
+    final LogicalNode[][] table;
+    final Map<Integer, LogicalNode[]> map;
+
+    PartitionIndex(int mask, List<LogicalNode> nodes)
+    {
+      this.mask = mask;
+      HashMap<Integer, LogicalNode[]> map = new HashMap<>();
+      ArrayList<BitVector> partitions = new ArrayList<>();
+      for (LogicalNode node : nodes) {
+        partitions.clear();
+        node.getPartitions(partitions);
+        for (BitVector bv : partitions) {
+          LogicalNode[] subscribers = map.get(bv.getBits());
+          if (subscribers == null) {
+            map.put(bv.getBits(), new LogicalNode[] {node});
+          } else {
+            subscribers = Arrays.copyOf(subscribers, subscribers.length + 1);
+            subscribers[subscribers.length - 1] = node;
+            map.put(bv.getBits(), subscribers);
+          }
+        }
+      }
+
+      if (mask < MAX_TABLE_SIZE) {
+        table = new LogicalNode[mask + 1][];
+        for (Map.Entry<Integer, LogicalNode[]> entry : map.entrySet()) {
+          table[entry.getKey()] = entry.getValue();
+        }
+        this.map = null;
+      } else {
+        table = null;
+        this.map = map;
+      }
+    }
+
+    LogicalNode[] get(int partition)
+    {
+      return table == null ? map.get(partition & mask) : table[partition & mask];
+    }
+  }
+
+  PartitionDispatch(Collection<LogicalNode> nodes)
+  {
+    this.nodes = nodes.toArray(new LogicalNode[nodes.size()]);
+    members = new HashSet<>(nodes);
+
+    HashMap<Integer, List<LogicalNode>> masks = new HashMap<>();
+    for (LogicalNode node : this.nodes) {
+      List<LogicalNode> list = masks.get(node.getPartitionMask());
+      if (list == null) {
+        list = new ArrayList<>();
+        masks.put(node.getPartitionMask(), list);
+      }
+      list.add(node);
+    }
+    indexes = new PartitionIndex[masks.size()];
+    int i = 0;
+    for (Map.Entry<Integer, List<LogicalNode>> entry : masks.entrySet()) {
+      indexes[i++] = new PartitionIndex(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Finds the largest group of partitioned nodes that can be dispatched together, that is the nodes that are caught
+   * up, ready, subscribe to partitions with a single mask and are at the same position in the data list.
+   *
+   * @param listeners listeners of the data list
+   * @param dispatch the previous dispatch that is returned if the group did not change
+   * @return dispatch of the group or null if no two nodes can be dispatched together
+   */
+  static PartitionDispatch get(Collection<DataListener> listeners, PartitionDispatch dispatch)
+  {
+    ArrayList<ArrayList<LogicalNode>> groups = null;
+    ArrayList<LogicalNode> largest = null;
+    for (DataListener dl : listeners) {
+      if (!(dl instanceof LogicalNode)) {
+        continue;
+      }
+      LogicalNode node = (LogicalNode)dl;
+      if (!node.isCaughtUp() || node.getPartitionMask() < 0 || !node.isReady()) {
+        continue;
+      }
+
+      ArrayList<LogicalNode> group = null;
+      if (groups == null) {
+        groups = new ArrayList<>();
+      } else {
+        for (ArrayList<LogicalNode> g : groups) {
+          if (node.getIterator().isAt(g.get(0).getIterator())) {
+            group = g;
+            break;
+          }
+        }
+      }
+      if (group == null) {
+        group = new ArrayList<>();
+        groups.add(group);
+      }
+      group.add(node);
+      if (largest == null || group.size() > largest.size()) {
+        largest = group;
+      }
+    }
+
+    if (largest == null || largest.size() < 2) {
+      return null;
+    }
+    if (dispatch != null && dispatch.nodes.length == largest.size() && dispatch.members.containsAll(largest)) {
+      return dispatch;
+    }
+    return new PartitionDispatch(largest);
+  }
+
+  boolean contains(DataListener dl)
+  {
+    return members.contains(dl);
+  }
+
+  /**
+   * Sends the available data to the nodes until it runs out or one of the nodes can not take more, the iterators of
+   * all the nodes are left at the same position.
+   *
+   * @return true if there is more data to send
+   */
+  boolean dispatch()
+  {
+    final DataListIterator iterator = nodes[0].getIterator();
+    boolean ready = true;
+    try {
+      while (ready && iterator.hasNext()) {
+        SerializedData data = iterator.next();
+        switch (data.buffer[data.dataOffset]) {
+          case MessageType.PAYLOAD_VALUE:
+            final int partition = PayloadTuple.getPartition(data.buffer, data.dataOffset);
+            for (PartitionIndex index : indexes) {
+              LogicalNode[] subscribers = index.get(partition);
+              if (subscribers != null) {
+                for (LogicalNode node : subscribers) {
+                  ready = node.send(data) & ready;
+                }
+              }
+            }
+            break;
+
+          case MessageType.NO_MESSAGE_VALUE:
+          case MessageType.NO_MESSAGE_ODD_VALUE:
+            break;
+
+          default:
+            for (LogicalNode node : nodes) {
+              ready = node.send(data) & ready;
+            }
+            break;
+        }
+      }
+    } finally {
+      for (int i = 1; i < nodes.length; i++) {
+        nodes[i].getIterator().moveTo(iterator);
+      }
+    }
+    return iterator.hasNext();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "PartitionDispatch{" + "nodes=" + Arrays.toString(nodes) + '}';
+  }
+
+}
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
 import com.datatorrent.netlet.WriteOnlyClient;
 
 /**
@@ -34,6 +35,7 @@ public class PhysicalNode
 {
   private final long starttime;
   private final WriteOnlyClient client;
+  private final SharedMemoryRing ring;
   private long processedMessageCount;
   private SerializedData blocker;
 
@@ -42,8 +44,21 @@ public class PhysicalNode
    * @param client
    */
   public PhysicalNode(WriteOnlyClient client)
+  {
+    this(client, null);
+  }
+
+  /**
+   * Creates a physical subscriber that receives the data through the shared memory ring instead of the client, which
+   * is only used to tear down the subscription.
+   *
+   * @param client
+   * @param ring shared memory ring of the subscriber on the same host or null to send the data through the client
+   */
+  public PhysicalNode(WriteOnlyClient client, SharedMemoryRing ring)
   {
     this.client = client;
+    this.ring = ring;
     starttime = System.currentTimeMillis();
     processedMessageCount = 0;
   }
@@ -73,7 +88,7 @@ public class PhysicalNode
    */
   public boolean send(SerializedData d)
   {
-    if (client.send(d.buffer, d.dataOffset, d.length - (d.dataOffset - d.offset))) {
+    if (send(d.buffer, d.dataOffset, d.length - (d.dataOffset - d.offset))) {
       return true;
     }
     if (blocker == null) {
@@ -90,7 +105,7 @@ public class PhysicalNode
       return true;
     }
 
-    if (client.send(blocker.buffer, blocker.dataOffset, blocker.length - (blocker.dataOffset - blocker.offset))) {
+    if (send(blocker.buffer, blocker.dataOffset, blocker.length - (blocker.dataOffset - blocker.offset))) {
       blocker = null;
       return true;
     }
@@ -98,6 +113,11 @@ public class PhysicalNode
     return false;
   }
 
+  private boolean send(byte[] array, int offset, int length)
+  {
+    return ring == null ? client.send(array, offset, length) : ring.offer(array, offset, length);
+  }
+
   /**
    *
    * @return long
@@ -148,7 +168,7 @@ public class PhysicalNode
   @Override
   public String toString()
   {
-    return "PhysicalNode." + client;
+    return ring == null ? "PhysicalNode." + client : "PhysicalNode." + client + '.' + ring;
   }
 
   private static final Logger logger = LoggerFactory.getLogger(PhysicalNode.class);
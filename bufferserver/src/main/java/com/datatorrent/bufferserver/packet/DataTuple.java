@@ -47,9 +47,24 @@ public class DataTuple extends Tuple
   public static byte[] getSerializedTuple(byte type, Slice f)
   {
     byte[] array = new byte[f.length + 1];
-    array[0] = type;
-    System.arraycopy(f.buffer, f.offset, array, 1, f.length);
+    writeSerializedTuple(type, f, array, 0);
     return array;
   }
 
+  /**
+   * Serializes the tuple into the given buffer instead of allocating a new array.
+   *
+   * @param type message type of the tuple
+   * @param f serialized data
+   * @param buffer array to serialize the tuple into, needs to have 1 + f.length bytes available at offset
+   * @param offset offset at which the tuple is written
+   * @return offset just past the serialized tuple
+   */
+  public static int writeSerializedTuple(byte type, Slice f, byte[] buffer, int offset)
+  {
+    buffer[offset] = type;
+    System.arraycopy(f.buffer, f.offset, buffer, offset + 1, f.length);
+    return offset + 1 + f.length;
+  }
+
 }
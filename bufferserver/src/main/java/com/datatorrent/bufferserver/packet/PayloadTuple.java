@@ -46,6 +46,19 @@ public class PayloadTuple extends Tuple
     return ByteBuffer.wrap(buffer, offset, 4).getInt();
   }
 
+  /**
+   * Reads the partition of the payload tuple without creating a tuple object.
+   *
+   * @param buffer array holding the serialized tuple
+   * @param offset offset of the message type of the serialized tuple
+   * @return partition of the tuple
+   */
+  public static int getPartition(byte[] buffer, int offset)
+  {
+    return buffer[offset + 1] << 24 | (buffer[offset + 2] & 0xff) << 16 | (buffer[offset + 3] & 0xff) << 8 |
+        buffer[offset + 4] & 0xff;
+  }
+
   @Override
   public Slice getData()
   {
@@ -70,11 +83,28 @@ public class PayloadTuple extends Tuple
   public static byte[] getSerializedTuple(int partition, Slice f)
   {
     byte[] array = new byte[5 + f.length];
-    ByteBuffer byteBuffer = ByteBuffer.wrap(array);
-    byteBuffer.put(MessageType.PAYLOAD_VALUE);
-    byteBuffer.putInt(partition);
-    System.arraycopy(f.buffer, f.offset, array, 5, f.length);
+    writeSerializedTuple(partition, f, array, 0);
     return array;
   }
 
+  /**
+   * Serializes the payload tuple into the given buffer instead of allocating a new array.
+   *
+   * @param partition partition of the tuple
+   * @param f serialized payload
+   * @param buffer array to serialize the tuple into, needs to have 5 + f.length bytes available at offset
+   * @param offset offset at which the tuple is written
+   * @return offset just past the serialized tuple
+   */
+  public static int writeSerializedTuple(int partition, Slice f, byte[] buffer, int offset)
+  {
+    buffer[offset++] = MessageType.PAYLOAD_VALUE;
+    buffer[offset++] = (byte)(partition >>> 24);
+    buffer[offset++] = (byte)(partition >>> 16);
+    buffer[offset++] = (byte)(partition >>> 8);
+    buffer[offset++] = (byte)partition;
+    System.arraycopy(f.buffer, f.offset, buffer, offset, f.length);
+    return offset + f.length;
+  }
+
 }
@@ -43,6 +43,7 @@ public class SubscribeRequestTuple extends RequestTuple
   private int mask;
   private int[] partitions;
   private int bufferSize;
+  private String sharedMemoryPath;
 
   @Override
   public MessageType getType()
@@ -130,6 +131,18 @@ public class SubscribeRequestTuple extends RequestTuple
       if (bufferSize == -1) {
         return;
       }
+      /*
+       * read the optional path of the shared memory
+       */
+      if (offset < limit) {
+        idlen = readVarInt();
+        if (idlen > 0) {
+          sharedMemoryPath = new String(buffer, offset, idlen);
+          offset += idlen;
+        } else if (idlen < 0) {
+          return;
+        }
+      }
 
       valid = true;
     } catch (NumberFormatException nfe) {
@@ -206,9 +219,26 @@ public class SubscribeRequestTuple extends RequestTuple
     return bufferSize;
   }
 
+  /**
+   * @return the path of the shared memory the subscriber reads the tuples from, null if the tuples are to be sent
+   * through the connection
+   */
+  public String getSharedMemoryPath()
+  {
+    return sharedMemoryPath;
+  }
+
   public static byte[] getSerializedRequest(final String version, final String id, final String down_type,
       final String upstream_id, final int mask, final Collection<Integer> partitions, final long startingWindowId,
       final int bufferSize)
+  {
+    return getSerializedRequest(version, id, down_type, upstream_id, mask, partitions, startingWindowId, bufferSize,
+        null);
+  }
+
+  public static byte[] getSerializedRequest(final String version, final String id, final String down_type,
+      final String upstream_id, final int mask, final Collection<Integer> partitions, final long startingWindowId,
+      final int bufferSize, final String sharedMemoryPath)
   {
     byte[] array = new byte[4096];
     int offset = 0;
@@ -250,6 +280,11 @@ public class SubscribeRequestTuple extends RequestTuple
     /* write the buffer size */
     offset = VarInt.write(bufferSize, array, offset);
 
+    /* write the path of the shared memory */
+    if (sharedMemoryPath != null) {
+      offset = Tuple.writeString(sharedMemoryPath, array, offset);
+    }
+
     return Arrays.copyOfRange(array, 0, offset);
   }
 
@@ -260,7 +295,7 @@ public class SubscribeRequestTuple extends RequestTuple
         ", windowId=" + Codec.getStringWindowId(windowId) + ", type=" + streamType +
         ", upstreamIdentifier=" + upstreamIdentifier + ", mask=" + mask +
         ", partitions=" + (partitions == null ? "null" : Arrays.toString(partitions)) +
-        ", bufferSize=" + bufferSize + '}';
+        ", bufferSize=" + bufferSize + ", sharedMemoryPath=" + sharedMemoryPath + '}';
   }
 
   private static final Logger logger = LoggerFactory.getLogger(SubscribeRequestTuple.class);
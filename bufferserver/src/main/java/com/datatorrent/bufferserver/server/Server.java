@@ -46,6 +46,7 @@ import com.datatorrent.bufferserver.packet.ResetRequestTuple;
 import com.datatorrent.bufferserver.packet.SubscribeRequestTuple;
 import com.datatorrent.bufferserver.packet.Tuple;
 import com.datatorrent.bufferserver.storage.Storage;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
 import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.netlet.AbstractLengthPrependerClient;
 import com.datatorrent.netlet.AbstractServer;
@@ -353,6 +354,23 @@ public class Server extends AbstractServer
           }
 
           final String identifier = request.getIdentifier();
+          SharedMemoryRing ring = null;
+          if (request.getSharedMemoryPath() != null && !Tuple.FAST_VERSION.equals(request.getVersion())) {
+            try {
+              ring = SharedMemoryRing.open(request.getSharedMemoryPath());
+            } catch (IllegalArgumentException ex) {
+              logger.error("Rejecting subscriber {} with invalid shared memory. Disconnecting {}.", identifier, key.channel(), ex);
+              try {
+                key.channel().close();
+              } catch (IOException ioe) {
+                logger.error("Failed to close channel {}", key.channel(), ioe);
+              }
+              return;
+            } catch (IOException ex) {
+              logger.warn("Sending {} through the connection, failed to open the shared memory", identifier, ex);
+            }
+          }
+
           final String type = request.getStreamType();
           final long skipWindowId = request.getWindowId();
           final LogicalNode ln = new LogicalNode(identifier, upstream_identifier, type, dl
@@ -368,7 +386,7 @@ public class Server extends AbstractServer
           if (oln != null) {
             oln.boot();
           }
-          final Subscriber subscriber = new Subscriber(ln, request.getBufferSize());
+          final Subscriber subscriber = new Subscriber(ln, request.getBufferSize(), ring);
           eventloop.submit(new Runnable()
           {
             @Override
@@ -629,11 +647,11 @@ public class Server extends AbstractServer
   {
     private LogicalNode ln;
 
-    Subscriber(LogicalNode ln, int bufferSize)
+    Subscriber(LogicalNode ln, int bufferSize, SharedMemoryRing ring)
     {
       super(1024 * 1024, bufferSize == 0 ? 256 * 1024 : bufferSize);
       this.ln = ln;
-      ln.addConnection(this);
+      ln.addConnection(this, ring);
     }
 
     @Override
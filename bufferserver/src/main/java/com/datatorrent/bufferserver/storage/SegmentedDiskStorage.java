@@ -0,0 +1,306 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Files;
+
+/**
+ * Storage that appends the spooled blocks into large preallocated segment files.
+ *
+ * Unlike {@link DiskStorage} that creates one file per stored block, this storage keeps one directory per identifier
+ * and packs the blocks into memory mapped segment files of a fixed size. The identity of the directory is verified
+ * once per identifier and not on every call. {@link #retrieveBuffer(String, int)} returns a read only slice of the
+ * mapped segment, so no copy of the block is made by the storage. A segment file is deleted (or reused if it is the
+ * segment currently appended to) once all the blocks stored in it are discarded.
+ */
+public class SegmentedDiskStorage implements Storage
+{
+  private static final Logger logger = LoggerFactory.getLogger(SegmentedDiskStorage.class);
+  public static final long DEFAULT_SEGMENT_SIZE = 512 * 1024 * 1024;
+  final String basePath;
+  final long segmentSize;
+  private final ConcurrentHashMap<String, Spool> spools = new ConcurrentHashMap<>();
+
+  public SegmentedDiskStorage(String baseDirectory, long segmentSize)
+  {
+    if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid segment size " + segmentSize);
+    }
+    basePath = baseDirectory;
+    this.segmentSize = segmentSize;
+    logger.info("Using {} as the basepath for spooling with segment size {}.", basePath, segmentSize);
+  }
+
+  public SegmentedDiskStorage(long segmentSize) throws IOException
+  {
+    this(getTempDirectory(), segmentSize);
+  }
+
+  public SegmentedDiskStorage() throws IOException
+  {
+    this(DEFAULT_SEGMENT_SIZE);
+  }
+
+  private static String getTempDirectory() throws IOException
+  {
+    File tempFile = File.createTempFile("msp", "msp");
+    String basePath = tempFile.getParent();
+    tempFile.delete();
+    return basePath;
+  }
+
+  @Override
+  public Storage getInstance() throws IOException
+  {
+    return new SegmentedDiskStorage(basePath, segmentSize);
+  }
+
+  private Spool getSpool(String identifier, boolean create)
+  {
+    Spool spool = spools.get(identifier);
+    if (spool == null) {
+      if (!create) {
+        throw new RuntimeException("No blocks were stored for the identifier " + identifier);
+      }
+      Spool newSpool = new Spool(identifier);
+      spool = spools.putIfAbsent(identifier, newSpool);
+      if (spool == null) {
+        spool = newSpool;
+      }
+    }
+    return spool;
+  }
+
+  @Override
+  public int store(String identifier, byte[] bytes, int start, int end)
+  {
+    try {
+      return getSpool(identifier, true).store(bytes, start, end);
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  @Override
+  public byte[] retrieve(String identifier, int uniqueIdentifier)
+  {
+    ByteBuffer buffer = retrieveBuffer(identifier, uniqueIdentifier);
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  @Override
+  public ByteBuffer retrieveBuffer(String identifier, int uniqueIdentifier)
+  {
+    return getSpool(identifier, false).retrieve(uniqueIdentifier);
+  }
+
+  @Override
+  public void discard(String identifier, int uniqueIdentifier)
+  {
+    getSpool(identifier, false).discard(uniqueIdentifier);
+  }
+
+  /**
+   * Releases all the segments and deletes the segment files of all the identifiers.
+   */
+  public void close()
+  {
+    for (Spool spool : spools.values()) {
+      spool.close();
+    }
+    spools.clear();
+  }
+
+  /**
+   * Segment files and block locations of a single identifier.
+   */
+  private class Spool
+  {
+    final String identifier;
+    final File directory;
+    final HashMap<Integer, Location> locations = new HashMap<>();
+    Segment current;
+    int segmentCount;
+    int uniqueIdentifier;
+
+    Spool(String identifier)
+    {
+      this.identifier = identifier;
+      directory = new File(basePath, DiskStorage.normalizeFileName(identifier));
+      File identityFile = new File(directory, "identity");
+      try {
+        if (directory.exists()) {
+          if (!identityFile.isFile()) {
+            throw new IllegalStateException("Identity file is hijacked!");
+          }
+          byte[] stored = Files.toByteArray(identityFile);
+          if (!Arrays.equals(stored, identifier.getBytes())) {
+            throw new IllegalStateException("Collision in identifier name, please ensure that the slug for " +
+                "the identifiers is different");
+          }
+        } else if (directory.mkdir()) {
+          Files.write(identifier.getBytes(), identityFile);
+        } else {
+          throw new RuntimeException("directory " + directory.getAbsolutePath() + " could not be created!");
+        }
+      } catch (IOException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    synchronized int store(byte[] bytes, int start, int end) throws IOException
+    {
+      final int length = end - start;
+      if (current == null || current.capacity() - current.writePosition < length) {
+        if (current != null && current.liveBlocks == 0) {
+          current.delete();
+        }
+        current = new Segment(new File(directory, "segment-" + ++segmentCount), Math.max(segmentSize, length));
+      }
+
+      final int position = current.append(bytes, start, length);
+      locations.put(++uniqueIdentifier, new Location(current, position, length));
+      return uniqueIdentifier;
+    }
+
+    synchronized ByteBuffer retrieve(int uniqueIdentifier)
+    {
+      Location location = locations.get(uniqueIdentifier);
+      if (location == null) {
+        throw new RuntimeException("Block " + uniqueIdentifier + " of " + identifier + " is not stored!");
+      }
+      return location.segment.slice(location.position, location.length);
+    }
+
+    synchronized void discard(int uniqueIdentifier)
+    {
+      Location location = locations.remove(uniqueIdentifier);
+      if (location == null) {
+        throw new RuntimeException("Block " + uniqueIdentifier + " of " + identifier + " is not stored!");
+      }
+      if (--location.segment.liveBlocks == 0) {
+        if (location.segment == current) {
+          /*
+           * reuse the preallocated segment instead of deleting and creating a new file.
+           */
+          current.writePosition = 0;
+        } else {
+          location.segment.delete();
+        }
+      }
+    }
+
+    synchronized void close()
+    {
+      for (Location location : locations.values()) {
+        if (location.segment.buffer != null) {
+          location.segment.delete();
+        }
+      }
+      locations.clear();
+      if (current != null && current.buffer != null) {
+        current.delete();
+      }
+      current = null;
+    }
+  }
+
+  private static class Location
+  {
+    final Segment segment;
+    final int position;
+    final int length;
+
+    Location(Segment segment, int position, int length)
+    {
+      this.segment = segment;
+      this.position = position;
+      this.length = length;
+    }
+  }
+
+  private static class Segment
+  {
+    final File file;
+    MappedByteBuffer buffer;
+    int writePosition;
+    int liveBlocks;
+
+    Segment(File file, long size) throws IOException
+    {
+      this.file = file;
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.setLength(size);
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      }
+      logger.debug("Allocated segment {} of size {}", file, size);
+    }
+
+    int capacity()
+    {
+      return buffer.capacity();
+    }
+
+    int append(byte[] bytes, int start, int length)
+    {
+      final int position = writePosition;
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(position);
+      duplicate.put(bytes, start, length);
+      writePosition += length;
+      liveBlocks++;
+      return position;
+    }
+
+    ByteBuffer slice(int position, int length)
+    {
+      ByteBuffer duplicate = buffer.duplicate();
+      duplicate.position(position);
+      duplicate.limit(position + length);
+      return duplicate.slice().asReadOnlyBuffer();
+    }
+
+    void delete()
+    {
+      /*
+       * The mapping is released when the buffer (and all the slices handed out) are garbage collected, the space on
+       * the disk is reclaimed at that time.
+       */
+      buffer = null;
+      if (!file.delete()) {
+        logger.warn("Segment file {} could not be deleted!", file);
+      }
+    }
+  }
+}
@@ -19,6 +19,7 @@
 package com.datatorrent.bufferserver.storage;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Interface used by the internal messaging service to temporarily store the messages.
@@ -70,6 +71,19 @@ public interface Storage
    */
   byte[] retrieve(String identifier, int uniqueIdentifier);
 
+  /**
+   * Retrieve the block as a buffer. Implementations that can serve the block without copying it, for example from a
+   * memory mapped file, should override this method.
+   *
+   * @param identifier primary identifier of the block which typically identifies the data source.
+   * @param uniqueIdentifier secondary and unique identifier of the block which needs to be retrived.
+   * @return buffer with the block content between its position and limit.
+   */
+  default ByteBuffer retrieveBuffer(String identifier, int uniqueIdentifier)
+  {
+    return ByteBuffer.wrap(retrieve(identifier, uniqueIdentifier));
+  }
+
   /**
    * Discard the block stored from the secondary storage.
    *
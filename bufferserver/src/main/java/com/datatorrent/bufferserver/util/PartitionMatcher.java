@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Matches a partition value against a set of {@link BitVector}s.
+ *
+ * The subscribers partition the stream with a single mask, so the set is indexed by the masked partition value. When
+ * the mask is small enough a lookup table is used, otherwise the sorted partition bits are searched. Sets with
+ * different masks fall back to testing every {@link BitVector}.
+ */
+public class PartitionMatcher
+{
+  static final int MAX_TABLE_SIZE = 1 << 16;
+  private final int mask;
+  private final boolean[] table;
+  private final int[] bits;
+  private final BitVector[] partitions;
+
+  public PartitionMatcher(Collection<BitVector> partitions)
+  {
+    this.partitions = partitions.toArray(new BitVector[partitions.size()]);
+
+    boolean sameMask = this.partitions.length > 0;
+    for (BitVector bv : this.partitions) {
+      sameMask &= bv.mask == this.partitions[0].mask;
+    }
+
+    if (sameMask) {
+      mask = this.partitions[0].mask;
+      if (mask >= 0 && mask < MAX_TABLE_SIZE) {
+        table = new boolean[mask + 1];
+        for (BitVector bv : this.partitions) {
+          table[bv.bits] = true;
+        }
+        bits = null;
+      } else {
+        table = null;
+        bits = new int[this.partitions.length];
+        for (int i = 0; i < bits.length; i++) {
+          bits[i] = this.partitions[i].bits;
+        }
+        Arrays.sort(bits);
+      }
+    } else {
+      mask = 0;
+      table = null;
+      bits = null;
+    }
+  }
+
+  public boolean matches(int value)
+  {
+    if (table != null) {
+      return table[value & mask];
+    }
+
+    if (bits != null) {
+      return Arrays.binarySearch(bits, value & mask) >= 0;
+    }
+
+    for (BitVector bv : partitions) {
+      if (bv.matches(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "PartitionMatcher{" + "mask=" + Integer.toBinaryString(mask) + ", partitions=" +
+        Arrays.toString(partitions) + '}';
+  }
+
+}
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.regex.Pattern;
+
+import sun.misc.Unsafe;
+
+/**
+ * Single producer single consumer queue of messages in a memory mapped file, used to pass the tuples from the buffer
+ * server to a subscriber on the same host without going through the socket.
+ *
+ * The file starts with a header holding a magic number and the capacity of the ring, then the positions of the
+ * producer and the consumer, each on its own cache line, followed by the ring of messages. Every message is written
+ * as its length followed by its bytes and never wraps around the end of the ring, the producer skips the tail of the
+ * ring instead and marks it with a negative length when there is room for it. The positions only grow, the producer
+ * publishes the messages by advancing its position after copying them and the consumer frees the space by advancing
+ * its position after reading them. The file is unlinked once the producer mapped it, the memory stays shared until
+ * both sides unmap it.
+ *
+ * The two sides run in different processes, so the positions are accessed directly on the mapped memory: a position
+ * is read with a volatile load, which keeps the accesses of the messages it covers after it, and advanced with an
+ * ordered store, which keeps the accesses of the messages it publishes or frees before it.
+ */
+public class SharedMemoryRing
+{
+  static final int MAGIC = 0x42535252;
+  static final int MAGIC_POSITION = 0;
+  static final int CAPACITY_POSITION = 4;
+  static final int WRITE_POSITION = 64;
+  static final int READ_POSITION = 128;
+  static final int DATA_OFFSET = 192;
+  /**
+   * Largest capacity of a ring, the file is mapped into a single buffer.
+   */
+  public static final int MAX_CAPACITY = Integer.MAX_VALUE - DATA_OFFSET;
+  private static final String PREFIX = "bufferserver-";
+  private static final String SUFFIX = ".ring";
+  private static final Pattern NAME = Pattern.compile(Pattern.quote(PREFIX) + "\\d+" + Pattern.quote(SUFFIX));
+  private static final int LENGTH_SIZE = 4;
+  private static final int SKIP = -1;
+  private static final Unsafe unsafe;
+  private static final long addressOffset;
+
+  static {
+    try {
+      Field field = Unsafe.class.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = (Unsafe)field.get(null);
+      addressOffset = unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+    } catch (NoSuchFieldException | IllegalAccessException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  private final File file;
+  private final MappedByteBuffer buffer;
+  /**
+   * address of the mapped memory, valid as long as the buffer is referenced.
+   */
+  private final long address;
+  private final int capacity;
+  private long writePosition;
+  private long readPosition;
+  private int readIndex;
+
+  private SharedMemoryRing(File file, MappedByteBuffer buffer)
+  {
+    this.file = file;
+    this.buffer = buffer;
+    address = unsafe.getLong(buffer, addressOffset);
+    capacity = buffer.capacity() - DATA_OFFSET;
+    writePosition = unsafe.getLongVolatile(null, address + WRITE_POSITION);
+    readPosition = unsafe.getLongVolatile(null, address + READ_POSITION);
+  }
+
+  /**
+   * Creates a new ring in a temporary file, in /dev/shm when it is available so that the pages are not written back
+   * to the disk.
+   *
+   * @param capacity size of the ring of messages in bytes
+   * @return the ring, read by the caller
+   * @throws IOException
+   */
+  public static SharedMemoryRing create(int capacity) throws IOException
+  {
+    File file = File.createTempFile(PREFIX, SUFFIX, getDirectory());
+    try {
+      SharedMemoryRing ring = map(file, DATA_OFFSET + capacity);
+      ring.buffer.putInt(CAPACITY_POSITION, capacity);
+      ring.buffer.putInt(MAGIC_POSITION, MAGIC);
+      return ring;
+    } catch (IOException ex) {
+      if (!file.delete()) {
+        file.deleteOnExit();
+      }
+      throw ex;
+    }
+  }
+
+  /**
+   * Directory of the ring files, /dev/shm when it is available and the temporary directory otherwise.
+   */
+  private static File getDirectory()
+  {
+    File directory = new File("/dev/shm");
+    if (!directory.isDirectory() || !directory.canWrite()) {
+      directory = new File(java.lang.System.getProperty("java.io.tmpdir"));
+    }
+    return directory;
+  }
+
+  /**
+   * Maps an existing ring created by {@link #create(int)}. The path is supplied by the remote subscriber, so it is
+   * only accepted for a regular ring file directly in the ring directory whose header matches its size. The file is
+   * unlinked once mapped.
+   *
+   * @param path path of the file of the ring
+   * @return the ring, written by the caller
+   * @throws IOException when the ring cannot be mapped
+   * @throws IllegalArgumentException when the path or the header does not denote a ring
+   */
+  public static SharedMemoryRing open(String path) throws IOException
+  {
+    File file = new File(path).getCanonicalFile();
+    if (!getDirectory().getCanonicalFile().equals(file.getParentFile()) || !NAME.matcher(file.getName()).matches()) {
+      throw new IllegalArgumentException("Shared memory " + path + " is not a ring file in " + getDirectory());
+    }
+    if (!Files.isRegularFile(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+      throw new IllegalArgumentException("Shared memory " + path + " is not a regular file");
+    }
+    SharedMemoryRing ring = map(file, -1);
+    if (ring.buffer.getInt(MAGIC_POSITION) != MAGIC || ring.buffer.getInt(CAPACITY_POSITION) != ring.capacity) {
+      throw new IllegalArgumentException("Shared memory " + path + " does not hold a ring");
+    }
+    // both sides mapped the ring, the file is not needed anymore
+    ring.delete();
+    return ring;
+  }
+
+  private static SharedMemoryRing map(File file, long size) throws IOException
+  {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      if (size >= 0) {
+        raf.setLength(size);
+      }
+      if (raf.length() <= DATA_OFFSET + LENGTH_SIZE || raf.length() > Integer.MAX_VALUE) {
+        throw new IOException("Invalid size " + raf.length() + " of shared memory " + file);
+      }
+      return new SharedMemoryRing(file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length()));
+    }
+  }
+
+  public String getPath()
+  {
+    return file.getAbsolutePath();
+  }
+
+  public int capacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Appends the message to the ring. Called by the producer only.
+   *
+   * @param array array holding the message
+   * @param offset offset of the message in the array
+   * @param length length of the message
+   * @return true if the message was added, false if there is not enough free space in the ring
+   */
+  public boolean offer(byte[] array, int offset, int length)
+  {
+    if (length > capacity - LENGTH_SIZE) {
+      throw new IllegalArgumentException("Message of " + length + " bytes does not fit in " + this);
+    }
+
+    int index = (int)(writePosition % capacity);
+    int tail = capacity - index;
+    int skip = tail < LENGTH_SIZE + length ? tail : 0;
+    long available = unsafe.getLongVolatile(null, address + READ_POSITION);
+    if (writePosition + skip + LENGTH_SIZE + length - available > capacity) {
+      return false;
+    }
+
+    if (skip > 0) {
+      if (skip >= LENGTH_SIZE) {
+        buffer.putInt(DATA_OFFSET + index, SKIP);
+      }
+      index = 0;
+    }
+    buffer.putInt(DATA_OFFSET + index, length);
+    buffer.position(DATA_OFFSET + index + LENGTH_SIZE);
+    buffer.put(array, offset, length);
+    writePosition += skip + LENGTH_SIZE + length;
+    unsafe.putOrderedLong(null, address + WRITE_POSITION, writePosition);
+    return true;
+  }
+
+  /**
+   * Returns the length of the next message in the ring. Called by the consumer only.
+   *
+   * @return the length of the next message or -1 if the ring is empty
+   */
+  public int peekLength()
+  {
+    long available = unsafe.getLongVolatile(null, address + WRITE_POSITION);
+    while (readPosition < available) {
+      readIndex = (int)(readPosition % capacity);
+      int tail = capacity - readIndex;
+      if (tail >= LENGTH_SIZE) {
+        int length = buffer.getInt(DATA_OFFSET + readIndex);
+        if (length != SKIP) {
+          return length;
+        }
+      }
+      readPosition += tail;
+    }
+    return -1;
+  }
+
+  /**
+   * Copies the next message into the array and frees its space in the ring. Called by the consumer only after
+   * {@link #peekLength()} returned the length of the message.
+   *
+   * @param array array to copy the message into
+   * @param offset offset in the array to copy the message at
+   * @return the length of the message
+   */
+  public int poll(byte[] array, int offset)
+  {
+    int length = buffer.getInt(DATA_OFFSET + readIndex);
+    buffer.position(DATA_OFFSET + readIndex + LENGTH_SIZE);
+    buffer.get(array, offset, length);
+    readPosition += LENGTH_SIZE + length;
+    unsafe.putOrderedLong(null, address + READ_POSITION, readPosition);
+    return length;
+  }
+
+  /**
+   * Deletes the file of the ring. The memory stays mapped until the ring is garbage collected.
+   */
+  public void delete()
+  {
+    if (file.exists() && !file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "SharedMemoryRing{" + "file=" + file + ", capacity=" + capacity + ", writePosition=" + writePosition +
+        ", readPosition=" + readPosition + '}';
+  }
+
+}
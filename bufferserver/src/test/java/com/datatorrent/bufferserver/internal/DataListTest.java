@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.DataTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.Tuple;
+import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.netlet.util.VarInt;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class DataListTest
+{
+  private ExecutorService executor;
+  private DataList dataList;
+  private int position;
+
+  @Before
+  public void setup()
+  {
+    executor = Executors.newSingleThreadExecutor();
+    dataList = new DataList("publisher", 64 * 1024, 8, true);
+    dataList.setAutoFlushExecutor(executor);
+  }
+
+  @After
+  public void teardown()
+  {
+    executor.shutdownNow();
+  }
+
+  private void publish(byte[] tuple)
+  {
+    byte[] buffer = dataList.getBuffer(0);
+    position = VarInt.write(tuple.length, buffer, position);
+    System.arraycopy(tuple, 0, buffer, position, tuple.length);
+    position += tuple.length;
+    dataList.flush(position);
+  }
+
+  private void publishWindow(int windowId, int payloadCount)
+  {
+    publish(BeginWindowTuple.getSerializedTuple(windowId));
+    for (int i = 0; i < payloadCount; i++) {
+      publish(PayloadTuple.getSerializedTuple(i, 8));
+    }
+    publish(EndWindowTuple.getSerializedTuple(windowId));
+  }
+
+  private static Tuple getTuple(SerializedData data)
+  {
+    return Tuple.getTuple(data.buffer, data.dataOffset, data.length - data.dataOffset + data.offset);
+  }
+
+  @Test
+  public void testSkipToWindow()
+  {
+    for (int windowId = 1; windowId <= 10; windowId++) {
+      publishWindow(windowId, 100);
+    }
+
+    try (DataList.DataListIterator iterator = dataList.newIterator(5)) {
+      assertTrue(iterator.skipTo(0, 5));
+      assertFalse(iterator.skipTo(0, 5), "iterator is at the window already");
+      assertTrue(iterator.hasNext());
+      Tuple tuple = getTuple(iterator.next());
+      assertEquals(tuple.getType(), MessageType.BEGIN_WINDOW);
+      assertEquals(tuple.getWindowId(), 6);
+    }
+  }
+
+  @Test
+  public void testSkipStopsAtControlTuple()
+  {
+    publishWindow(1, 100);
+    publish(BeginWindowTuple.getSerializedTuple(2));
+    publish(PayloadTuple.getSerializedTuple(0, 8));
+    publish(DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, new Slice(new byte[] {1, 2, 3})));
+    publish(PayloadTuple.getSerializedTuple(0, 8));
+    publish(EndWindowTuple.getSerializedTuple(2));
+    publishWindow(3, 100);
+
+    try (DataList.DataListIterator iterator = dataList.newIterator(2)) {
+      assertTrue(iterator.skipTo(0, 2));
+      assertTrue(iterator.hasNext());
+      assertEquals(getTuple(iterator.next()).getType(), MessageType.CODEC_STATE);
+
+      assertTrue(iterator.skipTo(0, 2));
+      assertTrue(iterator.hasNext());
+      Tuple tuple = getTuple(iterator.next());
+      assertEquals(tuple.getType(), MessageType.BEGIN_WINDOW);
+      assertEquals(tuple.getWindowId(), 3);
+    }
+  }
+
+  @Test
+  public void testSkipWithoutIndexedWindow()
+  {
+    publishWindow(1, 10);
+
+    try (DataList.DataListIterator iterator = dataList.newIterator(1)) {
+      assertFalse(iterator.skipTo(0, 1));
+      assertTrue(iterator.hasNext());
+      assertEquals(getTuple(iterator.next()).getType(), MessageType.BEGIN_WINDOW);
+    }
+  }
+}
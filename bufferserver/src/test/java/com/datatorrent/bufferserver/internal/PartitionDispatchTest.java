@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.netlet.WriteOnlyClient;
+import com.datatorrent.netlet.util.VarInt;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class PartitionDispatchTest
+{
+  private ExecutorService executor;
+  private DataList dataList;
+  private int position;
+
+  private static class Client extends WriteOnlyClient
+  {
+    final int[] payloads = new int[4];
+    int controlTuples;
+
+    @Override
+    public synchronized boolean send(byte[] array, int offset, int length)
+    {
+      if (array[offset] == MessageType.PAYLOAD_VALUE) {
+        payloads[PayloadTuple.getPartition(array, offset) & 3]++;
+      } else {
+        controlTuples++;
+      }
+      return true;
+    }
+
+    synchronized int getCount()
+    {
+      return payloads[0] + payloads[1] + payloads[2] + payloads[3] + controlTuples;
+    }
+  }
+
+  @Before
+  public void setup()
+  {
+    executor = Executors.newSingleThreadExecutor();
+    dataList = new DataList("publisher", 64 * 1024, 8, true);
+    dataList.setAutoFlushExecutor(executor);
+  }
+
+  @After
+  public void teardown()
+  {
+    executor.shutdownNow();
+  }
+
+  private void publish(byte[] tuple)
+  {
+    byte[] buffer = dataList.getBuffer(0);
+    position = VarInt.write(tuple.length, buffer, position);
+    System.arraycopy(tuple, 0, buffer, position, tuple.length);
+    position += tuple.length;
+    dataList.flush(position);
+  }
+
+  private void publishWindow(int windowId, int payloadCount)
+  {
+    publish(BeginWindowTuple.getSerializedTuple(windowId));
+    for (int i = 0; i < payloadCount; i++) {
+      publish(PayloadTuple.getSerializedTuple(i, 8));
+    }
+    publish(EndWindowTuple.getSerializedTuple(windowId));
+  }
+
+  private LogicalNode subscribe(String group, Client client, int... partitions)
+  {
+    LogicalNode ln = new LogicalNode("subscriber", "publisher", group, dataList.newIterator(0), -1, null);
+    for (int partition : partitions) {
+      ln.addPartition(partition, 3);
+    }
+    ln.addConnection(client);
+    return ln;
+  }
+
+  private static void waitFor(Client client, int count) throws InterruptedException
+  {
+    long end = System.currentTimeMillis() + 10000;
+    while (client.getCount() < count && System.currentTimeMillis() < end) {
+      Thread.sleep(10);
+    }
+    assertEquals(client.getCount(), count, "tuples");
+  }
+
+  @Test
+  public void testDispatch() throws InterruptedException
+  {
+    publishWindow(1, 8);
+
+    Client[] clients = {new Client(), new Client(), new Client()};
+    List<LogicalNode> nodes = Arrays.asList(subscribe("group", clients[0], 0), subscribe("group", clients[1], 1),
+        subscribe("group", clients[2], 2, 3));
+    ArrayList<DataListener> listeners = new ArrayList<>();
+    for (LogicalNode ln : nodes) {
+      // the first call catches up with the window
+      ln.addedData(false);
+      listeners.add(ln);
+    }
+
+    PartitionDispatch dispatch = PartitionDispatch.get(listeners, null);
+    assertNotNull(dispatch, "nodes at the same position");
+    for (LogicalNode ln : nodes) {
+      assertTrue(dispatch.contains(ln), "dispatched " + ln);
+      assertTrue(ln.getIterator().isAt(nodes.get(0).getIterator()), "position of " + ln);
+    }
+    assertTrue(PartitionDispatch.get(listeners, dispatch) == dispatch, "dispatch is reused");
+
+    for (LogicalNode ln : nodes) {
+      dataList.addDataListener(ln);
+    }
+    for (int windowId = 2; windowId <= 10; windowId++) {
+      publishWindow(windowId, 8);
+    }
+
+    // begin and end window of the 10 windows and 2 payload tuples of each window per partition
+    waitFor(clients[0], 20 + 20);
+    waitFor(clients[1], 20 + 20);
+    waitFor(clients[2], 20 + 40);
+    assertEquals(Arrays.toString(clients[0].payloads), "[20, 0, 0, 0]", "partition 0");
+    assertEquals(Arrays.toString(clients[1].payloads), "[0, 20, 0, 0]", "partition 1");
+    assertEquals(Arrays.toString(clients[2].payloads), "[0, 0, 20, 20]", "partitions 2 and 3");
+  }
+
+  @Test
+  public void testNodeBehindIsNotDispatched()
+  {
+    publishWindow(1, 8);
+
+    LogicalNode first = subscribe("first", new Client(), 0);
+    LogicalNode second = subscribe("second", new Client(), 1);
+    LogicalNode notCaughtUp = subscribe("third", new Client(), 2);
+    first.addedData(false);
+    second.addedData(false);
+
+    PartitionDispatch dispatch = PartitionDispatch.get(Arrays.<DataListener>asList(first, second, notCaughtUp), null);
+    assertNotNull(dispatch);
+    assertTrue(dispatch.contains(first));
+    assertTrue(dispatch.contains(second));
+    assertTrue(!dispatch.contains(notCaughtUp), "node catching up reads on its own");
+
+    publishWindow(2, 8);
+    first.addedData(false);
+    assertNull(PartitionDispatch.get(Arrays.<DataListener>asList(first, second, notCaughtUp), dispatch),
+        "nodes at different positions");
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.packet;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.testng.Assert;
+
+import com.datatorrent.netlet.util.Slice;
+
+public class PayloadTupleTest
+{
+  @Test
+  public void testWriteSerializedTuple()
+  {
+    Slice data = new Slice(new byte[] {9, 1, 2, 3, 9}, 1, 3);
+    byte[] buffer = new byte[32];
+
+    int offset = PayloadTuple.writeSerializedTuple(0x12345678, data, buffer, 4);
+    Assert.assertEquals(offset, 4 + 5 + data.length);
+    Tuple tuple = Tuple.getTuple(buffer, 4, offset - 4);
+    Assert.assertEquals(tuple.getType(), MessageType.PAYLOAD);
+    Assert.assertEquals(tuple.getPartition(), 0x12345678);
+    Assert.assertEquals(tuple.getData(), data);
+
+    int end = DataTuple.writeSerializedTuple(MessageType.CODEC_STATE_VALUE, data, buffer, offset);
+    Assert.assertEquals(end, offset + 1 + data.length);
+    tuple = Tuple.getTuple(buffer, offset, end - offset);
+    Assert.assertEquals(tuple.getType(), MessageType.CODEC_STATE);
+    Assert.assertEquals(tuple.getData(), data);
+
+    Assert.assertEquals(PayloadTuple.getSerializedTuple(0x12345678, data),
+        Arrays.copyOfRange(buffer, 4, 4 + 5 + data.length));
+  }
+
+}
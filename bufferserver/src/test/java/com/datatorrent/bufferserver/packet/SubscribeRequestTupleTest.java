@@ -70,5 +70,13 @@ public class SubscribeRequestTupleTest
     assertEquals(tuple.getBufferSize(), 32 * 1024, "BufferSize");
     assertNull(tuple.getPartitions());
     assertEquals(tuple.getWindowId(), startingWindowId, "Window");
+    assertNull(tuple.getSharedMemoryPath(), "SharedMemoryPath");
+
+    serial = getSerializedRequest(null, id, down_type, upstream_id, 0, null, startingWindowId, 32 * 1024,
+        "/dev/shm/ring");
+    tuple = (SubscribeRequestTuple)Tuple.getTuple(serial, 0, serial.length);
+
+    assertEquals(tuple.getBufferSize(), 32 * 1024, "BufferSize");
+    assertEquals(tuple.getSharedMemoryPath(), "/dev/shm/ring", "SharedMemoryPath");
   }
 }
@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.storage;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class SegmentedDiskStorageTest
+{
+  private static byte[] block(int size, int seed)
+  {
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte)(seed + i);
+    }
+    return bytes;
+  }
+
+  @Test
+  public void testStoreRetrieveDiscard() throws Exception
+  {
+    File baseDir = Files.createTempDir();
+    SegmentedDiskStorage storage = new SegmentedDiskStorage(baseDir.getPath(), 1024);
+    try {
+      byte[] first = block(400, 1);
+      byte[] second = block(400, 2);
+      byte[] third = block(400, 3);
+
+      int firstId = storage.store("MyPublisher", first, 0, first.length);
+      int secondId = storage.store("MyPublisher", second, 100, second.length);
+      int thirdId = storage.store("MyPublisher", third, 0, third.length);
+
+      ByteBuffer buffer = storage.retrieveBuffer("MyPublisher", firstId);
+      assertTrue(buffer.isReadOnly());
+      assertEquals(buffer.remaining(), first.length);
+      assertEquals(storage.retrieve("MyPublisher", firstId), first);
+
+      byte[] expected = new byte[300];
+      System.arraycopy(second, 100, expected, 0, expected.length);
+      assertEquals(storage.retrieve("MyPublisher", secondId), expected);
+      assertEquals(storage.retrieve("MyPublisher", thirdId), third);
+
+      File directory = new File(baseDir, DiskStorage.normalizeFileName("MyPublisher"));
+      File firstSegment = new File(directory, "segment-1");
+      File secondSegment = new File(directory, "segment-2");
+      assertTrue(firstSegment.isFile());
+      assertTrue(secondSegment.isFile());
+
+      storage.discard("MyPublisher", firstId);
+      assertTrue(firstSegment.isFile());
+      storage.discard("MyPublisher", secondId);
+      assertFalse(firstSegment.exists(), "segment with no live blocks is deleted");
+
+      storage.discard("MyPublisher", thirdId);
+      assertTrue(secondSegment.isFile(), "current segment is reused");
+      int fourthId = storage.store("MyPublisher", first, 0, first.length);
+      assertEquals(storage.retrieve("MyPublisher", fourthId), first);
+      assertFalse(new File(directory, "segment-3").exists());
+    } finally {
+      storage.close();
+    }
+  }
+
+  @Test
+  public void testBlockLargerThanSegment() throws Exception
+  {
+    File baseDir = Files.createTempDir();
+    SegmentedDiskStorage storage = new SegmentedDiskStorage(baseDir.getPath(), 1024);
+    try {
+      byte[] bytes = block(4096, 7);
+      int id = storage.store("MyPublisher", bytes, 0, bytes.length);
+      assertEquals(storage.retrieve("MyPublisher", id), bytes);
+    } finally {
+      storage.close();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.Tuple;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ *
+ */
+public class PartitionMatcherTest
+{
+  private static void assertMatches(List<BitVector> partitions)
+  {
+    PartitionMatcher matcher = new PartitionMatcher(partitions);
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      int value = random.nextInt();
+      boolean expected = false;
+      for (BitVector bv : partitions) {
+        expected |= bv.matches(value);
+      }
+      assertEquals(matcher.matches(value), expected, "value " + value + " " + matcher);
+    }
+  }
+
+  @Test
+  public void testSameMask()
+  {
+    List<BitVector> partitions = new ArrayList<>();
+    partitions.add(new BitVector(3, 0xff));
+    partitions.add(new BitVector(200, 0xff));
+    assertMatches(partitions);
+  }
+
+  @Test
+  public void testLargeMask()
+  {
+    List<BitVector> partitions = new ArrayList<>();
+    partitions.add(new BitVector(0x70000003, 0xf0000003));
+    partitions.add(new BitVector(0x10000001, 0xf0000003));
+    partitions.add(new BitVector(-1, 0xf0000003));
+    assertMatches(partitions);
+  }
+
+  @Test
+  public void testDifferentMasks()
+  {
+    List<BitVector> partitions = new ArrayList<>();
+    partitions.add(new BitVector(1, 0x1));
+    partitions.add(new BitVector(2, 0x3));
+    assertMatches(partitions);
+  }
+
+  @Test
+  public void testPayloadPartition()
+  {
+    for (int partition : new int[] {0, 1, 255, 256, -1, Integer.MIN_VALUE, 0x12345678}) {
+      byte[] tuple = PayloadTuple.getSerializedTuple(partition, 1);
+      assertEquals(PayloadTuple.getPartition(tuple, 0), partition);
+      assertEquals(Tuple.getTuple(tuple, 0, tuple.length).getPartition(), partition);
+    }
+  }
+}
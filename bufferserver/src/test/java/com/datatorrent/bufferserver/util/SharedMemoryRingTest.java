@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.util;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class SharedMemoryRingTest
+{
+  private static byte[] message(int size, int seed)
+  {
+    byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte)(seed + i);
+    }
+    return bytes;
+  }
+
+  private static byte[] poll(SharedMemoryRing ring)
+  {
+    int length = ring.peekLength();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length + 2];
+    assertEquals(ring.poll(bytes, 2), length);
+    return Arrays.copyOfRange(bytes, 2, bytes.length);
+  }
+
+  @Test
+  public void testOfferPoll() throws Exception
+  {
+    SharedMemoryRing consumer = SharedMemoryRing.create(1024);
+    try {
+      SharedMemoryRing producer = SharedMemoryRing.open(consumer.getPath());
+      assertFalse(new File(consumer.getPath()).exists(), "unlinked once mapped");
+      assertEquals(producer.capacity(), 1024);
+      assertEquals(consumer.peekLength(), -1);
+
+      byte[] first = message(100, 1);
+      byte[] second = message(10, 2);
+      assertTrue(producer.offer(first, 0, first.length));
+      assertTrue(producer.offer(second, 5, 5));
+
+      assertEquals(poll(consumer), first);
+      assertEquals(poll(consumer), Arrays.copyOfRange(second, 5, 10));
+      assertEquals(consumer.peekLength(), -1);
+    } finally {
+      consumer.delete();
+    }
+    assertFalse(new File(consumer.getPath()).exists());
+  }
+
+  @Test
+  public void testFullRing() throws Exception
+  {
+    SharedMemoryRing consumer = SharedMemoryRing.create(256);
+    try {
+      SharedMemoryRing producer = SharedMemoryRing.open(consumer.getPath());
+      byte[] bytes = message(60, 3);
+      for (int i = 0; i < 4; i++) {
+        assertTrue(producer.offer(bytes, 0, bytes.length), "message " + i);
+      }
+      assertFalse(producer.offer(bytes, 0, bytes.length), "ring is full");
+
+      assertEquals(poll(consumer), bytes);
+      assertTrue(producer.offer(bytes, 0, bytes.length), "space is freed by the consumer");
+    } finally {
+      consumer.delete();
+    }
+  }
+
+  @Test
+  public void testWrapAround() throws Exception
+  {
+    SharedMemoryRing consumer = SharedMemoryRing.create(1000);
+    try {
+      SharedMemoryRing producer = SharedMemoryRing.open(consumer.getPath());
+      for (int i = 0; i < 1000; i++) {
+        byte[] first = message(1 + i % 97, i);
+        byte[] second = message(1 + i % 113, -i);
+        assertTrue(producer.offer(first, 0, first.length), "message " + i);
+        assertTrue(producer.offer(second, 0, second.length), "message " + i);
+        assertEquals(poll(consumer), first);
+        assertEquals(poll(consumer), second);
+      }
+      assertEquals(consumer.peekLength(), -1);
+    } finally {
+      consumer.delete();
+    }
+  }
+
+  @Test
+  public void testConcurrentProducer() throws Exception
+  {
+    final SharedMemoryRing consumer = SharedMemoryRing.create(4096);
+    try {
+      final SharedMemoryRing producer = SharedMemoryRing.open(consumer.getPath());
+      final int count = 100000;
+      Thread thread = new Thread("producer")
+      {
+        @Override
+        public void run()
+        {
+          for (int i = 0; i < count; i++) {
+            byte[] bytes = message(1 + i % 200, i);
+            while (!producer.offer(bytes, 0, bytes.length)) {
+              Thread.yield();
+            }
+          }
+        }
+      };
+      thread.start();
+
+      for (int i = 0; i < count; ) {
+        byte[] bytes = poll(consumer);
+        if (bytes == null) {
+          Thread.yield();
+        } else {
+          assertEquals(bytes, message(1 + i % 200, i), "message " + i);
+          i++;
+        }
+      }
+      thread.join();
+    } finally {
+      consumer.delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMessageTooLarge() throws Exception
+  {
+    SharedMemoryRing ring = SharedMemoryRing.create(64);
+    try {
+      ring.offer(new byte[64], 0, 64);
+    } finally {
+      ring.delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenForeignFile() throws Exception
+  {
+    File file = File.createTempFile("foreign", ".bin");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(1024);
+    }
+    try {
+      SharedMemoryRing.open(file.getPath());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOpenInvalidHeader() throws Exception
+  {
+    SharedMemoryRing ring = SharedMemoryRing.create(1024);
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(ring.getPath(), "rw")) {
+        raf.seek(SharedMemoryRing.CAPACITY_POSITION);
+        raf.writeInt(Integer.MAX_VALUE);
+      }
+      SharedMemoryRing.open(ring.getPath());
+    } finally {
+      ring.delete();
+    }
+  }
+}
@@ -0,0 +1,631 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.codec;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.netlet.util.Slice;
+
+/**
+ * <p>Binary StreamCodec for the tuples of a declared class.</p>
+ *
+ * The layout of the tuple is computed once from the fields of the class when the codec is created, so a class that
+ * can not be serialized is rejected when the DAG is assembled. The serialized tuple carries no class names and the
+ * codec keeps no state, every tuple is written as a bitmap of the null fields followed by the fields of fixed size at
+ * fixed offsets and the fields of variable size, each prefixed with its length. The supported field types are the
+ * primitives and their wrappers, enums, strings, byte arrays and nested classes made of the same types, the static
+ * and transient fields are skipped.
+ *
+ * Since the offsets are known, a single field can be read from the serialized tuple with
+ * {@link #getField(Slice, String)} without deserializing the tuple. When partition fields are given, the partition of
+ * the tuple is computed from their values, both from the tuple and from its serialized form.
+ *
+ * @param <T> tuple type
+ */
+public class SchemaStreamCodec<T> implements StreamCodec<T>, Serializable
+{
+  private static final int LENGTH_SIZE = 4;
+  private final Class<T> tupleClass;
+  private final String[] partitionFields;
+  private transient Schema schema;
+  private transient Writer writer;
+
+  /**
+   * @param tupleClass class of the tuples, must have a constructor without arguments
+   * @param partitionFields names of the fields the partition of the tuple is computed from, the hash code of the tuple
+   * is used when none is given
+   */
+  public SchemaStreamCodec(Class<T> tupleClass, String... partitionFields)
+  {
+    this.tupleClass = tupleClass;
+    this.partitionFields = partitionFields;
+    getSchema();
+  }
+
+  private Schema getSchema()
+  {
+    if (schema == null) {
+      Schema schema = new Schema(tupleClass, new ArrayDeque<Class<?>>());
+      for (String name : partitionFields) {
+        schema.getField(name);
+      }
+      writer = new Writer();
+      this.schema = schema;
+    }
+    return schema;
+  }
+
+  public Class<T> getTupleClass()
+  {
+    return tupleClass;
+  }
+
+  @Override
+  public Object fromByteArray(Slice fragment)
+  {
+    return getSchema().read(fragment.buffer, fragment.offset);
+  }
+
+  @Override
+  public Slice toByteArray(T o)
+  {
+    Schema schema = getSchema();
+    writer.position = 0;
+    schema.write(o, writer);
+    return new Slice(Arrays.copyOf(writer.buffer, writer.position), 0, writer.position);
+  }
+
+  /**
+   * Reads the value of a field of the serialized tuple without deserializing the tuple.
+   *
+   * @param fragment serialized tuple
+   * @param name name of the field
+   * @return value of the field, boxed when the field is a primitive
+   */
+  public Object getField(Slice fragment, String name)
+  {
+    return getSchema().getField(name).read(fragment.buffer, fragment.offset);
+  }
+
+  @Override
+  public int getPartition(T o)
+  {
+    Schema schema = getSchema();
+    if (partitionFields.length == 0) {
+      return o.hashCode();
+    }
+
+    int partition = 0;
+    for (String name : partitionFields) {
+      partition = 31 * partition + hashCode(schema.getField(name).get(o));
+    }
+    return partition;
+  }
+
+  /**
+   * Computes the partition of the serialized tuple, the same as {@link #getPartition(Object)} would for the tuple,
+   * reading only the partition fields.
+   *
+   * @param fragment serialized tuple
+   * @return partition for the tuple
+   */
+  public int getPartition(Slice fragment)
+  {
+    if (partitionFields.length == 0) {
+      return fromByteArray(fragment).hashCode();
+    }
+
+    int partition = 0;
+    for (String name : partitionFields) {
+      partition = 31 * partition + hashCode(getField(fragment, name));
+    }
+    return partition;
+  }
+
+  /**
+   * Hash code of a field value that is the same in every JVM, unlike the one of an enum.
+   */
+  private static int hashCode(Object value)
+  {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof Enum) {
+      return ((Enum<?>)value).name().hashCode();
+    } else if (value instanceof byte[]) {
+      return Arrays.hashCode((byte[])value);
+    }
+    return value.hashCode();
+  }
+
+  private static final long serialVersionUID = 201610170000L;
+
+  /**
+   * Growable byte array the tuples are serialized into.
+   */
+  private static class Writer
+  {
+    byte[] buffer = new byte[4096];
+    int position;
+
+    int reserve(int size)
+    {
+      int start = position;
+      position += size;
+      if (position > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(position, buffer.length << 1));
+      }
+      return start;
+    }
+
+    void writeString(String value)
+    {
+      int start = reserve(LENGTH_SIZE + value.length());
+      int index = start + LENGTH_SIZE;
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c >= 0x80) {
+          position = start;
+          writeBytes(value.getBytes(StandardCharsets.UTF_8));
+          return;
+        }
+        buffer[index++] = (byte)c;
+      }
+      putInt(buffer, start, value.length());
+    }
+
+    void writeBytes(byte[] value)
+    {
+      int start = reserve(LENGTH_SIZE + value.length);
+      putInt(buffer, start, value.length);
+      System.arraycopy(value, 0, buffer, start + LENGTH_SIZE, value.length);
+    }
+  }
+
+  private static void putLong(byte[] buffer, int offset, long value)
+  {
+    putInt(buffer, offset, (int)(value >>> 32));
+    putInt(buffer, offset + 4, (int)value);
+  }
+
+  private static void putInt(byte[] buffer, int offset, int value)
+  {
+    buffer[offset] = (byte)(value >>> 24);
+    buffer[offset + 1] = (byte)(value >>> 16);
+    buffer[offset + 2] = (byte)(value >>> 8);
+    buffer[offset + 3] = (byte)value;
+  }
+
+  private static void putShort(byte[] buffer, int offset, int value)
+  {
+    buffer[offset] = (byte)(value >>> 8);
+    buffer[offset + 1] = (byte)value;
+  }
+
+  private static long getLong(byte[] buffer, int offset)
+  {
+    return ((long)getInt(buffer, offset) << 32) | (getInt(buffer, offset + 4) & 0xffffffffL);
+  }
+
+  private static int getInt(byte[] buffer, int offset)
+  {
+    return (buffer[offset] << 24) | ((buffer[offset + 1] & 0xff) << 16) | ((buffer[offset + 2] & 0xff) << 8) |
+        (buffer[offset + 3] & 0xff);
+  }
+
+  private static short getShort(byte[] buffer, int offset)
+  {
+    return (short)((buffer[offset] << 8) | (buffer[offset + 1] & 0xff));
+  }
+
+  /**
+   * Type of a field and the size it takes in the fixed part of the layout, 0 for the variable part.
+   */
+  private enum Kind
+  {
+    BOOLEAN(1), BYTE(1), SHORT(2), CHAR(2), INT(4), FLOAT(4), LONG(8), DOUBLE(8), ENUM(4), STRING(0), BYTES(0),
+    RECORD(0);
+
+    final int size;
+
+    Kind(int size)
+    {
+      this.size = size;
+    }
+
+    static Kind of(Class<?> type)
+    {
+      if (type == boolean.class || type == Boolean.class) {
+        return BOOLEAN;
+      } else if (type == byte.class || type == Byte.class) {
+        return BYTE;
+      } else if (type == short.class || type == Short.class) {
+        return SHORT;
+      } else if (type == char.class || type == Character.class) {
+        return CHAR;
+      } else if (type == int.class || type == Integer.class) {
+        return INT;
+      } else if (type == float.class || type == Float.class) {
+        return FLOAT;
+      } else if (type == long.class || type == Long.class) {
+        return LONG;
+      } else if (type == double.class || type == Double.class) {
+        return DOUBLE;
+      } else if (type.isEnum()) {
+        return ENUM;
+      } else if (type == String.class) {
+        return STRING;
+      } else if (type == byte[].class) {
+        return BYTES;
+      } else if (type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers()) ||
+          type.getName().startsWith("java.")) {
+        return null;
+      }
+      return RECORD;
+    }
+  }
+
+  /**
+   * Layout of a class, computed from its fields.
+   */
+  private static class Schema
+  {
+    final Class<?> type;
+    final Constructor<?> constructor;
+    final FieldCodec[] fields;
+    final Map<String, FieldCodec> fieldsByName = new HashMap<>();
+    final int bitmapSize;
+    final int fixedSize;
+    final int variableStart;
+
+    Schema(Class<?> type, Deque<Class<?>> path)
+    {
+      if (path.contains(type)) {
+        throw new IllegalArgumentException("Recursive type " + type.getName() + " in " + path);
+      }
+      path.push(type);
+      this.type = type;
+      try {
+        constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+      } catch (NoSuchMethodException ex) {
+        throw new IllegalArgumentException(type.getName() + " does not have a constructor without arguments", ex);
+      }
+
+      List<Field> declared = new ArrayList<>();
+      for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+            declared.add(field);
+          }
+        }
+      }
+      /* the layout must not depend on the order the JVM returns the fields in */
+      declared.sort(new Comparator<Field>()
+      {
+        @Override
+        public int compare(Field f1, Field f2)
+        {
+          int result = f1.getName().compareTo(f2.getName());
+          return result == 0 ? f1.getDeclaringClass().getName().compareTo(f2.getDeclaringClass().getName()) : result;
+        }
+      });
+
+      List<FieldCodec> fixed = new ArrayList<>();
+      List<FieldCodec> variable = new ArrayList<>();
+      int nullable = 0;
+      for (Field field : declared) {
+        Kind kind = Kind.of(field.getType());
+        if (kind == null) {
+          throw new IllegalArgumentException("Unsupported type " + field.getType().getName() + " of field " +
+              field.getName() + " in " + type.getName());
+        }
+        field.setAccessible(true);
+        FieldCodec codec = new FieldCodec(field, kind, field.getType().isPrimitive() ? -1 : nullable++,
+            kind == Kind.RECORD ? new Schema(field.getType(), path) : null);
+        (kind.size > 0 ? fixed : variable).add(codec);
+        if (!fieldsByName.containsKey(field.getName())) {
+          fieldsByName.put(field.getName(), codec);
+        }
+      }
+      path.pop();
+
+      /* larger fields first keeps them aligned */
+      fixed.sort(new Comparator<FieldCodec>()
+      {
+        @Override
+        public int compare(FieldCodec f1, FieldCodec f2)
+        {
+          return f2.kind.size - f1.kind.size;
+        }
+      });
+      bitmapSize = (nullable + 7) >> 3;
+      int offset = bitmapSize;
+      for (FieldCodec codec : fixed) {
+        codec.offset = offset;
+        offset += codec.kind.size;
+      }
+      fixedSize = offset;
+      variableStart = fixed.size();
+      for (int i = 0; i < variable.size(); i++) {
+        variable.get(i).offset = -i - 1;
+      }
+      fixed.addAll(variable);
+      fields = fixed.toArray(new FieldCodec[fixed.size()]);
+      for (FieldCodec codec : fields) {
+        codec.schema = this;
+      }
+    }
+
+    FieldCodec getField(String name)
+    {
+      FieldCodec codec = fieldsByName.get(name);
+      if (codec == null) {
+        throw new IllegalArgumentException("Field " + name + " not found in " + type.getName());
+      }
+      return codec;
+    }
+
+    boolean isNull(byte[] buffer, int offset, int nullIndex)
+    {
+      return nullIndex >= 0 && (buffer[offset + (nullIndex >> 3)] & (1 << (nullIndex & 7))) != 0;
+    }
+
+    void write(Object o, Writer writer)
+    {
+      int start = writer.reserve(fixedSize);
+      Arrays.fill(writer.buffer, start, start + bitmapSize, (byte)0);
+      for (FieldCodec codec : fields) {
+        codec.write(o, start, writer);
+      }
+    }
+
+    Object read(byte[] buffer, int offset)
+    {
+      Object o;
+      try {
+        o = constructor.newInstance();
+      } catch (ReflectiveOperationException ex) {
+        throw new RuntimeException("Failed to create " + type.getName(), ex);
+      }
+
+      int position = offset + fixedSize;
+      for (FieldCodec codec : fields) {
+        if (isNull(buffer, offset, codec.nullIndex)) {
+          codec.set(o, null);
+        } else if (codec.offset >= 0) {
+          codec.set(o, codec.readFixed(buffer, offset + codec.offset));
+        } else {
+          codec.set(o, codec.readVariable(buffer, position));
+          position += LENGTH_SIZE + getInt(buffer, position);
+        }
+      }
+      return o;
+    }
+  }
+
+  /**
+   * Serializer of a field, the offset is the position in the fixed part of the layout or -1 - the index of the field
+   * in the variable part.
+   */
+  private static class FieldCodec
+  {
+    final Field field;
+    final Kind kind;
+    final int nullIndex;
+    final Schema record;
+    Schema schema;
+    int offset;
+
+    FieldCodec(Field field, Kind kind, int nullIndex, Schema record)
+    {
+      this.field = field;
+      this.kind = kind;
+      this.nullIndex = nullIndex;
+      this.record = record;
+    }
+
+    Object get(Object o)
+    {
+      try {
+        return field.get(o);
+      } catch (IllegalAccessException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    void set(Object o, Object value)
+    {
+      try {
+        if (value != null || nullIndex >= 0) {
+          field.set(o, value);
+        }
+      } catch (IllegalAccessException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    void write(Object o, int start, Writer writer)
+    {
+      try {
+        if (nullIndex < 0) {
+          writePrimitive(o, writer.buffer, start + offset);
+          return;
+        }
+
+        Object value = field.get(o);
+        if (value == null) {
+          writer.buffer[start + (nullIndex >> 3)] |= 1 << (nullIndex & 7);
+        } else if (offset >= 0) {
+          writeFixed(value, writer.buffer, start + offset);
+        } else if (kind == Kind.STRING) {
+          writer.writeString((String)value);
+        } else if (kind == Kind.BYTES) {
+          writer.writeBytes((byte[])value);
+        } else {
+          int position = writer.reserve(LENGTH_SIZE);
+          record.write(value, writer);
+          putInt(writer.buffer, position, writer.position - position - LENGTH_SIZE);
+        }
+      } catch (IllegalAccessException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    private void writePrimitive(Object o, byte[] buffer, int offset) throws IllegalAccessException
+    {
+      switch (kind) {
+        case BOOLEAN:
+          buffer[offset] = (byte)(field.getBoolean(o) ? 1 : 0);
+          break;
+        case BYTE:
+          buffer[offset] = field.getByte(o);
+          break;
+        case SHORT:
+          putShort(buffer, offset, field.getShort(o));
+          break;
+        case CHAR:
+          putShort(buffer, offset, field.getChar(o));
+          break;
+        case INT:
+          putInt(buffer, offset, field.getInt(o));
+          break;
+        case FLOAT:
+          putInt(buffer, offset, Float.floatToRawIntBits(field.getFloat(o)));
+          break;
+        case LONG:
+          putLong(buffer, offset, field.getLong(o));
+          break;
+        case DOUBLE:
+          putLong(buffer, offset, Double.doubleToRawLongBits(field.getDouble(o)));
+          break;
+        default:
+          throw new IllegalStateException(kind.toString());
+      }
+    }
+
+    private void writeFixed(Object value, byte[] buffer, int offset)
+    {
+      switch (kind) {
+        case BOOLEAN:
+          buffer[offset] = (byte)((Boolean)value ? 1 : 0);
+          break;
+        case BYTE:
+          buffer[offset] = (Byte)value;
+          break;
+        case SHORT:
+          putShort(buffer, offset, (Short)value);
+          break;
+        case CHAR:
+          putShort(buffer, offset, (Character)value);
+          break;
+        case INT:
+          putInt(buffer, offset, (Integer)value);
+          break;
+        case FLOAT:
+          putInt(buffer, offset, Float.floatToRawIntBits((Float)value));
+          break;
+        case LONG:
+          putLong(buffer, offset, (Long)value);
+          break;
+        case DOUBLE:
+          putLong(buffer, offset, Double.doubleToRawLongBits((Double)value));
+          break;
+        case ENUM:
+          putInt(buffer, offset, ((Enum<?>)value).ordinal());
+          break;
+        default:
+          throw new IllegalStateException(kind.toString());
+      }
+    }
+
+    Object readFixed(byte[] buffer, int offset)
+    {
+      switch (kind) {
+        case BOOLEAN:
+          return buffer[offset] != 0;
+        case BYTE:
+          return buffer[offset];
+        case SHORT:
+          return getShort(buffer, offset);
+        case CHAR:
+          return (char)getShort(buffer, offset);
+        case INT:
+          return getInt(buffer, offset);
+        case FLOAT:
+          return Float.intBitsToFloat(getInt(buffer, offset));
+        case LONG:
+          return getLong(buffer, offset);
+        case DOUBLE:
+          return Double.longBitsToDouble(getLong(buffer, offset));
+        case ENUM:
+          return field.getType().getEnumConstants()[getInt(buffer, offset)];
+        default:
+          throw new IllegalStateException(kind.toString());
+      }
+    }
+
+    Object readVariable(byte[] buffer, int position)
+    {
+      int length = getInt(buffer, position);
+      switch (kind) {
+        case STRING:
+          return new String(buffer, position + LENGTH_SIZE, length, StandardCharsets.UTF_8);
+        case BYTES:
+          return Arrays.copyOfRange(buffer, position + LENGTH_SIZE, position + LENGTH_SIZE + length);
+        default:
+          return record.read(buffer, position + LENGTH_SIZE);
+      }
+    }
+
+    /**
+     * Reads the field of the serialized tuple, skipping the fields of variable size before it.
+     */
+    Object read(byte[] buffer, int offset)
+    {
+      if (schema.isNull(buffer, offset, nullIndex)) {
+        return null;
+      } else if (this.offset >= 0) {
+        return readFixed(buffer, offset + this.offset);
+      }
+
+      int position = offset + schema.fixedSize;
+      for (int i = schema.variableStart; i < schema.variableStart - this.offset - 1; i++) {
+        if (!schema.isNull(buffer, offset, schema.fields[i].nullIndex)) {
+          position += LENGTH_SIZE + getInt(buffer, position);
+        }
+      }
+      return readVariable(buffer, position);
+    }
+  }
+
+}
@@ -26,6 +26,8 @@ import java.io.InputStream;
 import java.io.ObjectStreamException;
 import java.nio.file.Files;
 import java.util.EnumSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,6 +52,7 @@ public class AsyncFSStorageAgent extends FSStorageAgent implements AsyncStorageA
 {
   private final transient Configuration conf;
   private transient volatile String localBasePath;
+  private final transient ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
 
   private boolean syncCheckpoint = false;
 
@@ -97,9 +100,16 @@ public class AsyncFSStorageAgent extends FSStorageAgent implements AsyncStorageA
     if (!directory.exists()) {
       directory.mkdirs();
     }
-    try (FileOutputStream stream = new FileOutputStream(new File(directory, String.valueOf(windowId)))) {
-      store(stream, object);
+    File file = new File(directory, String.valueOf(windowId));
+    Snapshot snapshot = snapshot(object, operatorId, windowId);
+    try (FileOutputStream stream = new FileOutputStream(file)) {
+      store(stream, snapshot.state, operatorId);
+    } catch (IOException | RuntimeException e) {
+      failed(operatorId, snapshot);
+      throw e;
     }
+    snapshot.stats = getSerializationStats(operatorId);
+    snapshots.put(file.getPath(), snapshot);
   }
 
   public void copyToHDFS(final int operatorId, final long windowId) throws IOException
@@ -109,12 +119,17 @@ public class AsyncFSStorageAgent extends FSStorageAgent implements AsyncStorageA
     }
     String operatorIdStr = String.valueOf(operatorId);
     File directory = new File(localBasePath, operatorIdStr);
-    String window = Long.toHexString(windowId);
     Path lPath = new Path(path + Path.SEPARATOR + operatorIdStr + Path.SEPARATOR + TMP_FILE);
     File srcFile = new File(directory, String.valueOf(windowId));
+    Snapshot snapshot = snapshots.remove(srcFile.getPath());
+    if (snapshot == null) {
+      snapshot = new Snapshot(null, Long.toHexString(windowId), false);
+    }
     FSDataOutputStream stream = null;
     boolean stateSaved = false;
+    long start = System.nanoTime();
     try {
+      checkChain(operatorId, snapshot);
       // Create the temporary file with OverWrite option to avoid dangling lease issue and avoid exception if file already exists
       stream = fileContext.create(lPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE), Options.CreateOpts.CreateParent.createParent());
       InputStream in = null;
@@ -126,8 +141,9 @@ public class AsyncFSStorageAgent extends FSStorageAgent implements AsyncStorageA
       }
       stateSaved = true;
     } catch (Throwable t) {
-      logger.debug("while saving {} {}", operatorId, window, t);
+      logger.debug("while saving {} {}", operatorId, snapshot.name, t);
       stateSaved = false;
+      failed(operatorId, snapshot);
       throw Throwables.propagate(t);
     } finally {
       try {
@@ -136,10 +152,12 @@ public class AsyncFSStorageAgent extends FSStorageAgent implements AsyncStorageA
         }
       } catch (IOException ie) {
         stateSaved = false;
+        failed(operatorId, snapshot);
         throw new RuntimeException(ie);
       } finally {
         if (stateSaved) {
-          fileContext.rename(lPath, new Path(path + Path.SEPARATOR + operatorIdStr + Path.SEPARATOR + window), Options.Rename.OVERWRITE);
+          commit(lPath, operatorId, snapshot);
+          updateStoreStats(operatorId, windowId, snapshot, srcFile.length(), System.nanoTime() - start);
         }
         FileUtil.fullyDelete(srcFile);
       }
@@ -161,6 +179,7 @@ public class AsyncFSStorageAgent extends FSStorageAgent implements AsyncStorageA
   {
     AsyncFSStorageAgent asyncFSStorageAgent = new AsyncFSStorageAgent(this.path, null);
     asyncFSStorageAgent.setSyncCheckpoint(syncCheckpoint);
+    asyncFSStorageAgent.setMaxDeltaCheckpoints(getMaxDeltaCheckpoints());
     return asyncFSStorageAgent;
   }
 
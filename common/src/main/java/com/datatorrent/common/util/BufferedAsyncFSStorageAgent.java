@@ -0,0 +1,583 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.apex.common.util.AsyncStorageAgent;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CreateFlag;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Asynchronous storage agent which snapshots the operator into a memory buffer on the operator thread and streams
+ * the buffer to the file system when the checkpoint is flushed, without writing it to the local disk first.
+ * <p>
+ * The buffer is allocated in blocks on the heap or, with {@link #setOffHeap(boolean)}, outside of it. The checkpoints
+ * saved and not yet written by all the agents in the container configured with the same memory settings share
+ * {@link #setMaxMemorySize(long)}, a checkpoint that does not fit spills the remainder to a local temporary file. Off
+ * heap blocks are kept and reused once their checkpoint is written. The number of checkpoints written to the file
+ * system at the same time by all the agents configured with the same limit in the container is bounded by
+ * {@link #setMaxConcurrentUploads(int)}. Checkpoints can optionally be compressed with gzip. Either way the checkpoint
+ * carries a CRC32 on top of the checksums of the file system, gzip has its own and uncompressed checkpoints end with
+ * it.
+ */
+public class BufferedAsyncFSStorageAgent extends FSStorageAgent implements AsyncStorageAgent
+{
+  static final int BLOCK_SIZE = 64 * 1024;
+  static final int CHECKSUM_SIZE = 8;
+  private static final ConcurrentMap<Integer, Semaphore> uploadPermits = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, BlockPool> blockPools = new ConcurrentHashMap<>();
+
+  private final transient ConcurrentMap<String, PendingCheckpoint> pendingCheckpoints = new ConcurrentHashMap<>();
+  private boolean syncCheckpoint = false;
+  private boolean compress = false;
+  private boolean offHeap = false;
+  private long maxMemorySize = 256 * 1024 * 1024;
+  private int maxConcurrentUploads = 4;
+
+  @SuppressWarnings("unused")
+  private BufferedAsyncFSStorageAgent()
+  {
+    super();
+  }
+
+  public BufferedAsyncFSStorageAgent(String path, Configuration conf)
+  {
+    super(path, conf);
+  }
+
+  @Override
+  public void save(Object object, int operatorId, long windowId) throws IOException
+  {
+    if (syncCheckpoint) {
+      super.save(object, operatorId, windowId);
+      return;
+    }
+
+    Snapshot snapshot = snapshot(object, operatorId, windowId);
+    CheckpointBuffer buffer = new CheckpointBuffer(getBlockPool());
+    try {
+      store(buffer, snapshot.state, operatorId);
+      buffer.close();
+    } catch (Throwable t) {
+      buffer.release();
+      failed(operatorId, snapshot);
+      throw Throwables.propagate(t);
+    }
+    snapshot.stats = getSerializationStats(operatorId);
+    PendingCheckpoint previous = pendingCheckpoints.put(operatorId + Path.SEPARATOR + windowId,
+        new PendingCheckpoint(snapshot, buffer));
+    if (previous != null) {
+      previous.buffer.release();
+    }
+  }
+
+  @Override
+  public void flush(int operatorId, long windowId) throws IOException
+  {
+    if (syncCheckpoint) {
+      return;
+    }
+
+    PendingCheckpoint checkpoint = pendingCheckpoints.remove(operatorId + Path.SEPARATOR + windowId);
+    if (checkpoint == null) {
+      throw new AssertionError("save() was not called before flush");
+    }
+
+    Semaphore permits = uploadPermits.get(maxConcurrentUploads);
+    if (permits == null) {
+      Semaphore newPermits = new Semaphore(maxConcurrentUploads);
+      permits = uploadPermits.putIfAbsent(maxConcurrentUploads, newPermits);
+      if (permits == null) {
+        permits = newPermits;
+      }
+    }
+    try {
+      permits.acquire();
+    } catch (InterruptedException ex) {
+      checkpoint.buffer.release();
+      failed(operatorId, checkpoint.snapshot);
+      throw new InterruptedIOException("Interrupted while waiting to flush " + operatorId + " " + windowId);
+    }
+    try {
+      upload(operatorId, windowId, checkpoint);
+    } finally {
+      permits.release();
+      checkpoint.buffer.release();
+    }
+  }
+
+  @SuppressWarnings("ThrowFromFinallyBlock")
+  private void upload(int operatorId, long windowId, PendingCheckpoint checkpoint) throws IOException
+  {
+    Path lPath = new Path(path + Path.SEPARATOR + operatorId + Path.SEPARATOR + TMP_FILE);
+    FSDataOutputStream stream = null;
+    boolean stateSaved = false;
+    long start = System.nanoTime();
+    try {
+      checkChain(operatorId, checkpoint.snapshot);
+      stream = fileContext.create(lPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
+          Options.CreateOpts.CreateParent.createParent());
+      checkpoint.buffer.writeTo(stream);
+      stateSaved = true;
+    } catch (Throwable t) {
+      logger.debug("while saving {} {}", operatorId, checkpoint.snapshot.name, t);
+      stateSaved = false;
+      failed(operatorId, checkpoint.snapshot);
+      throw Throwables.propagate(t);
+    } finally {
+      try {
+        if (stream != null) {
+          stream.close();
+        }
+      } catch (IOException ie) {
+        stateSaved = false;
+        failed(operatorId, checkpoint.snapshot);
+        throw new RuntimeException(ie);
+      } finally {
+        if (stateSaved) {
+          commit(lPath, operatorId, checkpoint.snapshot);
+          long nanos = System.nanoTime() - start;
+          updateStoreStats(operatorId, windowId, checkpoint.snapshot, checkpoint.buffer.size(), nanos);
+          logger.debug("Flushed {} bytes for {}: {} in {} ns", checkpoint.buffer.size(), operatorId,
+              checkpoint.snapshot.name, nanos);
+        }
+      }
+    }
+  }
+
+  @Override
+  protected void store(OutputStream stream, Object object, int operatorId) throws IOException
+  {
+    if (compress) {
+      GZIPOutputStream gzip = new GZIPOutputStream(stream, BLOCK_SIZE);
+      super.store(gzip, object, operatorId);
+      gzip.finish();
+    } else {
+      CheckedOutputStream checked = new CheckedOutputStream(stream, new CRC32());
+      super.store(checked, object, operatorId);
+      new DataOutputStream(stream).writeLong(checked.getChecksum().getValue());
+    }
+  }
+
+  @Override
+  protected Object retrieve(InputStream stream, int operatorId) throws IOException
+  {
+    if (compress) {
+      return super.retrieve(new GZIPInputStream(stream, BLOCK_SIZE), operatorId);
+    }
+    ChecksumInputStream checked = new ChecksumInputStream(stream);
+    Object object = super.retrieve(checked, operatorId);
+    checked.verify();
+    return object;
+  }
+
+  private BlockPool getBlockPool()
+  {
+    String key = (offHeap ? "direct:" : "heap:") + maxMemorySize;
+    BlockPool pool = blockPools.get(key);
+    if (pool == null) {
+      BlockPool newPool = new BlockPool(maxMemorySize, offHeap);
+      pool = blockPools.putIfAbsent(key, newPool);
+      if (pool == null) {
+        pool = newPool;
+      }
+    }
+    return pool;
+  }
+
+  @Override
+  public boolean isSyncCheckpoint()
+  {
+    return syncCheckpoint;
+  }
+
+  public void setSyncCheckpoint(boolean syncCheckpoint)
+  {
+    this.syncCheckpoint = syncCheckpoint;
+  }
+
+  public boolean isCompress()
+  {
+    return compress;
+  }
+
+  /**
+   * Compress the checkpoints with gzip. Checkpoints saved with and without compression cannot be mixed, so the
+   * setting should not be changed for an application that already has checkpoints. Uncompressed checkpoints end with
+   * a CRC32 of the serialized operator instead.
+   *
+   * @param compress whether to compress the checkpoints
+   */
+  public void setCompress(boolean compress)
+  {
+    this.compress = compress;
+  }
+
+  public boolean isOffHeap()
+  {
+    return offHeap;
+  }
+
+  /**
+   * Allocate the buffers of the checkpoints outside of the heap.
+   *
+   * @param offHeap whether to use direct buffers
+   */
+  public void setOffHeap(boolean offHeap)
+  {
+    this.offHeap = offHeap;
+  }
+
+  public long getMaxMemorySize()
+  {
+    return maxMemorySize;
+  }
+
+  /**
+   * Sets how many bytes of the checkpoints that are saved and not yet written are buffered in memory, for all the
+   * agents in the container with the same memory settings. The rest of a checkpoint that does not fit is spilled to a
+   * local temporary file.
+   *
+   * @param maxMemorySize maximum size of the memory buffers of the pending checkpoints in bytes
+   */
+  public void setMaxMemorySize(long maxMemorySize)
+  {
+    this.maxMemorySize = maxMemorySize;
+  }
+
+  public int getMaxConcurrentUploads()
+  {
+    return maxConcurrentUploads;
+  }
+
+  /**
+   * Sets how many checkpoints can be written to the file system at the same time by the agents in the container that
+   * share this limit.
+   *
+   * @param maxConcurrentUploads maximum number of concurrent uploads
+   */
+  public void setMaxConcurrentUploads(int maxConcurrentUploads)
+  {
+    this.maxConcurrentUploads = maxConcurrentUploads;
+  }
+
+  /**
+   * Returns a copy of this agent, with the same settings, which stores the checkpoints under a different path.
+   *
+   * @param path path to store the checkpoints under
+   * @param conf configuration of the file system
+   * @return the new agent
+   */
+  public BufferedAsyncFSStorageAgent copy(String path, Configuration conf)
+  {
+    BufferedAsyncFSStorageAgent agent = new BufferedAsyncFSStorageAgent(path, conf);
+    agent.setMaxDeltaCheckpoints(getMaxDeltaCheckpoints());
+    agent.setSyncCheckpoint(syncCheckpoint);
+    agent.setCompress(compress);
+    agent.setOffHeap(offHeap);
+    agent.setMaxMemorySize(maxMemorySize);
+    agent.setMaxConcurrentUploads(maxConcurrentUploads);
+    return agent;
+  }
+
+  @Override
+  public Object readResolve() throws ObjectStreamException
+  {
+    return copy(this.path, null);
+  }
+
+  private static class PendingCheckpoint
+  {
+    final Snapshot snapshot;
+    final CheckpointBuffer buffer;
+
+    PendingCheckpoint(Snapshot snapshot, CheckpointBuffer buffer)
+    {
+      this.snapshot = snapshot;
+      this.buffer = buffer;
+    }
+  }
+
+  /**
+   * Memory blocks shared by the checkpoint buffers, up to the maximum memory size. Direct blocks are kept for reuse
+   * when they are released as allocating them is expensive and their memory is only freed by the garbage collector,
+   * heap blocks are left to the garbage collector.
+   */
+  static class BlockPool
+  {
+    private final long maxMemorySize;
+    private final boolean direct;
+    private final AtomicLong allocated = new AtomicLong();
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    BlockPool(long maxMemorySize, boolean direct)
+    {
+      this.maxMemorySize = maxMemorySize;
+      this.direct = direct;
+    }
+
+    /**
+     * @return an empty block or null if the memory of the pool is used up
+     */
+    ByteBuffer acquire()
+    {
+      ByteBuffer block = free.poll();
+      if (block != null) {
+        block.clear();
+        return block;
+      }
+      long size;
+      do {
+        size = allocated.get();
+        if (size + BLOCK_SIZE > maxMemorySize) {
+          return null;
+        }
+      } while (!allocated.compareAndSet(size, size + BLOCK_SIZE));
+      return direct ? ByteBuffer.allocateDirect(BLOCK_SIZE) : ByteBuffer.allocate(BLOCK_SIZE);
+    }
+
+    void release(ByteBuffer block)
+    {
+      if (direct) {
+        free.offer(block);
+      } else {
+        allocated.addAndGet(-BLOCK_SIZE);
+      }
+    }
+
+    long getAllocatedSize()
+    {
+      return allocated.get();
+    }
+  }
+
+  /**
+   * Output stream which keeps the written bytes in memory blocks of the pool while there are any and spills the rest to
+   * a local temporary file.
+   */
+  static class CheckpointBuffer extends OutputStream
+  {
+    private final BlockPool pool;
+    private final List<ByteBuffer> blocks = new ArrayList<>();
+    private long size;
+    private File spillFile;
+    private OutputStream spill;
+
+    CheckpointBuffer(BlockPool pool)
+    {
+      this.pool = pool;
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      write(new byte[] {(byte)b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+      size += len;
+      while (len > 0) {
+        if (spill != null) {
+          spill.write(b, off, len);
+          return;
+        }
+
+        ByteBuffer block = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+        if (block == null || !block.hasRemaining()) {
+          block = pool.acquire();
+          if (block == null) {
+            spillFile = File.createTempFile("chkp", null);
+            spill = new BufferedOutputStream(new FileOutputStream(spillFile), BLOCK_SIZE);
+            continue;
+          }
+          blocks.add(block);
+        }
+
+        int count = Math.min(len, block.remaining());
+        block.put(b, off, count);
+        off += count;
+        len -= count;
+      }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      if (spill != null) {
+        spill.close();
+      }
+    }
+
+    long size()
+    {
+      return size;
+    }
+
+    boolean isSpilled()
+    {
+      return spillFile != null;
+    }
+
+    void writeTo(OutputStream out) throws IOException
+    {
+      byte[] array = null;
+      for (ByteBuffer block : blocks) {
+        if (block.hasArray()) {
+          out.write(block.array(), block.arrayOffset(), block.position());
+        } else {
+          if (array == null) {
+            array = new byte[BLOCK_SIZE];
+          }
+          ByteBuffer content = block.duplicate();
+          content.flip();
+          int count = content.remaining();
+          content.get(array, 0, count);
+          out.write(array, 0, count);
+        }
+      }
+      if (spillFile != null) {
+        Files.copy(spillFile.toPath(), out);
+      }
+    }
+
+    void release()
+    {
+      for (ByteBuffer block : blocks) {
+        pool.release(block);
+      }
+      blocks.clear();
+      if (spillFile != null) {
+        try {
+          close();
+        } catch (IOException ex) {
+          logger.debug("Failed to close {}", spillFile, ex);
+        }
+        if (!spillFile.delete()) {
+          logger.warn("Failed to delete {}", spillFile);
+        }
+        spillFile = null;
+      }
+    }
+  }
+
+  /**
+   * Input stream of an uncompressed checkpoint which holds back the trailing checksum and computes the checksum of the
+   * bytes read before it.
+   */
+  static class ChecksumInputStream extends InputStream
+  {
+    private final InputStream in;
+    private final CRC32 crc = new CRC32();
+    private final byte[] buffer = new byte[CHECKSUM_SIZE + BLOCK_SIZE];
+    private int held;
+
+    ChecksumInputStream(InputStream in)
+    {
+      this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      while (held < CHECKSUM_SIZE) {
+        int count = in.read(buffer, held, CHECKSUM_SIZE - held);
+        if (count < 0) {
+          throw new IOException("Checkpoint is missing its checksum");
+        }
+        held += count;
+      }
+      if (len == 0) {
+        return 0;
+      }
+
+      int count = in.read(buffer, CHECKSUM_SIZE, Math.min(len, BLOCK_SIZE));
+      if (count < 0) {
+        return -1;
+      }
+      /* the bytes ahead of the last CHECKSUM_SIZE bytes read are checkpoint data */
+      System.arraycopy(buffer, 0, b, off, count);
+      System.arraycopy(buffer, count, buffer, 0, CHECKSUM_SIZE);
+      crc.update(b, off, count);
+      return count;
+    }
+
+    /**
+     * Reads the rest of the checkpoint and compares its checksum with the trailing one.
+     *
+     * @throws IOException if the checksum does not match
+     */
+    void verify() throws IOException
+    {
+      byte[] skip = new byte[BLOCK_SIZE];
+      while (read(skip, 0, skip.length) >= 0) {
+        /* the deserializer does not necessarily read up to the end */
+      }
+      long checksum = 0;
+      for (int i = 0; i < CHECKSUM_SIZE; i++) {
+        checksum = checksum << 8 | (buffer[i] & 0xff);
+      }
+      if (checksum != crc.getValue()) {
+        throw new IOException("Checksum mismatch, the checkpoint is corrupt");
+      }
+    }
+  }
+
+  private static final long serialVersionUID = 201703221534L;
+  private static final Logger logger = LoggerFactory.getLogger(BufferedAsyncFSStorageAgent.class);
+}
@@ -26,12 +26,18 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.apex.common.util.PurgeableStorageAgent;
+
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CreateFlag;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -48,6 +54,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.common.base.Throwables;
 
+import com.datatorrent.api.DeltaCheckpointable;
 import com.datatorrent.api.StorageAgent;
 import com.datatorrent.api.annotation.Stateless;
 
@@ -56,13 +63,38 @@ import com.datatorrent.api.annotation.Stateless;
  *
  * @since 0.3.2
  */
-public class FSStorageAgent implements StorageAgent, Serializable
+public class FSStorageAgent implements PurgeableStorageAgent, Serializable
 {
   public static final String TMP_FILE = "_tmp";
+  /**
+   * Separates the window id of a checkpoint in an incremental chain from the window id of the base of the chain.
+   */
+  public static final String CHAIN_SEPARATOR = ".";
+  /**
+   * Suffix of the checkpoints in an incremental chain that were deleted while later checkpoints still depend on them.
+   */
+  public static final String PURGED_SUFFIX = ".purged";
   protected static final String STATELESS_CHECKPOINT_WINDOW_ID = Long.toHexString(Stateless.WINDOW_ID);
   public final String path;
   protected final transient FileContext fileContext;
+  /**
+   * @deprecated checkpoints are serialized with the pooled instances of {@link KryoSerializer}
+   */
+  @Deprecated
   protected static final transient Kryo kryo;
+  private static final ConcurrentLinkedQueue<KryoSerializer> serializers = new ConcurrentLinkedQueue<>();
+  private final transient ConcurrentMap<Integer, SerializationStats> serializationStats = new ConcurrentHashMap<>();
+  private final transient ConcurrentMap<Integer, DeltaChain> deltaChains = new ConcurrentHashMap<>();
+  /**
+   * Base window id of the incremental chain of each operator with a checkpoint that failed to be written, the
+   * checkpoints of the chain saved but not yet written depend on it and cannot be written either.
+   */
+  private final transient ConcurrentMap<Integer, Long> brokenChains = new ConcurrentHashMap<>();
+  /**
+   * Metrics of the checkpoint last written to the file system by the thread, see {@link #getFlushedStats(int, long)}.
+   */
+  private static final ThreadLocal<FlushedCheckpoint> flushedCheckpoint = new ThreadLocal<>();
+  private int maxDeltaCheckpoints = 10;
 
   static {
     kryo = new Kryo();
@@ -98,17 +130,18 @@ public class FSStorageAgent implements StorageAgent, Serializable
   {
     String operatorIdStr = String.valueOf(operatorId);
     Path lPath = new Path(path + Path.SEPARATOR + operatorIdStr + Path.SEPARATOR + TMP_FILE);
-    String window = Long.toHexString(windowId);
+    Snapshot snapshot = snapshot(object, operatorId, windowId);
     boolean stateSaved = false;
     FSDataOutputStream stream = null;
     try {
       stream = fileContext.create(lPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
         Options.CreateOpts.CreateParent.createParent());
-      store(stream, object);
+      store(stream, snapshot.state, operatorId);
       stateSaved = true;
     } catch (Throwable t) {
-      logger.debug("while saving {} {}", operatorId, window, t);
+      logger.debug("while saving {} {}", operatorId, snapshot.name, t);
       stateSaved = false;
+      deltaChains.remove(operatorId);
       throw Throwables.propagate(t);
     } finally {
       try {
@@ -117,12 +150,84 @@ public class FSStorageAgent implements StorageAgent, Serializable
         }
       } catch (IOException ie) {
         stateSaved = false;
+        deltaChains.remove(operatorId);
         throw new RuntimeException(ie);
       } finally {
         if (stateSaved) {
-          logger.debug("Saving {}: {}", operatorId, window);
-          fileContext.rename(lPath, new Path(path + Path.SEPARATOR + operatorIdStr + Path.SEPARATOR + window),
-              Options.Rename.OVERWRITE);
+          logger.debug("Saving {}: {}", operatorId, snapshot.name);
+          commit(lPath, operatorId, snapshot);
+        }
+      }
+    }
+  }
+
+  /**
+   * Decides whether the checkpoint of the operator is saved in full or as a delta and returns what to serialize.
+   * Operators that are not {@link DeltaCheckpointable} are always saved in full under the plain window id.
+   */
+  Snapshot snapshot(Object object, int operatorId, long windowId)
+  {
+    String window = Long.toHexString(windowId);
+    if (maxDeltaCheckpoints <= 0 || !(object instanceof DeltaCheckpointable)) {
+      return new Snapshot(object, window, false);
+    }
+
+    DeltaCheckpointable operator = (DeltaCheckpointable)object;
+    DeltaChain chain = deltaChains.get(operatorId);
+    if (chain != null && chain.deltaCount < maxDeltaCheckpoints && windowId > chain.windowId) {
+      Delta delta = new Delta(chain.windowId, operator.getCheckpointDelta());
+      chain.deltaCount++;
+      chain.windowId = windowId;
+      String name = window + CHAIN_SEPARATOR + Long.toHexString(chain.baseWindowId);
+      return new Snapshot(delta, name, false);
+    }
+
+    operator.resetCheckpointDelta();
+    deltaChains.put(operatorId, new DeltaChain(windowId));
+    return new Snapshot(object, window + CHAIN_SEPARATOR + window, true);
+  }
+
+  /**
+   * Starts a new incremental chain with the next checkpoint of the operator after its checkpoint failed to be saved or
+   * written, and fails the later checkpoints of the chain that are saved but not yet written.
+   */
+  void failed(int operatorId, Snapshot snapshot)
+  {
+    deltaChains.remove(operatorId);
+    Long baseWindowId = snapshot.getBaseWindowId();
+    if (baseWindowId != null) {
+      brokenChains.put(operatorId, baseWindowId);
+    }
+  }
+
+  /**
+   * Verifies that the checkpoints the delta depends on were written, before the delta is written.
+   *
+   * @throws IOException if an earlier checkpoint of the incremental chain failed
+   */
+  void checkChain(int operatorId, Snapshot snapshot) throws IOException
+  {
+    Long baseWindowId = snapshot.getBaseWindowId();
+    if (!snapshot.base && baseWindowId != null && baseWindowId.equals(brokenChains.get(operatorId))) {
+      throw new IOException("Checkpoint " + snapshot.name + " of operator " + operatorId +
+          " depends on a checkpoint that failed");
+    }
+  }
+
+  /**
+   * Moves the saved checkpoint to its final name. A new base of an incremental chain replaces whatever was saved for
+   * the same or later windows before the operator was restored from an earlier checkpoint.
+   */
+  void commit(Path tmpPath, int operatorId, Snapshot snapshot) throws IOException
+  {
+    Path operatorPath = new Path(path + Path.SEPARATOR + operatorId);
+    fileContext.rename(tmpPath, new Path(operatorPath, snapshot.name), Options.Rename.OVERWRITE);
+    if (snapshot.base) {
+      ChainedCheckpoint base = ChainedCheckpoint.parse(snapshot.name);
+      for (ChainedCheckpoint checkpoint : listChainedCheckpoints(operatorPath)) {
+        if (checkpoint.windowId >= base.windowId && !checkpoint.name.equals(snapshot.name)) {
+          logger.debug("Deleting stale checkpoint {}: {}", operatorId, checkpoint.name);
+          fileContext.delete(new Path(operatorPath, checkpoint.name), false);
         }
       }
     }
@@ -131,24 +236,194 @@ public class FSStorageAgent implements StorageAgent, Serializable
   @Override
   public Object load(int operatorId, long windowId) throws IOException
   {
+    deltaChains.remove(operatorId);
     Path lPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId) + Path.SEPARATOR + Long.toHexString(windowId));
     logger.debug("Loading: {}", lPath);
 
-    FSDataInputStream stream = fileContext.open(lPath);
+    FSDataInputStream stream;
+    try {
+      stream = fileContext.open(lPath);
+    } catch (FileNotFoundException ex) {
+      return loadChain(operatorId, windowId, ex);
+    }
     try {
-      return retrieve(stream);
+      return retrieve(stream, operatorId);
     } finally {
       stream.close();
     }
   }
 
+  /**
+   * Restores the operator from the base of the incremental chain and the deltas saved up to the window.
+   */
+  private Object loadChain(int operatorId, long windowId, FileNotFoundException notFound) throws IOException
+  {
+    Path operatorPath = new Path(path + Path.SEPARATOR + operatorId);
+    List<ChainedCheckpoint> checkpoints = listChainedCheckpoints(operatorPath);
+    ChainedCheckpoint target = null;
+    for (ChainedCheckpoint checkpoint : checkpoints) {
+      if (checkpoint.windowId == windowId && !checkpoint.purged) {
+        target = checkpoint;
+      }
+    }
+    if (target == null) {
+      throw notFound;
+    }
+
+    Object operator = null;
+    long previousWindowId = target.baseWindowId;
+    for (ChainedCheckpoint checkpoint : checkpoints) {
+      if (checkpoint.baseWindowId != target.baseWindowId || checkpoint.windowId > windowId) {
+        continue;
+      }
+      logger.debug("Loading {}: {}", operatorId, checkpoint.name);
+      Object state;
+      try (FSDataInputStream stream = fileContext.open(new Path(operatorPath, checkpoint.name))) {
+        state = retrieve(stream, operatorId);
+      }
+      if (checkpoint.isBase()) {
+        operator = state;
+      } else if (operator instanceof DeltaCheckpointable) {
+        Delta delta = (Delta)state;
+        if (delta.previousWindowId != previousWindowId) {
+          throw new IOException("Missing checkpoint " + Long.toHexString(delta.previousWindowId) + " before " +
+              checkpoint.name + " for operator " + operatorId);
+        }
+        ((DeltaCheckpointable)operator).applyCheckpointDelta(delta.delta);
+      } else {
+        throw new RuntimeException("Missing base of checkpoint " + target.name + " for operator " + operatorId);
+      }
+      previousWindowId = checkpoint.windowId;
+    }
+    return operator;
+  }
+
+  /**
+   * Deletes the checkpoint. A checkpoint in an incremental chain which is still needed to restore a later checkpoint
+   * is only marked as purged and deleted once the later checkpoints are deleted as well.
+   */
   @Override
   public void delete(int operatorId, long windowId) throws IOException
   {
     Path lPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId) + Path.SEPARATOR + Long.toHexString(windowId));
     logger.debug("Deleting: {}", lPath);
 
-    fileContext.delete(lPath, false);
+    if (fileContext.delete(lPath, false)) {
+      return;
+    }
+
+    Path operatorPath = lPath.getParent();
+    List<ChainedCheckpoint> checkpoints = listChainedCheckpoints(operatorPath);
+    for (ChainedCheckpoint checkpoint : checkpoints) {
+      if (checkpoint.windowId == windowId && !checkpoint.purged) {
+        delete(operatorPath, checkpoint, checkpoints, Throttle.NONE);
+      }
+    }
+    deletePurged(operatorPath, checkpoints, Throttle.NONE);
+  }
+
+  /**
+   * Deletes all the checkpoints of the operator up to the window with a single listing of the operator directory. A
+   * permit is acquired from the throttle before the listing and before every delete or rename.
+   */
+  @Override
+  public void purge(int operatorId, long windowId, Throttle throttle) throws IOException
+  {
+    Path operatorPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId));
+    RemoteIterator<FileStatus> fileStatusRemoteIterator;
+    throttle.acquire();
+    try {
+      fileStatusRemoteIterator = fileContext.listStatus(operatorPath);
+    } catch (FileNotFoundException ex) {
+      return;
+    }
+    List<ChainedCheckpoint> checkpoints = new ArrayList<>();
+    while (fileStatusRemoteIterator.hasNext()) {
+      String name = fileStatusRemoteIterator.next().getPath().getName();
+      if (name.equals(TMP_FILE)) {
+        continue;
+      }
+      ChainedCheckpoint checkpoint = ChainedCheckpoint.parse(name);
+      if (checkpoint != null) {
+        checkpoints.add(checkpoint);
+      } else if (parseWindowId(name) <= windowId) {
+        logger.debug("Deleting: {}/{}", operatorPath, name);
+        throttle.acquire();
+        fileContext.delete(new Path(operatorPath, name), false);
+      }
+    }
+    Collections.sort(checkpoints);
+    for (ChainedCheckpoint checkpoint : checkpoints) {
+      if (checkpoint.windowId <= windowId && !checkpoint.purged) {
+        delete(operatorPath, checkpoint, checkpoints, throttle);
+      }
+    }
+    deletePurged(operatorPath, checkpoints, throttle);
+  }
+
+  /**
+   * Deletes a checkpoint of an incremental chain, or marks it as purged while later checkpoints depend on it.
+   */
+  private void delete(Path operatorPath, ChainedCheckpoint checkpoint, List<ChainedCheckpoint> checkpoints,
+      Throttle throttle) throws IOException
+  {
+    throttle.acquire();
+    if (isNeeded(checkpoint, checkpoints)) {
+      String purgedName = checkpoint.name + PURGED_SUFFIX;
+      try {
+        fileContext.rename(new Path(operatorPath, checkpoint.name), new Path(operatorPath, purgedName),
+            Options.Rename.OVERWRITE);
+      } catch (FileNotFoundException ex) {
+        logger.debug("Checkpoint {} was already deleted", checkpoint.name);
+      }
+      checkpoint.name = purgedName;
+      checkpoint.purged = true;
+    } else {
+      fileContext.delete(new Path(operatorPath, checkpoint.name), false);
+      checkpoint.deleted = true;
+    }
+  }
+
+  private void deletePurged(Path operatorPath, List<ChainedCheckpoint> checkpoints, Throttle throttle)
+      throws IOException
+  {
+    for (ChainedCheckpoint checkpoint : checkpoints) {
+      if (checkpoint.purged && !checkpoint.deleted && !isNeeded(checkpoint, checkpoints)) {
+        throttle.acquire();
+        fileContext.delete(new Path(operatorPath, checkpoint.name), false);
+        checkpoint.deleted = true;
+      }
+    }
+  }
+
+  private static boolean isNeeded(ChainedCheckpoint checkpoint, List<ChainedCheckpoint> checkpoints)
+  {
+    for (ChainedCheckpoint later : checkpoints) {
+      if (!later.purged && !later.deleted && later.baseWindowId == checkpoint.baseWindowId &&
+          later.windowId > checkpoint.windowId) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<ChainedCheckpoint> listChainedCheckpoints(Path operatorPath) throws IOException
+  {
+    List<ChainedCheckpoint> checkpoints = new ArrayList<>();
+    RemoteIterator<FileStatus> fileStatusRemoteIterator;
+    try {
+      fileStatusRemoteIterator = fileContext.listStatus(operatorPath);
+    } catch (FileNotFoundException ex) {
+      return checkpoints;
+    }
+    while (fileStatusRemoteIterator.hasNext()) {
+      ChainedCheckpoint checkpoint = ChainedCheckpoint.parse(fileStatusRemoteIterator.next().getPath().getName());
+      if (checkpoint != null) {
+        checkpoints.add(checkpoint);
+      }
+    }
+    Collections.sort(checkpoints);
+    return checkpoints;
   }
 
   @Override
@@ -170,10 +445,11 @@ public class FSStorageAgent implements StorageAgent, Serializable
     while (fileStatusRemoteIterator.hasNext()) {
       FileStatus fileStatus = fileStatusRemoteIterator.next();
       String name = fileStatus.getPath().getName();
-      if (name.equals(TMP_FILE)) {
+      if (name.equals(TMP_FILE) || name.endsWith(PURGED_SUFFIX)) {
         continue;
       }
-      lwindows.add(STATELESS_CHECKPOINT_WINDOW_ID.equals(name) ? Stateless.WINDOW_ID : Long.parseLong(name, 16));
+      int separator = name.indexOf(CHAIN_SEPARATOR);
+      lwindows.add(parseWindowId(separator < 0 ? name : name.substring(0, separator)));
     }
     long[] windowIds = new long[lwindows.size()];
     for (int i = 0; i < windowIds.length; i++) {
@@ -182,28 +458,360 @@ public class FSStorageAgent implements StorageAgent, Serializable
     return windowIds;
   }
 
+  /**
+   * Serializes the object to the stream and records the serialization time and size for the operator.
+   *
+   * @param stream stream to write the checkpoint to
+   * @param object the object to checkpoint
+   * @param operatorId id of the operator being checkpointed
+   */
+  protected void store(OutputStream stream, Object object, int operatorId) throws IOException
+  {
+    long start = System.nanoTime();
+    long bytes = serialize(stream, object);
+    long nanos = System.nanoTime() - start;
+
+    getOrCreateSerializationStats(operatorId).update(bytes, nanos);
+    logger.debug("Serialized {} bytes for {} in {} ns", bytes, operatorId, nanos);
+  }
+
+  /**
+   * Reads the object stored by {@link #store(OutputStream, Object, int)} from the stream.
+   *
+   * @param stream stream to read the checkpoint from
+   * @param operatorId id of the operator being restored
+   * @return the deserialized object
+   */
+  protected Object retrieve(InputStream stream, int operatorId) throws IOException
+  {
+    return retrieve(stream);
+  }
+
+  /**
+   * Records the size and the time it took to write the checkpoint of the operator to the file system, when it is
+   * written separately from the serialization, and makes the metrics of the checkpoint available to the thread that
+   * wrote it through {@link #getFlushedStats(int, long)}.
+   */
+  void updateStoreStats(int operatorId, long windowId, Snapshot snapshot, long bytes, long nanos)
+  {
+    getOrCreateSerializationStats(operatorId).stored(bytes, nanos);
+    SerializationStats stats = snapshot.stats == null ? new SerializationStats() : snapshot.stats;
+    stats.stored(bytes, nanos);
+    flushedCheckpoint.set(new FlushedCheckpoint(operatorId, windowId, stats));
+  }
+
+  private SerializationStats getOrCreateSerializationStats(int operatorId)
+  {
+    SerializationStats stats = serializationStats.get(operatorId);
+    if (stats == null) {
+      SerializationStats newStats = new SerializationStats();
+      stats = serializationStats.putIfAbsent(operatorId, newStats);
+      if (stats == null) {
+        stats = newStats;
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * Returns the serialization metrics of the checkpoints saved by this agent for the operator.
+   *
+   * @param operatorId id of the operator
+   * @return copy of the metrics or null if no checkpoint of the operator was saved by this agent
+   */
+  public SerializationStats getSerializationStats(int operatorId)
+  {
+    SerializationStats stats = serializationStats.get(operatorId);
+    return stats == null ? null : stats.copy();
+  }
+
+  /**
+   * Returns the metrics of the checkpoint of the operator for the window, provided it is the checkpoint the calling
+   * thread last wrote to the file system. Asynchronous agents write the checkpoints on a thread other than the operator
+   * thread, while the operator saves its next checkpoints, so the metrics of the last checkpoint saved by the operator
+   * are not necessarily the metrics of the checkpoint written.
+   *
+   * @param operatorId id of the operator
+   * @param windowId window id of the checkpoint
+   * @return the metrics of the checkpoint or null if the thread did not write it last
+   */
+  public SerializationStats getFlushedStats(int operatorId, long windowId)
+  {
+    FlushedCheckpoint checkpoint = flushedCheckpoint.get();
+    if (checkpoint == null || checkpoint.operatorId != operatorId || checkpoint.windowId != windowId) {
+      return null;
+    }
+    flushedCheckpoint.remove();
+    return checkpoint.stats;
+  }
+
+  private static long parseWindowId(String window)
+  {
+    return STATELESS_CHECKPOINT_WINDOW_ID.equals(window) ? Stateless.WINDOW_ID : Long.parseLong(window, 16);
+  }
+
+  public int getMaxDeltaCheckpoints()
+  {
+    return maxDeltaCheckpoints;
+  }
+
+  /**
+   * Sets how many delta checkpoints of a {@link DeltaCheckpointable} operator follow a full checkpoint before the
+   * operator is saved in full again. Restoring an operator reads the base and all the deltas up to the checkpoint, so
+   * this bounds the recovery time. 0 disables incremental checkpoints.
+   *
+   * @param maxDeltaCheckpoints maximum number of deltas in a chain
+   */
+  public void setMaxDeltaCheckpoints(int maxDeltaCheckpoints)
+  {
+    this.maxDeltaCheckpoints = maxDeltaCheckpoints;
+  }
+
   public static void store(OutputStream stream, Object operator)
   {
-    synchronized (kryo) {
-      Output output = new Output(4096, Integer.MAX_VALUE);
+    serialize(stream, operator);
+  }
+
+  private static long serialize(OutputStream stream, Object operator)
+  {
+    KryoSerializer serializer = borrow();
+    try {
+      Output output = serializer.output;
       output.setOutputStream(stream);
-      kryo.writeClassAndObject(output, operator);
-      output.flush();
+      try {
+        serializer.kryo.writeClassAndObject(output, operator);
+        output.flush();
+        return output.total();
+      } finally {
+        output.setOutputStream(null);
+      }
+    } finally {
+      serializers.offer(serializer);
     }
   }
 
   public static Object retrieve(InputStream stream)
   {
-    synchronized (kryo) {
-      kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
-      Input input = new Input(stream);
-      return kryo.readClassAndObject(input);
+    KryoSerializer serializer = borrow();
+    try {
+      serializer.kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+      Input input = serializer.input;
+      input.setInputStream(stream);
+      try {
+        return serializer.kryo.readClassAndObject(input);
+      } finally {
+        input.setInputStream(null);
+      }
+    } finally {
+      serializers.offer(serializer);
+    }
+  }
+
+  private static KryoSerializer borrow()
+  {
+    KryoSerializer serializer = serializers.poll();
+    return serializer == null ? new KryoSerializer() : serializer;
+  }
+
+  /**
+   * Kryo instance with its buffers. Kryo is not thread safe, so each instance is used by one thread at a time and
+   * returned to the pool afterwards, which lets operators in the same container checkpoint concurrently while the
+   * registered classes and the buffers are reused across checkpoints.
+   */
+  private static class KryoSerializer
+  {
+    final Kryo kryo = new Kryo();
+    final Output output = new Output(4096, Integer.MAX_VALUE);
+    final Input input = new Input(4096);
+  }
+
+  /**
+   * What is serialized for a checkpoint and the name it is saved under, with the metrics of its serialization once it
+   * is saved.
+   */
+  static class Snapshot
+  {
+    final Object state;
+    final String name;
+    final boolean base;
+    SerializationStats stats;
+
+    Snapshot(Object state, String name, boolean base)
+    {
+      this.state = state;
+      this.name = name;
+      this.base = base;
+    }
+
+    /**
+     * @return window id of the base of the incremental chain of the checkpoint or null if it is not in a chain
+     */
+    Long getBaseWindowId()
+    {
+      ChainedCheckpoint checkpoint = ChainedCheckpoint.parse(name);
+      return checkpoint == null ? null : checkpoint.baseWindowId;
+    }
+  }
+
+  private static class FlushedCheckpoint
+  {
+    final int operatorId;
+    final long windowId;
+    final SerializationStats stats;
+
+    FlushedCheckpoint(int operatorId, long windowId, SerializationStats stats)
+    {
+      this.operatorId = operatorId;
+      this.windowId = windowId;
+      this.stats = stats;
+    }
+  }
+
+  /**
+   * Delta of a checkpoint in an incremental chain, with the window id of the checkpoint it applies on top of, so that a
+   * missing checkpoint in the middle of the chain is detected on restore rather than silently skipped.
+   */
+  private static class Delta
+  {
+    long previousWindowId;
+    Object delta;
+
+    @SuppressWarnings("unused")
+    private Delta()
+    {
+    }
+
+    Delta(long previousWindowId, Object delta)
+    {
+      this.previousWindowId = previousWindowId;
+      this.delta = delta;
+    }
+  }
+
+  /**
+   * Incremental chain of an operator checkpointed by this agent.
+   */
+  private static class DeltaChain
+  {
+    final long baseWindowId;
+    long windowId;
+    int deltaCount;
+
+    DeltaChain(long baseWindowId)
+    {
+      this.baseWindowId = baseWindowId;
+      this.windowId = baseWindowId;
+    }
+  }
+
+  /**
+   * Checkpoint file of an incremental chain, named after its window id and the window id of the base of the chain.
+   */
+  private static class ChainedCheckpoint implements Comparable<ChainedCheckpoint>
+  {
+    String name;
+    final long windowId;
+    final long baseWindowId;
+    boolean purged;
+    boolean deleted;
+
+    ChainedCheckpoint(String name, long windowId, long baseWindowId, boolean purged)
+    {
+      this.name = name;
+      this.windowId = windowId;
+      this.baseWindowId = baseWindowId;
+      this.purged = purged;
+    }
+
+    boolean isBase()
+    {
+      return windowId == baseWindowId;
+    }
+
+    static ChainedCheckpoint parse(String name)
+    {
+      boolean purged = name.endsWith(PURGED_SUFFIX);
+      String chain = purged ? name.substring(0, name.length() - PURGED_SUFFIX.length()) : name;
+      int separator = chain.indexOf(CHAIN_SEPARATOR);
+      if (separator < 0 || name.equals(TMP_FILE)) {
+        return null;
+      }
+      return new ChainedCheckpoint(name, parseWindowId(chain.substring(0, separator)),
+          parseWindowId(chain.substring(separator + 1)), purged);
+    }
+
+    @Override
+    public int compareTo(ChainedCheckpoint o)
+    {
+      return Long.compare(windowId, o.windowId);
+    }
+  }
+
+  /**
+   * Serialization metrics of the checkpoints of an operator.
+   */
+  public static class SerializationStats
+  {
+    public long checkpointCount;
+    public long totalBytes;
+    public long totalNanos;
+    public long lastBytes;
+    public long lastNanos;
+    /**
+     * Bytes of the last checkpoint written to the file system, which differs from {@link #lastBytes} when the
+     * checkpoint is compressed.
+     */
+    public long lastStoredBytes;
+    /**
+     * Time it took to write the last checkpoint to the file system, the same as {@link #lastNanos} when the
+     * checkpoint is serialized directly to the file system.
+     */
+    public long lastStoreNanos;
+
+    synchronized void update(long bytes, long nanos)
+    {
+      checkpointCount++;
+      totalBytes += bytes;
+      totalNanos += nanos;
+      lastBytes = bytes;
+      lastNanos = nanos;
+      lastStoredBytes = bytes;
+      lastStoreNanos = nanos;
+    }
+
+    synchronized void stored(long bytes, long nanos)
+    {
+      lastStoredBytes = bytes;
+      lastStoreNanos = nanos;
+    }
+
+    synchronized SerializationStats copy()
+    {
+      SerializationStats stats = new SerializationStats();
+      stats.checkpointCount = checkpointCount;
+      stats.totalBytes = totalBytes;
+      stats.totalNanos = totalNanos;
+      stats.lastBytes = lastBytes;
+      stats.lastNanos = lastNanos;
+      stats.lastStoredBytes = lastStoredBytes;
+      stats.lastStoreNanos = lastStoreNanos;
+      return stats;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "SerializationStats{" + "checkpointCount=" + checkpointCount + ", totalBytes=" + totalBytes +
+          ", totalNanos=" + totalNanos + ", lastBytes=" + lastBytes + ", lastNanos=" + lastNanos +
+          ", lastStoredBytes=" + lastStoredBytes + ", lastStoreNanos=" + lastStoreNanos + '}';
     }
   }
 
   public Object readResolve() throws ObjectStreamException
   {
-    return new FSStorageAgent(this.path, null);
+    FSStorageAgent fsStorageAgent = new FSStorageAgent(this.path, null);
+    fsStorageAgent.setMaxDeltaCheckpoints(maxDeltaCheckpoints);
+    return fsStorageAgent;
   }
 
   private static final long serialVersionUID = 201404031201L;
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.apex.common.util;
+
+import java.io.IOException;
+
+import org.apache.hadoop.classification.InterfaceStability;
+
+import com.datatorrent.api.StorageAgent;
+
+/**
+ * Storage agent which can delete all the checkpoints of an operator below a window in one pass.
+ * The application master purges the checkpoints that are no longer needed for recovery through this interface instead
+ * of a {@link #delete(int, long)} call per checkpoint, which saves storage operations when many checkpoints of an
+ * operator are purged at once.
+ */
+@InterfaceStability.Evolving
+public interface PurgeableStorageAgent extends StorageAgent
+{
+  /**
+   * Limits the rate of the storage operations of a purge. The storage agent acquires a permit before every operation
+   * it performs on the storage, such as a listing, a rename or a delete.
+   */
+  interface Throttle
+  {
+    /**
+     * Throttle that does not limit the operations.
+     */
+    Throttle NONE = new Throttle()
+    {
+      @Override
+      public void acquire()
+      {
+      }
+    };
+
+    /**
+     * Waits until the next storage operation is allowed.
+     */
+    void acquire();
+  }
+
+  /**
+   * Delete the artifacts of all the checkpoints of the operator saved for window ids up to and including the given
+   * window id, without limiting the rate of the storage operations.
+   *
+   * @param operatorId
+   * @param windowId highest window id to delete
+   * @throws IOException
+   */
+  default void purge(int operatorId, long windowId) throws IOException
+  {
+    purge(operatorId, windowId, Throttle.NONE);
+  }
+
+  /**
+   * Delete the artifacts of all the checkpoints of the operator saved for window ids up to and including the given
+   * window id.
+   *
+   * @param operatorId
+   * @param windowId highest window id to delete
+   * @param throttle throttle to acquire a permit from before every storage operation
+   * @throws IOException
+   */
+  void purge(int operatorId, long windowId, Throttle throttle) throws IOException;
+
+}
@@ -0,0 +1,235 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.netlet.util.Slice;
+
+public class SchemaStreamCodecTest
+{
+  enum Side
+  {
+    BUY, SELL
+  }
+
+  static class Base
+  {
+    long id;
+  }
+
+  static class Address
+  {
+    String city;
+    int zip;
+  }
+
+  static class Order extends Base
+  {
+    boolean open;
+    byte flags;
+    short quantity;
+    char currency;
+    int account;
+    float rate;
+    double price;
+    Integer limit;
+    Long expiry;
+    Side side;
+    String symbol;
+    String note;
+    byte[] payload;
+    Address address;
+    transient int ignored;
+  }
+
+  static class Unsupported
+  {
+    List<String> values;
+  }
+
+  static class Recursive
+  {
+    Recursive next;
+  }
+
+  static class NoDefaultConstructor
+  {
+    int value;
+
+    NoDefaultConstructor(int value)
+    {
+      this.value = value;
+    }
+  }
+
+  private static Order newOrder()
+  {
+    Order order = new Order();
+    order.id = 1234567890123L;
+    order.open = true;
+    order.flags = -3;
+    order.quantity = 300;
+    order.currency = '\u20ac';
+    order.account = -42;
+    order.rate = 1.5f;
+    order.price = 99.95;
+    order.limit = 1000;
+    order.side = Side.SELL;
+    order.symbol = "ACME";
+    order.note = "caf\u00e9";
+    order.payload = new byte[] {1, 2, 3};
+    order.address = new Address();
+    order.address.city = "Santa Clara";
+    order.address.zip = 95054;
+    order.ignored = 7;
+    return order;
+  }
+
+  private static void assertOrderEquals(Order expected, Order actual)
+  {
+    Assert.assertEquals("id", expected.id, actual.id);
+    Assert.assertEquals("open", expected.open, actual.open);
+    Assert.assertEquals("flags", expected.flags, actual.flags);
+    Assert.assertEquals("quantity", expected.quantity, actual.quantity);
+    Assert.assertEquals("currency", expected.currency, actual.currency);
+    Assert.assertEquals("account", expected.account, actual.account);
+    Assert.assertEquals("rate", expected.rate, actual.rate, 0);
+    Assert.assertEquals("price", expected.price, actual.price, 0);
+    Assert.assertEquals("limit", expected.limit, actual.limit);
+    Assert.assertEquals("expiry", expected.expiry, actual.expiry);
+    Assert.assertEquals("side", expected.side, actual.side);
+    Assert.assertEquals("symbol", expected.symbol, actual.symbol);
+    Assert.assertEquals("note", expected.note, actual.note);
+    Assert.assertArrayEquals("payload", expected.payload, actual.payload);
+    if (expected.address == null) {
+      Assert.assertNull("address", actual.address);
+    } else {
+      Assert.assertEquals("city", expected.address.city, actual.address.city);
+      Assert.assertEquals("zip", expected.address.zip, actual.address.zip);
+    }
+    Assert.assertEquals("transient", 0, actual.ignored);
+  }
+
+  @Test
+  public void testRoundTrip()
+  {
+    SchemaStreamCodec<Order> codec = new SchemaStreamCodec<>(Order.class);
+    Order order = newOrder();
+    Slice slice = codec.toByteArray(order);
+    assertOrderEquals(order, (Order)codec.fromByteArray(slice));
+
+    Order empty = new Order();
+    assertOrderEquals(empty, (Order)codec.fromByteArray(codec.toByteArray(empty)));
+
+    byte[] buffer = new byte[slice.length + 10];
+    System.arraycopy(slice.buffer, slice.offset, buffer, 5, slice.length);
+    assertOrderEquals(order, (Order)codec.fromByteArray(new Slice(buffer, 5, slice.length)));
+  }
+
+  @Test
+  public void testNoClassNames()
+  {
+    SchemaStreamCodec<Order> codec = new SchemaStreamCodec<>(Order.class);
+    Slice slice = codec.toByteArray(newOrder());
+    String serialized = new String(slice.buffer, slice.offset, slice.length);
+    Assert.assertFalse(serialized, serialized.contains("Order"));
+    Assert.assertFalse(serialized, serialized.contains("Address"));
+  }
+
+  @Test
+  public void testGetField()
+  {
+    SchemaStreamCodec<Order> codec = new SchemaStreamCodec<>(Order.class);
+    Order order = newOrder();
+    order.note = null;
+    Slice slice = codec.toByteArray(order);
+    Assert.assertEquals(order.id, codec.getField(slice, "id"));
+    Assert.assertEquals(order.account, codec.getField(slice, "account"));
+    Assert.assertEquals(order.limit, codec.getField(slice, "limit"));
+    Assert.assertNull(codec.getField(slice, "expiry"));
+    Assert.assertEquals(order.side, codec.getField(slice, "side"));
+    Assert.assertNull(codec.getField(slice, "note"));
+    Assert.assertEquals(order.symbol, codec.getField(slice, "symbol"));
+    Assert.assertArrayEquals(order.payload, (byte[])codec.getField(slice, "payload"));
+    Assert.assertEquals(order.address.city, ((Address)codec.getField(slice, "address")).city);
+  }
+
+  @Test
+  public void testPartition()
+  {
+    SchemaStreamCodec<Order> codec = new SchemaStreamCodec<>(Order.class, "symbol", "side");
+    Order order = newOrder();
+    Order other = newOrder();
+    other.price = 1;
+    Assert.assertEquals(codec.getPartition(order), codec.getPartition(other));
+    Assert.assertEquals(codec.getPartition(order), codec.getPartition(codec.toByteArray(order)));
+
+    other.symbol = "XYZ";
+    Assert.assertNotEquals(codec.getPartition(order), codec.getPartition(other));
+  }
+
+  @Test
+  public void testSerializable() throws Exception
+  {
+    SchemaStreamCodec<Order> codec = new SchemaStreamCodec<>(Order.class, "symbol");
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(codec);
+    }
+    @SuppressWarnings("unchecked")
+    SchemaStreamCodec<Order> copy = (SchemaStreamCodec<Order>)new ObjectInputStream(
+        new ByteArrayInputStream(bos.toByteArray())).readObject();
+
+    Order order = newOrder();
+    assertOrderEquals(order, (Order)copy.fromByteArray(codec.toByteArray(order)));
+    Assert.assertEquals(codec.getPartition(order), copy.getPartition(order));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedField()
+  {
+    new SchemaStreamCodec<>(Unsupported.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecursiveType()
+  {
+    new SchemaStreamCodec<>(Recursive.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoDefaultConstructor()
+  {
+    new SchemaStreamCodec<>(NoDefaultConstructor.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownPartitionField()
+  {
+    new SchemaStreamCodec<>(Order.class, "unknown");
+  }
+}
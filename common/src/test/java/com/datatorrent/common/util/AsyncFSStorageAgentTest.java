@@ -134,4 +134,22 @@ public class AsyncFSStorageAgentTest
     Assert.assertTrue("operator 2 window 1", fileContext.util().exists(new Path(appPath + "/" + 2 + "/" + 1)));
     Assert.assertFalse("operator 1 window 1", fileContext.util().exists(new Path(appPath + "/" + 1 + "/" + 1)));
   }
+
+  @Test
+  public void testDeltaCheckpoints() throws IOException
+  {
+    FSStorageAgentTest.DeltaOperator operator = new FSStorageAgentTest.DeltaOperator();
+    for (int windowId = 1; windowId <= 3; windowId++) {
+      operator.put(windowId, "value" + windowId);
+      testMeta.storageAgent.save(operator, 1, windowId);
+      testMeta.storageAgent.copyToHDFS(1, windowId);
+    }
+
+    Path appPath = new Path(testMeta.applicationPath);
+    FileContext fileContext = FileContext.getFileContext();
+    Assert.assertTrue("base", fileContext.util().exists(new Path(appPath + "/1/1.1")));
+    Assert.assertTrue("delta", fileContext.util().exists(new Path(appPath + "/1/3.1")));
+    FSStorageAgentTest.DeltaOperator restored = (FSStorageAgentTest.DeltaOperator)testMeta.storageAgent.load(1, 3);
+    Assert.assertEquals("state", operator.state, restored.state);
+  }
 }
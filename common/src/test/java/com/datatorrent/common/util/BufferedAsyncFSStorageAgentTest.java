@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.collect.Maps;
+
+public class BufferedAsyncFSStorageAgentTest
+{
+  private static class TestMeta extends TestWatcher
+  {
+    String applicationPath;
+    BufferedAsyncFSStorageAgent storageAgent;
+
+    @Override
+    protected void starting(Description description)
+    {
+      super.starting(description);
+      applicationPath = "target/" + description.getClassName() + "/" + description.getMethodName();
+      try {
+        FileUtils.forceMkdir(new File("target/" + description.getClassName()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      storageAgent = new BufferedAsyncFSStorageAgent(applicationPath, null);
+    }
+
+    @Override
+    protected void finished(Description description)
+    {
+      try {
+        FileUtils.deleteDirectory(new File("target/" + description.getClassName()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  private static Map<Integer, String> newData(int count)
+  {
+    Map<Integer, String> data = Maps.newHashMap();
+    for (int i = 0; i < count; i++) {
+      data.put(i, "value" + i);
+    }
+    return data;
+  }
+
+  private void saveAndLoad(Map<Integer, String> data) throws IOException
+  {
+    testMeta.storageAgent.save(data, 1, 1);
+    Path checkpoint = new Path(testMeta.applicationPath + "/1/1");
+    FileContext fileContext = FileContext.getFileContext();
+    Assert.assertFalse("not flushed", fileContext.util().exists(checkpoint));
+
+    testMeta.storageAgent.flush(1, 1);
+    Assert.assertTrue("flushed", fileContext.util().exists(checkpoint));
+    Assert.assertEquals("data", data, testMeta.storageAgent.load(1, 1));
+
+    FSStorageAgent.SerializationStats stats = testMeta.storageAgent.getSerializationStats(1);
+    Assert.assertEquals("stored bytes", fileContext.getFileStatus(checkpoint).getLen(), stats.lastStoredBytes);
+  }
+
+  @Test
+  public void testSaveAndFlush() throws IOException
+  {
+    saveAndLoad(newData(100));
+  }
+
+  @Test
+  public void testCompress() throws IOException
+  {
+    testMeta.storageAgent.setCompress(true);
+    saveAndLoad(newData(10000));
+
+    FSStorageAgent.SerializationStats stats = testMeta.storageAgent.getSerializationStats(1);
+    Assert.assertTrue("compressed " + stats, stats.lastStoredBytes < stats.lastBytes);
+  }
+
+  @Test
+  public void testSpill() throws IOException
+  {
+    testMeta.storageAgent.setMaxMemorySize(BufferedAsyncFSStorageAgent.BLOCK_SIZE);
+    testMeta.storageAgent.setOffHeap(true);
+    saveAndLoad(newData(100000));
+  }
+
+  @Test
+  public void testSyncCheckpoint() throws IOException
+  {
+    testMeta.storageAgent.setSyncCheckpoint(true);
+    testMeta.storageAgent.setCompress(true);
+    Map<Integer, String> data = newData(100);
+    testMeta.storageAgent.save(data, 1, 1);
+    testMeta.storageAgent.flush(1, 1);
+    Assert.assertEquals("data", data, testMeta.storageAgent.load(1, 1));
+  }
+
+  @Test
+  public void testChecksum() throws IOException
+  {
+    Map<Integer, String> data = newData(100);
+    saveAndLoad(data);
+
+    File file = new File(testMeta.applicationPath + "/1/1");
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(raf.length() - 1);
+      int last = raf.read();
+      raf.seek(raf.length() - 1);
+      raf.write(last ^ 1);
+    }
+    // the checksum of the local file system would fail the read before the checkpoint is verified
+    new File(file.getParentFile(), "." + file.getName() + ".crc").delete();
+    try {
+      testMeta.storageAgent.load(1, 1);
+      Assert.fail("loaded corrupt checkpoint");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("Checksum"));
+    }
+  }
+
+  @Test
+  public void testFlushedStats() throws IOException
+  {
+    testMeta.storageAgent.save(newData(10), 1, 1);
+    testMeta.storageAgent.save(newData(1000), 1, 2);
+    long lastBytes = testMeta.storageAgent.getSerializationStats(1).lastBytes;
+
+    testMeta.storageAgent.flush(1, 1);
+    Assert.assertNull("other window", testMeta.storageAgent.getFlushedStats(1, 2));
+    FSStorageAgent.SerializationStats stats = testMeta.storageAgent.getFlushedStats(1, 1);
+    Assert.assertTrue("first checkpoint " + stats, stats.lastBytes < lastBytes);
+    Assert.assertEquals("stored bytes", FileContext.getFileContext().getFileStatus(
+        new Path(testMeta.applicationPath + "/1/1")).getLen(), stats.lastStoredBytes);
+    Assert.assertNull("reported once", testMeta.storageAgent.getFlushedStats(1, 1));
+
+    testMeta.storageAgent.flush(1, 2);
+    Assert.assertEquals("second checkpoint", lastBytes, testMeta.storageAgent.getFlushedStats(1, 2).lastBytes);
+  }
+
+  @Test
+  public void testFailedFlushBreaksChain() throws IOException
+  {
+    testMeta.storageAgent.setMaxDeltaCheckpoints(2);
+    FSStorageAgentTest.DeltaOperator operator = new FSStorageAgentTest.DeltaOperator();
+    operator.put(1, "value1");
+    testMeta.storageAgent.save(operator, 1, 1);
+    operator.put(2, "value2");
+    testMeta.storageAgent.save(operator, 1, 2);
+
+    // a file in place of the directory of the operator fails the upload of the base
+    File operatorDir = new File(testMeta.applicationPath + "/1");
+    FileUtils.forceMkdir(operatorDir.getParentFile());
+    Assert.assertTrue("created " + operatorDir, operatorDir.createNewFile());
+    try {
+      testMeta.storageAgent.flush(1, 1);
+      Assert.fail("flushed into a file");
+    } catch (Exception e) {
+      // expected
+    }
+    Assert.assertTrue("deleted " + operatorDir, operatorDir.delete());
+
+    try {
+      testMeta.storageAgent.flush(1, 2);
+      Assert.fail("flushed delta of a failed base");
+    } catch (Exception e) {
+      // expected
+    }
+
+    operator.put(3, "value3");
+    testMeta.storageAgent.save(operator, 1, 3);
+    testMeta.storageAgent.flush(1, 3);
+    Assert.assertEquals("new base", 3, ((FSStorageAgentTest.DeltaOperator)testMeta.storageAgent.load(1, 3)).state
+        .size());
+  }
+
+  @Test
+  public void testCheckpointBuffer() throws IOException
+  {
+    byte[] bytes = new byte[BufferedAsyncFSStorageAgent.BLOCK_SIZE * 3 + 17];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte)i;
+    }
+
+    for (boolean direct : new boolean[] {false, true}) {
+      BufferedAsyncFSStorageAgent.BlockPool pool = new BufferedAsyncFSStorageAgent.BlockPool(
+          BufferedAsyncFSStorageAgent.BLOCK_SIZE * 2, direct);
+      for (int i = 0; i < 2; i++) {
+        BufferedAsyncFSStorageAgent.CheckpointBuffer buffer = new BufferedAsyncFSStorageAgent.CheckpointBuffer(pool);
+        buffer.write(bytes[0]);
+        buffer.write(bytes, 1, bytes.length - 1);
+        buffer.close();
+        Assert.assertTrue("spilled", buffer.isSpilled());
+        Assert.assertEquals("size", bytes.length, buffer.size());
+        Assert.assertEquals("pool used up", BufferedAsyncFSStorageAgent.BLOCK_SIZE * 2, pool.getAllocatedSize());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        buffer.release();
+        Assert.assertArrayEquals("content", bytes, out.toByteArray());
+        Assert.assertEquals("blocks kept", direct ? BufferedAsyncFSStorageAgent.BLOCK_SIZE * 2 : 0,
+            pool.getAllocatedSize());
+      }
+    }
+  }
+
+  @Test
+  public void testSharedMemory() throws IOException
+  {
+    BufferedAsyncFSStorageAgent.BlockPool pool = new BufferedAsyncFSStorageAgent.BlockPool(
+        BufferedAsyncFSStorageAgent.BLOCK_SIZE, false);
+    BufferedAsyncFSStorageAgent.CheckpointBuffer first = new BufferedAsyncFSStorageAgent.CheckpointBuffer(pool);
+    first.write(1);
+    first.close();
+    BufferedAsyncFSStorageAgent.CheckpointBuffer second = new BufferedAsyncFSStorageAgent.CheckpointBuffer(pool);
+    second.write(2);
+    second.close();
+    Assert.assertFalse("in memory", first.isSpilled());
+    Assert.assertTrue("pending checkpoints share the memory", second.isSpilled());
+    first.release();
+    second.release();
+    Assert.assertEquals("released", 0, pool.getAllocatedSize());
+  }
+
+}
@@ -20,7 +20,15 @@ package com.datatorrent.common.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Rule;
@@ -36,6 +44,7 @@ import com.google.common.collect.Maps;
 
 import com.datatorrent.api.Attribute;
 import com.datatorrent.api.DAG;
+import com.datatorrent.api.DeltaCheckpointable;
 
 public class FSStorageAgentTest
 {
@@ -131,4 +140,213 @@ public class FSStorageAgentTest
     Assert.assertFalse("operator 1 window 1", fileContext.util().exists(new Path(appPath + "/" + 1 + "/" + 1)));
   }
 
+  @Test
+  public void testConcurrentSaveAndLoad() throws Exception
+  {
+    final int operators = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(operators);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < operators; i++) {
+        final int operatorId = i;
+        futures.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            for (long windowId = 1; windowId <= 20; windowId++) {
+              Map<Integer, String> data = Maps.newHashMap();
+              for (int j = 0; j < 100; j++) {
+                data.put(j, operatorId + "-" + windowId + "-" + j);
+              }
+              testMeta.storageAgent.save(data, operatorId, windowId);
+              Assert.assertEquals("data of " + operatorId, data, testMeta.storageAgent.load(operatorId, windowId));
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int i = 0; i < operators; i++) {
+      FSStorageAgent.SerializationStats stats = testMeta.storageAgent.getSerializationStats(i);
+      Assert.assertEquals("checkpoints of " + i, 20, stats.checkpointCount);
+      Assert.assertTrue("bytes of " + i, stats.lastBytes > 0 && stats.totalBytes > stats.lastBytes);
+    }
+  }
+
+  @Test
+  public void testSerializationStats() throws IOException
+  {
+    Assert.assertNull("no checkpoint", testMeta.storageAgent.getSerializationStats(1));
+    testSave();
+
+    FSStorageAgent.SerializationStats stats = testMeta.storageAgent.getSerializationStats(1);
+    Path checkpoint = new Path(testMeta.applicationPath + "/" + 1 + "/" + 1);
+    long length = FileContext.getFileContext().getFileStatus(checkpoint).getLen();
+    Assert.assertEquals("checkpoints", 1, stats.checkpointCount);
+    Assert.assertEquals("bytes", length, stats.lastBytes);
+    Assert.assertEquals("total bytes", length, stats.totalBytes);
+  }
+
+  public static class DeltaOperator implements DeltaCheckpointable
+  {
+    HashMap<Integer, String> state = new HashMap<>();
+    transient HashMap<Integer, String> changes = new HashMap<>();
+    transient int fullCheckpoints;
+
+    void put(int key, String value)
+    {
+      state.put(key, value);
+      changes.put(key, value);
+    }
+
+    @Override
+    public Object getCheckpointDelta()
+    {
+      HashMap<Integer, String> delta = changes;
+      changes = new HashMap<>();
+      return delta;
+    }
+
+    @Override
+    public void resetCheckpointDelta()
+    {
+      changes = new HashMap<>();
+      fullCheckpoints++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void applyCheckpointDelta(Object delta)
+    {
+      state.putAll((Map<Integer, String>)delta);
+    }
+  }
+
+  private String[] listCheckpoints(int operatorId)
+  {
+    String[] names = new File(testMeta.applicationPath, String.valueOf(operatorId)).list();
+    List<String> checkpoints = new ArrayList<>();
+    for (String name : names) {
+      if (!name.startsWith(".")) {
+        checkpoints.add(name);
+      }
+    }
+    String[] result = checkpoints.toArray(new String[checkpoints.size()]);
+    Arrays.sort(result);
+    return result;
+  }
+
+  @Test
+  public void testDeltaCheckpoints() throws IOException
+  {
+    testMeta.storageAgent.setMaxDeltaCheckpoints(2);
+    DeltaOperator operator = new DeltaOperator();
+    for (int windowId = 1; windowId <= 5; windowId++) {
+      operator.put(windowId, "value" + windowId);
+      testMeta.storageAgent.save(operator, 1, windowId);
+    }
+
+    Assert.assertEquals("full checkpoints", 2, operator.fullCheckpoints);
+    Assert.assertArrayEquals("checkpoints", new String[] {"1.1", "2.1", "3.1", "4.4", "5.4"}, listCheckpoints(1));
+    long[] windowIds = testMeta.storageAgent.getWindowIds(1);
+    Arrays.sort(windowIds);
+    Assert.assertArrayEquals("window ids", new long[] {1, 2, 3, 4, 5}, windowIds);
+
+    for (int windowId = 1; windowId <= 5; windowId++) {
+      DeltaOperator restored = (DeltaOperator)new FSStorageAgent(testMeta.applicationPath, null).load(1, windowId);
+      Assert.assertEquals("state at " + windowId, windowId, restored.state.size());
+      Assert.assertEquals("last value at " + windowId, "value" + windowId, restored.state.get(windowId));
+    }
+  }
+
+  @Test
+  public void testMissingDeltaCheckpoint() throws IOException
+  {
+    testMeta.storageAgent.setMaxDeltaCheckpoints(2);
+    DeltaOperator operator = new DeltaOperator();
+    for (int windowId = 1; windowId <= 3; windowId++) {
+      operator.put(windowId, "value" + windowId);
+      testMeta.storageAgent.save(operator, 1, windowId);
+    }
+
+    Assert.assertTrue("deleted", new File(testMeta.applicationPath + "/1/2.1").delete());
+    try {
+      new FSStorageAgent(testMeta.applicationPath, null).load(1, 3);
+      Assert.fail("restored without the delta of window 2");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("Missing checkpoint 2"));
+    }
+  }
+
+  @Test
+  public void testDeleteDeltaCheckpoints() throws IOException
+  {
+    testMeta.storageAgent.setMaxDeltaCheckpoints(2);
+    DeltaOperator operator = new DeltaOperator();
+    for (int windowId = 1; windowId <= 4; windowId++) {
+      operator.put(windowId, "value" + windowId);
+      testMeta.storageAgent.save(operator, 1, windowId);
+    }
+
+    FSStorageAgent agent = new FSStorageAgent(testMeta.applicationPath, null);
+    agent.delete(1, 1);
+    agent.delete(1, 2);
+    Assert.assertArrayEquals("purged", new String[] {"1.1.purged", "2.1.purged", "3.1", "4.4"}, listCheckpoints(1));
+    long[] windowIds = agent.getWindowIds(1);
+    Arrays.sort(windowIds);
+    Assert.assertArrayEquals("window ids", new long[] {3, 4}, windowIds);
+    Assert.assertEquals("state at 3", 3, ((DeltaOperator)agent.load(1, 3)).state.size());
+
+    agent.delete(1, 3);
+    Assert.assertArrayEquals("deleted", new String[] {"4.4"}, listCheckpoints(1));
+    Assert.assertEquals("state at 4", 4, ((DeltaOperator)agent.load(1, 4)).state.size());
+  }
+
+  @Test
+  public void testPurge() throws IOException
+  {
+    for (int windowId = 1; windowId <= 4; windowId++) {
+      testMeta.storageAgent.save("plain" + windowId, 1, windowId);
+    }
+    testMeta.storageAgent.setMaxDeltaCheckpoints(2);
+    DeltaOperator operator = new DeltaOperator();
+    for (int windowId = 1; windowId <= 4; windowId++) {
+      operator.put(windowId, "value" + windowId);
+      testMeta.storageAgent.save(operator, 2, windowId);
+    }
+
+    FSStorageAgent agent = new FSStorageAgent(testMeta.applicationPath, null);
+    agent.purge(1, 2);
+    Assert.assertArrayEquals("plain", new String[] {"3", "4"}, listCheckpoints(1));
+    agent.purge(2, 2);
+    Assert.assertArrayEquals("chained", new String[] {"1.1.purged", "2.1.purged", "3.1", "4.4"}, listCheckpoints(2));
+    Assert.assertEquals("state at 3", 3, ((DeltaOperator)agent.load(2, 3)).state.size());
+    agent.purge(2, 3);
+    Assert.assertArrayEquals("chain deleted", new String[] {"4.4"}, listCheckpoints(2));
+    agent.purge(3, 3);
+  }
+
+  @Test
+  public void testBaseReplacesStaleCheckpoints() throws IOException
+  {
+    DeltaOperator operator = new DeltaOperator();
+    for (int windowId = 1; windowId <= 3; windowId++) {
+      operator.put(windowId, "value" + windowId);
+      testMeta.storageAgent.save(operator, 1, windowId);
+    }
+
+    DeltaOperator restored = (DeltaOperator)testMeta.storageAgent.load(1, 1);
+    restored.put(2, "replayed");
+    testMeta.storageAgent.save(restored, 1, 2);
+    Assert.assertArrayEquals("checkpoints", new String[] {"1.1", "2.2"}, listCheckpoints(1));
+    Assert.assertEquals("replayed", ((DeltaOperator)testMeta.storageAgent.load(1, 2)).state.get(2));
+  }
+
 }
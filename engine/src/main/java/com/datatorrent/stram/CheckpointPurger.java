@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.IOException;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.apex.common.util.PurgeableStorageAgent;
+
+import com.datatorrent.api.StorageAgent;
+
+/**
+ * Deletes the checkpoints that are no longer needed for recovery in the background.
+ * <p>
+ * Purge requests are coalesced per operator: an operator waiting to be purged is purged once, for all the windows
+ * requested since, and storage agents that implement {@link PurgeableStorageAgent} delete all those checkpoints with a
+ * single call. The storage agents are called by a single thread and their storage operations, each listing, rename or
+ * delete, are limited to the given number per second so that the purge of many partitions does not flood the file
+ * system.
+ */
+class CheckpointPurger
+{
+  private final ConcurrentMap<Integer, PendingPurge> pending = new ConcurrentHashMap<>();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final AtomicLong purgedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private final long nanosPerOperation;
+  private long nextOperationNanos;
+
+  private static class PendingPurge
+  {
+    final StorageAgent agent;
+    final long requestedMillis;
+    final TreeSet<Long> windowIds = new TreeSet<>();
+
+    PendingPurge(StorageAgent agent)
+    {
+      this.agent = agent;
+      this.requestedMillis = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * @param maxOperationsPerSecond maximum number of storage operations per second, no limit when not positive
+   */
+  CheckpointPurger(int maxOperationsPerSecond)
+  {
+    nanosPerOperation = maxOperationsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxOperationsPerSecond : 0;
+  }
+
+  /**
+   * Requests the checkpoint of the operator to be deleted.
+   *
+   * @param operatorId id of the operator
+   * @param agent storage agent the checkpoint was saved with
+   * @param windowId window id of the checkpoint
+   */
+  void purge(int operatorId, final StorageAgent agent, final long windowId)
+  {
+    pending.compute(operatorId, (id, purge) -> {
+      if (purge == null) {
+        purge = new PendingPurge(agent);
+      }
+      purge.windowIds.add(windowId);
+      return purge;
+    });
+    schedule();
+  }
+
+  private void schedule()
+  {
+    if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException ex) {
+        LOG.debug("Checkpoint purge shut down with {} operators pending", pending.size());
+      }
+    }
+  }
+
+  private void drain()
+  {
+    try {
+      for (Integer operatorId : pending.keySet()) {
+        // the operator is purged for all the windows requested until it is removed, later requests start a new batch
+        PendingPurge purge = pending.remove(operatorId);
+        if (purge != null) {
+          purge(operatorId, purge);
+        }
+      }
+    } finally {
+      scheduled.set(false);
+    }
+    schedule();
+  }
+
+  private void purge(int operatorId, PendingPurge purge)
+  {
+    try {
+      if (purge.agent instanceof PurgeableStorageAgent) {
+        ((PurgeableStorageAgent)purge.agent).purge(operatorId, purge.windowIds.last(), this::acquire);
+      } else {
+        for (long windowId : purge.windowIds) {
+          acquire();
+          purge.agent.delete(operatorId, windowId);
+        }
+      }
+      purgedCount.addAndGet(purge.windowIds.size());
+    } catch (IOException | RuntimeException ex) {
+      failedCount.addAndGet(purge.windowIds.size());
+      LOG.error("Failed to purge checkpoints {} of operator {}", purge.windowIds, operatorId, ex);
+    }
+  }
+
+  /**
+   * Waits until the next storage operation is allowed by the rate limit.
+   */
+  private void acquire()
+  {
+    if (nanosPerOperation > 0) {
+      long now = System.nanoTime();
+      if (nextOperationNanos > now) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(nextOperationNanos - now);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        now = nextOperationNanos;
+      }
+      nextOperationNanos = now + nanosPerOperation;
+    }
+  }
+
+  /**
+   * @return number of operators with checkpoints waiting to be purged
+   */
+  int getPendingCount()
+  {
+    return pending.size();
+  }
+
+  /**
+   * @return milliseconds the oldest pending purge request has been waiting, 0 when none is pending
+   */
+  long getLagMillis()
+  {
+    long oldest = Long.MAX_VALUE;
+    for (PendingPurge purge : pending.values()) {
+      oldest = Math.min(oldest, purge.requestedMillis);
+    }
+    return oldest == Long.MAX_VALUE ? 0 : Math.max(System.currentTimeMillis() - oldest, 0);
+  }
+
+  /**
+   * @return number of checkpoints purged so far
+   */
+  long getPurgedCount()
+  {
+    return purgedCount.get();
+  }
+
+  /**
+   * @return number of checkpoints that could not be purged
+   */
+  long getFailedCount()
+  {
+    return failedCount.get();
+  }
+
+  /**
+   * Stops the purge thread once the purge in progress is done.
+   */
+  void shutdown()
+  {
+    executor.shutdown();
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(CheckpointPurger.class);
+}
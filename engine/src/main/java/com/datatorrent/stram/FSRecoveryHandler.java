@@ -19,15 +19,30 @@
 package com.datatorrent.stram;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,11 +57,20 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Options.Rename;
 import org.apache.hadoop.fs.Path;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+
+import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.stram.util.FSUtil;
 
 /**
  * <p>FSRecoveryHandler class.</p>
  *
+ * The state is saved as a base snapshot, followed by deltas that encode the state as ranges copied from the base and
+ * the bytes not found in it. The serialized state is split into content defined chunks, so that a change in the state
+ * only affects the chunks around it. Each delta replaces the previous one, and a new base snapshot is written when the
+ * delta would no longer be compact.
+ *
  * @since 0.9.2
  */
 public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHandler
@@ -58,15 +82,47 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
   private final FileSystem fs;
   private final Path snapshotPath;
   private final Path snapshotBackupPath;
+  private final Path snapshotDeltaPath;
+  private final Path snapshotDeltaBackupPath;
   private final Path heartbeatPath;
 
   public static final String FILE_LOG = "log";
   public static final String FILE_LOG_BACKUP = "log0";
   public static final String FILE_SNAPSHOT = "snapshot";
   public static final String FILE_SNAPSHOT_BACKUP = "snapshot0";
+  public static final String FILE_SNAPSHOT_DELTA = "snapshot.delta";
+  public static final String FILE_SNAPSHOT_DELTA_BACKUP = "snapshot.delta0";
   private static final String DIRECTORY_RECOVERY = "recovery";
   private static final String FILE_HEARTBEATURI = "heartbeatUri";
 
+  private static final int DELTA_MAGIC = 0x534e4431;
+  private static final byte DELTA_END = 0;
+  private static final byte DELTA_COPY = 1;
+  private static final byte DELTA_DATA = 2;
+  /**
+   * A new base snapshot is written when the bytes of the state not found in the base exceed this fraction of it.
+   */
+  private static final double MAX_DELTA_RATIO = 0.5;
+  private static final int MIN_CHUNK_SIZE = 256;
+  private static final int MAX_CHUNK_SIZE = 16384;
+  // a chunk ends where the top 11 bits of the rolling hash are 0, chunks are 2KB on average
+  private static final long CHUNK_BOUNDARY_MASK = 0xffe0000000000000L;
+  private static final long[] GEAR = new long[256];
+
+  static {
+    Random random = new Random(0x5eedL);
+    for (int i = 0; i < GEAR.length; i++) {
+      GEAR[i] = random.nextLong();
+    }
+  }
+
+  // digests of the chunks of the base snapshot and their offsets in it
+  private Future<Map<ByteBuffer, Integer>> baseIndex;
+  private int baseLength;
+  private long baseChecksum;
+  private Future<byte[]> log;
+  private Map<String, Long> restoreMillis = Collections.emptyMap();
+
   public FSRecoveryHandler(String appDir, Configuration conf) throws IOException
   {
     this.basedir = new Path(appDir, DIRECTORY_RECOVERY);
@@ -76,6 +132,8 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     logBackupPath = new Path(basedir, FILE_LOG_BACKUP);
     snapshotPath = new Path(basedir, FILE_SNAPSHOT);
     snapshotBackupPath = new Path(basedir, FILE_SNAPSHOT_BACKUP);
+    snapshotDeltaPath = new Path(basedir, FILE_SNAPSHOT_DELTA);
+    snapshotDeltaBackupPath = new Path(basedir, FILE_SNAPSHOT_DELTA_BACKUP);
     heartbeatPath = new Path(basedir, FILE_HEARTBEATURI);
   }
 
@@ -144,6 +202,13 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
       throw new AssertionError("Restore state prior to reading log: " + logBackupPath);
     }
 
+    if (log != null) {
+      // read while the snapshot was restored
+      byte[] bytes = get(log);
+      log = null;
+      return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
     if (fs.exists(logPath)) {
       LOG.debug("Opening existing log ({})", logPath);
       return fs.open(logPath);
@@ -157,7 +222,29 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
   @Override
   public void save(Object state) throws IOException
   {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(state);
+    }
+    byte[] bytes = bos.toByteArray();
+
+    byte[] delta = baseIndex == null ? null : encodeDelta(bytes, get(baseIndex));
+    if (delta == null) {
+      saveBase(bytes);
+    } else {
+      saveDelta(delta);
+    }
 
+    // remove log backup
+    Path logBackup = new Path(basedir + Path.SEPARATOR + FILE_LOG_BACKUP);
+    if (fs.exists(logBackup) && !fs.delete(logBackup, false)) {
+      throw new IOException("Failed to remove " + logBackup);
+    }
+
+  }
+
+  private void saveBase(byte[] bytes) throws IOException
+  {
     if (fs.exists(snapshotBackupPath)) {
       throw new IllegalStateException("Found previous backup " + snapshotBackupPath);
     }
@@ -167,48 +254,234 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
       fs.rename(snapshotPath, snapshotBackupPath);
     }
 
+    baseIndex = null;
     LOG.debug("Writing checkpoint to {}", snapshotPath);
-    try (FSDataOutputStream fsOutputStream = fs.create(snapshotPath);
-        ObjectOutputStream oos = new ObjectOutputStream(fsOutputStream)) {
-      oos.writeObject(state);
+    try (FSDataOutputStream fsOutputStream = fs.create(snapshotPath)) {
+      fsOutputStream.write(bytes);
     }
     // remove snapshot backup
     if (fs.exists(snapshotBackupPath) && !fs.delete(snapshotBackupPath, false)) {
       throw new IOException("Failed to remove " + snapshotBackupPath);
     }
+    // remove the delta of the previous base, it is ignored on restore if this fails
+    if (fs.exists(snapshotDeltaPath) && !fs.delete(snapshotDeltaPath, false)) {
+      throw new IOException("Failed to remove " + snapshotDeltaPath);
+    }
+    setBase(bytes, null);
+  }
 
-    // remove log backup
-    Path logBackup = new Path(basedir + Path.SEPARATOR + FILE_LOG_BACKUP);
-    if (fs.exists(logBackup) && !fs.delete(logBackup, false)) {
-      throw new IOException("Failed to remove " + logBackup);
+  private void saveDelta(byte[] delta) throws IOException
+  {
+    if (fs.exists(snapshotDeltaBackupPath)) {
+      throw new IllegalStateException("Found previous backup " + snapshotDeltaBackupPath);
+    }
+
+    if (fs.exists(snapshotDeltaPath)) {
+      LOG.debug("Backup {} to {}", snapshotDeltaPath, snapshotDeltaBackupPath);
+      fs.rename(snapshotDeltaPath, snapshotDeltaBackupPath);
+    }
+
+    LOG.debug("Writing checkpoint delta to {}", snapshotDeltaPath);
+    try (FSDataOutputStream fsOutputStream = fs.create(snapshotDeltaPath)) {
+      fsOutputStream.write(delta);
+    }
+    // remove delta backup
+    if (fs.exists(snapshotDeltaBackupPath) && !fs.delete(snapshotDeltaBackupPath, false)) {
+      throw new IOException("Failed to remove " + snapshotDeltaBackupPath);
+    }
+  }
+
+  private void setBase(final byte[] bytes, ExecutorService executor)
+  {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length);
+    baseLength = bytes.length;
+    baseChecksum = crc.getValue();
+    if (executor == null) {
+      baseIndex = Futures.immediateFuture(index(bytes));
+    } else {
+      baseIndex = executor.submit(new Callable<Map<ByteBuffer, Integer>>()
+      {
+        @Override
+        public Map<ByteBuffer, Integer> call()
+        {
+          return index(bytes);
+        }
+      });
+    }
+  }
+
+  /**
+   * Encodes the state as ranges of the base snapshot and the bytes not found in it.
+   *
+   * @return the delta, or null when the bytes not found in the base exceed {@link #MAX_DELTA_RATIO} of the state
+   */
+  private byte[] encodeDelta(byte[] state, Map<ByteBuffer, Integer> index) throws IOException
+  {
+    final int maxDataLength = (int)(state.length * MAX_DELTA_RATIO);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeInt(DELTA_MAGIC);
+    out.writeInt(baseLength);
+    out.writeLong(baseChecksum);
+    out.writeInt(state.length);
+
+    MessageDigest digest = newDigest();
+    int dataLength = 0;
+    // the range not yet written, either of the base or of the state
+    boolean copy = false;
+    int rangeOffset = 0;
+    int rangeLength = 0;
+    for (int offset = 0; offset < state.length; ) {
+      int end = nextChunk(state, offset);
+      int length = end - offset;
+      digest.update(state, offset, length);
+      Integer baseOffset = index.get(ByteBuffer.wrap(digest.digest()));
+      if (baseOffset == null) {
+        dataLength += length;
+        if (dataLength > maxDataLength) {
+          return null;
+        }
+        if (rangeLength > 0 && !copy) {
+          rangeLength += length;
+        } else {
+          writeRange(out, state, copy, rangeOffset, rangeLength);
+          copy = false;
+          rangeOffset = offset;
+          rangeLength = length;
+        }
+      } else {
+        if (rangeLength > 0 && copy && rangeOffset + rangeLength == baseOffset) {
+          rangeLength += length;
+        } else {
+          writeRange(out, state, copy, rangeOffset, rangeLength);
+          copy = true;
+          rangeOffset = baseOffset;
+          rangeLength = length;
+        }
+      }
+      offset = end;
+    }
+    writeRange(out, state, copy, rangeOffset, rangeLength);
+    out.writeByte(DELTA_END);
+    out.writeInt(DELTA_MAGIC);
+    LOG.debug("Encoded {} bytes of state with {} bytes not found in the base", state.length, dataLength);
+    return bos.toByteArray();
+  }
+
+  private static void writeRange(DataOutputStream out, byte[] state, boolean copy, int offset, int length) throws IOException
+  {
+    if (length == 0) {
+      return;
+    }
+    if (copy) {
+      out.writeByte(DELTA_COPY);
+      out.writeInt(offset);
+      out.writeInt(length);
+    } else {
+      out.writeByte(DELTA_DATA);
+      out.writeInt(length);
+      out.write(state, offset, length);
+    }
+  }
+
+  /**
+   * @return the state, or null when the delta was encoded against a previous base, which happens when saving failed
+   * after a new base was written
+   * @throws IOException when the delta is incomplete or corrupt
+   */
+  private byte[] applyDelta(byte[] base, byte[] delta) throws IOException
+  {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta));
+    try {
+      if (in.readInt() != DELTA_MAGIC) {
+        throw new IOException("Invalid delta header");
+      }
+      if (in.readInt() != baseLength || in.readLong() != baseChecksum) {
+        return null;
+      }
+      byte[] state = new byte[in.readInt()];
+      int offset = 0;
+      for (byte op = in.readByte(); op != DELTA_END; op = in.readByte()) {
+        if (op == DELTA_COPY) {
+          int baseOffset = in.readInt();
+          int length = in.readInt();
+          System.arraycopy(base, baseOffset, state, offset, length);
+          offset += length;
+        } else if (op == DELTA_DATA) {
+          int length = in.readInt();
+          in.readFully(state, offset, length);
+          offset += length;
+        } else {
+          throw new IOException("Invalid delta operation " + op + " at state offset " + offset);
+        }
+      }
+      if (offset != state.length || in.readInt() != DELTA_MAGIC) {
+        throw new IOException("Invalid delta trailer at state offset " + offset + " of " + state.length);
+      }
+      return state;
+    } catch (EOFException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+      throw new IOException("Incomplete delta", e);
+    }
+  }
+
+  private static Map<ByteBuffer, Integer> index(byte[] bytes)
+  {
+    Map<ByteBuffer, Integer> index = new HashMap<>();
+    MessageDigest digest = newDigest();
+    for (int offset = 0; offset < bytes.length; ) {
+      int end = nextChunk(bytes, offset);
+      digest.update(bytes, offset, end - offset);
+      ByteBuffer key = ByteBuffer.wrap(digest.digest());
+      if (!index.containsKey(key)) {
+        index.put(key, offset);
+      }
+      offset = end;
     }
+    return index;
+  }
 
+  /**
+   * Returns the end of the chunk starting at the given offset. The end is found with a rolling hash over the bytes
+   * preceding it, so that bytes inserted into or removed from the state only change the chunks around them.
+   */
+  private static int nextChunk(byte[] bytes, int offset)
+  {
+    int limit = Math.min(bytes.length, offset + MAX_CHUNK_SIZE);
+    long hash = 0;
+    for (int i = Math.min(limit, offset + MIN_CHUNK_SIZE); i < limit; i++) {
+      hash = (hash << 1) + GEAR[bytes[i] & 0xff];
+      if ((hash & CHUNK_BOUNDARY_MASK) == 0) {
+        return i + 1;
+      }
+    }
+    return limit;
+  }
+
+  private static MessageDigest newDigest()
+  {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
   }
 
   @Override
   public Object restore() throws IOException
   {
     FileContext fc = FileContext.getFileContext(fs.getUri());
+    log = null;
 
     // recover from wherever it was left
     if (fc.util().exists(snapshotBackupPath)) {
       LOG.warn("Incomplete checkpoint, reverting to {}", snapshotBackupPath);
       fc.rename(snapshotBackupPath, snapshotPath, Rename.OVERWRITE);
-
-      // combine logs (w/o append, create new file)
-      Path tmpLogPath = new Path(basedir, "log.combined");
-      try (FSDataOutputStream fsOut = fc.create(tmpLogPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE))) {
-        try (FSDataInputStream fsIn = fc.open(logBackupPath)) {
-          IOUtils.copy(fsIn, fsOut);
-        }
-
-        try (FSDataInputStream fsIn = fc.open(logPath)) {
-          IOUtils.copy(fsIn, fsOut);
-        }
-      }
-
-      fc.rename(tmpLogPath, logPath, Rename.OVERWRITE);
-      fc.delete(logBackupPath, false);
+      combineLogs(fc);
+    } else if (fc.util().exists(snapshotDeltaBackupPath)) {
+      LOG.warn("Incomplete checkpoint, reverting to {}", snapshotDeltaBackupPath);
+      fc.rename(snapshotDeltaBackupPath, snapshotDeltaPath, Rename.OVERWRITE);
+      combineLogs(fc);
     } else {
       // we have log backup, but no checkpoint backup
       // failure between log rotation and writing checkpoint
@@ -223,12 +496,108 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
       return null;
     }
 
-    LOG.debug("Reading checkpoint {}", snapshotPath);
-    InputStream is = fc.open(snapshotPath);
+    Map<String, Long> millis = new LinkedHashMap<>();
+    long time = System.currentTimeMillis();
+    ExecutorService executor = Executors.newFixedThreadPool(2, new NameableThreadFactory("RecoveryReader", true));
+    try {
+      // the log and the delta are read while the base snapshot is read, the base is indexed for the next delta while
+      // the state is deserialized
+      log = executor.submit(new Callable<byte[]>()
+      {
+        @Override
+        public byte[] call() throws IOException
+        {
+          byte[] bytes = readFully(logPath);
+          return bytes == null ? new byte[] {} : bytes;
+        }
+      });
+      Future<byte[]> delta = executor.submit(new Callable<byte[]>()
+      {
+        @Override
+        public byte[] call() throws IOException
+        {
+          return readFully(snapshotDeltaPath);
+        }
+      });
+
+      LOG.debug("Reading checkpoint {}", snapshotPath);
+      byte[] bytes = readFully(snapshotPath);
+      setBase(bytes, executor);
+      long now = System.currentTimeMillis();
+      millis.put("readSnapshot", now - time);
+      time = now;
+
+      byte[] deltaBytes = get(delta);
+      if (deltaBytes != null) {
+        byte[] state;
+        try {
+          state = applyDelta(bytes, deltaBytes);
+        } catch (IOException e) {
+          throw new IOException("Failed to apply " + snapshotDeltaPath + " to " + snapshotPath, e);
+        }
+        if (state == null) {
+          LOG.warn("Ignoring {} that predates {}", snapshotDeltaPath, snapshotPath);
+        } else {
+          bytes = state;
+        }
+      }
+      now = System.currentTimeMillis();
+      millis.put("applySnapshotDelta", now - time);
+      time = now;
+
+      Object state = deserialize(bytes);
+      millis.put("deserializeSnapshot", System.currentTimeMillis() - time);
+      restoreMillis = Collections.unmodifiableMap(millis);
+      LOG.info("Restored {} bytes of state from {} in {}", bytes.length, basedir, millis);
+      return state;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * @return time in milliseconds the phases of the last restore took
+   */
+  @Override
+  public Map<String, Long> getRestoreMillis()
+  {
+    return restoreMillis;
+  }
+
+  private void combineLogs(FileContext fc) throws IOException
+  {
+    // combine logs (w/o append, create new file)
+    Path tmpLogPath = new Path(basedir, "log.combined");
+    try (FSDataOutputStream fsOut = fc.create(tmpLogPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE))) {
+      try (FSDataInputStream fsIn = fc.open(logBackupPath)) {
+        IOUtils.copy(fsIn, fsOut);
+      }
+
+      try (FSDataInputStream fsIn = fc.open(logPath)) {
+        IOUtils.copy(fsIn, fsOut);
+      }
+    }
+
+    fc.rename(tmpLogPath, logPath, Rename.OVERWRITE);
+    fc.delete(logBackupPath, false);
+  }
+
+  private byte[] readFully(Path path) throws IOException
+  {
+    if (!fs.exists(path)) {
+      return null;
+    }
+    try (FSDataInputStream in = fs.open(path)) {
+      return IOUtils.toByteArray(in);
+    }
+  }
+
+  private static Object deserialize(byte[] bytes) throws IOException
+  {
     // indeterministic class loading behavior
     // http://stackoverflow.com/questions/9110677/readresolve-not-working-an-instance-of-guavas-serializedform-appears
     final ClassLoader loader = Thread.currentThread().getContextClassLoader();
-    try (ObjectInputStream ois = new ObjectInputStream(is)
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))
     {
       @Override
       protected Class<?> resolveClass(ObjectStreamClass objectStreamClass)
@@ -243,6 +612,19 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     }
   }
 
+  private static <T> T get(Future<T> future) throws IOException
+  {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class);
+      throw new IOException(e.getCause());
+    }
+  }
+
   public void writeConnectUri(String uri) throws IOException
   {
     try (DataOutputStream out = fs.create(heartbeatPath, true)) {
@@ -22,8 +22,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.annotation.Nullable;
 
@@ -37,6 +39,8 @@ import com.google.common.collect.ImmutableMap;
 
 import com.datatorrent.stram.plan.physical.PTContainer;
 import com.datatorrent.stram.plan.physical.PTOperator;
+import com.datatorrent.stram.util.MovingAverage.MovingPercentileLong;
+import com.datatorrent.stram.util.MovingAverage.TimedMovingAverageLong;
 
 /**
  * Write ahead log for DAG changes.
@@ -91,9 +95,61 @@ public final class Journal
     void write(Output out) throws KryoException;
   }
 
+  /**
+   * Journal output. Besides the buffer, it keeps the sequence numbers of the records appended to it and of the records
+   * flushed to the underlying stream, used to commit the records of concurrent writers with a single flush.
+   */
+  private static class JournalOutput extends Output
+  {
+    private final Object commitLock = new Object();
+    // sequence number of the last record appended, guarded by this
+    private long appended;
+    // sequence number of the last record flushed to the stream, guarded by commitLock
+    private long flushed;
+    // whether a writer is flushing the output on behalf of the others, guarded by commitLock
+    private boolean flushing;
+
+    JournalOutput(OutputStream out)
+    {
+      super(4096, -1);
+      setOutputStream(out);
+    }
+
+    @Override
+    public void flush() throws KryoException
+    {
+      super.flush();
+      // Kryo does not flush internal output stream during flush. We need to flush it explicitly.
+      try {
+        getOutputStream().flush();
+      } catch (IOException e) {
+        throw new KryoException(e);
+      }
+    }
+
+    @Override
+    public void close() throws KryoException
+    {
+      final long closed;
+      synchronized (this) {
+        super.close();
+        closed = appended;
+      }
+      // close flushes the buffer, the records appended so far are durable
+      synchronized (commitLock) {
+        flushed = closed;
+        commitLock.notifyAll();
+      }
+    }
+  }
+
   private final StreamingContainerManager scm;
-  private final AtomicReference<Output> output;
+  private final AtomicReference<JournalOutput> output;
   private final AtomicBoolean replayMode;
+  private long groupCommitNanos;
+  private final TimedMovingAverageLong recordsPerMillis = new TimedMovingAverageLong(1024, 10000);
+  private final MovingPercentileLong flushNanos = new MovingPercentileLong(1024);
+  private long lastFlushMillis = System.currentTimeMillis();
 
   public Journal(StreamingContainerManager scm)
   {
@@ -102,37 +158,33 @@ public final class Journal
     replayMode = new AtomicBoolean(false);
   }
 
-  public void setOutputStream(@Nullable final OutputStream out) throws IOException
+  /**
+   * Sets the time the writer flushing the journal waits for the records of other writers before it flushes. Writers
+   * arriving while a flush is in progress are committed together with the next flush even when it is 0.
+   *
+   * @param millis time to wait for other writers in milliseconds
+   */
+  public void setGroupCommitMillis(long millis)
   {
-    final Output output;
-    if (out != null) {
-      output = new Output(4096, -1)
-      {
-        @Override
-        public void flush() throws KryoException
-        {
-          super.flush();
-          // Kryo does not flush internal output stream during flush. We need to flush it explicitly.
-          try {
-            getOutputStream().flush();
-          } catch (IOException e) {
-            throw new KryoException(e);
-          }
-        }
-      };
-      output.setOutputStream(out);
-    } else {
-      output = null;
-    }
+    groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+  }
 
+  public void setOutputStream(@Nullable final OutputStream out) throws IOException
+  {
+    final JournalOutput output = out == null ? null : new JournalOutput(out);
     final Output oldOut = this.output.getAndSet(output);
     if (oldOut != null && oldOut.getOutputStream() != out) {
-      synchronized (oldOut) {
-        oldOut.close();
-      }
+      oldOut.close();
     }
   }
 
+  /**
+   * Writes the operation to the journal and returns once it is flushed to the output stream. The records of writers
+   * waiting at the same time are flushed together: the first writer to find no flush in progress flushes all the
+   * records appended so far, the others wait for it.
+   *
+   * @param op operation to write
+   */
   final void write(Recoverable op)
   {
     if (replayMode.get()) {
@@ -143,24 +195,28 @@ public final class Journal
       throw new IllegalArgumentException("Class not registered " + op.getClass());
     }
     while (true) {
-      final Output out = output.get();
+      final JournalOutput out = output.get();
       if (out != null) {
-        // need to atomically write id, operation and flush the output stream
+        final long sequence;
+        // need to atomically write id and operation
         synchronized (out) {
           try {
             LOG.debug("WAL write {}", RecoverableOperation.get(classId));
             out.writeInt(classId);
             op.write(out);
-            out.flush();
-            break;
+            sequence = ++out.appended;
           } catch (KryoException e) {
             // check that no other threads sneaked between get() and synchronized block and set output stream to a new
             // stream or null leading to the current stream being closed
             if (output.get() == out) {
               throw e;
             }
+            continue;
           }
         }
+        if (commit(out, sequence)) {
+          break;
+        }
       } else {
         LOG.warn("Journal output stream is null. Skipping write to the WAL.");
         break;
@@ -168,6 +224,91 @@ public final class Journal
     }
   }
 
+  /**
+   * Waits till the record with the given sequence number is flushed, flushing the output if no other writer does.
+   *
+   * @return false if the output was closed by a concurrent rotation before the record was flushed
+   */
+  private boolean commit(JournalOutput out, long sequence)
+  {
+    final long previous;
+    synchronized (out.commitLock) {
+      while (out.flushed < sequence) {
+        if (!out.flushing) {
+          out.flushing = true;
+          break;
+        }
+        try {
+          out.commitLock.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new KryoException(e);
+        }
+      }
+      if (out.flushed >= sequence) {
+        return true;
+      }
+      previous = out.flushed;
+    }
+
+    long flushed = 0;
+    try {
+      if (groupCommitNanos > 0) {
+        LockSupport.parkNanos(this, groupCommitNanos);
+      }
+      final long start = System.nanoTime();
+      synchronized (out) {
+        flushed = out.appended;
+        out.flush();
+      }
+      recordFlush(flushed - previous, System.nanoTime() - start);
+      return true;
+    } catch (KryoException e) {
+      flushed = 0;
+      // check that no other threads set output stream to a new stream or null leading to the current stream being
+      // closed, the close flushes the records appended till then
+      if (output.get() == out) {
+        throw e;
+      }
+      synchronized (out.commitLock) {
+        return out.flushed >= sequence;
+      }
+    } finally {
+      synchronized (out.commitLock) {
+        out.flushing = false;
+        if (flushed > out.flushed) {
+          out.flushed = flushed;
+        }
+        out.commitLock.notifyAll();
+      }
+    }
+  }
+
+  private synchronized void recordFlush(long records, long nanos)
+  {
+    final long now = System.currentTimeMillis();
+    recordsPerMillis.add(records, now - lastFlushMillis);
+    lastFlushMillis = now;
+    flushNanos.add(nanos);
+  }
+
+  /**
+   * @return number of records written to the journal per second, averaged over the recent flushes
+   */
+  public long getRecordsPerSecond()
+  {
+    return Math.round(recordsPerMillis.getAvg() * 1000);
+  }
+
+  /**
+   * @param percentile percentile between 0 and 100
+   * @return the given percentile of the time the recent flushes of the journal took, in microseconds
+   */
+  public long getFlushMicros(double percentile)
+  {
+    return TimeUnit.NANOSECONDS.toMicros(flushNanos.getPercentile(percentile));
+  }
+
   final void replay(final InputStream input)
   {
     if (replayMode.compareAndSet(false, true)) {
@@ -360,6 +360,18 @@ public class StreamingAppMasterService extends CompositeService
       return result;
     }
 
+    @Override
+    public Map<String, Long> getRecoveryMillis()
+    {
+      return dnmgr.getRecoveryMillis();
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> getPluginStats()
+    {
+      return dnmgr.apexPluginDispatcher.getPluginStats();
+    }
+
     @Override
     public List<Integer> getCriticalPath()
     {
@@ -375,6 +387,55 @@ public class StreamingAppMasterService extends CompositeService
       return (criticalPathInfo == null) ? 0 : criticalPathInfo.latency;
     }
 
+    @AutoMetric
+    @Override
+    public long getHeartbeatProcessingMicros50thPercentile()
+    {
+      return dnmgr.getHeartbeatProcessingMicros(50);
+    }
+
+    @AutoMetric
+    @Override
+    public long getHeartbeatProcessingMicros99thPercentile()
+    {
+      return dnmgr.getHeartbeatProcessingMicros(99);
+    }
+
+    @AutoMetric
+    @Override
+    public long getHeartbeatStatsRejections()
+    {
+      return dnmgr.getHeartbeatStatsRejections();
+    }
+
+    @AutoMetric
+    @Override
+    public int getPendingCheckpointPurges()
+    {
+      return dnmgr.getPendingCheckpointPurges();
+    }
+
+    @AutoMetric
+    @Override
+    public long getCheckpointPurgeLagMillis()
+    {
+      return dnmgr.getCheckpointPurgeLagMillis();
+    }
+
+    @AutoMetric
+    @Override
+    public long getJournalRecordsPerSecond()
+    {
+      return dnmgr.getJournalRecordsPerSecond();
+    }
+
+    @AutoMetric
+    @Override
+    public long getJournalFlushMicros99thPercentile()
+    {
+      return dnmgr.getJournalFlushMicros(99);
+    }
+
     @Override
     public long getWindowStartMillis()
     {
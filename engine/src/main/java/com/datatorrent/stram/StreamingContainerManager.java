@@ -29,6 +29,7 @@ import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -45,6 +46,7 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
@@ -53,6 +55,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -126,6 +130,7 @@ import com.datatorrent.bufferserver.auth.AuthManager;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.common.experimental.AppData;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
+import com.datatorrent.common.util.BufferedAsyncFSStorageAgent;
 import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.common.util.NumberAggregate;
 import com.datatorrent.common.util.Pair;
@@ -133,6 +138,7 @@ import com.datatorrent.stram.Journal.Recoverable;
 import com.datatorrent.stram.StreamingContainerAgent.ContainerStartRequest;
 import com.datatorrent.stram.api.AppDataSource;
 import com.datatorrent.stram.api.Checkpoint;
+import com.datatorrent.stram.api.ContainerHeartbeatCodec;
 import com.datatorrent.stram.api.ContainerContext;
 import com.datatorrent.stram.api.OperatorDeployInfo;
 import com.datatorrent.stram.api.StramEvent;
@@ -174,6 +180,7 @@ import com.datatorrent.stram.plan.physical.PlanModifier;
 import com.datatorrent.stram.util.ConfigUtils;
 import com.datatorrent.stram.util.FSJsonLineFile;
 import com.datatorrent.stram.util.MovingAverage.MovingAverageLong;
+import com.datatorrent.stram.util.MovingAverage.MovingPercentileLong;
 import com.datatorrent.stram.util.SharedPubSubWebSocketClient;
 import com.datatorrent.stram.webapp.ContainerInfo;
 import com.datatorrent.stram.webapp.LogicalOperatorInfo;
@@ -230,6 +237,7 @@ public class StreamingContainerManager implements PlanContext
   private Map<OperatorMeta, Set<OperatorMeta>> checkpointGroups;
   private final Map<Long, Set<PTOperator>> shutdownOperators = new HashMap<>();
   private CriticalPathInfo criticalPathInfo;
+  private final CriticalPathTracker criticalPathTracker = new CriticalPathTracker();
   private final ConcurrentMap<PTOperator, PTOperator> reportStats = new ConcurrentHashMap<>();
   private final AtomicBoolean deployChangeInProgress = new AtomicBoolean();
   private int deployChangeCnt;
@@ -244,7 +252,7 @@ public class StreamingContainerManager implements PlanContext
   // (operator id, port name) to timestamp
   private final Map<Pair<Integer, String>, Long> operatorPortLastEndWindowTimestamps = Maps.newConcurrentMap();
   private final Map<Integer, Long> operatorLastEndWindowTimestamps = Maps.newConcurrentMap();
-  private long lastStatsTimestamp = System.currentTimeMillis();
+  private volatile long lastStatsTimestamp = System.currentTimeMillis();
   private long currentEndWindowStatsWindowId;
   private long completeEndWindowStatsWindowId;
   private final ConcurrentHashMap<String, MovingAverageLong> rpcLatencies = new ConcurrentHashMap<>();
@@ -253,6 +261,15 @@ public class StreamingContainerManager implements PlanContext
   private List<AppDataSource> appDataSources = null;
   private final Cache<Long, Object> commandResponse = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.MINUTES).build();
   private transient ExecutorService poolExecutor;
+  private transient CheckpointPurger checkpointPurger;
+  // single threaded executors ingesting the operator stats of the heartbeats, null when ingested on the RPC threads
+  private transient ExecutorService[] heartbeatExecutors;
+  private static final int HEARTBEAT_QUEUE_CAPACITY = 1024;
+  // number of heartbeats whose stats found the queue of their executor full and held up the RPC thread
+  private final AtomicLong heartbeatStatsRejections = new AtomicLong();
+  private final MovingPercentileLong heartbeatProcessingNanos = new MovingPercentileLong(1024);
+  // sessions of the containers sending their heartbeats in the compact format
+  private final ContainerHeartbeatCodec.Sessions heartbeatSessions = new ContainerHeartbeatCodec.Sessions();
   private FileContext fileContext;
 
   //logic operator name to a queue of logical metrics. this gets cleared periodically
@@ -320,6 +337,149 @@ public class StreamingContainerManager implements PlanContext
     }
   }
 
+  /**
+   * Maintains the critical path across stats cycles. Operators are kept in topological order (edges from delay
+   * operators are ignored, as they are for latency) so that the path latency of every operator can be derived from
+   * its slowest upstream in a single forward pass. The order is only rebuilt when the physical operator set changes
+   * and the path is only re-materialized when a path latency or a slowest upstream changed.
+   */
+  static class CriticalPathTracker
+  {
+    private final Map<PTOperator, Integer> index = new HashMap<>();
+    private PTOperator[] order = new PTOperator[0];
+    private int[] leaves = new int[0];
+    private long[] pathLatency = new long[0];
+    private int[] upstream = new int[0];
+    private CriticalPathInfo result;
+
+    CriticalPathInfo update(PhysicalPlan plan, Map<PTOperator, PTOperator> slowestUpstreamOp)
+    {
+      Collection<PTOperator> operators = plan.getAllOperators().values();
+      boolean changed = false;
+      if (!isCurrent(operators)) {
+        rebuild(operators, plan.getLeafOperators());
+        changed = true;
+      }
+
+      for (int i = 0; i < order.length; i++) {
+        PTOperator operator = order[i];
+        PTOperator slowestUpstream = slowestUpstreamOp.get(operator);
+        Integer upstreamIndex = slowestUpstream == null ? null : index.get(slowestUpstream);
+        int u = upstreamIndex == null || upstreamIndex >= i ? -1 : upstreamIndex;
+        long latency = (u < 0 ? 0 : pathLatency[u]) + operator.stats.getLatencyMA();
+        if (latency != pathLatency[i] || u != upstream[i]) {
+          pathLatency[i] = latency;
+          upstream[i] = u;
+          changed = true;
+        }
+      }
+
+      if (changed) {
+        int slowest = -1;
+        for (int leaf : leaves) {
+          if (slowest < 0 || pathLatency[slowest] < pathLatency[leaf]) {
+            slowest = leaf;
+          }
+        }
+        if (slowest < 0) {
+          result = null;
+        } else {
+          LinkedList<Integer> path = new LinkedList<>();
+          for (int i = slowest; i >= 0; i = upstream[i]) {
+            path.addFirst(order[i].getId());
+          }
+          result = new CriticalPathInfo(pathLatency[slowest], path);
+        }
+      }
+      return result;
+    }
+
+    private boolean isCurrent(Collection<PTOperator> operators)
+    {
+      if (operators.size() != order.length) {
+        return false;
+      }
+      for (PTOperator operator : operators) {
+        if (!index.containsKey(operator)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void rebuild(Collection<PTOperator> operators, List<PTOperator> leafOperators)
+    {
+      Map<PTOperator, Integer> inDegree = new HashMap<>();
+      Map<PTOperator, List<PTOperator>> downstream = new HashMap<>();
+      for (PTOperator operator : operators) {
+        inDegree.put(operator, 0);
+      }
+      for (PTOperator operator : operators) {
+        for (PTInput input : operator.getInputs()) {
+          PTOperator upstreamOp = input.source.source;
+          if (!inDegree.containsKey(upstreamOp) ||
+              upstreamOp.getOperatorMeta().getOperator() instanceof Operator.DelayOperator) {
+            continue;
+          }
+          inDegree.put(operator, inDegree.get(operator) + 1);
+          List<PTOperator> list = downstream.get(upstreamOp);
+          if (list == null) {
+            list = new ArrayList<>();
+            downstream.put(upstreamOp, list);
+          }
+          list.add(operator);
+        }
+      }
+
+      index.clear();
+      order = new PTOperator[inDegree.size()];
+      int count = 0;
+      LinkedList<PTOperator> ready = new LinkedList<>();
+      for (Map.Entry<PTOperator, Integer> entry : inDegree.entrySet()) {
+        if (entry.getValue() == 0) {
+          ready.add(entry.getKey());
+        }
+      }
+      while (!ready.isEmpty()) {
+        PTOperator operator = ready.removeFirst();
+        index.put(operator, count);
+        order[count++] = operator;
+        List<PTOperator> list = downstream.get(operator);
+        if (list != null) {
+          for (PTOperator downstreamOp : list) {
+            int degree = inDegree.get(downstreamOp) - 1;
+            inDegree.put(downstreamOp, degree);
+            if (degree == 0) {
+              ready.add(downstreamOp);
+            }
+          }
+        }
+      }
+      // operators in a cycle that does not pass through a delay operator cannot be ordered, they start a new path
+      for (PTOperator operator : operators) {
+        if (!index.containsKey(operator)) {
+          index.put(operator, count);
+          order[count++] = operator;
+        }
+      }
+
+      List<Integer> leafIndexes = new ArrayList<>(leafOperators.size());
+      for (PTOperator leafOperator : leafOperators) {
+        Integer i = index.get(leafOperator);
+        if (i != null) {
+          leafIndexes.add(i);
+        }
+      }
+      leaves = new int[leafIndexes.size()];
+      for (int i = 0; i < leaves.length; i++) {
+        leaves[i] = leafIndexes.get(i);
+      }
+      pathLatency = new long[order.length];
+      upstream = new int[order.length];
+      Arrays.fill(upstream, -1);
+    }
+  }
+
   private static class SetOperatorProperty implements Recoverable
   {
     private final String operatorName;
@@ -446,6 +606,16 @@ public class StreamingContainerManager implements PlanContext
 
   private void init(boolean enableEventRecording)
   {
+    checkpointPurger = new CheckpointPurger(plan.getLogicalPlan().getValue(LogicalPlan.CHECKPOINT_PURGE_RATE));
+    journal.setGroupCommitMillis(plan.getLogicalPlan().getValue(LogicalPlan.JOURNAL_GROUP_COMMIT_MILLIS));
+    int heartbeatThreads = plan.getLogicalPlan().getValue(LogicalPlan.HEARTBEAT_PROCESSING_THREADS);
+    if (heartbeatThreads > 0) {
+      heartbeatExecutors = new ExecutorService[heartbeatThreads];
+      for (int i = 0; i < heartbeatThreads; i++) {
+        heartbeatExecutors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(HEARTBEAT_QUEUE_CAPACITY), new HeartbeatRejectionHandler());
+      }
+    }
     setupWsClient();
     setupRecording(enableEventRecording);
     setupStringCodecs();
@@ -584,6 +754,15 @@ public class StreamingContainerManager implements PlanContext
     if (poolExecutor != null) {
       poolExecutor.shutdown();
     }
+    if (checkpointPurger != null) {
+      checkpointPurger.shutdown();
+    }
+    if (heartbeatExecutors != null) {
+      for (ExecutorService executor : heartbeatExecutors) {
+        executor.shutdown();
+      }
+    }
+    heartbeatSessions.clear();
   }
 
   public void subscribeToEvents(Object listener)
@@ -840,6 +1019,8 @@ public class StreamingContainerManager implements PlanContext
     }
 
     if (!endWindowStatsOperatorMap.isEmpty()) {
+      // the critical path only depends on the operator latencies updated above, not on the pending windows
+      criticalPathInfo = criticalPathTracker.update(plan, slowestUpstreamOp);
 
       if (endWindowStatsOperatorMap.size() > this.vars.maxWindowsBehindForStats) {
         LOG.warn("Some operators are behind for more than {} windows! Trimming the end window stats map", this.vars.maxWindowsBehindForStats);
@@ -847,7 +1028,8 @@ public class StreamingContainerManager implements PlanContext
           LOG.debug("Removing incomplete end window stats for window id {}. Collected operator set: {}. Complete set: {}",
               endWindowStatsOperatorMap.firstKey(),
               endWindowStatsOperatorMap.get(endWindowStatsOperatorMap.firstKey()).keySet(), allOperators.keySet());
-          endWindowStatsOperatorMap.remove(endWindowStatsOperatorMap.firstKey());
+          Map.Entry<Long, Map<Integer, EndWindowStats>> entry = endWindowStatsOperatorMap.pollFirstEntry();
+          aggregateMetrics(entry.getKey(), entry.getValue());
         }
       }
       //logicalMetrics.clear();
@@ -857,18 +1039,18 @@ public class StreamingContainerManager implements PlanContext
         Map<Integer, EndWindowStats> endWindowStatsMap = endWindowStatsOperatorMap.get(windowId);
         Set<Integer> endWindowStatsOperators = endWindowStatsMap.keySet();
 
-        aggregateMetrics(windowId, endWindowStatsMap);
-        criticalPathInfo = findCriticalPath();
-
+        // metrics are aggregated once, when the window leaves the pending map, instead of on every stats cycle
         if (allOperators.keySet().containsAll(endWindowStatsOperators)) {
           if (endWindowStatsMap.size() < numOperators) {
             if (windowId < completeEndWindowStatsWindowId) {
               LOG.debug("Disregarding stale end window stats for window {}", windowId);
+              aggregateMetrics(windowId, endWindowStatsMap);
               endWindowStatsOperatorMap.remove(windowId);
             } else {
               break;
             }
           } else {
+            aggregateMetrics(windowId, endWindowStatsMap);
             endWindowStatsOperatorMap.remove(windowId);
             currentEndWindowStatsWindowId = windowId;
           }
@@ -876,6 +1058,7 @@ public class StreamingContainerManager implements PlanContext
           // the old stats contains operators that do not exist any more
           // this is probably right after a partition happens.
           LOG.debug("Stats for non-existent operators detected. Disregarding end window stats for window {}", windowId);
+          aggregateMetrics(windowId, endWindowStatsMap);
           endWindowStatsOperatorMap.remove(windowId);
         }
         windowId = endWindowStatsOperatorMap.higherKey(windowId);
@@ -994,46 +1177,14 @@ public class StreamingContainerManager implements PlanContext
     return logicalMetrics.get(operatorName);
   }
 
-  private CriticalPathInfo findCriticalPath()
-  {
-    CriticalPathInfo result = null;
-    List<PTOperator> leafOperators = plan.getLeafOperators();
-    Map<PTOperator, CriticalPathInfo> cache = new HashMap<>();
-    for (PTOperator leafOperator : leafOperators) {
-      CriticalPathInfo cpi = findCriticalPathHelper(leafOperator, cache);
-      if (result == null || result.latency < cpi.latency) {
-        result = cpi;
-      }
-    }
-    return result;
-  }
-
-  private CriticalPathInfo findCriticalPathHelper(PTOperator operator, Map<PTOperator, CriticalPathInfo> cache)
-  {
-    CriticalPathInfo cpi = cache.get(operator);
-    if (cpi != null) {
-      return cpi;
-    }
-    PTOperator slowestUpstreamOperator = slowestUpstreamOp.get(operator);
-    if (slowestUpstreamOperator != null) {
-      cpi = findCriticalPathHelper(slowestUpstreamOperator, cache);
-      try {
-        cpi = (CriticalPathInfo)cpi.clone();
-      } catch (CloneNotSupportedException ex) {
-        throw new RuntimeException();
-      }
-    } else {
-      cpi = new CriticalPathInfo();
-    }
-    cpi.latency += operator.stats.getLatencyMA();
-    cpi.path.addLast(operator.getId());
-    cache.put(operator, cpi);
-    return cpi;
-  }
-
   public int processEvents()
   {
     for (PTOperator o : reportStats.keySet()) {
+      if (plan.getAllOperators().get(o.getId()) != o) {
+        // stats ingested after a repartition removed the operator
+        reportStats.remove(o);
+        continue;
+      }
       List<OperatorStats> stats = o.stats.listenerStats.poll();
       if (stats != null) {
         // append into single list
@@ -1197,6 +1348,7 @@ public class StreamingContainerManager implements PlanContext
   {
     LOG.debug("Removing container agent {}", containerId);
     StreamingContainerAgent containerAgent = containers.remove(containerId);
+    heartbeatSessions.remove(containerId);
     if (containerAgent != null) {
       // record operator stop for this container
       for (PTOperator oper : containerAgent.container.getOperators()) {
@@ -1282,6 +1434,7 @@ public class StreamingContainerManager implements PlanContext
     if (container.getExternalId() != null) {
       LOG.info("Removing container agent {}", container.getExternalId());
       this.containers.remove(container.getExternalId());
+      heartbeatSessions.remove(container.getExternalId());
     }
     container.setExternalId(resource.containerId);
     container.host = resource.host;
@@ -1474,8 +1627,25 @@ public class StreamingContainerManager implements PlanContext
   @SuppressWarnings("StatementWithEmptyBody")
   public ContainerHeartbeatResponse processHeartbeat(ContainerHeartbeat heartbeat)
   {
+    long startNanos = System.nanoTime();
     long currentTimeMillis = clock.getTime();
 
+    boolean resyncRequired;
+    try {
+      heartbeatSessions.decode(heartbeat);
+      resyncRequired = heartbeat.isResyncRequired();
+    } catch (IOException ex) {
+      LOG.warn("Failed to decode the heartbeat of container {}, requesting full heartbeat", heartbeat.getContainerId(), ex);
+      resyncRequired = true;
+    }
+    if (resyncRequired) {
+      // delta encoded against a session this master does not have or cannot decode, the container will send it again
+      // in full
+      ContainerHeartbeatResponse response = new ContainerHeartbeatResponse();
+      response.heartbeatResyncRequired = true;
+      return response;
+    }
+
     final StreamingContainerAgent sca = this.containers.get(heartbeat.getContainerId());
     if (sca == null || sca.container.getState() == PTContainer.State.KILLED) {
       // could be orphaned container that was replaced and needs to terminate
@@ -1540,11 +1710,10 @@ public class StreamingContainerManager implements PlanContext
       sca.deployCnt = this.deployChangeCnt;
     }
     Set<Integer> reportedOperators = Sets.newHashSetWithExpectedSize(sca.container.getOperators().size());
+    final List<Pair<PTOperator, OperatorHeartbeat>> operatorStats = new ArrayList<>();
 
     for (OperatorHeartbeat shb : heartbeat.getContainerStats().operators) {
 
-      long maxEndWindowTimestamp = 0;
-
       reportedOperators.add(shb.nodeId);
       PTOperator oper = this.plan.getAllOperators().get(shb.getNodeId());
 
@@ -1573,216 +1742,10 @@ public class StreamingContainerManager implements PlanContext
       }
 
       oper.stats.lastHeartbeat = shb;
-      List<ContainerStats.OperatorStats> statsList = shb.getOperatorStatsContainer();
-
-      if (!statsList.isEmpty()) {
-        long tuplesProcessed = 0;
-        long tuplesEmitted = 0;
-        long totalCpuTimeUsed = 0;
-        int statCount = 0;
-        long maxDequeueTimestamp = -1;
-        oper.stats.recordingId = null;
-
-        final OperatorStatus status = oper.stats;
-        status.statsRevs.checkout();
-
-        for (Map.Entry<String, PortStatus> entry : status.inputPortStatusList.entrySet()) {
-          entry.getValue().recordingId = null;
-        }
-        for (Map.Entry<String, PortStatus> entry : status.outputPortStatusList.entrySet()) {
-          entry.getValue().recordingId = null;
-        }
-        for (ContainerStats.OperatorStats stats : statsList) {
-          if (stats == null) {
-            LOG.warn("Operator {} statistics list contains null element", shb.getNodeId());
-            continue;
-          }
-
-          /* report checkpoint-ed WindowId status of the operator */
-          if (stats.checkpoint instanceof Checkpoint) {
-            if (oper.getRecentCheckpoint() == null || oper.getRecentCheckpoint().windowId < stats.checkpoint.getWindowId()) {
-              addCheckpoint(oper, (Checkpoint)stats.checkpoint);
-              if (stats.checkpointStats != null) {
-                status.checkpointStats = stats.checkpointStats;
-                status.checkpointTimeMA.add(stats.checkpointStats.checkpointTime);
-              }
-              oper.failureCount = 0;
-            }
-          }
-
-          oper.stats.recordingId = stats.recordingId;
-
-          /* report all the other stuff */
-
-          // calculate the stats related to end window
-          EndWindowStats endWindowStats = new EndWindowStats(); // end window stats for a particular window id for a particular node
-          Collection<ContainerStats.OperatorStats.PortStats> ports = stats.inputPorts;
-          if (ports != null) {
-            Set<String> currentInputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
-            for (ContainerStats.OperatorStats.PortStats s : ports) {
-              currentInputPortSet.add(s.id);
-              PortStatus ps = status.inputPortStatusList.get(s.id);
-              if (ps == null) {
-                ps = status.new PortStatus();
-                ps.portName = s.id;
-                status.inputPortStatusList.put(s.id, ps);
-              }
-              ps.totalTuples += s.tupleCount;
-              ps.recordingId = s.recordingId;
-
-              tuplesProcessed += s.tupleCount;
-              endWindowStats.dequeueTimestamps.put(s.id, s.endWindowTimestamp);
-
-              Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
-              Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
-              if (lastEndWindowTimestamp == null) {
-                lastEndWindowTimestamp = lastStatsTimestamp;
-              }
-              long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
-              //LOG.debug("=== PROCESSED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
-              ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
-              ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
-              ps.queueSizeMA.add(s.queueSize);
-
-              operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
-              if (maxEndWindowTimestamp < s.endWindowTimestamp) {
-                maxEndWindowTimestamp = s.endWindowTimestamp;
-              }
-              if (s.endWindowTimestamp > maxDequeueTimestamp) {
-                maxDequeueTimestamp = s.endWindowTimestamp;
-              }
-            }
-            // need to remove dead ports, for unifiers
-            Iterator<Map.Entry<String, PortStatus>> it = status.inputPortStatusList.entrySet().iterator();
-            while (it.hasNext()) {
-              Map.Entry<String, PortStatus> entry = it.next();
-              if (!currentInputPortSet.contains(entry.getKey())) {
-                it.remove();
-              }
-            }
-          }
-
-          ports = stats.outputPorts;
-          if (ports != null) {
-            Set<String> currentOutputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
-            for (ContainerStats.OperatorStats.PortStats s : ports) {
-              currentOutputPortSet.add(s.id);
-              PortStatus ps = status.outputPortStatusList.get(s.id);
-              if (ps == null) {
-                ps = status.new PortStatus();
-                ps.portName = s.id;
-                status.outputPortStatusList.put(s.id, ps);
-              }
-              ps.totalTuples += s.tupleCount;
-              ps.recordingId = s.recordingId;
-
-              tuplesEmitted += s.tupleCount;
-              Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
-              Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
-              if (lastEndWindowTimestamp == null) {
-                lastEndWindowTimestamp = lastStatsTimestamp;
-              }
-              long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
-              //LOG.debug("=== EMITTED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
-              ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
-              ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
-
-              operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
-              if (maxEndWindowTimestamp < s.endWindowTimestamp) {
-                maxEndWindowTimestamp = s.endWindowTimestamp;
-              }
-            }
-            if (ports.size() > 0) {
-              endWindowStats.emitTimestamp = ports.iterator().next().endWindowTimestamp;
-            }
-            // need to remove dead ports, for unifiers
-            Iterator<Map.Entry<String, PortStatus>> it = status.outputPortStatusList.entrySet().iterator();
-            while (it.hasNext()) {
-              Map.Entry<String, PortStatus> entry = it.next();
-              if (!currentOutputPortSet.contains(entry.getKey())) {
-                it.remove();
-              }
-            }
-          }
-
-          // for output operator, just take the maximum dequeue time for emit timestamp.
-          // (we don't know the latency for output operators because they don't emit tuples)
-          if (endWindowStats.emitTimestamp < 0) {
-            endWindowStats.emitTimestamp = maxDequeueTimestamp;
-          }
-
-          if (status.currentWindowId.get() != stats.windowId) {
-            status.lastWindowIdChangeTms = currentTimeMillis;
-            status.currentWindowId.set(stats.windowId);
-          }
-          totalCpuTimeUsed += stats.cpuTimeUsed;
-          statCount++;
-
-          if (oper.getOperatorMeta().getValue(OperatorContext.COUNTERS_AGGREGATOR) != null) {
-            endWindowStats.counters = stats.counters;
-          }
-          if (oper.getOperatorMeta().getMetricAggregatorMeta() != null &&
-              oper.getOperatorMeta().getMetricAggregatorMeta().getAggregator() != null) {
-            endWindowStats.metrics = stats.metrics;
-          }
-
-          if (stats.windowId > currentEndWindowStatsWindowId) {
-            Map<Integer, EndWindowStats> endWindowStatsMap = endWindowStatsOperatorMap.get(stats.windowId);
-            if (endWindowStatsMap == null) {
-              endWindowStatsMap = new ConcurrentSkipListMap<>();
-              Map<Integer, EndWindowStats> endWindowStatsMapPrevious =
-                  endWindowStatsOperatorMap.putIfAbsent(stats.windowId, endWindowStatsMap);
-              if (endWindowStatsMapPrevious != null) {
-                endWindowStatsMap = endWindowStatsMapPrevious;
-              }
-            }
-            endWindowStatsMap.put(shb.getNodeId(), endWindowStats);
-
-            Set<Integer> allCurrentOperators = plan.getAllOperators().keySet();
-            int numOperators = plan.getAllOperators().size();
-            if (allCurrentOperators.containsAll(endWindowStatsMap.keySet()) && endWindowStatsMap.size() == numOperators) {
-              completeEndWindowStatsWindowId = stats.windowId;
-            }
-          }
-        }
-
-        status.totalTuplesProcessed.add(tuplesProcessed);
-        status.totalTuplesEmitted.add(tuplesEmitted);
-        OperatorMeta logicalOperator = oper.getOperatorMeta();
-        LogicalOperatorStatus logicalStatus = logicalOperator.getStatus();
-        if (!oper.isUnifier()) {
-          logicalStatus.totalTuplesProcessed += tuplesProcessed;
-          logicalStatus.totalTuplesEmitted += tuplesEmitted;
-        }
-        long lastMaxEndWindowTimestamp = operatorLastEndWindowTimestamps.containsKey(oper.getId()) ? operatorLastEndWindowTimestamps.get(oper.getId()) : lastStatsTimestamp;
-        if (maxEndWindowTimestamp >= lastMaxEndWindowTimestamp) {
-          double tuplesProcessedPMSMA = 0.0;
-          double tuplesEmittedPMSMA = 0.0;
-          if (statCount != 0) {
-            //LOG.debug("CPU for {}: {} / {} - {}", oper.getId(), totalCpuTimeUsed, maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
-            status.cpuNanosPMSMA.add(totalCpuTimeUsed, maxEndWindowTimestamp - lastMaxEndWindowTimestamp);
-          }
-
-          for (PortStatus ps : status.inputPortStatusList.values()) {
-            tuplesProcessedPMSMA += ps.tuplesPMSMA.getAvg();
-          }
-          for (PortStatus ps : status.outputPortStatusList.values()) {
-            tuplesEmittedPMSMA += ps.tuplesPMSMA.getAvg();
-          }
-          status.tuplesProcessedPSMA.set(Math.round(tuplesProcessedPMSMA * 1000));
-          status.tuplesEmittedPSMA.set(Math.round(tuplesEmittedPMSMA * 1000));
-        } else {
-          //LOG.warn("This timestamp for {} is lower than the previous!! {} < {}", oper.getId(),
-          // maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
-        }
-        operatorLastEndWindowTimestamps.put(oper.getId(), maxEndWindowTimestamp);
-        status.listenerStats.add(statsList);
-        this.reportStats.put(oper, oper);
-
-        status.statsRevs.commit();
-      }
-      if (lastStatsTimestamp < maxEndWindowTimestamp) {
-        lastStatsTimestamp = maxEndWindowTimestamp;
+      if (heartbeatExecutors == null) {
+        processOperatorStats(oper, shb, currentTimeMillis);
+      } else if (!shb.getOperatorStatsContainer().isEmpty()) {
+        operatorStats.add(new Pair<>(oper, shb));
       }
     }
 
@@ -1821,9 +1784,304 @@ public class StreamingContainerManager implements PlanContext
     sca.stackTraceRequested = false;
 
     apexPluginDispatcher.dispatch(new DAGExecutionEvent.HeartbeatExecutionEvent(heartbeat));
+    final long rpcNanos = System.nanoTime() - startNanos;
+    if (operatorStats.isEmpty()) {
+      heartbeatProcessingNanos.add(rpcNanos);
+    } else {
+      // stats of a container are always ingested by the same thread, in the order the heartbeats arrived, the
+      // processing time of the heartbeat is recorded once they are
+      final long heartbeatTimeMillis = currentTimeMillis;
+      int stripe = (heartbeat.getContainerId().hashCode() & Integer.MAX_VALUE) % heartbeatExecutors.length;
+      heartbeatExecutors[stripe].execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          long ingestStartNanos = System.nanoTime();
+          for (Pair<PTOperator, OperatorHeartbeat> pair : operatorStats) {
+            PTOperator oper = pair.getFirst();
+            if (plan.getAllOperators().get(oper.getId()) != oper) {
+              LOG.debug("Dropping the stats of operator {} removed from the plan", oper);
+              continue;
+            }
+            try {
+              processOperatorStats(oper, pair.getSecond(), heartbeatTimeMillis);
+            } catch (Exception ex) {
+              LOG.warn("Failed to process the stats of operator {}", oper, ex);
+            }
+          }
+          heartbeatProcessingNanos.add(rpcNanos + System.nanoTime() - ingestStartNanos);
+        }
+      });
+    }
     return rsp;
   }
 
+  /**
+   * Holds up the RPC thread until the executor has room for the stats of the heartbeat, so that a backlog of stats
+   * slows down the containers instead of growing without bound, and counts how often that happens.
+   */
+  private class HeartbeatRejectionHandler implements RejectedExecutionHandler
+  {
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+    {
+      if (executor.isShutdown()) {
+        return;
+      }
+      heartbeatStatsRejections.incrementAndGet();
+      try {
+        executor.getQueue().put(r);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        LOG.warn("Interrupted while waiting to queue the stats of a heartbeat, the stats are dropped");
+      }
+    }
+  }
+
+  /**
+   * Returns how many heartbeats found the queue of the executor ingesting their stats full, with
+   * {@link LogicalPlan#HEARTBEAT_PROCESSING_THREADS} set.
+   *
+   * @return count of heartbeats held up by the stats ingestion
+   */
+  public long getHeartbeatStatsRejections()
+  {
+    return heartbeatStatsRejections.get();
+  }
+
+  /**
+   * Returns the given percentile of the time spent processing the recent container heartbeats.
+   *
+   * @param percentile percentile between 0 and 100
+   * @return heartbeat processing time in microseconds
+   */
+  public long getHeartbeatProcessingMicros(double percentile)
+  {
+    return TimeUnit.NANOSECONDS.toMicros(heartbeatProcessingNanos.getPercentile(percentile));
+  }
+
+  /**
+   * Ingests the window stats the operator reported in the heartbeat. Only touches the state of the operator itself and
+   * concurrent maps keyed by the operator, the plan-wide processing of the collected stats happens in
+   * {@link #monitorHeartbeat(boolean)}.
+   */
+  private void processOperatorStats(PTOperator oper, OperatorHeartbeat shb, long currentTimeMillis)
+  {
+    long maxEndWindowTimestamp = 0;
+    List<ContainerStats.OperatorStats> statsList = shb.getOperatorStatsContainer();
+
+    if (!statsList.isEmpty()) {
+      long tuplesProcessed = 0;
+      long tuplesEmitted = 0;
+      long totalCpuTimeUsed = 0;
+      int statCount = 0;
+      long maxDequeueTimestamp = -1;
+      oper.stats.recordingId = null;
+
+      final OperatorStatus status = oper.stats;
+      status.statsRevs.checkout();
+
+      for (Map.Entry<String, PortStatus> entry : status.inputPortStatusList.entrySet()) {
+        entry.getValue().recordingId = null;
+      }
+      for (Map.Entry<String, PortStatus> entry : status.outputPortStatusList.entrySet()) {
+        entry.getValue().recordingId = null;
+      }
+      for (ContainerStats.OperatorStats stats : statsList) {
+        if (stats == null) {
+          LOG.warn("Operator {} statistics list contains null element", shb.getNodeId());
+          continue;
+        }
+
+        /* report checkpoint-ed WindowId status of the operator */
+        if (stats.checkpoint instanceof Checkpoint) {
+          if (oper.getRecentCheckpoint() == null || oper.getRecentCheckpoint().windowId < stats.checkpoint.getWindowId()) {
+            addCheckpoint(oper, (Checkpoint)stats.checkpoint);
+            if (stats.checkpointStats != null) {
+              status.checkpointStats = stats.checkpointStats;
+              status.checkpointTimeMA.add(stats.checkpointStats.checkpointTime);
+            }
+            oper.failureCount = 0;
+          }
+        }
+
+        oper.stats.recordingId = stats.recordingId;
+
+        /* report all the other stuff */
+
+        // calculate the stats related to end window
+        EndWindowStats endWindowStats = new EndWindowStats(); // end window stats for a particular window id for a particular node
+        Collection<ContainerStats.OperatorStats.PortStats> ports = stats.inputPorts;
+        if (ports != null) {
+          Set<String> currentInputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
+          for (ContainerStats.OperatorStats.PortStats s : ports) {
+            currentInputPortSet.add(s.id);
+            PortStatus ps = status.inputPortStatusList.get(s.id);
+            if (ps == null) {
+              ps = status.new PortStatus();
+              ps.portName = s.id;
+              status.inputPortStatusList.put(s.id, ps);
+            }
+            ps.totalTuples += s.tupleCount;
+            ps.recordingId = s.recordingId;
+
+            tuplesProcessed += s.tupleCount;
+            endWindowStats.dequeueTimestamps.put(s.id, s.endWindowTimestamp);
+
+            Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
+            Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
+            if (lastEndWindowTimestamp == null) {
+              lastEndWindowTimestamp = lastStatsTimestamp;
+            }
+            long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
+            //LOG.debug("=== PROCESSED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
+            ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
+            ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
+            ps.queueSizeMA.add(s.queueSize);
+
+            operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
+            if (maxEndWindowTimestamp < s.endWindowTimestamp) {
+              maxEndWindowTimestamp = s.endWindowTimestamp;
+            }
+            if (s.endWindowTimestamp > maxDequeueTimestamp) {
+              maxDequeueTimestamp = s.endWindowTimestamp;
+            }
+          }
+          // need to remove dead ports, for unifiers
+          Iterator<Map.Entry<String, PortStatus>> it = status.inputPortStatusList.entrySet().iterator();
+          while (it.hasNext()) {
+            Map.Entry<String, PortStatus> entry = it.next();
+            if (!currentInputPortSet.contains(entry.getKey())) {
+              it.remove();
+            }
+          }
+        }
+
+        ports = stats.outputPorts;
+        if (ports != null) {
+          Set<String> currentOutputPortSet = Sets.newHashSetWithExpectedSize(ports.size());
+          for (ContainerStats.OperatorStats.PortStats s : ports) {
+            currentOutputPortSet.add(s.id);
+            PortStatus ps = status.outputPortStatusList.get(s.id);
+            if (ps == null) {
+              ps = status.new PortStatus();
+              ps.portName = s.id;
+              status.outputPortStatusList.put(s.id, ps);
+            }
+            ps.totalTuples += s.tupleCount;
+            ps.recordingId = s.recordingId;
+
+            tuplesEmitted += s.tupleCount;
+            Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
+            Long lastEndWindowTimestamp = operatorPortLastEndWindowTimestamps.get(operatorPortName);
+            if (lastEndWindowTimestamp == null) {
+              lastEndWindowTimestamp = lastStatsTimestamp;
+            }
+            long portElapsedMillis = Math.max(s.endWindowTimestamp - lastEndWindowTimestamp, 0);
+            //LOG.debug("=== EMITTED TUPLE COUNT for {}: {}, {}, {}, {}", operatorPortName, s.tupleCount, portElapsedMillis, operatorPortLastEndWindowTimestamps.get(operatorPortName), lastStatsTimestamp);
+            ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
+            ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
+
+            operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
+            if (maxEndWindowTimestamp < s.endWindowTimestamp) {
+              maxEndWindowTimestamp = s.endWindowTimestamp;
+            }
+          }
+          if (ports.size() > 0) {
+            endWindowStats.emitTimestamp = ports.iterator().next().endWindowTimestamp;
+          }
+          // need to remove dead ports, for unifiers
+          Iterator<Map.Entry<String, PortStatus>> it = status.outputPortStatusList.entrySet().iterator();
+          while (it.hasNext()) {
+            Map.Entry<String, PortStatus> entry = it.next();
+            if (!currentOutputPortSet.contains(entry.getKey())) {
+              it.remove();
+            }
+          }
+        }
+
+        // for output operator, just take the maximum dequeue time for emit timestamp.
+        // (we don't know the latency for output operators because they don't emit tuples)
+        if (endWindowStats.emitTimestamp < 0) {
+          endWindowStats.emitTimestamp = maxDequeueTimestamp;
+        }
+
+        if (status.currentWindowId.get() != stats.windowId) {
+          status.lastWindowIdChangeTms = currentTimeMillis;
+          status.currentWindowId.set(stats.windowId);
+        }
+        totalCpuTimeUsed += stats.cpuTimeUsed;
+        statCount++;
+
+        if (oper.getOperatorMeta().getValue(OperatorContext.COUNTERS_AGGREGATOR) != null) {
+          endWindowStats.counters = stats.counters;
+        }
+        if (oper.getOperatorMeta().getMetricAggregatorMeta() != null &&
+            oper.getOperatorMeta().getMetricAggregatorMeta().getAggregator() != null) {
+          endWindowStats.metrics = stats.metrics;
+        }
+
+        if (stats.windowId > currentEndWindowStatsWindowId) {
+          Map<Integer, EndWindowStats> endWindowStatsMap = endWindowStatsOperatorMap.get(stats.windowId);
+          if (endWindowStatsMap == null) {
+            endWindowStatsMap = new ConcurrentSkipListMap<>();
+            Map<Integer, EndWindowStats> endWindowStatsMapPrevious =
+                endWindowStatsOperatorMap.putIfAbsent(stats.windowId, endWindowStatsMap);
+            if (endWindowStatsMapPrevious != null) {
+              endWindowStatsMap = endWindowStatsMapPrevious;
+            }
+          }
+          endWindowStatsMap.put(shb.getNodeId(), endWindowStats);
+
+          Set<Integer> allCurrentOperators = plan.getAllOperators().keySet();
+          int numOperators = plan.getAllOperators().size();
+          if (endWindowStatsMap.size() == numOperators && allCurrentOperators.containsAll(endWindowStatsMap.keySet())) {
+            completeEndWindowStatsWindowId = stats.windowId;
+          }
+        }
+      }
+
+      status.totalTuplesProcessed.add(tuplesProcessed);
+      status.totalTuplesEmitted.add(tuplesEmitted);
+      OperatorMeta logicalOperator = oper.getOperatorMeta();
+      LogicalOperatorStatus logicalStatus = logicalOperator.getStatus();
+      if (!oper.isUnifier()) {
+        logicalStatus.totalTuplesProcessed += tuplesProcessed;
+        logicalStatus.totalTuplesEmitted += tuplesEmitted;
+      }
+      long lastMaxEndWindowTimestamp = operatorLastEndWindowTimestamps.containsKey(oper.getId()) ? operatorLastEndWindowTimestamps.get(oper.getId()) : lastStatsTimestamp;
+      if (maxEndWindowTimestamp >= lastMaxEndWindowTimestamp) {
+        double tuplesProcessedPMSMA = 0.0;
+        double tuplesEmittedPMSMA = 0.0;
+        if (statCount != 0) {
+          //LOG.debug("CPU for {}: {} / {} - {}", oper.getId(), totalCpuTimeUsed, maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
+          status.cpuNanosPMSMA.add(totalCpuTimeUsed, maxEndWindowTimestamp - lastMaxEndWindowTimestamp);
+        }
+
+        for (PortStatus ps : status.inputPortStatusList.values()) {
+          tuplesProcessedPMSMA += ps.tuplesPMSMA.getAvg();
+        }
+        for (PortStatus ps : status.outputPortStatusList.values()) {
+          tuplesEmittedPMSMA += ps.tuplesPMSMA.getAvg();
+        }
+        status.tuplesProcessedPSMA.set(Math.round(tuplesProcessedPMSMA * 1000));
+        status.tuplesEmittedPSMA.set(Math.round(tuplesEmittedPMSMA * 1000));
+      } else {
+        //LOG.warn("This timestamp for {} is lower than the previous!! {} < {}", oper.getId(),
+        // maxEndWindowTimestamp, lastMaxEndWindowTimestamp);
+      }
+      operatorLastEndWindowTimestamps.put(oper.getId(), maxEndWindowTimestamp);
+      status.listenerStats.add(statsList);
+      this.reportStats.put(oper, oper);
+
+      status.statsRevs.commit();
+    }
+    if (lastStatsTimestamp < maxEndWindowTimestamp) {
+      lastStatsTimestamp = maxEndWindowTimestamp;
+    }
+  }
+
   static class UpdateOperatorLatencyContext
   {
     Map<String, MovingAverageLong> rpcLatencies;
@@ -2273,22 +2531,50 @@ public class StreamingContainerManager implements PlanContext
   private void purgeCheckpoints()
   {
     for (Pair<PTOperator, Long> p : purgeCheckpoints) {
-      final PTOperator operator = p.getFirst();
+      PTOperator operator = p.getFirst();
       if (!operator.isOperatorStateLess()) {
-        final long windowId = p.getSecond();
-        Runnable r = () -> {
-          try {
-            operator.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT).delete(operator.getId(), windowId);
-          } catch (IOException ex) {
-            LOG.error("Failed to purge checkpoint for operator {} for windowId {}", operator, windowId, ex);
-          }
-        };
-        poolExecutor.submit(r);
+        checkpointPurger.purge(operator.getId(), operator.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT),
+            p.getSecond());
       }
     }
     purgeCheckpoints.clear();
   }
 
+  /**
+   * @return number of operators with checkpoints waiting to be purged
+   */
+  public int getPendingCheckpointPurges()
+  {
+    return checkpointPurger.getPendingCount();
+  }
+
+  /**
+   * @return milliseconds the oldest pending checkpoint purge has been waiting
+   */
+  public long getCheckpointPurgeLagMillis()
+  {
+    return checkpointPurger.getLagMillis();
+  }
+
+  /**
+   * @return number of records written to the journal per second
+   */
+  public long getJournalRecordsPerSecond()
+  {
+    return journal.getRecordsPerSecond();
+  }
+
+  /**
+   * Returns the given percentile of the time the recent journal flushes took.
+   *
+   * @param percentile percentile between 0 and 100
+   * @return journal flush time in microseconds
+   */
+  public long getJournalFlushMicros(double percentile)
+  {
+    return journal.getFlushMicros(percentile);
+  }
+
   /**
    * Mark all containers for shutdown, next container heartbeat response
    * will propagate the shutdown request. This is controlled soft shutdown.
@@ -2560,6 +2846,9 @@ public class StreamingContainerManager implements PlanContext
     if (os.checkpointStats != null) {
       oi.checkpointTime = os.checkpointStats.checkpointTime;
       oi.checkpointStartTime = os.checkpointStats.checkpointStartTime;
+      oi.checkpointBytes = os.checkpointStats.checkpointBytes;
+      oi.checkpointSerializationTime = os.checkpointStats.serializationTime;
+      oi.checkpointStoreThroughput = os.checkpointStats.storeThroughput;
     }
     oi.checkpointTimeMA = os.checkpointTimeMA.getAvg();
     for (PortStatus ps : os.inputPortStatusList.values()) {
@@ -3130,7 +3419,10 @@ public class StreamingContainerManager implements PlanContext
   public static StreamingContainerManager getInstance(RecoveryHandler rh, LogicalPlan dag, boolean enableEventRecording) throws IOException
   {
     try {
+      final long start = System.currentTimeMillis();
       CheckpointState checkpointedState = (CheckpointState)rh.restore();
+      long time = System.currentTimeMillis();
+      Map<String, Long> recoveryMillis = new LinkedHashMap<>(rh.getRestoreMillis());
       StreamingContainerManager scm;
       if (checkpointedState == null) {
         scm = new StreamingContainerManager(dag, enableEventRecording, new SystemClock());
@@ -3153,10 +3445,16 @@ public class StreamingContainerManager implements PlanContext
         DataInputStream logStream = rh.getLog();
         scm.journal.replay(logStream);
         logStream.close();
+        long now = System.currentTimeMillis();
+        recoveryMillis.put("replayLog", now - time);
+        time = now;
 
         // restore checkpoint info
         plan.syncCheckpoints(scm.vars.windowStartMillis, scm.clock.getTime());
         scm.committedWindowId = scm.updateCheckpoints(true);
+        now = System.currentTimeMillis();
+        recoveryMillis.put("syncCheckpoints", now - time);
+        time = now;
 
         // at this point the physical plan has been fully restored
         // populate container agents for existing containers
@@ -3170,10 +3468,20 @@ public class StreamingContainerManager implements PlanContext
             scm.requestContainer(c);
           }
         }
+        now = System.currentTimeMillis();
+        recoveryMillis.put("restoreContainers", now - time);
+        time = now;
         scm.startedFromCheckpoint = true;
       }
       scm.recoveryHandler = rh;
       scm.checkpoint();
+      if (scm.startedFromCheckpoint) {
+        long now = System.currentTimeMillis();
+        recoveryMillis.put("saveSnapshot", now - time);
+        recoveryMillis.put("total", now - start);
+        scm.recoveryMillis = Collections.unmodifiableMap(recoveryMillis);
+        LOG.info("Recovered application state in {} ms {}", now - start, recoveryMillis);
+      }
       return scm;
     } catch (IOException e) {
       throw new IllegalStateException("Failed to read checkpointed state", e);
@@ -3181,6 +3489,18 @@ public class StreamingContainerManager implements PlanContext
   }
 
   private boolean startedFromCheckpoint = false;
+  private Map<String, Long> recoveryMillis = Collections.emptyMap();
+
+  /**
+   * Returns the time the phases of the recovery from the checkpointed state took, empty when the application master
+   * did not start from a checkpoint.
+   *
+   * @return time in milliseconds by phase
+   */
+  public Map<String, Long> getRecoveryMillis()
+  {
+    return recoveryMillis;
+  }
 
   private static class FinalVars implements java.io.Serializable
   {
@@ -3282,15 +3602,24 @@ public class StreamingContainerManager implements PlanContext
    */
   private static StorageAgent updateFSStorageAgent(StorageAgent sa, String oldAppId, String appId, Configuration conf)
   {
-    if (sa instanceof AsyncFSStorageAgent) {
+    if (sa instanceof BufferedAsyncFSStorageAgent) {
+      BufferedAsyncFSStorageAgent fssa = (BufferedAsyncFSStorageAgent)sa;
+      if (fssa.path.contains(oldAppId)) {
+        return fssa.copy(fssa.path.replace(oldAppId, appId), conf);
+      }
+    } else if (sa instanceof AsyncFSStorageAgent) {
       AsyncFSStorageAgent fssa = (AsyncFSStorageAgent)sa;
       if (fssa.path.contains(oldAppId)) {
-        return new AsyncFSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+        AsyncFSStorageAgent newAgent = new AsyncFSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+        newAgent.setMaxDeltaCheckpoints(fssa.getMaxDeltaCheckpoints());
+        return newAgent;
       }
     } else if (sa instanceof FSStorageAgent) {
       FSStorageAgent fssa = (FSStorageAgent)sa;
       if (fssa.path.contains(oldAppId)) {
-        return new FSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+        FSStorageAgent newAgent = new FSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+        newAgent.setMaxDeltaCheckpoints(fssa.getMaxDeltaCheckpoints());
+        return newAgent;
       }
     }
     return sa;
@@ -3330,6 +3659,16 @@ public class StreamingContainerManager implements PlanContext
      */
     DataInputStream getLog() throws IOException;
 
+    /**
+     * Time the phases of the last restore took.
+     *
+     * @return time in milliseconds by phase
+     */
+    default Map<String, Long> getRestoreMillis()
+    {
+      return Collections.emptyMap();
+    }
+
   }
 
   private class RequestHandler implements Callable<Object>
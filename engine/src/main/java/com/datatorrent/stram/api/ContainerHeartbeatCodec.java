@@ -0,0 +1,583 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.datatorrent.api.Stats;
+import com.datatorrent.api.StatsListener;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+
+/**
+ * Versioned binary wire format of the {@link ContainerHeartbeat} that only sends what changed since the previous
+ * heartbeat of the container.
+ * <p>
+ * Both ends of the umbilical keep the same session state per container: the identifiers (port names, recording ids)
+ * seen so far, the last window id and end window timestamp of every operator and the last values of the container
+ * fields. Identifiers are sent once and referenced by index afterwards, window ids and timestamps are sent as
+ * variable length differences and unchanged container and operator fields are omitted. The container uses one codec
+ * instance as its session, the application master keeps a session per container id in {@link Sessions}. The
+ * deserialization of the heartbeat on the RPC reader thread only reads the encoded heartbeat, it is decoded against
+ * the session where the application master processes the heartbeat. When the application master does not have the
+ * session the heartbeat is based on, for example after it was restarted, the heartbeat is dropped and flagged with
+ * {@link ContainerHeartbeat#isResyncRequired()} so that the container resets its session and sends the heartbeat
+ * again in full.
+ */
+public class ContainerHeartbeatCodec
+{
+  /**
+   * Written in place of the length the java serialization format starts with.
+   */
+  static final int MARKER = -2;
+  static final byte VERSION = 1;
+
+  private static final int STATE = 1;
+  private static final int INTERVAL = 2;
+  private static final int RESPONSES = 4;
+
+  private static final int JVM_NAME = 1;
+  private static final int BUFFER_SERVER = 2;
+  private static final int RESTART = 4;
+  private static final int STACK_TRACE = 8;
+
+  private static final int NULL_STATS = 1;
+  private static final int CHECKPOINT = 2;
+  private static final int CHECKPOINT_OBJECT = 4;
+  private static final int CHECKPOINT_STATS = 8;
+  private static final int INPUT_PORTS = 16;
+  private static final int OUTPUT_PORTS = 32;
+  private static final int COUNTERS = 64;
+  private static final int METRICS = 128;
+
+  private long sequence;
+  private final Map<String, Integer> identifiers = new HashMap<>();
+  private final List<String> strings = new ArrayList<>();
+  private final Map<Integer, OperatorState> operators = new HashMap<>();
+  private String jvmName;
+  private String bufferServerHost;
+  private int bufferServerPort;
+  private long memoryMBFree;
+  private long gcCollectionTime;
+  private long gcCollectionCount;
+  private long sentTms;
+
+  private static class OperatorState
+  {
+    long windowId;
+    long endWindowTimestamp;
+    long intervalMs;
+    OperatorHeartbeat.DeployState state;
+  }
+
+  /**
+   * Forgets the session, the next heartbeat is sent in full.
+   */
+  public synchronized void reset()
+  {
+    sequence = 0;
+    identifiers.clear();
+    strings.clear();
+    operators.clear();
+    jvmName = null;
+    bufferServerHost = null;
+    bufferServerPort = 0;
+    memoryMBFree = 0;
+    gcCollectionTime = 0;
+    gcCollectionCount = 0;
+    sentTms = 0;
+  }
+
+  synchronized void write(ContainerHeartbeat heartbeat, DataOutput out) throws IOException
+  {
+    long base = sequence;
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try {
+      encode(heartbeat, new DataOutputStream(bos));
+    } catch (IOException | RuntimeException ex) {
+      reset();
+      throw ex;
+    }
+    out.writeInt(MARKER);
+    out.writeByte(VERSION);
+    Text.writeString(out, heartbeat.getContainerId());
+    WritableUtils.writeVLong(out, heartbeat.sentTms);
+    WritableUtils.writeVLong(out, base);
+    out.writeInt(bos.size());
+    out.write(bos.toByteArray());
+    sequence = base + 1;
+  }
+
+  /**
+   * Reads the encoded heartbeat without decoding it, the heartbeat only carries the container id and sent time till it
+   * is decoded with {@link Sessions#decode(ContainerHeartbeat)}.
+   */
+  static void read(ContainerHeartbeat heartbeat, DataInput in) throws IOException
+  {
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported heartbeat format version " + version);
+    }
+    String containerId = Text.readString(in);
+    heartbeat.sentTms = WritableUtils.readVLong(in);
+    heartbeat.encodedBase = WritableUtils.readVLong(in);
+    heartbeat.encodedPayload = new byte[in.readInt()];
+    in.readFully(heartbeat.encodedPayload);
+    heartbeat.setContainerStats(new ContainerStats(containerId));
+  }
+
+  /**
+   * Sessions the application master keeps for the containers that send their heartbeats in the compact format. The
+   * owner removes the session of a container once the container is gone.
+   */
+  public static class Sessions
+  {
+    private final ConcurrentMap<String, ContainerHeartbeatCodec> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Decodes the heartbeat against the session of its container, if it was received in the compact format. When the
+     * session the heartbeat is based on is not there, the heartbeat is flagged with
+     * {@link ContainerHeartbeat#isResyncRequired()} instead.
+     *
+     * @param heartbeat the heartbeat as deserialized
+     * @throws IOException if the heartbeat cannot be decoded, the session of the container is removed
+     */
+    public void decode(ContainerHeartbeat heartbeat) throws IOException
+    {
+      byte[] payload = heartbeat.encodedPayload;
+      if (payload == null) {
+        return;
+      }
+      heartbeat.encodedPayload = null;
+      String containerId = heartbeat.getContainerId();
+      long base = heartbeat.encodedBase;
+
+      ContainerHeartbeatCodec session;
+      if (base == 0) {
+        session = new ContainerHeartbeatCodec();
+        sessions.put(containerId, session);
+      } else {
+        session = sessions.get(containerId);
+      }
+      if (session != null) {
+        synchronized (session) {
+          if (session.sequence == base) {
+            try {
+              session.decode(heartbeat, containerId, new DataInputStream(new ByteArrayInputStream(payload)));
+            } catch (IOException | RuntimeException ex) {
+              sessions.remove(containerId, session);
+              throw ex;
+            }
+            session.sequence = base + 1;
+            return;
+          }
+        }
+      }
+      LOG.info("No heartbeat session {} for container {}, requesting full heartbeat", base, containerId);
+      heartbeat.resyncRequired = true;
+    }
+
+    /**
+     * Removes the session of the container.
+     *
+     * @param containerId id of the container
+     */
+    public void remove(String containerId)
+    {
+      sessions.remove(containerId);
+    }
+
+    /**
+     * Removes the sessions of all the containers.
+     */
+    public void clear()
+    {
+      sessions.clear();
+    }
+  }
+
+  private void encode(ContainerHeartbeat heartbeat, DataOutputStream out) throws IOException
+  {
+    int flags = 0;
+    if (!Objects.equals(jvmName, heartbeat.jvmName)) {
+      flags |= JVM_NAME;
+    }
+    if (!Objects.equals(bufferServerHost, heartbeat.bufferServerHost) ||
+        bufferServerPort != heartbeat.bufferServerPort) {
+      flags |= BUFFER_SERVER;
+    }
+    if (heartbeat.restartRequested) {
+      flags |= RESTART;
+    }
+    if (heartbeat.stackTrace != null) {
+      flags |= STACK_TRACE;
+    }
+    out.writeByte(flags);
+    if ((flags & JVM_NAME) != 0) {
+      writeNullableString(out, jvmName = heartbeat.jvmName);
+    }
+    if ((flags & BUFFER_SERVER) != 0) {
+      writeNullableString(out, bufferServerHost = heartbeat.bufferServerHost);
+      WritableUtils.writeVInt(out, bufferServerPort = heartbeat.bufferServerPort);
+    }
+    if ((flags & STACK_TRACE) != 0) {
+      Text.writeString(out, heartbeat.stackTrace);
+    }
+    WritableUtils.writeVLong(out, heartbeat.memoryMBFree - memoryMBFree);
+    memoryMBFree = heartbeat.memoryMBFree;
+    WritableUtils.writeVLong(out, heartbeat.gcCollectionTime - gcCollectionTime);
+    gcCollectionTime = heartbeat.gcCollectionTime;
+    WritableUtils.writeVLong(out, heartbeat.gcCollectionCount - gcCollectionCount);
+    gcCollectionCount = heartbeat.gcCollectionCount;
+    sentTms = heartbeat.sentTms;
+
+    List<OperatorHeartbeat> operatorHeartbeats = heartbeat.getContainerStats().operators;
+    WritableUtils.writeVInt(out, operatorHeartbeats.size());
+    for (OperatorHeartbeat ohb : operatorHeartbeats) {
+      OperatorState operator = getOperatorState(ohb.nodeId);
+      int operatorFlags = 0;
+      if (operator.state != ohb.state) {
+        operatorFlags |= STATE;
+      }
+      if (operator.intervalMs != ohb.intervalMs) {
+        operatorFlags |= INTERVAL;
+      }
+      if (ohb.requestResponse != null) {
+        operatorFlags |= RESPONSES;
+      }
+      WritableUtils.writeVInt(out, ohb.nodeId);
+      out.writeByte(operatorFlags);
+      WritableUtils.writeVLong(out, ohb.generatedTms - sentTms);
+      if ((operatorFlags & STATE) != 0) {
+        operator.state = ohb.state;
+        out.writeByte(ohb.state == null ? -1 : ohb.state.ordinal());
+      }
+      if ((operatorFlags & INTERVAL) != 0) {
+        WritableUtils.writeVLong(out, operator.intervalMs = ohb.intervalMs);
+      }
+      if ((operatorFlags & RESPONSES) != 0) {
+        writeObject(out, ohb.requestResponse);
+      }
+
+      WritableUtils.writeVInt(out, ohb.windowStats.size());
+      for (ContainerStats.OperatorStats stats : ohb.windowStats) {
+        encode(operator, stats, out);
+      }
+    }
+  }
+
+  private void encode(OperatorState operator, ContainerStats.OperatorStats stats, DataOutputStream out)
+      throws IOException
+  {
+    if (stats == null) {
+      WritableUtils.writeVInt(out, NULL_STATS);
+      return;
+    }
+    int flags = 0;
+    if (stats.checkpoint instanceof Checkpoint) {
+      flags |= CHECKPOINT;
+    } else if (stats.checkpoint != null) {
+      flags |= CHECKPOINT_OBJECT;
+    }
+    if (stats.checkpointStats != null) {
+      flags |= CHECKPOINT_STATS;
+    }
+    if (stats.inputPorts != null) {
+      flags |= INPUT_PORTS;
+    }
+    if (stats.outputPorts != null) {
+      flags |= OUTPUT_PORTS;
+    }
+    if (stats.counters != null) {
+      flags |= COUNTERS;
+    }
+    if (stats.metrics != null) {
+      flags |= METRICS;
+    }
+    WritableUtils.writeVInt(out, flags);
+    WritableUtils.writeVLong(out, stats.windowId - operator.windowId);
+    operator.windowId = stats.windowId;
+    if ((flags & CHECKPOINT) != 0) {
+      Checkpoint checkpoint = (Checkpoint)stats.checkpoint;
+      WritableUtils.writeVLong(out, checkpoint.windowId - stats.windowId);
+      WritableUtils.writeVInt(out, checkpoint.applicationWindowCount);
+      WritableUtils.writeVInt(out, checkpoint.checkpointWindowCount);
+    } else if ((flags & CHECKPOINT_OBJECT) != 0) {
+      writeObject(out, stats.checkpoint);
+    }
+    WritableUtils.writeVLong(out, stats.cpuTimeUsed);
+    if ((flags & CHECKPOINT_STATS) != 0) {
+      Stats.CheckpointStats checkpointStats = stats.checkpointStats;
+      WritableUtils.writeVLong(out, checkpointStats.checkpointStartTime - sentTms);
+      WritableUtils.writeVLong(out, checkpointStats.checkpointTime);
+      WritableUtils.writeVLong(out, checkpointStats.checkpointBytes);
+      WritableUtils.writeVLong(out, checkpointStats.serializationTime);
+      WritableUtils.writeVLong(out, checkpointStats.storedBytes);
+      WritableUtils.writeVLong(out, checkpointStats.storeThroughput);
+    }
+    if ((flags & INPUT_PORTS) != 0) {
+      encode(operator, stats.inputPorts, out);
+    }
+    if ((flags & OUTPUT_PORTS) != 0) {
+      encode(operator, stats.outputPorts, out);
+    }
+    if ((flags & COUNTERS) != 0) {
+      writeObject(out, stats.counters);
+    }
+    if ((flags & METRICS) != 0) {
+      writeObject(out, stats.metrics);
+    }
+    writeIdentifier(out, stats.recordingId);
+  }
+
+  private void encode(OperatorState operator, List<ContainerStats.OperatorStats.PortStats> ports, DataOutputStream out)
+      throws IOException
+  {
+    WritableUtils.writeVInt(out, ports.size());
+    for (ContainerStats.OperatorStats.PortStats port : ports) {
+      writeIdentifier(out, port.id);
+      WritableUtils.writeVInt(out, port.tupleCount);
+      WritableUtils.writeVLong(out, port.endWindowTimestamp - operator.endWindowTimestamp);
+      operator.endWindowTimestamp = port.endWindowTimestamp;
+      WritableUtils.writeVLong(out, port.bufferServerBytes);
+      WritableUtils.writeVLong(out, port.bufferServerWrites);
+      WritableUtils.writeVInt(out, port.queueSize);
+      writeIdentifier(out, port.recordingId);
+    }
+  }
+
+  private void decode(ContainerHeartbeat heartbeat, String containerId, DataInputStream in) throws IOException
+  {
+    int flags = in.readByte();
+    if ((flags & JVM_NAME) != 0) {
+      jvmName = readNullableString(in);
+    }
+    if ((flags & BUFFER_SERVER) != 0) {
+      bufferServerHost = readNullableString(in);
+      bufferServerPort = WritableUtils.readVInt(in);
+    }
+    heartbeat.jvmName = jvmName;
+    heartbeat.bufferServerHost = bufferServerHost;
+    heartbeat.bufferServerPort = bufferServerPort;
+    heartbeat.restartRequested = (flags & RESTART) != 0;
+    heartbeat.stackTrace = (flags & STACK_TRACE) != 0 ? Text.readString(in) : null;
+    memoryMBFree += WritableUtils.readVLong(in);
+    heartbeat.memoryMBFree = (int)memoryMBFree;
+    heartbeat.gcCollectionTime = gcCollectionTime += WritableUtils.readVLong(in);
+    heartbeat.gcCollectionCount = gcCollectionCount += WritableUtils.readVLong(in);
+    sentTms = heartbeat.sentTms;
+
+    ContainerStats containerStats = new ContainerStats(containerId);
+    int operatorCount = WritableUtils.readVInt(in);
+    for (int i = 0; i < operatorCount; i++) {
+      OperatorHeartbeat ohb = new OperatorHeartbeat();
+      ohb.nodeId = WritableUtils.readVInt(in);
+      OperatorState operator = getOperatorState(ohb.nodeId);
+      int operatorFlags = in.readByte();
+      ohb.generatedTms = sentTms + WritableUtils.readVLong(in);
+      if ((operatorFlags & STATE) != 0) {
+        int ordinal = in.readByte();
+        operator.state = ordinal < 0 ? null : OperatorHeartbeat.DeployState.values()[ordinal];
+      }
+      ohb.state = operator.state;
+      if ((operatorFlags & INTERVAL) != 0) {
+        operator.intervalMs = WritableUtils.readVLong(in);
+      }
+      ohb.intervalMs = operator.intervalMs;
+      if ((operatorFlags & RESPONSES) != 0) {
+        @SuppressWarnings("unchecked")
+        ArrayList<StatsListener.OperatorResponse> responses = (ArrayList<StatsListener.OperatorResponse>)readObject(in);
+        ohb.requestResponse = responses;
+      }
+
+      int statsCount = WritableUtils.readVInt(in);
+      for (int j = 0; j < statsCount; j++) {
+        ohb.windowStats.add(decode(operator, in));
+      }
+      containerStats.addNodeStats(ohb);
+    }
+    heartbeat.setContainerStats(containerStats);
+  }
+
+  @SuppressWarnings("deprecation")
+  private ContainerStats.OperatorStats decode(OperatorState operator, DataInputStream in) throws IOException
+  {
+    int flags = WritableUtils.readVInt(in);
+    if ((flags & NULL_STATS) != 0) {
+      return null;
+    }
+    ContainerStats.OperatorStats stats = new ContainerStats.OperatorStats();
+    stats.windowId = operator.windowId += WritableUtils.readVLong(in);
+    if ((flags & CHECKPOINT) != 0) {
+      long windowId = stats.windowId + WritableUtils.readVLong(in);
+      int applicationWindowCount = WritableUtils.readVInt(in);
+      stats.checkpoint = new Checkpoint(windowId, applicationWindowCount, WritableUtils.readVInt(in));
+    } else if ((flags & CHECKPOINT_OBJECT) != 0) {
+      stats.checkpoint = (Stats.Checkpoint)readObject(in);
+    }
+    stats.cpuTimeUsed = WritableUtils.readVLong(in);
+    if ((flags & CHECKPOINT_STATS) != 0) {
+      Stats.CheckpointStats checkpointStats = new Stats.CheckpointStats();
+      checkpointStats.checkpointStartTime = sentTms + WritableUtils.readVLong(in);
+      checkpointStats.checkpointTime = WritableUtils.readVLong(in);
+      checkpointStats.checkpointBytes = WritableUtils.readVLong(in);
+      checkpointStats.serializationTime = WritableUtils.readVLong(in);
+      checkpointStats.storedBytes = WritableUtils.readVLong(in);
+      checkpointStats.storeThroughput = WritableUtils.readVLong(in);
+      stats.checkpointStats = checkpointStats;
+    }
+    if ((flags & INPUT_PORTS) != 0) {
+      stats.inputPorts = decodePorts(operator, in);
+    }
+    if ((flags & OUTPUT_PORTS) != 0) {
+      stats.outputPorts = decodePorts(operator, in);
+    }
+    if ((flags & COUNTERS) != 0) {
+      stats.counters = readObject(in);
+    }
+    if ((flags & METRICS) != 0) {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> metrics = (Map<String, Object>)readObject(in);
+      stats.metrics = metrics;
+    }
+    stats.recordingId = readIdentifier(in);
+    return stats;
+  }
+
+  private ArrayList<ContainerStats.OperatorStats.PortStats> decodePorts(OperatorState operator, DataInputStream in)
+      throws IOException
+  {
+    int count = WritableUtils.readVInt(in);
+    ArrayList<ContainerStats.OperatorStats.PortStats> ports = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ContainerStats.OperatorStats.PortStats port = new ContainerStats.OperatorStats.PortStats(readIdentifier(in));
+      port.tupleCount = WritableUtils.readVInt(in);
+      port.endWindowTimestamp = operator.endWindowTimestamp += WritableUtils.readVLong(in);
+      port.bufferServerBytes = WritableUtils.readVLong(in);
+      port.bufferServerWrites = WritableUtils.readVLong(in);
+      port.queueSize = WritableUtils.readVInt(in);
+      port.recordingId = readIdentifier(in);
+      ports.add(port);
+    }
+    return ports;
+  }
+
+  private OperatorState getOperatorState(int operatorId)
+  {
+    OperatorState operator = operators.get(operatorId);
+    if (operator == null) {
+      operator = new OperatorState();
+      operators.put(operatorId, operator);
+    }
+    return operator;
+  }
+
+  /**
+   * Writes 0 for null, the index + 1 of an identifier sent before or -1 followed by the identifier.
+   */
+  private void writeIdentifier(DataOutput out, String identifier) throws IOException
+  {
+    if (identifier == null) {
+      WritableUtils.writeVInt(out, 0);
+      return;
+    }
+    Integer index = identifiers.get(identifier);
+    if (index == null) {
+      WritableUtils.writeVInt(out, -1);
+      Text.writeString(out, identifier);
+      identifiers.put(identifier, strings.size());
+      strings.add(identifier);
+    } else {
+      WritableUtils.writeVInt(out, index + 1);
+    }
+  }
+
+  private String readIdentifier(DataInput in) throws IOException
+  {
+    int code = WritableUtils.readVInt(in);
+    if (code == 0) {
+      return null;
+    }
+    if (code < 0) {
+      String identifier = Text.readString(in);
+      identifiers.put(identifier, strings.size());
+      strings.add(identifier);
+      return identifier;
+    }
+    return strings.get(code - 1);
+  }
+
+  private static void writeNullableString(DataOutput out, String value) throws IOException
+  {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      Text.writeString(out, value);
+    }
+  }
+
+  private static String readNullableString(DataInput in) throws IOException
+  {
+    return in.readBoolean() ? Text.readString(in) : null;
+  }
+
+  private static void writeObject(DataOutput out, Object object) throws IOException
+  {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(object);
+    }
+    WritableUtils.writeVInt(out, bos.size());
+    out.write(bos.toByteArray());
+  }
+
+  private static Object readObject(DataInput in) throws IOException
+  {
+    byte[] bytes = new byte[WritableUtils.readVInt(in)];
+    in.readFully(bytes);
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    } catch (ClassNotFoundException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  private static final Logger LOG = LoggerFactory.getLogger(ContainerHeartbeatCodec.class);
+}
@@ -18,6 +18,8 @@
  */
 package com.datatorrent.stram.api;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -256,6 +258,55 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol
     }
 
     public String stackTrace;
+
+    private transient ContainerHeartbeatCodec codec;
+    transient boolean resyncRequired;
+    transient long encodedBase;
+    transient byte[] encodedPayload;
+
+    /**
+     * Sends the heartbeat in the compact format of the given codec instead of the java serialization.
+     *
+     * @param codec the heartbeat session of the container
+     */
+    public void setCodec(ContainerHeartbeatCodec codec)
+    {
+      this.codec = codec;
+    }
+
+    /**
+     * Whether the heartbeat was encoded against a session the application master does not have, in which case it only
+     * carries the container id and has to be sent again in full.
+     *
+     * @return true when the heartbeat could not be decoded
+     */
+    public boolean isResyncRequired()
+    {
+      return resyncRequired;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException
+    {
+      if (codec == null) {
+        super.write(out);
+      } else {
+        codec.write(this, out);
+      }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException
+    {
+      int len = in.readInt();
+      if (len == ContainerHeartbeatCodec.MARKER) {
+        ContainerHeartbeatCodec.read(this, in);
+      } else {
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        readFields(bytes);
+      }
+    }
   }
 
   /**
@@ -403,6 +454,12 @@ public interface StreamingContainerUmbilicalProtocol extends VersionedProtocol
     public long committedWindowId = -1;
 
     public boolean stackTraceRequired = false;
+
+    /**
+     * Set when the heartbeat could not be decoded with the session of the container, the container resets the
+     * session and sends the heartbeat again.
+     */
+    public boolean heartbeatResyncRequired;
   }
 
   /**
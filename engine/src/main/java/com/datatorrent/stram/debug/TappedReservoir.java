@@ -19,6 +19,7 @@
 package com.datatorrent.stram.debug;
 
 import com.datatorrent.api.Sink;
+import com.datatorrent.stram.engine.IdleWaiter;
 import com.datatorrent.stram.engine.SweepableReservoir;
 import com.datatorrent.stram.tuple.Tuple;
 
@@ -56,12 +57,24 @@ public class TappedReservoir extends MuxSink implements SweepableReservoir
     return reservoir.sweep();
   }
 
+  @Override
+  public Tuple sweep(int limit)
+  {
+    return reservoir.sweep(limit);
+  }
+
   @Override
   public int getCount(boolean reset)
   {
     return reservoir.getCount(reset);
   }
 
+  @Override
+  public void setWaiter(IdleWaiter waiter)
+  {
+    reservoir.setWaiter(waiter);
+  }
+
   @Override
   public int size(final boolean dataTupleAware)
   {
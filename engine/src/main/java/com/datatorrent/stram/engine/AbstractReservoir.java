@@ -19,12 +19,15 @@
 package com.datatorrent.stram.engine;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.jctools.queues.MessagePassingQueue;
@@ -33,6 +36,7 @@ import org.jctools.queues.SpscArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.BatchSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.netlet.util.CircularBuffer;
 import com.datatorrent.netlet.util.UnsafeBlockingQueue;
@@ -73,6 +77,8 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
       return new SpscArrayQueueReservoir(id, capacity);
     } else if (reservoirClassName.equals(SpscArrayBlockingQueueReservoir.class.getName())) {
       return new SpscArrayBlockingQueueReservoir(id, capacity);
+    } else if (reservoirClassName.equals(SpscArrayParkingQueueReservoir.class.getName())) {
+      return new SpscArrayParkingQueueReservoir(id, capacity);
     } else if (reservoirClassName.equals(CircularBufferReservoir.class.getName())) {
       return new CircularBufferReservoir(id, capacity);
     } else if (reservoirClassName.equals(ArrayBlockingQueueReservoir.class.getName())) {
@@ -88,8 +94,27 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     }
   }
 
+  /**
+   * Reservoir factory for streams between operators deployed in the same container. Unless
+   * {@link AbstractReservoir#reservoirClassNameProperty} property is set, the reservoir parks the producer when it is
+   * full and the consumer when it is empty, and wakes them up as soon as the condition clears.
+   * @param id reservoir identifier
+   * @param capacity reservoir capacity
+   * @return concrete implementation of {@link AbstractReservoir}
+   */
+  public static AbstractReservoir newContainerLocalReservoir(final String id, final int capacity)
+  {
+    if (System.getProperty(reservoirClassNameProperty) == null) {
+      return new SpscArrayParkingQueueReservoir(id, capacity);
+    }
+    return newReservoir(id, capacity);
+  }
+
   private Sink<Object> sink;
+  private BatchSink<Object> batchSink;
+  private final ArrayList<Object> batch = new ArrayList<>();
   private String id;
+  private volatile IdleWaiter waiter;
   protected int count;
 
   protected AbstractReservoir(final String id)
@@ -101,12 +126,14 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
    * {@inheritDoc}
    */
   @Override
+  @SuppressWarnings("unchecked")
   public Sink<Object> setSink(Sink<Object> sink)
   {
     try {
       return this.sink;
     } finally {
       this.sink = sink;
+      batchSink = sink instanceof BatchSink ? (BatchSink<Object>)sink : null;
     }
   }
 
@@ -151,6 +178,88 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     return sink;
   }
 
+  /**
+   * @return the sink if it consumes batches of tuples, null otherwise
+   */
+  protected BatchSink<Object> getBatchSink()
+  {
+    return batchSink;
+  }
+
+  /**
+   * Moves the data tuples at the head of the reservoir to the batch, up to the first control tuple.
+   *
+   * @param limit maximum number of data tuples to move
+   * @return the control tuple at the head of the reservoir or null if the reservoir was drained or the limit reached
+   */
+  protected Tuple drainBatch(int limit)
+  {
+    Object o;
+    final ArrayList<Object> batch = this.batch;
+    while (limit-- > 0 && (o = peek()) != null) {
+      if (o instanceof Tuple) {
+        return (Tuple)o;
+      }
+      batch.add(poll());
+    }
+    return null;
+  }
+
+  /**
+   * Hands the tuples drained by {@link #drainBatch(int)} to the batch sink.
+   */
+  protected void deliverBatch()
+  {
+    final ArrayList<Object> batch = this.batch;
+    if (!batch.isEmpty()) {
+      count += batch.size();
+      try {
+        batchSink.putBatch(batch);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Sweeps the reservoir handing the data tuples to the batch sink in a single call.
+   *
+   * @param limit maximum number of data tuples to hand to the batch sink
+   * @return the control tuple encountered or null
+   */
+  protected Tuple sweepBatch(int limit)
+  {
+    final Tuple t = drainBatch(limit);
+    deliverBatch();
+    return t;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setWaiter(IdleWaiter waiter)
+  {
+    this.waiter = waiter;
+  }
+
+  /**
+   * Signals the waiter of the consuming thread, if any, once an object is added to the reservoir.
+   *
+   * @param added whether the object was added to the reservoir
+   * @return added
+   */
+  protected boolean notifyWaiter(boolean added)
+  {
+    if (added) {
+      final IdleWaiter waiter = this.waiter;
+      if (waiter != null) {
+        waiter.signal();
+      }
+    }
+    return added;
+  }
+
   @Override
   public String toString()
   {
@@ -177,10 +286,20 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public Tuple sweep()
     {
+      return sweep(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Tuple sweep(int limit)
+    {
+      if (getBatchSink() != null) {
+        return sweepBatch(limit);
+      }
+
       Object o;
       final SpscArrayQueue<Object> queue = this.queue;
       final Sink<Object> sink = getSink();
-      while ((o = queue.peek()) != null) {
+      while (limit-- > 0 && (o = queue.peek()) != null) {
         if (o instanceof Tuple) {
           return (Tuple)o;
         }
@@ -193,7 +312,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public boolean add(Object o)
     {
-      return queue.add(o);
+      return notifyWaiter(queue.add(o));
     }
 
     @Override
@@ -236,7 +355,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public boolean offer(Object o)
     {
-      return queue.offer(o);
+      return notifyWaiter(queue.offer(o));
     }
 
     @Override
@@ -248,6 +367,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
         sleep(spinMillis);
         spinMillis = Math.min(maxSpinMillis, spinMillis + 1);
       }
+      notifyWaiter(true);
     }
 
     @Override
@@ -397,15 +517,28 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     }
 
     @Override
-    public Tuple sweep()
+    public Tuple sweep(int limit)
     {
       Object o;
       final ReentrantLock lock = this.lock;
+      if (getBatchSink() != null) {
+        final Tuple t;
+        lock.lock();
+        try {
+          t = drainBatch(limit);
+          notFull.signal();
+        } finally {
+          lock.unlock();
+        }
+        deliverBatch();
+        return t;
+      }
+
       final SpscArrayQueue<Object> queue = getQueue();
       final Sink<Object> sink = getSink();
       lock.lock();
       try {
-        while ((o = queue.peek()) != null) {
+        while (limit-- > 0 && (o = queue.peek()) != null) {
           if (o instanceof Tuple) {
             return (Tuple)o;
           }
@@ -437,6 +570,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
           lock.unlock();
         }
       }
+      notifyWaiter(true);
     }
 
     @Override
@@ -459,6 +593,185 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
 
   }
 
+  /**
+   * <p>SpscArrayParkingQueueReservoir</p>
+   * {@link SweepableReservoir} implementation that extends SpscArrayQueueReservoir and signals between the producer
+   * and the consumer without a lock. The underlying SpscArrayQueue is padded against false sharing of the producer and
+   * consumer indexes. A single word holds the thread parked on the reservoir: the producer when the reservoir is full
+   * or the consumer when it is empty, as a single producer and a single consumer can never wait at the same time. The
+   * other side unparks it once it adds or removes an object. The thread checks the reservoir again after it publishes
+   * itself as parked and does not park if the other side changed it meanwhile. The other side publishes the queue index
+   * with an ordered store that may still pass its read of the parked thread, so the park is bounded by maxParkNanos.
+   */
+  private static class SpscArrayParkingQueueReservoir extends SpscArrayQueueReservoir
+  {
+    private static final AtomicReferenceFieldUpdater<SpscArrayParkingQueueReservoir, Thread> parkedUpdater =
+        AtomicReferenceFieldUpdater.newUpdater(SpscArrayParkingQueueReservoir.class, Thread.class, "parked");
+    private static final long maxParkNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    private volatile Thread parked;
+
+    private SpscArrayParkingQueueReservoir(final String id, final int capacity)
+    {
+      super(id, capacity);
+    }
+
+    private void unpark()
+    {
+      final Thread thread = parked;
+      if (thread != null) {
+        LockSupport.unpark(thread);
+      }
+    }
+
+    /**
+     * Parks the current thread once till it is unparked by the other side, the deadline passes or maxParkNanos
+     * elapse. The thread does not park if the reservoir is no longer full, for the producer, or empty, for the
+     * consumer.
+     *
+     * @param deadline System.nanoTime() deadline or 0 to wait without a deadline
+     * @param producer true if the producer waits for room, false if the consumer waits for an object
+     * @return false if the deadline passed
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private boolean park(final long deadline, final boolean producer) throws InterruptedException
+    {
+      long nanos = maxParkNanos;
+      if (deadline != 0) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        nanos = Math.min(nanos, remaining);
+      }
+      final Thread thread = Thread.currentThread();
+      parked = thread;
+      try {
+        if (producer ? remainingCapacity() == 0 : isEmpty()) {
+          LockSupport.parkNanos(this, nanos);
+        }
+      } finally {
+        parkedUpdater.compareAndSet(this, thread, null);
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      return true;
+    }
+
+    @Override
+    public Tuple sweep(int limit)
+    {
+      if (getBatchSink() != null) {
+        final Tuple t = drainBatch(limit);
+        unpark();
+        deliverBatch();
+        return t;
+      }
+
+      Object o;
+      final SpscArrayQueue<Object> queue = getQueue();
+      final Sink<Object> sink = getSink();
+      while (limit-- > 0 && (o = queue.peek()) != null) {
+        if (o instanceof Tuple) {
+          return (Tuple)o;
+        }
+        count++;
+        sink.put(queue.poll());
+        unpark();
+      }
+      return null;
+    }
+
+    @Override
+    public boolean add(Object o)
+    {
+      final boolean added = super.add(o);
+      unpark();
+      return added;
+    }
+
+    @Override
+    public boolean offer(Object o)
+    {
+      final boolean added = super.offer(o);
+      if (added) {
+        unpark();
+      }
+      return added;
+    }
+
+    @Override
+    public void put(Object o) throws InterruptedException
+    {
+      final SpscArrayQueue<Object> queue = getQueue();
+      while (!queue.offer(o)) {
+        park(0, true);
+      }
+      unpark();
+      notifyWaiter(true);
+    }
+
+    @Override
+    public boolean offer(Object o, long timeout, TimeUnit unit) throws InterruptedException
+    {
+      final SpscArrayQueue<Object> queue = getQueue();
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (!queue.offer(o)) {
+        if (!park(deadline, true)) {
+          return false;
+        }
+      }
+      unpark();
+      return notifyWaiter(true);
+    }
+
+    @Override
+    public Object poll()
+    {
+      final Object o = getQueue().poll();
+      if (o != null) {
+        unpark();
+      }
+      return o;
+    }
+
+    @Override
+    public Object remove()
+    {
+      final Object o = getQueue().remove();
+      unpark();
+      return o;
+    }
+
+    @Override
+    public Object take() throws InterruptedException
+    {
+      Object o;
+      final SpscArrayQueue<Object> queue = getQueue();
+      while ((o = queue.poll()) == null) {
+        park(0, false);
+      }
+      unpark();
+      return o;
+    }
+
+    @Override
+    public Object poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+      Object o;
+      final SpscArrayQueue<Object> queue = getQueue();
+      final long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while ((o = queue.poll()) == null) {
+        if (!park(deadline, false)) {
+          return null;
+        }
+      }
+      unpark();
+      return o;
+    }
+
+  }
+
   /**
    * <p>ArrayBlockingQueueReservoir</p>
    * {@link SweepableReservoir} implementation that extends AbstractReservoir and delegates {@link BlockingQueue}
@@ -477,10 +790,20 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public Tuple sweep()
     {
+      return sweep(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Tuple sweep(int limit)
+    {
+      if (getBatchSink() != null) {
+        return sweepBatch(limit);
+      }
+
       Object o;
       final ArrayBlockingQueue<Object> queue = this.queue;
       final Sink<Object> sink = getSink();
-      while ((o = queue.peek()) != null) {
+      while (limit-- > 0 && (o = queue.peek()) != null) {
         if (o instanceof Tuple) {
           return (Tuple)o;
         }
@@ -493,25 +816,26 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public boolean add(Object o)
     {
-      return queue.add(o);
+      return notifyWaiter(queue.add(o));
     }
 
     @Override
     public boolean offer(Object o)
     {
-      return queue.offer(o);
+      return notifyWaiter(queue.offer(o));
     }
 
     @Override
     public void put(Object o) throws InterruptedException
     {
       queue.put(o);
+      notifyWaiter(true);
     }
 
     @Override
     public boolean offer(Object o, long timeout, TimeUnit unit) throws InterruptedException
     {
-      return queue.offer(o, timeout, unit);
+      return notifyWaiter(queue.offer(o, timeout, unit));
     }
 
     @Override
@@ -679,9 +1003,19 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public Tuple sweep()
     {
+      return sweep(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Tuple sweep(int limit)
+    {
+      if (getBatchSink() != null) {
+        return sweepBatch(limit);
+      }
+
       final CircularBuffer<Object> circularBuffer = this.circularBuffer;
       final Sink<Object> sink = getSink();
-      final int size = circularBuffer.size();
+      final int size = Math.min(circularBuffer.size(), limit);
       for (int i = 0; i < size; i++) {
         if (circularBuffer.peekUnsafe() instanceof Tuple) {
           count += i;
@@ -697,7 +1031,7 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public boolean add(Object o)
     {
-      return circularBuffer.add(o);
+      return notifyWaiter(circularBuffer.add(o));
     }
 
     @Override
@@ -742,19 +1076,20 @@ public abstract class AbstractReservoir implements SweepableReservoir, BlockingQ
     @Override
     public boolean offer(Object o)
     {
-      return circularBuffer.offer(o);
+      return notifyWaiter(circularBuffer.offer(o));
     }
 
     @Override
     public void put(Object o) throws InterruptedException
     {
       circularBuffer.put(o);
+      notifyWaiter(true);
     }
 
     @Override
     public boolean offer(Object o, long timeout, TimeUnit unit) throws InterruptedException
     {
-      return circularBuffer.offer(o, timeout, unit);
+      return notifyWaiter(circularBuffer.offer(o, timeout, unit));
     }
 
     @Override
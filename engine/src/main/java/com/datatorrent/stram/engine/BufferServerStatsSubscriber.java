@@ -75,7 +75,7 @@ public class BufferServerStatsSubscriber
       if (sinkId.startsWith("tcp:")) {
         List<ByteCounterStream> portStreams = outputStreams.get(portId);
         if (portStreams != null) {
-          portStreams.remove(stream);
+          portStreams.remove(stream.component);
           if (portStreams.size() == 0) {
             outputStreams.remove(portId);
           }
@@ -105,10 +105,12 @@ public class BufferServerStatsSubscriber
         if (os.outputPorts != null) {
           for (PortStats ps : os.outputPorts) {
             List<ByteCounterStream> portStreams = outputStreams.get(ps.id);
-            if (outputStreams != null) {
+            if (portStreams != null) {
               ps.bufferServerBytes = 0;
+              ps.bufferServerWrites = 0;
               for (ByteCounterStream stream : portStreams) {
-                ps.bufferServerBytes = stream.getByteCount(true);
+                ps.bufferServerBytes += stream.getByteCount(true);
+                ps.bufferServerWrites += stream.getWriteCount(true);
               }
             }
           }
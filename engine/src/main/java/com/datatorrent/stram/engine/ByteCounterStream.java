@@ -26,4 +26,16 @@ package com.datatorrent.stram.engine;
 public interface ByteCounterStream extends Stream
 {
   long getByteCount(boolean reset);
+
+  /**
+   * Get the number of writes to the socket the bytes were sent with. Together with the byte count, it tells how well
+   * the stream coalesces the tuples.
+   *
+   * @param reset flag to indicate if the count should be reset to zero after this operation
+   * @return the count of writes, 0 if the stream does not track them
+   */
+  default long getWriteCount(boolean reset)
+  {
+    return 0;
+  }
 }
@@ -76,6 +76,18 @@ public class ForwardingReservoir implements SweepableReservoir
     return reservoir.sweep();
   }
 
+  @Override
+  public Tuple sweep(int limit)
+  {
+    return reservoir.sweep(limit);
+  }
+
+  @Override
+  public void setWaiter(IdleWaiter waiter)
+  {
+    reservoir.setWaiter(waiter);
+  }
+
   @Override
   public int size(final boolean dataTupleAware)
   {
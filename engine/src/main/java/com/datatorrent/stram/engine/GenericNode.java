@@ -73,6 +73,7 @@ public class GenericNode extends Node<Operator>
   protected final HashMap<String, SweepableReservoir> inputs = new HashMap<>();
   protected ArrayList<DeferredInputConnection> deferredInputConnections = new ArrayList<>();
   protected Map<SweepableReservoir,Sink> reservoirPortMap = Maps.newHashMap();
+  private IdleWaiter idleWaiter;
 
   @Override
   @SuppressWarnings("unchecked")
@@ -139,6 +140,9 @@ public class GenericNode extends Node<Operator>
       inputPort.setConnected(true);
       inputs.put(port, reservoir);
       reservoir.setSink(inputPort.getSink());
+      if (idleWaiter != null) {
+        reservoir.setWaiter(idleWaiter);
+      }
     }
   }
 
@@ -408,9 +412,14 @@ public class GenericNode extends Node<Operator>
   {
     doCheckpoint = false;
 
-    final long maxSpinMillis = context.getValue(OperatorContext.SPIN_MILLIS);
-    long spinMillis = 0;
+    final IdleWaiter idleWaiter = IdleWaiter.newInstance(context.getValue(OperatorContext.WAIT_STRATEGY),
+        context.getValue(OperatorContext.SPIN_MILLIS));
+    this.idleWaiter = idleWaiter;
+    for (SweepableReservoir reservoir : inputs.values()) {
+      reservoir.setWaiter(idleWaiter);
+    }
     final boolean handleIdleTime = operator instanceof IdleTimeHandler;
+    final int batchSize = context.getValue(OperatorContext.INPUT_BATCH_SIZE);
     int totalQueues = inputs.size();
     int regularQueues = totalQueues;
     // regularQueues is the number of queues that are not connected to a DelayOperator
@@ -434,9 +443,12 @@ public class GenericNode extends Node<Operator>
         while (buffers.hasNext()) {
           Map.Entry<String, SweepableReservoir> activePortEntry = buffers.next();
           SweepableReservoir activePort = activePortEntry.getValue();
-          Tuple t = activePort.sweep();
-          if (t != null) {
-            spinMillis = 0;
+          int remaining = batchSize;
+          int swept = batchSize > 0 ? activePort.getCount(false) : 0;
+          Tuple t;
+        sweep:
+          while ((t = batchSize > 0 ? activePort.sweep(remaining) : activePort.sweep()) != null) {
+            idleWaiter.busy();
             boolean delay = (operator instanceof Operator.DelayOperator);
             long windowAhead = 0;
             if (delay) {
@@ -457,7 +469,7 @@ public class GenericNode extends Node<Operator>
                 if (ret == Action.PORT_MAPPING_CHANGED) {
                   break activequeue;
                 }
-                break;
+                break sweep;
 
               case CUSTOM_CONTROL:
                 handleCustomControlTuple(activePortEntry, t);
@@ -530,11 +542,26 @@ public class GenericNode extends Node<Operator>
                 if (break_activequeue) {
                   break activequeue;
                 }
-                break;
+                break sweep;
 
               default:
                 throw new UnhandledException("Unrecognized Control Tuple", new IllegalArgumentException(t.toString()));
             }
+
+            /*
+             * In the micro-batch mode stay on the port till it runs dry, reaches the end of the window or consumes
+             * the batch of data and control tuples, the sweep itself stops once the batch is consumed. Otherwise move
+             * on to the next port after each control tuple.
+             */
+            if (batchSize == 0) {
+              break;
+            }
+            final int count = activePort.getCount(false);
+            remaining -= count - swept + 1;
+            swept = count;
+            if (remaining <= 0) {
+              break;
+            }
           }
         }
 
@@ -546,7 +573,7 @@ public class GenericNode extends Node<Operator>
           for (Map.Entry<String, SweepableReservoir> cb : activeQueues) {
             need2sleep = cb.getValue().isEmpty();
             if (!need2sleep) {
-              spinMillis = 0;
+              idleWaiter.busy();
               break;
             }
           }
@@ -555,8 +582,7 @@ public class GenericNode extends Node<Operator>
             if (handleIdleTime && insideWindow) {
               ((IdleTimeHandler)operator).handleIdleTime();
             } else {
-              Thread.sleep(spinMillis);
-              spinMillis = Math.min(maxSpinMillis, spinMillis + 1);
+              idleWaiter.idle();
             }
           }
         }
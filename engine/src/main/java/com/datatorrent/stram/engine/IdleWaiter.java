@@ -0,0 +1,219 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import com.datatorrent.api.Context.WaitStrategy;
+
+/**
+ * Implements the {@link WaitStrategy} used by an operator thread when there are no tuples to process.
+ *
+ * The operator thread calls {@link #idle()} every time it finds nothing to do and {@link #busy()} when it does.
+ * Reservoirs consumed by the thread call {@link #signal()} when tuples are added to them so that a parked thread
+ * resumes without waiting for the park to time out. A waiter belongs to the thread that creates it.
+ */
+public abstract class IdleWaiter
+{
+  /**
+   * Create the waiter for the given strategy, to be used by the calling thread.
+   *
+   * @param strategy wait strategy
+   * @param maxSpinMillis maximum time in milliseconds the thread waits before polling again
+   * @return waiter implementing the strategy
+   */
+  public static IdleWaiter newInstance(WaitStrategy strategy, int maxSpinMillis)
+  {
+    switch (strategy) {
+      case BUSY_SPIN:
+        return new BusySpinWaiter();
+
+      case YIELD:
+        return new YieldWaiter();
+
+      case PARK:
+        return new ParkWaiter(maxSpinMillis);
+
+      case HYBRID:
+        return new HybridWaiter(maxSpinMillis);
+
+      default:
+        return new SleepWaiter(maxSpinMillis);
+    }
+  }
+
+  /**
+   * Wait as there is nothing to process.
+   *
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public abstract void idle() throws InterruptedException;
+
+  /**
+   * Notify the waiter that the thread found work, resets any backoff.
+   */
+  public void busy()
+  {
+  }
+
+  /**
+   * Notify the waiter that tuples are available for the thread, may be called from any thread. Reservoirs call it for
+   * every tuple they add, so it has to be cheap when the thread is not waiting.
+   */
+  public void signal()
+  {
+  }
+
+  static class SleepWaiter extends IdleWaiter
+  {
+    private final int maxSpinMillis;
+    private int spinMillis;
+
+    SleepWaiter(int maxSpinMillis)
+    {
+      this.maxSpinMillis = maxSpinMillis;
+    }
+
+    @Override
+    public void idle() throws InterruptedException
+    {
+      Thread.sleep(spinMillis);
+      spinMillis = Math.min(maxSpinMillis, spinMillis + 1);
+    }
+
+    @Override
+    public void busy()
+    {
+      spinMillis = 0;
+    }
+
+  }
+
+  static class BusySpinWaiter extends IdleWaiter
+  {
+    @Override
+    public void idle() throws InterruptedException
+    {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+
+  }
+
+  static class YieldWaiter extends IdleWaiter
+  {
+    @Override
+    public void idle() throws InterruptedException
+    {
+      Thread.yield();
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+
+  }
+
+  /**
+   * Parks the thread till a reservoir signals that tuples are available or the spin millis elapse. A signal unparks
+   * the owner thread only when the thread published that it parks, otherwise it only sets the signalled flag which the
+   * thread checks after it publishes that it parks and before it does. Each side writes its flag before it reads the
+   * flag of the other, so at least one of them sees the other and a signal is never lost. The thread clears the
+   * signalled flag atomically once it wakes up and before it polls the reservoirs again, a signal that comes later
+   * stays set for the next park.
+   */
+  static class ParkWaiter extends IdleWaiter
+  {
+    private final long maxParkNanos;
+    private final Thread owner;
+    private volatile boolean parked;
+    private final AtomicBoolean signalled = new AtomicBoolean();
+
+    ParkWaiter(int maxSpinMillis)
+    {
+      maxParkNanos = TimeUnit.MILLISECONDS.toNanos(maxSpinMillis);
+      owner = Thread.currentThread();
+    }
+
+    @Override
+    public void idle() throws InterruptedException
+    {
+      parked = true;
+      if (!signalled.get()) {
+        LockSupport.parkNanos(this, maxParkNanos);
+      }
+      parked = false;
+      signalled.getAndSet(false);
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+    }
+
+    @Override
+    public void signal()
+    {
+      signalled.set(true);
+      if (parked) {
+        LockSupport.unpark(owner);
+      }
+    }
+
+  }
+
+  /**
+   * Spins and then yields for a few iterations before parking, so that short gaps between tuples are not paid with
+   * the cost of parking and unparking the thread.
+   */
+  static class HybridWaiter extends ParkWaiter
+  {
+    static final int SPIN_ITERATIONS = 100;
+    static final int YIELD_ITERATIONS = 100;
+    private int iterations;
+
+    HybridWaiter(int maxSpinMillis)
+    {
+      super(maxSpinMillis);
+    }
+
+    @Override
+    public void idle() throws InterruptedException
+    {
+      if (iterations < SPIN_ITERATIONS + YIELD_ITERATIONS) {
+        if (iterations++ >= SPIN_ITERATIONS) {
+          Thread.yield();
+        }
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+      } else {
+        super.idle();
+      }
+    }
+
+    @Override
+    public void busy()
+    {
+      iterations = 0;
+    }
+
+  }
+
+}
@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Throwables;
 
+import com.datatorrent.api.Context.WaitStrategy;
 import com.datatorrent.api.InputOperator;
 import com.datatorrent.api.Operator.IdleTimeHandler;
 import com.datatorrent.api.Operator.ProcessingMode;
@@ -67,8 +68,9 @@ public class InputNode extends Node<InputOperator>
   @SuppressWarnings(value = {"SleepWhileInLoop", "BroadCatchBlock", "TooBroadCatch"})
   public final void run()
   {
-    long maxSpinMillis = context.getValue(OperatorContext.SPIN_MILLIS);
-    long spinMillis = 0;
+    final WaitStrategy waitStrategy = context.getValue(OperatorContext.WAIT_STRATEGY);
+    final IdleWaiter idleWaiter = IdleWaiter.newInstance(waitStrategy, context.getValue(OperatorContext.SPIN_MILLIS));
+    controlTuples.setWaiter(idleWaiter);
     final boolean handleIdleTime = operator instanceof IdleTimeHandler;
 
     boolean doCheckpoint = false;
@@ -95,14 +97,16 @@ public class InputNode extends Node<InputOperator>
               if (handleIdleTime) {
                 ((IdleTimeHandler)operator).handleIdleTime();
               } else {
-                Thread.sleep(spinMillis);
-                spinMillis = Math.min(spinMillis + 1, maxSpinMillis);
+                idleWaiter.idle();
               }
             } else {
-              spinMillis = 0;
+              idleWaiter.busy();
             }
-          } else {
+          } else if (waitStrategy == WaitStrategy.SLEEP) {
             Thread.sleep(0);
+          } else {
+            /* waiting for the begin window */
+            idleWaiter.idle();
           }
         } else {
           controlTuples.remove();
@@ -159,6 +163,7 @@ public class InputNode extends Node<InputOperator>
                 alive = false;
               } else {
                 controlTuples = deferredInputConnections.remove(0);
+                controlTuples.setWaiter(idleWaiter);
               }
               break;
 
@@ -18,6 +18,7 @@
  */
 package com.datatorrent.stram.engine;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -36,6 +37,7 @@ public abstract class MuxReservoir
 {
   @SuppressWarnings("VolatileArrayField")
   private ConcurrentMap<String, SubReservoir> reservoirMap = new ConcurrentHashMap<>();
+  private volatile IdleWaiter[] waiters = new IdleWaiter[0];
 
   public SweepableReservoir acquireReservoir(String id, int capacity)
   {
@@ -49,21 +51,54 @@ public abstract class MuxReservoir
 
   public SweepableReservoir releaseReservoir(String id)
   {
-    return reservoirMap.remove(id);
+    SubReservoir r = reservoirMap.remove(id);
+    if (r != null && r.waiter != null) {
+      updateWaiters();
+    }
+    return r;
   }
 
   protected abstract Queue getQueue();
 
+  /**
+   * Signals the threads consuming the reservoirs that tuples were added to the queue.
+   */
+  protected void signalWaiters()
+  {
+    for (IdleWaiter waiter : waiters) {
+      waiter.signal();
+    }
+  }
+
+  private synchronized void updateWaiters()
+  {
+    ArrayList<IdleWaiter> list = new ArrayList<>();
+    for (SubReservoir r : reservoirMap.values()) {
+      if (r.waiter != null) {
+        list.add(r.waiter);
+      }
+    }
+    waiters = list.toArray(new IdleWaiter[list.size()]);
+  }
+
   class SubReservoir extends CircularBuffer<Object> implements SweepableReservoir
   {
     int count;
     private Sink<Object> sink;
+    private IdleWaiter waiter;
 
     SubReservoir(int capacity)
     {
       super(capacity);
     }
 
+    @Override
+    public void setWaiter(IdleWaiter waiter)
+    {
+      this.waiter = waiter;
+      updateWaiters();
+    }
+
     @Override
     public int size(final boolean dataTupleAware)
     {
@@ -92,7 +127,13 @@ public abstract class MuxReservoir
     @Override
     public Tuple sweep()
     {
-      final int size = size();
+      return sweep(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Tuple sweep(int limit)
+    {
+      final int size = Math.min(size(), limit);
       if (size > 0) {
         for (int i = 0; i < size; i++) {
           if (peekUnsafe() instanceof Tuple) {
@@ -128,6 +169,9 @@ public abstract class MuxReservoir
             r.add(o);
           }
         }
+
+        /* the tuples are added to the reservoirs of the other consumers as well */
+        signalWaiters();
       }
 
       return null;
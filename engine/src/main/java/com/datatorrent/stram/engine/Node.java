@@ -71,6 +71,7 @@ import com.datatorrent.api.StatsListener;
 import com.datatorrent.api.StatsListener.OperatorRequest;
 import com.datatorrent.api.StorageAgent;
 import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.common.util.Pair;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.api.OperatorDeployInfo;
@@ -519,6 +520,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
           checkpointStats = new Stats.CheckpointStats();
           checkpointStats.checkpointStartTime = System.currentTimeMillis();
           ba.save(operator, id, windowId);
+          if (ba instanceof FSStorageAgent) {
+            updateCheckpointStats(((FSStorageAgent)ba).getSerializationStats(id), checkpointStats);
+          }
           if (ba instanceof AsyncStorageAgent) {
             AsyncStorageAgent asyncStorageAgent = (AsyncStorageAgent)ba;
             if (!asyncStorageAgent.isSyncCheckpoint()) {
@@ -539,6 +543,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
                 return;
               } else {
                 asyncStorageAgent.flush(id, windowId);
+                if (ba instanceof FSStorageAgent) {
+                  updateCheckpointStats(((FSStorageAgent)ba).getFlushedStats(id, windowId), checkpointStats);
+                }
               }
             }
           }
@@ -666,6 +673,24 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     deactivateSinks();
   }
 
+  /**
+   * Copies the metrics of the checkpoint, which the agent reports for the checkpoint itself rather than for the last
+   * checkpoint of the operator, since the operator may have saved later checkpoints while the checkpoint was written.
+   */
+  private static void updateCheckpointStats(FSStorageAgent.SerializationStats serializationStats,
+      Stats.CheckpointStats checkpointStats)
+  {
+    if (serializationStats != null) {
+      checkpointStats.checkpointBytes = serializationStats.lastBytes;
+      checkpointStats.serializationTime = serializationStats.lastNanos;
+      checkpointStats.storedBytes = serializationStats.lastStoredBytes;
+      if (serializationStats.lastStoreNanos > 0) {
+        checkpointStats.storeThroughput = serializationStats.lastStoredBytes * 1000000000L /
+            serializationStats.lastStoreNanos;
+      }
+    }
+  }
+
   private class CheckpointHandler implements Callable<Stats.CheckpointStats>
   {
     public AsyncStorageAgent agent;
@@ -677,6 +702,9 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     public Stats.CheckpointStats call() throws Exception
     {
       agent.flush(id, windowId);
+      if (agent instanceof FSStorageAgent) {
+        updateCheckpointStats(((FSStorageAgent)agent).getFlushedStats(id, windowId), stats);
+      }
       stats.checkpointTime = System.currentTimeMillis() - stats.checkpointStartTime;
       return stats;
     }
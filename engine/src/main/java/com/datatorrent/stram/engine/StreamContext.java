@@ -50,6 +50,10 @@ public class StreamContext extends DefaultAttributeMap implements Context
   public static final Attribute<byte[]> BUFFER_SERVER_TOKEN = new Attribute<>(null, null);
   public static final Attribute<EventLoop> EVENT_LOOP = new Attribute<>(null, null);
   public static final Attribute<StreamCodec<?>> CODEC = new Attribute<StreamCodec<?>>(new DefaultStatefulStreamCodec<>(), null);
+  /**
+   * Identifier of the stream codec in the physical plan, streams with the same identifier use the same codec.
+   */
+  public static final Attribute<Integer> CODEC_IDENTIFIER = new Attribute<>(null, null);
 
   @Override
   public AttributeMap getAttributes()
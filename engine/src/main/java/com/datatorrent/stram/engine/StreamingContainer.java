@@ -67,7 +67,9 @@ import com.datatorrent.api.annotation.OperatorAnnotation;
 import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.bufferserver.server.Server;
 import com.datatorrent.bufferserver.storage.DiskStorage;
+import com.datatorrent.bufferserver.storage.SegmentedDiskStorage;
 import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
 import com.datatorrent.common.util.ScheduledThreadPoolExecutor;
 import com.datatorrent.netlet.DefaultEventLoop;
 import com.datatorrent.netlet.util.Slice;
@@ -78,6 +80,7 @@ import com.datatorrent.stram.StramUtils.YarnContainerMain;
 import com.datatorrent.stram.StringCodecs;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.api.ContainerContext;
+import com.datatorrent.stram.api.ContainerHeartbeatCodec;
 import com.datatorrent.stram.api.ContainerEvent;
 import com.datatorrent.stram.api.ContainerEvent.ContainerStatsEvent;
 import com.datatorrent.stram.api.ContainerEvent.NodeDeactivationEvent;
@@ -102,6 +105,7 @@ import com.datatorrent.stram.plan.logical.Operators.PortMappingDescriptor;
 import com.datatorrent.stram.plan.logical.StreamCodecWrapperForPersistance;
 import com.datatorrent.stram.stream.BufferServerPublisher;
 import com.datatorrent.stram.stream.BufferServerSubscriber;
+import com.datatorrent.stram.stream.CoalescingPublisher;
 import com.datatorrent.stram.stream.FastPublisher;
 import com.datatorrent.stram.stream.FastSubscriber;
 import com.datatorrent.stram.stream.InlineStream;
@@ -151,6 +155,15 @@ public class StreamingContainer extends YarnContainerMain
   protected Server bufferServer;
   private int checkpointWindowCount;
   private boolean fastPublisherSubscriber;
+  private int sharedMemorySizeMB;
+  /**
+   * Number of batches a coalescing publisher can have pending before the operator waits for them to be sent.
+   */
+  private static final int PUBLISHER_BATCH_COUNT = 16;
+  private int publisherBatchSize;
+  private int publisherLingerMillis;
+  private ScheduledThreadPoolExecutor publisherLingerExecutor;
+  private ContainerHeartbeatCodec heartbeatCodec;
   private StreamingContainerContext containerContext;
   private List<StramToNodeRequest> nodeRequests;
   private final HashMap<String, Object> singletons;
@@ -197,6 +210,15 @@ public class StreamingContainer extends YarnContainerMain
     checkpointWindowCount = ctx.getValue(Context.DAGContext.CHECKPOINT_WINDOW_COUNT);
 
     fastPublisherSubscriber = ctx.getValue(LogicalPlan.FAST_PUBLISHER_SUBSCRIBER);
+    sharedMemorySizeMB = ctx.getValue(LogicalPlan.BUFFER_SERVER_SHARED_MEMORY_MB);
+    publisherBatchSize = ctx.getValue(LogicalPlan.BUFFER_SERVER_PUBLISHER_BATCH_SIZE);
+    publisherLingerMillis = ctx.getValue(LogicalPlan.BUFFER_SERVER_PUBLISHER_LINGER_MILLIS);
+    if (publisherBatchSize > 0 && !fastPublisherSubscriber) {
+      publisherLingerExecutor = new ScheduledThreadPoolExecutor(1, "PublisherLinger");
+    }
+    if (ctx.getValue(LogicalPlan.HEARTBEAT_DELTA_ENCODING)) {
+      heartbeatCodec = new ContainerHeartbeatCodec();
+    }
 
     Map<Class<?>, Class<? extends StringCodec<?>>> codecs = ctx.getValue(Context.DAGContext.STRING_CODECS);
     StringCodecs.loadConverters(codecs);
@@ -223,7 +245,12 @@ public class StreamingContainer extends YarnContainerMain
         bufferServer = new Server(eventloop, 0, blocksize * 1024 * 1024, blockCount);
         bufferServer.setAuthToken(ctx.getValue(StreamingContainerContext.BUFFER_SERVER_TOKEN));
         if (ctx.getValue(Context.DAGContext.BUFFER_SPOOLING)) {
-          bufferServer.setSpoolStorage(new DiskStorage());
+          int segmentSize = ctx.getValue(LogicalPlan.BUFFER_SPOOLING_SEGMENT_SIZE_MB);
+          if (segmentSize > 0) {
+            bufferServer.setSpoolStorage(new SegmentedDiskStorage(segmentSize * 1024L * 1024L));
+          } else {
+            bufferServer.setSpoolStorage(new DiskStorage());
+          }
         }
         bufferServerAddress = NetUtils.getConnectAddress(bufferServer.run());
         logger.debug("Buffer server started: {}", bufferServerAddress);
@@ -586,6 +613,10 @@ public class StreamingContainer extends YarnContainerMain
       eventloop.stop();
     }
 
+    if (publisherLingerExecutor != null) {
+      publisherLingerExecutor.shutdownNow();
+    }
+
     gens.clear();
   }
 
@@ -622,6 +653,7 @@ public class StreamingContainer extends YarnContainerMain
 
       long currentTime = System.currentTimeMillis();
       ContainerHeartbeat msg = new ContainerHeartbeat();
+      msg.setCodec(heartbeatCodec);
       msg.jvmName = jvmName;
       if (this.bufferServerAddress != null) {
         msg.bufferServerHost = this.bufferServerAddress.getHostName();
@@ -686,6 +718,11 @@ public class StreamingContainer extends YarnContainerMain
         msg.stackTrace = stackTrace;
 
         rsp = umbilical.processHeartbeat(msg);
+        if (rsp.heartbeatResyncRequired && heartbeatCodec != null) {
+          logger.info("Application master requested full heartbeat");
+          heartbeatCodec.reset();
+          rsp = umbilical.processHeartbeat(msg);
+        }
 
         if (rsp.stackTraceRequired) {
           stackTrace = StramUtils.getStackTrace().toString();
@@ -950,8 +987,8 @@ public class StreamingContainer extends YarnContainerMain
   }
 
   private HashMap.SimpleEntry<String, ComponentContextPair<Stream, StreamContext>> deployBufferServerPublisher(
-      String connIdentifier, StreamCodec<?> streamCodec, long finishedWindowId, int queueCapacity,
-      OperatorDeployInfo.OutputDeployInfo nodi)
+      String connIdentifier, Integer streamCodecIdentifier, StreamCodec<?> streamCodec, long finishedWindowId,
+      int queueCapacity, OperatorDeployInfo.OutputDeployInfo nodi)
       throws UnknownHostException
   {
     String sinkIdentifier = "tcp://".concat(nodi.bufferServerHost).concat(":").concat(String.valueOf(nodi.bufferServerPort)).concat("/").concat(connIdentifier);
@@ -962,6 +999,7 @@ public class StreamingContainer extends YarnContainerMain
     bssc.setSinkId(sinkIdentifier);
     bssc.setFinishedWindowId(finishedWindowId);
     bssc.put(StreamContext.CODEC, streamCodec);
+    bssc.put(StreamContext.CODEC_IDENTIFIER, streamCodecIdentifier);
     bssc.put(StreamContext.EVENT_LOOP, eventloop);
     bssc.setBufferServerAddress(InetSocketAddress.createUnresolved(nodi.bufferServerHost, nodi.bufferServerPort));
     bssc.put(StreamContext.BUFFER_SERVER_TOKEN, nodi.bufferServerToken);
@@ -970,7 +1008,15 @@ public class StreamingContainer extends YarnContainerMain
       bssc.setBufferServerAddress(new InetSocketAddress(InetAddress.getByName(null), nodi.bufferServerPort));
     }
 
-    Stream publisher = fastPublisherSubscriber ? new FastPublisher(connIdentifier, queueCapacity * 256) : new BufferServerPublisher(connIdentifier, queueCapacity);
+    Stream publisher;
+    if (fastPublisherSubscriber) {
+      publisher = new FastPublisher(connIdentifier, queueCapacity * 256);
+    } else if (publisherLingerExecutor != null) {
+      publisher = new CoalescingPublisher(connIdentifier, publisherBatchSize, PUBLISHER_BATCH_COUNT,
+          publisherLingerExecutor, publisherLingerMillis);
+    } else {
+      publisher = new BufferServerPublisher(connIdentifier, queueCapacity);
+    }
     return new HashMap.SimpleEntry<>(sinkIdentifier, new ComponentContextPair<>(publisher, bssc));
   }
 
@@ -1010,7 +1056,8 @@ public class StreamingContainer extends YarnContainerMain
           String connIdentifier = sourceIdentifier + Component.CONCAT_SEPARATOR + streamCodecIdentifier;
 
           SimpleEntry<String, ComponentContextPair<Stream, StreamContext>> deployBufferServerPublisher =
-              deployBufferServerPublisher(connIdentifier, streamCodec, checkpointWindowId, queueCapacity, nodi);
+              deployBufferServerPublisher(connIdentifier, streamCodecIdentifier, streamCodec, checkpointWindowId,
+              queueCapacity, nodi);
           newStreams.put(sourceIdentifier, deployBufferServerPublisher.getValue());
           node.connectOutputPort(nodi.portName, deployBufferServerPublisher.getValue().component);
         } else {
@@ -1049,7 +1096,8 @@ public class StreamingContainer extends YarnContainerMain
               String connIdentifier = sourceIdentifier + Component.CONCAT_SEPARATOR + streamCodecIdentifier;
 
               SimpleEntry<String, ComponentContextPair<Stream, StreamContext>> deployBufferServerPublisher =
-                  deployBufferServerPublisher(connIdentifier, streamCodec, checkpointWindowId, queueCapacity, nodi);
+                  deployBufferServerPublisher(connIdentifier, streamCodecIdentifier, streamCodec, checkpointWindowId,
+                  queueCapacity, nodi);
               newStreams.put(deployBufferServerPublisher.getKey(), deployBufferServerPublisher.getValue());
 
               String sinkIdentifier = pair.context.getSinkId();
@@ -1155,13 +1203,15 @@ public class StreamingContainer extends YarnContainerMain
             StreamContext context = new StreamContext(nidi.declaredStreamId);
             context.setBufferServerAddress(InetSocketAddress.createUnresolved(nidi.bufferServerHost, nidi.bufferServerPort));
             InetAddress inetAddress = context.getBufferServerAddress().getAddress();
-            if (inetAddress != null && NetUtils.isLocalAddress(inetAddress)) {
+            boolean localBufferServer = inetAddress != null && NetUtils.isLocalAddress(inetAddress);
+            if (localBufferServer) {
               context.setBufferServerAddress(new InetSocketAddress(InetAddress.getByName(null), nidi.bufferServerPort));
             }
             context.put(StreamContext.BUFFER_SERVER_TOKEN, nidi.bufferServerToken);
             String connIdentifier = sourceIdentifier + Component.CONCAT_SEPARATOR + streamCodecIdentifier;
             context.setPortId(nidi.portName);
             context.put(StreamContext.CODEC, streamCodec);
+            context.put(StreamContext.CODEC_IDENTIFIER, streamCodecIdentifier);
             context.put(StreamContext.EVENT_LOOP, eventloop);
             context.setPartitions(nidi.partitionMask, nidi.partitionKeys);
             //context.setSourceId(sourceIdentifier);
@@ -1172,6 +1222,14 @@ public class StreamingContainer extends YarnContainerMain
             BufferServerSubscriber subscriber = fastPublisherSubscriber
                 ? new FastSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity)
                 : new BufferServerSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity);
+            if (localBufferServer && sharedMemorySizeMB > 0 && !fastPublisherSubscriber) {
+              long sharedMemorySize = sharedMemorySizeMB * 1024L * 1024L;
+              if (sharedMemorySize <= SharedMemoryRing.MAX_CAPACITY) {
+                subscriber.setSharedMemorySize((int)sharedMemorySize);
+              } else {
+                logger.warn("Receiving {} through the connection, shared memory size {} MB exceeds the maximum", sinkIdentifier, sharedMemorySizeMB);
+              }
+            }
             if (streamCodec instanceof StreamCodecWrapperForPersistance) {
               subscriber.acquireReservoirForPersistStream(sinkIdentifier, queueCapacity, streamCodec);
             }
@@ -43,6 +43,18 @@ public interface SweepableReservoir extends Reservoir<Object>
    */
   Tuple sweep();
 
+  /**
+   * Consume at most the given number of data tuples until control tuple is encountered. Reservoirs which cannot bound
+   * the sweep consume all the data tuples.
+   *
+   * @param limit maximum number of data tuples to consume
+   * @return The control tuple encountered or null if the reservoir ran dry or the limit was reached first
+   */
+  default Tuple sweep(int limit)
+  {
+    return sweep();
+  }
+
   /**
    * Get the count of tuples consumed.
    *
@@ -51,4 +63,14 @@ public interface SweepableReservoir extends Reservoir<Object>
    */
   int getCount(boolean reset);
 
+  /**
+   * Set the waiter of the thread consuming this reservoir. The waiter is signalled when tuples are added to the
+   * reservoir. Reservoirs which are filled by the consuming thread itself do not need to signal it.
+   *
+   * @param waiter waiter of the consuming thread
+   */
+  default void setWaiter(IdleWaiter waiter)
+  {
+  }
+
 }
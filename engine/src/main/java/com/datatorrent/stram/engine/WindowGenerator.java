@@ -69,6 +69,7 @@ public class WindowGenerator extends MuxReservoir implements Stream
     }
     advanceWindow();
     queue.put(new Tuple(MessageType.BEGIN_WINDOW, windowId));
+    signalWaiters();
   }
 
   public void setResetWindow(long millis)
@@ -156,6 +157,7 @@ public class WindowGenerator extends MuxReservoir implements Stream
   private void sendBeginWindow() throws InterruptedException
   {
     queue.put(new Tuple(MessageType.BEGIN_WINDOW, windowId));
+    signalWaiters();
   }
 
   public static long compareWindowId(long windowIdA, long windowIdB, long windowWidthMillis)
@@ -106,6 +106,12 @@ public class WindowIdActivatedReservoir implements SweepableReservoir
     return 0;
   }
 
+  @Override
+  public void setWaiter(IdleWaiter waiter)
+  {
+    reservoir.setWaiter(waiter);
+  }
+
   @Override
   public String toString()
   {
@@ -132,6 +132,22 @@ public class LogicalPlan implements Serializable, DAG, NameableEntity
    * This is for iterative processing.
    */
   public static final Attribute<Boolean> IS_CONNECTED_TO_DELAY_OPERATOR = new Attribute<>(false);
+  /**
+   * Attribute of output port.
+   * Tuples per second a unifier of the port should process at most. When set,
+   * {@link com.datatorrent.api.Context.PortContext#UNIFIER_LIMIT} is only the initial fan in of the cascading unifiers:
+   * it is halved, adding a level of unifiers, when a unifier processes more tuples or exceeds
+   * {@link #UNIFIER_LATENCY_MILLIS}, and doubled, removing a level, when all unifiers process less than a quarter of it.
+   * The leaf unifiers are deployed into the container of the upstream partition they receive the most tuples from when
+   * that container has memory left. When 0, the fan in is fixed.
+   */
+  public static final Attribute<Integer> UNIFIER_TUPLES_PER_SECOND = new Attribute<>(0);
+  /**
+   * Attribute of output port.
+   * Window latency in milliseconds above which a unifier of the port counts as overloaded. Only used with
+   * {@link #UNIFIER_TUPLES_PER_SECOND}, when 0 latency is not considered.
+   */
+  public static final Attribute<Integer> UNIFIER_LATENCY_MILLIS = new Attribute<>(0);
   @SuppressWarnings("FieldNameHidesFieldInSuperclass")
   private static final long serialVersionUID = -2099729915606048704L;
   private static final Logger LOG = LoggerFactory.getLogger(LogicalPlan.class);
@@ -163,6 +179,55 @@ public class LogicalPlan implements Serializable, DAG, NameableEntity
    * Then it can be moved back to DAGContext.
    */
   public static Attribute<Boolean> FAST_PUBLISHER_SUBSCRIBER = new Attribute<>(false);
+  /**
+   * Size in MB of the segment files the buffer server spools the data into. When set to a positive value, the spooled
+   * blocks are appended into preallocated memory mapped segment files, otherwise every block is spooled into its own
+   * file.
+   */
+  public static Attribute<Integer> BUFFER_SPOOLING_SEGMENT_SIZE_MB = new Attribute<>(0);
+  /**
+   * Size in MB of the shared memory ring a subscriber receives the tuples through when the buffer server runs on the
+   * same host. When set to a positive value, the buffer server copies the tuples into the ring instead of the socket,
+   * otherwise the tuples are sent through the socket. Applies to the subscribers only, so it can be combined with
+   * BUFFER_SERVER_PUBLISHER_BATCH_SIZE. Not used with the fast publisher.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_SHARED_MEMORY_MB = new Attribute<>(0);
+  /**
+   * Size in bytes of the batches the tuples published to the buffer server are coalesced into. When set to a positive
+   * value, the tuples of a stream are sent once a batch is pending, at the end of the window, with a control tuple or
+   * after BUFFER_SERVER_PUBLISHER_LINGER_MILLIS, otherwise every tuple is queued for sending on its own. Not used with
+   * the fast publisher.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_PUBLISHER_BATCH_SIZE = new Attribute<>(0);
+  /**
+   * Maximum time in milliseconds a tuple coalesced by the publisher waits for its batch to be sent.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_PUBLISHER_LINGER_MILLIS = new Attribute<>(1);
+  /**
+   * Number of threads the application master ingests the operator stats of the container heartbeats with. The stats
+   * of a container are always ingested by the same thread. When set to 0, the stats are ingested by the RPC handler
+   * thread before the heartbeat is answered.
+   */
+  public static Attribute<Integer> HEARTBEAT_PROCESSING_THREADS = new Attribute<>(0);
+  /**
+   * Whether the containers send their heartbeats in the compact binary format that only carries what changed since
+   * the previous heartbeat, instead of the java serialization of the full heartbeat.
+   */
+  public static Attribute<Boolean> HEARTBEAT_DELTA_ENCODING = new Attribute<>(false);
+  /**
+   * Maximum number of storage operations per second the application master performs to delete the checkpoints that
+   * are no longer needed. Every listing, rename or delete counts as an operation, also when a storage agent that
+   * supports it purges all the checkpoints of an operator with a single call. When set to 0, the operations are not
+   * limited.
+   */
+  public static Attribute<Integer> CHECKPOINT_PURGE_RATE = new Attribute<>(100);
+  /**
+   * Time in milliseconds the application master waits for more journal records before it flushes the journal to the
+   * file system. The records written while a flush is waiting or in progress are flushed together, and each writer
+   * returns once its record is flushed. When set to 0, records are still flushed together when they are written while
+   * a flush is in progress.
+   */
+  public static Attribute<Integer> JOURNAL_GROUP_COMMIT_MILLIS = new Attribute<>(0);
   public static Attribute<Long> HDFS_TOKEN_RENEWAL_INTERVAL = new Attribute<>(86400000L);
   public static Attribute<Long> HDFS_TOKEN_LIFE_TIME = new Attribute<>(604800000L);
   public static Attribute<Long> RM_TOKEN_RENEWAL_INTERVAL = new Attribute<>(YarnConfiguration.DELEGATION_TOKEN_RENEW_INTERVAL_DEFAULT);
@@ -191,6 +256,22 @@ public class LogicalPlan implements Serializable, DAG, NameableEntity
    */
   public static Attribute<Integer> CONTAINERS_MAX_COUNT = new Attribute<>(Integer.MAX_VALUE);
 
+  /**
+   * Memory in MB of the containers operators are packed into by cost. When set, groups of container local operators
+   * are placed into the container of the operators they exchange the most tuples with, as measured by the stats of the
+   * running operators, as long as the container memory allows and no anti-affinity rule is violated. The placement of
+   * new partitions is evaluated the same way on repartition. When 0, operators are assigned to containers by locality
+   * only.
+   */
+  public static Attribute<Integer> CONTAINER_PACKING_MEMORY_MB = new Attribute<>(0);
+
+  /**
+   * VCores of the containers operators are packed into by cost, see {@link #CONTAINER_PACKING_MEMORY_MB}. Groups of
+   * container local operators are only placed together as long as their vCores fit. When 0, the vCores do not limit
+   * the packing of new containers.
+   */
+  public static Attribute<Integer> CONTAINER_PACKING_VCORES = new Attribute<>(0);
+
   /**
    * The application attempt ID from YARN
    */
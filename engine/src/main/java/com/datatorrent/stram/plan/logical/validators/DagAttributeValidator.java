@@ -18,8 +18,11 @@
  */
 package com.datatorrent.stram.plan.logical.validators;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
 import com.datatorrent.stram.plan.logical.LogicalPlan;
 
 public class DagAttributeValidator implements ComponentValidator<LogicalPlan>
@@ -27,6 +30,12 @@ public class DagAttributeValidator implements ComponentValidator<LogicalPlan>
   @Override
   public Collection<? extends ValidationIssue> validate(LogicalPlan dag)
   {
-    return AttributeSerializationValidator.validateStatic(dag.getAttributes(), null);
+    List<ValidationIssue> issues = new ArrayList<>(AttributeSerializationValidator.validateStatic(dag.getAttributes(), null));
+    int sharedMemoryMB = dag.getValue(LogicalPlan.BUFFER_SERVER_SHARED_MEMORY_MB);
+    if (sharedMemoryMB < 0 || sharedMemoryMB * 1024L * 1024L > SharedMemoryRing.MAX_CAPACITY) {
+      issues.add(new ValidationIssue<>(dag, "INVALID_ATTRIBUTE_VALUE", "Shared memory size " + sharedMemoryMB +
+          " MB is not within 0 and " + SharedMemoryRing.MAX_CAPACITY / (1024 * 1024) + " MB"));
+    }
+    return issues;
   }
 }
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -492,6 +493,27 @@ public class PhysicalPlan implements Serializable
     // assign operators to containers
     int groupCount = 0;
     Set<PTOperator> deployOperators = Sets.newHashSet();
+    int packingMemoryMB = dag.getValue(LogicalPlan.CONTAINER_PACKING_MEMORY_MB);
+    if (packingMemoryMB > 0) {
+      List<Set<PTOperator>> groups = new ArrayList<>();
+      Set<PTOperator> groupedOperators = Sets.newHashSet();
+      for (Map.Entry<OperatorMeta, PMapping> e : logicalToPTOperator.entrySet()) {
+        for (PTOperator oper : e.getValue().getAllOperators()) {
+          if (oper.container == null && !groupedOperators.contains(oper)) {
+            Set<PTOperator> group = getContainerLocalGroup(oper);
+            groupedOperators.addAll(group);
+            groups.add(group);
+          }
+        }
+      }
+      packContainers(groups, packingMemoryMB, Sets.<PTContainer>newHashSet(), Sets.<PTContainer>newHashSet());
+      for (PTContainer container : containers) {
+        deployOperators.addAll(container.operators);
+        for (PTOperator oper : container.operators) {
+          operatorContainerMap.put(oper, container);
+        }
+      }
+    }
     for (Map.Entry<OperatorMeta, PMapping> e : logicalToPTOperator.entrySet()) {
       for (PTOperator oper : e.getValue().getAllOperators()) {
         if (oper.container == null) {
@@ -1199,9 +1221,28 @@ public class PhysicalPlan implements Serializable
       mxnUnifiers.addAll(o.upstreamMerge.values());
     }
     Set<PTContainer> updatedContainers =  Sets.newHashSet();
+    int packingMemoryMB = dag.getValue(LogicalPlan.CONTAINER_PACKING_MEMORY_MB);
+    List<Set<PTOperator>> packingGroups = new ArrayList<>();
+    Set<PTOperator> groupedOperators = Sets.newHashSet();
 
-    HashMap<PTOperator, PTContainer> operatorContainerMap = Maps.newHashMap();
+    // leaf unifiers are assigned last, once the containers of their upstream partitions are known
+    Set<PTOperator> leafUnifiers = Sets.newHashSet();
+    List<Map.Entry<PTOperator, Operator>> newOperEntries = new ArrayList<>();
+    for (Map.Entry<PTOperator, Operator> operEntry : this.newOpers.entrySet()) {
+      if (packingMemoryMB == 0 && isLeafUnifier(operEntry.getKey())) {
+        leafUnifiers.add(operEntry.getKey());
+      } else {
+        newOperEntries.add(operEntry);
+      }
+    }
     for (Map.Entry<PTOperator, Operator> operEntry : this.newOpers.entrySet()) {
+      if (leafUnifiers.contains(operEntry.getKey())) {
+        newOperEntries.add(operEntry);
+      }
+    }
+
+    HashMap<PTOperator, PTContainer> operatorContainerMap = Maps.newHashMap();
+    for (Map.Entry<PTOperator, Operator> operEntry : newOperEntries) {
 
       PTOperator oper = operEntry.getKey();
       Checkpoint checkpoint = getActivationCheckpoint(operEntry.getKey());
@@ -1225,6 +1266,30 @@ public class PhysicalPlan implements Serializable
         memoryMB += inlineOper.getBufferServerMemory();
       }
 
+      if (newContainer == null && leafUnifiers.contains(oper)) {
+        newContainer = getUpstreamContainer(oper, newContainers);
+        if (newContainer != null) {
+          LOG.debug("Placing {} with upstream partition in {}", oper, newContainer);
+          setContainer(oper, newContainer);
+          if (!updatedContainers.contains(newContainer)) {
+            // the buffer server memory of the operators already running in the container is accounted for
+            newContainer.setRequiredMemoryMB(newContainer.getRequiredMemoryMB() + oper.getBufferServerMemory());
+            newContainer.setRequiredVCores(getVCores(newContainer.getOperators()));
+          }
+          continue;
+        }
+      }
+
+      if (newContainer == null && packingMemoryMB > 0) {
+        // placed by cost once all new operators are known
+        if (!groupedOperators.contains(oper)) {
+          Set<PTOperator> group = getContainerLocalGroup(oper);
+          groupedOperators.addAll(group);
+          packingGroups.add(group);
+        }
+        continue;
+      }
+
       if (newContainer == null) {
         int vCores = getVCores(oper.getGrouping(Locality.CONTAINER_LOCAL).getOperatorSet());
         // attempt to find empty container with required size
@@ -1248,6 +1313,7 @@ public class PhysicalPlan implements Serializable
       }
       setContainer(oper, newContainer);
     }
+    packContainers(packingGroups, packingMemoryMB, newContainers, updatedContainers);
     // release containers that are no longer used and update operator to container map for applying anti-affinity
     for (PTContainer c : this.containers) {
       if (c.operators.isEmpty()) {
@@ -1274,6 +1340,257 @@ public class PhysicalPlan implements Serializable
     }
   }
 
+  private boolean isLeafUnifier(PTOperator oper)
+  {
+    if (!oper.isUnifier() || !oper.getGrouping(Locality.CONTAINER_LOCAL).getOperatorSet().isEmpty()) {
+      return false;
+    }
+    PMapping m = logicalToPTOperator.get(oper.unifiedOperatorMeta);
+    StreamMapping mapping = m == null ? null : m.outputStreams.get(oper.getOutputs().get(0).logicalStream.getSource());
+    return mapping != null && mapping.isAdaptive() && mapping.isLeafUnifier(oper);
+  }
+
+  /**
+   * Container of the upstream partition the unifier receives the most tuples from, provided the container is new or
+   * has the memory for the unifier left.
+   */
+  private static PTContainer getUpstreamContainer(PTOperator unifier, Set<PTContainer> newContainers)
+  {
+    int memoryMB = unifier.getOperatorMeta().getValue(OperatorContext.MEMORY_MB) + unifier.getBufferServerMemory();
+    PTContainer container = null;
+    double containerTuplesPerSecond = 0;
+    for (PTInput in : unifier.inputs) {
+      PTContainer c = in.source.source.container;
+      if (c == null || !(newContainers.contains(c) || (c.getState() == PTContainer.State.ACTIVE && c.getAllocatedMemoryMB() - c.getRequiredMemoryMB() >= memoryMB))) {
+        continue;
+      }
+      double tuplesPerSecond = PlacementGroup.getTuplesPerSecond(in.source);
+      if (container == null || tuplesPerSecond > containerTuplesPerSecond) {
+        container = c;
+        containerTuplesPerSecond = tuplesPerSecond;
+      }
+    }
+    return container;
+  }
+
+  private static Set<PTOperator> getContainerLocalGroup(PTOperator oper)
+  {
+    Set<PTOperator> group = Sets.newLinkedHashSet(oper.getGrouping(Locality.CONTAINER_LOCAL).getOperatorSet());
+    group.add(oper);
+    return group;
+  }
+
+  /**
+   * Places groups of container local operators into containers by cost. The groups with the most traffic to other
+   * operators are placed first, each into the container of the operators it exchanges the most tuples with, preferring
+   * the fuller container on a tie. A container is considered when it has enough memory and vCores left and none of its
+   * operators is anti-affine with the group. Active containers are considered with the resources they were allocated,
+   * new containers with the given memory and {@link LogicalPlan#CONTAINER_PACKING_VCORES}. A new container is used when
+   * none qualifies, even when that exceeds the maximum container count, as sharing a container would violate the
+   * resource or anti-affinity constraints.
+   *
+   * @param groups groups of container local operators to place
+   * @param maxMemoryMB memory of new containers
+   * @param newContainers receives the containers that are created
+   * @param updatedContainers receives the containers operators were added to
+   */
+  private void packContainers(List<Set<PTOperator>> groups, int maxMemoryMB, Set<PTContainer> newContainers, Set<PTContainer> updatedContainers)
+  {
+    if (groups.isEmpty()) {
+      return;
+    }
+
+    Set<OperatorPair> antiAffinity = Sets.newHashSet();
+    AffinityRulesSet affinityRuleSet = dag.getAttributes().get(DAGContext.AFFINITY_RULES_SET);
+    if (affinityRuleSet != null && affinityRuleSet.getAffinityRules() != null) {
+      for (AffinityRule rule : affinityRuleSet.getAffinityRules()) {
+        if (rule.getOperatorsList() != null && rule.getType() == Type.ANTI_AFFINITY) {
+          for (String first : rule.getOperatorsList()) {
+            for (String second : rule.getOperatorsList()) {
+              if (!first.equals(second)) {
+                antiAffinity.add(new OperatorPair(first, second));
+              }
+            }
+          }
+        }
+      }
+    }
+
+    List<PlacementGroup> placementGroups = new ArrayList<>();
+    for (Set<PTOperator> group : groups) {
+      PlacementGroup placementGroup = new PlacementGroup(group);
+      placementGroup.vCores = getVCores(group);
+      placementGroups.add(placementGroup);
+    }
+    Collections.sort(placementGroups, new Comparator<PlacementGroup>()
+    {
+      @Override
+      public int compare(PlacementGroup o1, PlacementGroup o2)
+      {
+        return Double.compare(o2.tuplesPerSecond, o1.tuplesPerSecond);
+      }
+    });
+
+    int maxVCores = dag.getValue(LogicalPlan.CONTAINER_PACKING_VCORES);
+    if (maxVCores <= 0) {
+      maxVCores = Integer.MAX_VALUE;
+    }
+    List<PlacementBin> bins = new ArrayList<>();
+    for (PTContainer c : containers) {
+      if (c.getState() == PTContainer.State.ACTIVE) {
+        int freeMemoryMB = c.getAllocatedMemoryMB() - (c.operators.isEmpty() ? 0 : c.getRequiredMemoryMB());
+        int freeVCores = c.getAllocatedVCores() - (c.operators.isEmpty() ? 0 : getVCores(c.operators));
+        if (freeMemoryMB > 0) {
+          bins.add(new PlacementBin(c, freeMemoryMB, freeVCores));
+        }
+      }
+    }
+
+    for (PlacementGroup group : placementGroups) {
+      PlacementBin bin = null;
+      double binTuplesPerSecond = 0;
+      for (PlacementBin b : bins) {
+        if (b.freeMemoryMB < group.memoryMB || b.freeVCores < group.vCores || b.isAntiAffine(group, antiAffinity)) {
+          continue;
+        }
+        double tuplesPerSecond = 0;
+        for (Map.Entry<PTOperator, Double> e : group.neighbors.entrySet()) {
+          if (e.getKey().container == b.container) {
+            tuplesPerSecond += e.getValue();
+          }
+        }
+        if (bin == null || tuplesPerSecond > binTuplesPerSecond || (tuplesPerSecond == binTuplesPerSecond && b.freeMemoryMB < bin.freeMemoryMB)) {
+          bin = b;
+          binTuplesPerSecond = tuplesPerSecond;
+        }
+      }
+      if (bin == null) {
+        if (containers.size() >= maxContainers) {
+          LOG.warn("Operators {} exceed the maximum container count {} as no container has the resources left or all are anti-affine.", group.operators, maxContainers);
+        }
+        PTContainer container = new PTContainer(this);
+        containers.add(container);
+        newContainers.add(container);
+        bin = new PlacementBin(container, maxMemoryMB, maxVCores);
+        bins.add(bin);
+      }
+      LOG.debug("Placing {} into {} exchanging {} tuples/s with its operators", group.operators, bin.container, binTuplesPerSecond);
+      for (PTOperator oper : group.operators) {
+        setContainer(oper, bin.container);
+        bin.logicalOperators.add(oper.getOperatorMeta().getName());
+      }
+      bin.freeMemoryMB -= group.memoryMB;
+      bin.freeVCores -= group.vCores;
+      updatedContainers.add(bin.container);
+    }
+
+    // required memory is recomputed from the operators, buffer server memory is added with the updated containers
+    for (PTContainer c : updatedContainers) {
+      int memoryMB = 0;
+      for (PTOperator oper : c.operators) {
+        memoryMB += oper.getOperatorMeta().getValue(OperatorContext.MEMORY_MB);
+      }
+      c.setRequiredMemoryMB(memoryMB);
+    }
+  }
+
+  /**
+   * Group of container local operators to place, with the memory and vCores it needs and the tuples it exchanges with
+   * the operators outside of it.
+   */
+  private static class PlacementGroup
+  {
+    private final Set<PTOperator> operators;
+    private final Map<PTOperator, Double> neighbors = Maps.newHashMap();
+    private double tuplesPerSecond;
+    private int memoryMB;
+    private int vCores;
+
+    private PlacementGroup(Set<PTOperator> operators)
+    {
+      this.operators = operators;
+      Set<PTOperator> members = Sets.newHashSet(operators);
+      for (PTOperator oper : operators) {
+        members.addAll(oper.upstreamMerge.values());
+      }
+      for (PTOperator oper : members) {
+        memoryMB += oper.getOperatorMeta().getValue(OperatorContext.MEMORY_MB);
+        for (PTOutput out : oper.outputs) {
+          double outTuplesPerSecond = getTuplesPerSecond(out);
+          boolean bufferServer = false;
+          for (PTInput sink : out.sinks) {
+            if (!members.contains(sink.target)) {
+              addNeighbor(sink.target, outTuplesPerSecond);
+              bufferServer = true;
+            }
+          }
+          if (bufferServer) {
+            // upper bound, the stream may end up container local
+            memoryMB += out.logicalStream.getSource().getValue(PortContext.BUFFER_MEMORY_MB);
+          }
+        }
+        for (PTInput in : oper.inputs) {
+          if (!members.contains(in.source.source)) {
+            addNeighbor(in.source.source, getTuplesPerSecond(in.source));
+          }
+        }
+      }
+    }
+
+    private void addNeighbor(PTOperator oper, double tuplesPerSecond)
+    {
+      Double current = neighbors.get(oper);
+      neighbors.put(oper, current == null ? tuplesPerSecond : current + tuplesPerSecond);
+      this.tuplesPerSecond += tuplesPerSecond;
+    }
+
+    /**
+     * Tuples per second each sink of the output receives. Outputs without stats, such as those of new operators, count
+     * as outputs with little traffic, so that connected operators are still placed together.
+     */
+    private static double getTuplesPerSecond(PTOutput out)
+    {
+      OperatorStatus.PortStatus ps = out.source.stats.outputPortStatusList.get(out.portName);
+      double tuplesPerSecond = ps == null ? 0 : ps.tuplesPMSMA.getAvg() * 1000;
+      return Math.max(tuplesPerSecond, 1) / Math.max(out.sinks.size(), 1);
+    }
+  }
+
+  /**
+   * Container considered for placement with the memory and vCores left and the logical operators in it.
+   */
+  private static class PlacementBin
+  {
+    private final PTContainer container;
+    private final Set<String> logicalOperators = Sets.newHashSet();
+    private int freeMemoryMB;
+    private int freeVCores;
+
+    private PlacementBin(PTContainer container, int freeMemoryMB, int freeVCores)
+    {
+      this.container = container;
+      this.freeMemoryMB = freeMemoryMB;
+      this.freeVCores = freeVCores;
+      for (PTOperator oper : container.operators) {
+        logicalOperators.add(oper.getOperatorMeta().getName());
+      }
+    }
+
+    private boolean isAntiAffine(PlacementGroup group, Set<OperatorPair> antiAffinity)
+    {
+      if (!antiAffinity.isEmpty()) {
+        for (PTOperator oper : group.operators) {
+          for (String name : logicalOperators) {
+            if (antiAffinity.contains(new OperatorPair(oper.getOperatorMeta().getName(), name))) {
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    }
+  }
+
   private void initCheckpoint(PTOperator oper, Operator oo, Checkpoint checkpoint)
   {
     try {
@@ -1846,7 +2163,9 @@ public class PhysicalPlan implements Serializable
       if (rsp != null) {
         //LOG.debug("Response to processStats = {}", rsp.repartitionRequired);
         oper.loadIndicator = rsp.loadIndicator;
-        if (rsp.repartitionRequired) {
+        if (rsp.repartitionRequired && oper.isUnifier()) {
+          adaptUnifiers(oper);
+        } else if (rsp.repartitionRequired) {
           final OperatorMeta om = oper.getOperatorMeta();
           // concurrent heartbeat processing
           if (this.pendingRepartition.putIfAbsent(om, om) != null) {
@@ -1891,6 +2210,31 @@ public class PhysicalPlan implements Serializable
     }
   }
 
+  private void adaptUnifiers(PTOperator unifier)
+  {
+    final OperatorMeta om = unifier.unifiedOperatorMeta;
+    final OutputPortMeta portMeta = unifier.getOutputs().get(0).logicalStream.getSource();
+    // unifier changes modify the mapping of the upstream operator, concurrent repartitioning is excluded
+    if (this.pendingRepartition.putIfAbsent(om, om) != null) {
+      LOG.debug("Skipping unifier changes for {} load {}", unifier, unifier.loadIndicator);
+    } else {
+      LOG.debug("Scheduling unifier changes for {} load {}", unifier, unifier.loadIndicator);
+      Runnable r = new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          StreamMapping mapping = logicalToPTOperator.get(om).outputStreams.get(portMeta);
+          if (mapping != null && mapping.adaptUnifiers()) {
+            deployChanges();
+          }
+          pendingRepartition.remove(om);
+        }
+      };
+      ctx.dispatch(r);
+    }
+  }
+
   /**
    * Read available checkpoints from storage agent for all operators.
    * @param startTime
@@ -19,6 +19,7 @@
 package com.datatorrent.stram.plan.physical;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,9 @@ import com.datatorrent.api.Context;
 import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Partitioner.PartitionKeys;
+import com.datatorrent.api.StatsListener.BatchedOperatorStats;
+import com.datatorrent.api.StatsListener.StatsListenerContext;
+import com.datatorrent.api.StatsListener.StatsListenerWithContext;
 import com.datatorrent.api.StreamCodec;
 
 import com.datatorrent.common.util.Pair;
@@ -66,6 +70,7 @@ public class StreamMapping implements java.io.Serializable
   final Set<PTOperator> cascadingUnifiers = Sets.newHashSet();
   final Set<PTOperator> slidingUnifiers = Sets.newHashSet();
   private final List<PTOutput> upstream = Lists.newArrayList();
+  private int unifierLimit;
 
   public StreamMapping(StreamMeta streamMeta, PhysicalPlan plan)
   {
@@ -134,6 +139,110 @@ public class StreamMapping implements java.io.Serializable
     return pu;
   }
 
+  private PTOperator createAdaptiveUnifier()
+  {
+    PTOperator pu = createUnifier(streamMeta, plan);
+    int tuplesPerSecond = streamMeta.getSource().getValue(LogicalPlan.UNIFIER_TUPLES_PER_SECOND);
+    if (tuplesPerSecond > 0) {
+      pu.statsListeners = Collections.singletonList(new UnifierLoadWatch(tuplesPerSecond,
+          streamMeta.getSource().getValue(LogicalPlan.UNIFIER_LATENCY_MILLIS)));
+    }
+    return pu;
+  }
+
+  boolean isAdaptive()
+  {
+    return streamMeta.getSource().getValue(LogicalPlan.UNIFIER_TUPLES_PER_SECOND) > 0;
+  }
+
+  /**
+   * Whether the unifier is a cascading unifier that only receives from the upstream partitions.
+   */
+  boolean isLeafUnifier(PTOperator oper)
+  {
+    if (!cascadingUnifiers.contains(oper)) {
+      return false;
+    }
+    for (PTInput in : oper.inputs) {
+      if (in.source.source.isUnifier()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The cascading unifiers and the unifiers that feed the downstream operators.
+   */
+  private List<PTOperator> getUnifiers()
+  {
+    List<PTOperator> unifiers = Lists.newArrayList(cascadingUnifiers);
+    if (finalUnifier != null) {
+      unifiers.add(finalUnifier);
+    }
+    for (InputPortMeta ipm : streamMeta.getSinks()) {
+      if (!ipm.getValue(PortContext.PARTITION_PARALLEL) && plan.hasMapping(ipm.getOperatorMeta())) {
+        for (PTOperator doper : plan.getOperators(ipm.getOperatorMeta())) {
+          PTOperator unifier = doper.upstreamMerge.get(ipm);
+          if (unifier != null) {
+            unifiers.add(unifier);
+          }
+        }
+      }
+    }
+    return unifiers;
+  }
+
+  private int getUnifierLimit()
+  {
+    return unifierLimit > 0 ? unifierLimit : streamMeta.getSource().getValue(PortContext.UNIFIER_LIMIT);
+  }
+
+  /**
+   * Adapts the fan in of the cascading unifiers to the load reported by the unifiers and rebuilds the unifiers when it
+   * changes. The fan in is halved when a unifier is overloaded and doubled, up to the limit of the port, when all
+   * unifiers are underloaded.
+   *
+   * @return whether the unifiers were changed
+   */
+  boolean adaptUnifiers()
+  {
+    List<PTOperator> unifiers = getUnifiers();
+    int overloaded = 0;
+    int underloaded = 0;
+    for (PTOperator unifier : unifiers) {
+      if (unifier.loadIndicator > 0) {
+        overloaded++;
+      } else if (unifier.loadIndicator < 0) {
+        underloaded++;
+      }
+    }
+
+    int limit = getUnifierLimit();
+    int newLimit = limit;
+    if (overloaded > 0) {
+      newLimit = Math.max(Math.min(limit, upstream.size()) / 2, 2);
+    } else if (!cascadingUnifiers.isEmpty() && underloaded == unifiers.size()) {
+      newLimit = (int)Math.min(2L * limit, streamMeta.getSource().getValue(PortContext.UNIFIER_LIMIT));
+    }
+    if (newLimit == limit) {
+      return false;
+    }
+    LOG.info("Changing unifier fan in of {} from {} to {}", streamMeta.getName(), limit, newLimit);
+
+    // downstream operators are redeployed with the unifiers they remain connected to
+    Set<PTOperator> deps = plan.getDependents(unifiers);
+    deps.removeAll(unifiers);
+    unifierLimit = newLimit;
+    redoMapping();
+    List<PTOperator> currentUnifiers = getUnifiers();
+    currentUnifiers.retainAll(unifiers);
+    deps.addAll(currentUnifiers);
+    plan.undeployOpers.addAll(deps);
+    plan.deployOpers.addAll(deps);
+    return true;
+  }
+
   private void addSlidingUnifiers()
   {
     OperatorMeta sourceOM = streamMeta.getSource().getOperatorMeta();
@@ -177,7 +286,7 @@ public class StreamMapping implements java.io.Serializable
         if (!pooledUnifiers.isEmpty()) {
           pu = pooledUnifiers.remove(0);
         } else {
-          pu = createUnifier(streamMeta, plan);
+          pu = createAdaptiveUnifier();
         }
         assert (pu.outputs.size() == 1) : "unifier has single output";
         nextLevel.addAll(pu.outputs);
@@ -230,7 +339,7 @@ public class StreamMapping implements java.io.Serializable
       plan.undeployOpers.addAll(currentUnifiers);
       addSlidingUnifiers();
 
-      int limit = streamMeta.getSource().getValue(PortContext.UNIFIER_LIMIT);
+      int limit = getUnifierLimit();
 
       boolean separateUnifiers = false;
       Integer lastId = null;
@@ -293,7 +402,7 @@ public class StreamMapping implements java.io.Serializable
           }
           if (!separateUnifiers && lastSingle) {
             if (finalUnifier == null) {
-              finalUnifier = createUnifier(streamMeta, plan);
+              finalUnifier = createAdaptiveUnifier();
             }
             setInput(doperEntry.first, doperEntry.second, finalUnifier, (pks == null) || (pks.mask == 0) ? null : pks);
             if (finalUnifier.inputs.isEmpty()) {
@@ -307,7 +416,7 @@ public class StreamMapping implements java.io.Serializable
             LOG.debug("MxN unifier for {} {} {}", new Object[] {doperEntry.first, doperEntry.second.getPortName(), pks});
             PTOperator unifier = doperEntry.first.upstreamMerge.get(doperEntry.second);
             if (unifier == null) {
-              unifier = createUnifier(streamMeta, plan);
+              unifier = createAdaptiveUnifier();
               doperEntry.first.upstreamMerge.put(doperEntry.second, unifier);
               setInput(doperEntry.first, doperEntry.second, unifier, null);
             }
@@ -391,4 +500,53 @@ public class StreamMapping implements java.io.Serializable
     unifier.inputs.clear();
   }
 
+  /**
+   * Stats listener of the unifiers, reports the load for the adaption of the fan in.
+   */
+  static class UnifierLoadWatch implements StatsListenerWithContext, java.io.Serializable
+  {
+    private static final long serialVersionUID = 201610171200L;
+    long evalIntervalMillis = 30 * 1000;
+    private final long tpsMax;
+    private final long latencyMaxMillis;
+    private long lastEvalMillis;
+
+    private UnifierLoadWatch(long tpsMax, long latencyMaxMillis)
+    {
+      this.tpsMax = tpsMax;
+      this.latencyMaxMillis = latencyMaxMillis;
+      // new unifiers are evaluated once they processed tuples for an interval
+      this.lastEvalMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public Response processStats(BatchedOperatorStats stats)
+    {
+      return processStats(stats, null);
+    }
+
+    @Override
+    public Response processStats(BatchedOperatorStats stats, StatsListenerContext context)
+    {
+      long tps = stats.getTuplesProcessedPSMA();
+      Response rsp = new Response();
+      if (tps > tpsMax) {
+        rsp.loadIndicator = 1;
+        rsp.repartitionNote = String.format("Tuples per second %d is greater than the maximum %d", tps, tpsMax);
+      } else if (latencyMaxMillis > 0 && stats.getLatencyMA() > latencyMaxMillis) {
+        rsp.loadIndicator = 1;
+        rsp.repartitionNote = String.format("Latency %d is greater than the maximum %d", stats.getLatencyMA(), latencyMaxMillis);
+      } else if (tps < tpsMax / 4) {
+        rsp.loadIndicator = -1;
+        rsp.repartitionNote = String.format("Tuples per second %d is less than the minimum %d", tps, tpsMax / 4);
+      }
+      if (rsp.loadIndicator != 0 && lastEvalMillis + evalIntervalMillis <= System.currentTimeMillis()) {
+        lastEvalMillis = System.currentTimeMillis();
+        LOG.debug("Requesting unifier changes {} {}", rsp.loadIndicator, rsp.repartitionNote);
+        rsp.repartitionRequired = true;
+      }
+      return rsp;
+    }
+  }
+
 }
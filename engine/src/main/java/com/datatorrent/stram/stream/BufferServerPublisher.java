@@ -19,13 +19,16 @@
 package com.datatorrent.stram.stream;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.apex.api.operator.ControlTuple;
 
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.bufferserver.client.Publisher;
 import com.datatorrent.bufferserver.packet.BeginWindowTuple;
@@ -37,6 +40,8 @@ import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.bufferserver.packet.WindowIdTuple;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.netlet.EventLoop;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.netlet.util.VarInt;
 import com.datatorrent.stram.codec.StatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
 import com.datatorrent.stram.engine.ByteCounterStream;
@@ -44,8 +49,6 @@ import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.tuple.CustomControlTuple;
 import com.datatorrent.stram.tuple.Tuple;
 
-import static java.lang.Thread.sleep;
-
 /**
  * Implements tuple flow of node to then buffer server in a logical stream<p>
  * <br>
@@ -63,6 +66,12 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
   private EventLoop eventloop;
   private int count;
   private StatefulStreamCodec<Object> statefulSerde;
+  private Integer codecIdentifier;
+  private byte[] chunk = new byte[0];
+  private int chunkOffset;
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
 
   public BufferServerPublisher(String sourceId, int queueCapacity)
   {
@@ -75,13 +84,12 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
    * @param payload
    */
   @Override
-  @SuppressWarnings("SleepWhileInLoop")
   public void put(Object payload)
   {
     count++;
-    byte[] array;
     if (payload instanceof Tuple) {
       final Tuple t = (Tuple)payload;
+      byte[] array;
 
       switch (t.getType()) {
         case CHECKPOINT:
@@ -102,25 +110,15 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
 
         case CUSTOM_CONTROL:
           if (statefulSerde == null) {
-            array = com.datatorrent.bufferserver.packet.CustomControlTuple
-                .getSerializedTuple(MessageType.CUSTOM_CONTROL_VALUE, serde.toByteArray(payload));
+            publish(MessageType.CUSTOM_CONTROL_VALUE, serde.toByteArray(payload));
           } else {
             DataStatePair dsp = statefulSerde.toDataStatePair(payload);
             if (dsp.state != null) {
-              array = com.datatorrent.bufferserver.packet.CustomControlTuple
-                  .getSerializedTuple(MessageType.CODEC_STATE_VALUE, dsp.state);
-              try {
-                while (!write(array)) {
-                  sleep(5);
-                }
-              } catch (InterruptedException ie) {
-                throw new RuntimeException(ie);
-              }
+              publish(MessageType.CODEC_STATE_VALUE, dsp.state);
             }
-            array = com.datatorrent.bufferserver.packet.CustomControlTuple
-                .getSerializedTuple(MessageType.CUSTOM_CONTROL_VALUE, dsp.data);
+            publish(MessageType.CUSTOM_CONTROL_VALUE, dsp.data);
           }
-          break;
+          return;
 
         case END_STREAM:
           array = EndStreamTuple.getSerializedTuple((int)t.getWindowId());
@@ -129,39 +127,111 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
         default:
           throw new UnsupportedOperationException("this data type is not handled in the stream");
       }
+
+      publish(array);
     } else {
+      if (payload instanceof LazyTuple) {
+        if (payload instanceof BufferServerSubscriber.LazyPayload) {
+          BufferServerSubscriber.LazyPayload lazy = (BufferServerSubscriber.LazyPayload)payload;
+          if (lazy.isPublishable(codecIdentifier)) {
+            /* the tuple passes through untouched, the bytes it was received as are sent again */
+            Slice data = lazy.getSerializedData();
+            int offset = reserve(5 + data.length);
+            publish(offset, PayloadTuple.writeSerializedTuple(lazy.getPartition(), data, chunk, offset));
+            return;
+          }
+        }
+        payload = ((LazyTuple<?>)payload).get();
+      }
+
       if (statefulSerde == null) {
-        array = PayloadTuple.getSerializedTuple(serde.getPartition(payload), serde.toByteArray(payload));
+        Slice data = serde.toByteArray(payload);
+        int offset = reserve(5 + data.length);
+        publish(offset, PayloadTuple.writeSerializedTuple(serde.getPartition(payload), data, chunk, offset));
       } else {
         DataStatePair dsp = statefulSerde.toDataStatePair(payload);
         /*
          * if there is any state write that for the subscriber before we write the data.
          */
         if (dsp.state != null) {
-          array = DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, dsp.state);
-          try {
-            while (!write(array)) {
-              sleep(5);
-            }
-          } catch (InterruptedException ie) {
-            throw new RuntimeException(ie);
-          }
+          publish(MessageType.CODEC_STATE_VALUE, dsp.state);
         }
         /*
          * Now that the state if any has been sent, we can proceed with the actual data we want to send.
          */
-        array = PayloadTuple.getSerializedTuple(statefulSerde.getPartition(payload), dsp.data);
+        int partition = statefulSerde.getPartition(payload);
+        int offset = reserve(5 + dsp.data.length);
+        publish(offset, PayloadTuple.writeSerializedTuple(partition, dsp.data, chunk, offset));
       }
     }
+  }
+
+  /**
+   * Reserves room in the current chunk for a tuple of the given size and writes its length prefix.
+   *
+   * Tuples are serialized back to back into a shared chunk instead of an array per tuple, and are queued with their
+   * length prefix as a single slice. The send queue holds on to the chunk till the tuples in it are written to the
+   * socket, so a full chunk is replaced rather than reused.
+   *
+   * @param size size of the serialized tuple
+   * @return offset in the chunk at which the tuple is to be serialized
+   */
+  private int reserve(int size)
+  {
+    if (chunk.length - chunkOffset < size + 5) {
+      chunk = new byte[Math.max(CHUNK_SIZE, size + 5)];
+      chunkOffset = 0;
+    }
+    return VarInt.write(size, chunk, chunkOffset);
+  }
 
-    try {
-      while (!write(array)) {
-        sleep(5);
-      }
-      publishedByteCount.addAndGet(array.length);
-    } catch (InterruptedException ie) {
-      throw new RuntimeException(ie);
+  private void publish(byte type, Slice data)
+  {
+    int offset = reserve(1 + data.length);
+    publish(offset, DataTuple.writeSerializedTuple(type, data, chunk, offset));
+  }
+
+  /**
+   * Queues the tuple serialized in the current chunk at the given offset.
+   *
+   * @param offset offset of the tuple in the chunk
+   * @param end offset just past the tuple in the chunk
+   */
+  private void publish(int offset, int end)
+  {
+    int start = chunkOffset;
+    chunkOffset = end;
+
+    long parkNanos = MIN_PARK_NANOS;
+    while (!send(chunk, start, end - start)) {
+      parkNanos = park(parkNanos);
+    }
+    publishedByteCount.addAndGet(end - offset);
+  }
+
+  private void publish(byte[] array)
+  {
+    long parkNanos = MIN_PARK_NANOS;
+    while (!write(array)) {
+      parkNanos = park(parkNanos);
+    }
+    publishedByteCount.addAndGet(array.length);
+  }
+
+  /**
+   * Waits for the send queue to drain. The wait doubles with every attempt so that a short stall does not cost a full
+   * park interval while a longer one does not keep the thread spinning.
+   *
+   * @param nanos time to park
+   * @return time to park on the next attempt
+   */
+  private static long park(long nanos)
+  {
+    LockSupport.parkNanos(nanos);
+    if (Thread.interrupted()) {
+      throw new RuntimeException(new InterruptedException());
     }
+    return Math.min(nanos << 1, MAX_PARK_NANOS);
   }
 
   @Override
@@ -213,6 +283,7 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
     } else {
       serde = (StreamCodec<Object>)codec;
     }
+    codecIdentifier = context.get(StreamContext.CODEC_IDENTIFIER);
   }
 
   @Override
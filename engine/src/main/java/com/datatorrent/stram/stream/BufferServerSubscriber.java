@@ -20,6 +20,7 @@ package com.datatorrent.stram.stream;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicLong;
@@ -29,6 +30,9 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.apex.api.operator.ControlTuple;
 
+import com.datatorrent.api.BatchSink;
+import com.datatorrent.api.LazyTuple;
+import com.datatorrent.api.LazyTupleSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.bufferserver.client.Subscriber;
@@ -39,6 +43,7 @@ import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.codec.StatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
 import com.datatorrent.stram.engine.ByteCounterStream;
+import com.datatorrent.stram.engine.IdleWaiter;
 import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.engine.SweepableReservoir;
 import com.datatorrent.stram.plan.logical.StreamCodecWrapperForPersistance;
@@ -67,6 +72,13 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
   CircularBuffer<Slice> freeFragments;
   private final ArrayDeque<CircularBuffer<Slice>> backlog;
   private final AtomicLong readByteCount;
+  private int sharedMemorySize;
+  private Integer codecIdentifier;
+  /**
+   * Number of times the state of the stateful codec was reset, a tuple deserialized lazily has to be deserialized with
+   * the state it was received with.
+   */
+  private int codecStateResets;
 
   public BufferServerSubscriber(String id, int queueCapacity)
   {
@@ -87,6 +99,23 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     readByteCount.addAndGet(len);
   }
 
+  @Override
+  protected void readSharedMemory(int length)
+  {
+    readByteCount.addAndGet(length);
+  }
+
+  /**
+   * Sets the size of the shared memory ring to receive the tuples through when the buffer server runs on the same
+   * host.
+   *
+   * @param sharedMemorySize size of the ring in bytes, 0 to receive the tuples through the connection
+   */
+  public void setSharedMemorySize(int sharedMemorySize)
+  {
+    this.sharedMemorySize = sharedMemorySize;
+  }
+
   @Override
   public void activate(StreamContext context)
   {
@@ -96,7 +125,8 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     eventloop.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address, this);
 
     logger.debug("Registering subscriber: id={} upstreamId={} streamLogicalName={} windowId={} mask={} partitions={} server={}", new Object[] {context.getSinkId(), context.getSourceId(), context.getId(), Codec.getStringWindowId(context.getFinishedWindowId()), context.getPartitionMask(), context.getPartitions(), context.getBufferServerAddress()});
-    activate(null, context.getId() + '/' + context.getSinkId(), context.getSourceId(), context.getPartitionMask(), context.getPartitions(), context.getFinishedWindowId(), freeFragments.capacity());
+    activate(null, context.getId() + '/' + context.getSinkId(), context.getSourceId(), context.getPartitionMask(),
+        context.getPartitions(), context.getFinishedWindowId(), freeFragments.capacity(), sharedMemorySize);
   }
 
   @Override
@@ -123,6 +153,21 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
         offeredFragments.add(f);
       }
     }
+
+    signalWaiters();
+  }
+
+  /**
+   * Signals the threads consuming the reservoirs that there are tuples to be processed.
+   */
+  private void signalWaiters()
+  {
+    for (BufferReservoir r : reservoirs) {
+      final IdleWaiter waiter = r.waiter;
+      if (waiter != null) {
+        waiter.signal();
+      }
+    }
   }
 
   @Override
@@ -137,6 +182,7 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     } else {
       serde = (StreamCodec<Object>)codec;
     }
+    codecIdentifier = context.get(StreamContext.CODEC_IDENTIFIER);
   }
 
   @Override
@@ -238,6 +284,10 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
   {
     protected boolean skipObject = false;
     private Sink<Object> sink;
+    private BatchSink<Object> batchSink;
+    private LazyTupleSink<Object> lazySink;
+    private final ArrayList<Object> batch = new ArrayList<>();
+    private volatile IdleWaiter waiter;
     int count;
 
     BufferReservoir(int capacity)
@@ -245,6 +295,12 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
       super(capacity);
     }
 
+    @Override
+    public void setWaiter(IdleWaiter waiter)
+    {
+      this.waiter = waiter;
+    }
+
     @Override
     public int size(final boolean dataTupleAware)
     {
@@ -261,29 +317,46 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Sink<Object> setSink(Sink<Object> sink)
     {
       try {
         return this.sink;
       } finally {
         this.sink = sink;
+        lazySink = sink instanceof LazyTupleSink && getClass() == BufferReservoir.class ?
+            (LazyTupleSink<Object>)sink : null;
+        batchSink = sink instanceof BatchSink && lazySink == null ? (BatchSink<Object>)sink : null;
       }
     }
 
     @Override
     public Tuple sweep()
     {
-      final int size = size();
+      return sweep(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Tuple sweep(int limit)
+    {
+      final int size = Math.min(size(), limit);
       if (size > 0) {
-        for (int i = 0; i < size; i++) {
-          if (peekUnsafe() instanceof Tuple) {
-            count += i;
-            return (Tuple)peekUnsafe();
+        if (batchSink != null) {
+          final Tuple t = sweepBatch(size);
+          if (t != null) {
+            return t;
+          }
+        } else {
+          for (int i = 0; i < size; i++) {
+            if (peekUnsafe() instanceof Tuple) {
+              count += i;
+              return (Tuple)peekUnsafe();
+            }
+            deliver(pollUnsafe());
           }
-          sink.put(pollUnsafe());
-        }
 
-        count += size;
+          count += size;
+        }
       }
 
       synchronized (backlog) {
@@ -307,6 +380,11 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
           }
         }
 
+        boolean lazy = true;
+        for (BufferReservoir r : reservoirs) {
+          lazy &= r.lazySink != null;
+        }
+
         while (min-- > 0) {
           Slice fm = polledFragments.pollUnsafe();
           com.datatorrent.bufferserver.packet.Tuple data = com.datatorrent.bufferserver.packet.Tuple.getTuple(fm.buffer, fm.offset, fm.length);
@@ -322,12 +400,15 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
               continue;
 
             case PAYLOAD:
-              o = processPayload(data);
+              /* the pending codec state has to be applied in order, the tuple carrying it is deserialized now */
+              o = lazy && dsp.state == null ? new LazyPayload(data.getData(), data.getPartition()) :
+                  processPayload(data);
               break;
 
             case CHECKPOINT:
               if (statefulSerde != null) {
                 statefulSerde.resetState();
+                codecStateResets++;
               }
               o = new CheckpointTuple(data.getWindowId());
               break;
@@ -362,11 +443,60 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
             }
           }
         }
+
+        /* the tuples are added to the reservoirs of the other consumers as well */
+        signalWaiters();
       }
 
       return null;
     }
 
+    /**
+     * Hands the data tuples at the head of the reservoir to the batch sink in a single call.
+     *
+     * @param size number of tuples to sweep
+     * @return the control tuple encountered or null
+     */
+    private Tuple sweepBatch(int size)
+    {
+      Tuple t = null;
+      for (int i = 0; i < size; i++) {
+        if (peekUnsafe() instanceof Tuple) {
+          t = (Tuple)peekUnsafe();
+          break;
+        }
+        Object o = pollUnsafe();
+        batch.add(o instanceof LazyPayload ? ((LazyPayload)o).get() : o);
+      }
+
+      if (!batch.isEmpty()) {
+        count += batch.size();
+        try {
+          batchSink.putBatch(batch);
+        } finally {
+          batch.clear();
+        }
+      }
+      return t;
+    }
+
+    /**
+     * Passes the data tuple to the sink, deserializing it first unless the sink accepts lazy tuples.
+     */
+    @SuppressWarnings("unchecked")
+    private void deliver(Object o)
+    {
+      if (o instanceof LazyPayload) {
+        if (lazySink == null) {
+          sink.put(((LazyPayload)o).get());
+        } else {
+          lazySink.putLazy((LazyTuple<Object>)o);
+        }
+      } else {
+        sink.put(o);
+      }
+    }
+
     protected Object processPayload(com.datatorrent.bufferserver.packet.Tuple data)
     {
       Object o;
@@ -393,6 +523,89 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
 
   }
 
+  /**
+   * Payload tuple deserialized on the first access. The deserialization happens on the thread of the operator, under
+   * the same lock the tuples are deserialized under when they are swept, since the codec is shared by all the
+   * reservoirs.
+   */
+  class LazyPayload implements LazyTuple<Object>
+  {
+    private final Slice data;
+    private final int partition;
+    private final int codecStateResets;
+    private Object value;
+    private boolean deserialized;
+
+    LazyPayload(Slice data, int partition)
+    {
+      this.data = data;
+      this.partition = partition;
+      this.codecStateResets = BufferServerSubscriber.this.codecStateResets;
+    }
+
+    @Override
+    public Object get()
+    {
+      synchronized (backlog) {
+        if (!deserialized) {
+          if (statefulSerde == null) {
+            value = serde.fromByteArray(data);
+          } else if (codecStateResets == BufferServerSubscriber.this.codecStateResets) {
+            dsp.data = data;
+            value = statefulSerde.fromDataStatePair(dsp);
+          } else {
+            throw new IllegalStateException("Tuple deserialized after the checkpoint that reset the codec state " +
+                "it was serialized with");
+          }
+          deserialized = true;
+        }
+        return value;
+      }
+    }
+
+    @Override
+    public boolean isDeserialized()
+    {
+      synchronized (backlog) {
+        return deserialized;
+      }
+    }
+
+    @Override
+    public Slice getSerializedData()
+    {
+      return data;
+    }
+
+    /**
+     * @return the partition the tuple was published with
+     */
+    int getPartition()
+    {
+      return partition;
+    }
+
+    /**
+     * Returns whether the serialized tuple can be published again as it is on a stream with the given codec, which is
+     * the case when the tuple was not deserialized, and so possibly modified, and the codec is the same stateless codec
+     * it was serialized with.
+     *
+     * @param codecIdentifier identifier of the stream codec in the physical plan
+     * @return true if the serialized tuple can be published
+     */
+    boolean isPublishable(Integer codecIdentifier)
+    {
+      return statefulSerde == null && codecIdentifier != null &&
+          codecIdentifier.equals(BufferServerSubscriber.this.codecIdentifier) && !isDeserialized();
+    }
+
+    @Override
+    public String toString()
+    {
+      return "LazyPayload{" + "partition=" + partition + ", data=" + data + ", deserialized=" + deserialized + '}';
+    }
+  }
+
   public class BufferReservoirForPersistStream extends BufferReservoir
   {
     StreamCodecWrapperForPersistance wrapperStreamCodec;
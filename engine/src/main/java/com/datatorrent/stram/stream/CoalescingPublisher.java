@@ -0,0 +1,516 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.apex.api.operator.ControlTuple;
+
+import com.datatorrent.api.LazyTuple;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.DataTuple;
+import com.datatorrent.bufferserver.packet.EndStreamTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.PublishRequestTuple;
+import com.datatorrent.bufferserver.packet.WindowIdTuple;
+import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.netlet.EventLoop;
+import com.datatorrent.netlet.Listener;
+import com.datatorrent.netlet.Listener.ClientListener;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.netlet.util.VarInt;
+import com.datatorrent.stram.codec.StatefulStreamCodec;
+import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
+import com.datatorrent.stram.engine.ByteCounterStream;
+import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.tuple.CustomControlTuple;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Publishes the tuples of a stream to the buffer server in large batches.
+ * <p>
+ * Tuples are serialized back to back, with the same framing as {@link BufferServerPublisher}, into a ring of direct
+ * buffers. The event loop sends all the bytes appended to the ring since its last write with a single gathering write,
+ * so under load a single system call carries many tuples. Once the socket has caught up, the operator thread asks the
+ * event loop for the next write only when a batch worth of bytes is pending, at the end of a window or with a control
+ * tuple. Tuples appended in between are picked up by the linger task, which runs every linger period, so that a slow
+ * stream does not hold on to its tuples till the end of the window. When the ring is full, the operator thread waits
+ * for the event loop to free it.
+ */
+public class CoalescingPublisher implements ClientListener, ByteCounterStream
+{
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+  private final String id;
+  private final int batchSize;
+  private final ByteBuffer[] buffers;
+  private final ByteBuffer[] sendBuffers;
+  final ByteBuffer[] gathered;
+  private final long ringSize;
+  private final ScheduledExecutorService lingerExecutor;
+  private final long lingerMillis;
+  /**
+   * Position in the ring up to which the bytes are visible to the event loop.
+   */
+  private final AtomicLong appended = new AtomicLong();
+  /**
+   * Position in the ring up to which the bytes are written to the socket.
+   */
+  private volatile long sent;
+  private long position;
+  private long requested;
+  private byte[] scratch = new byte[256];
+  private final AtomicLong publishedByteCount = new AtomicLong();
+  private final AtomicLong writeCount = new AtomicLong();
+  private int count;
+  private StreamCodec<Object> serde;
+  private StatefulStreamCodec<Object> statefulSerde;
+  private Integer codecIdentifier;
+  private EventLoop eventloop;
+  private SelectionKey key;
+  private boolean connected;
+  private ScheduledFuture<?> lingerTask;
+
+  /**
+   * @param id identifier of the publisher
+   * @param batchSize number of bytes pending after which the tuples are sent, also the size of each buffer of the ring
+   * @param batchCount number of buffers in the ring
+   * @param lingerExecutor executor running the linger task
+   * @param lingerMillis period of the linger task
+   */
+  public CoalescingPublisher(String id, int batchSize, int batchCount, ScheduledExecutorService lingerExecutor,
+      long lingerMillis)
+  {
+    this.id = id;
+    this.batchSize = batchSize;
+    this.lingerExecutor = lingerExecutor;
+    this.lingerMillis = lingerMillis;
+    if (batchCount < 2) {
+      batchCount = 2;
+    }
+    buffers = new ByteBuffer[batchCount];
+    sendBuffers = new ByteBuffer[batchCount];
+    gathered = new ByteBuffer[batchCount];
+    for (int i = batchCount; i-- > 0;) {
+      buffers[i] = ByteBuffer.allocateDirect(batchSize);
+      sendBuffers[i] = buffers[i].duplicate();
+    }
+    ringSize = (long)batchSize * batchCount;
+  }
+
+  @Override
+  public void put(Object payload)
+  {
+    count++;
+    if (payload instanceof Tuple) {
+      final Tuple t = (Tuple)payload;
+      byte[] array;
+
+      switch (t.getType()) {
+        case CHECKPOINT:
+          if (statefulSerde != null) {
+            statefulSerde.resetState();
+          }
+          array = WindowIdTuple.getSerializedTuple((int)t.getWindowId());
+          array[0] = MessageType.CHECKPOINT_VALUE;
+          break;
+
+        case BEGIN_WINDOW:
+          /* the begin window goes out with the first tuples of the window */
+          appendMessage(BeginWindowTuple.getSerializedTuple((int)t.getWindowId()));
+          return;
+
+        case END_WINDOW:
+          array = EndWindowTuple.getSerializedTuple((int)t.getWindowId());
+          break;
+
+        case CUSTOM_CONTROL:
+          if (statefulSerde == null) {
+            appendData(MessageType.CUSTOM_CONTROL_VALUE, serde.toByteArray(payload));
+          } else {
+            DataStatePair dsp = statefulSerde.toDataStatePair(payload);
+            if (dsp.state != null) {
+              appendData(MessageType.CODEC_STATE_VALUE, dsp.state);
+            }
+            appendData(MessageType.CUSTOM_CONTROL_VALUE, dsp.data);
+          }
+          flush();
+          return;
+
+        case END_STREAM:
+          array = EndStreamTuple.getSerializedTuple((int)t.getWindowId());
+          break;
+
+        default:
+          throw new UnsupportedOperationException("this data type is not handled in the stream");
+      }
+
+      appendMessage(array);
+      flush();
+      return;
+    }
+
+    if (payload instanceof LazyTuple) {
+      if (payload instanceof BufferServerSubscriber.LazyPayload) {
+        BufferServerSubscriber.LazyPayload lazy = (BufferServerSubscriber.LazyPayload)payload;
+        if (lazy.isPublishable(codecIdentifier)) {
+          appendPayload(lazy.getPartition(), lazy.getSerializedData());
+          return;
+        }
+      }
+      payload = ((LazyTuple<?>)payload).get();
+    }
+
+    if (statefulSerde == null) {
+      appendPayload(serde.getPartition(payload), serde.toByteArray(payload));
+    } else {
+      DataStatePair dsp = statefulSerde.toDataStatePair(payload);
+      if (dsp.state != null) {
+        appendData(MessageType.CODEC_STATE_VALUE, dsp.state);
+      }
+      appendPayload(statefulSerde.getPartition(payload), dsp.data);
+    }
+  }
+
+  @Override
+  public boolean putControl(ControlTuple payload)
+  {
+    put(new CustomControlTuple(payload));
+    return false;
+  }
+
+  private byte[] scratch(int size)
+  {
+    if (scratch.length < size) {
+      scratch = new byte[Math.max(size, scratch.length << 1)];
+    }
+    return scratch;
+  }
+
+  private void appendPayload(int partition, Slice data)
+  {
+    final int size = 5 + data.length;
+    final byte[] scratch = scratch(size + 5);
+    append(scratch, PayloadTuple.writeSerializedTuple(partition, data, scratch, VarInt.write(size, scratch, 0)));
+    publishedByteCount.addAndGet(size);
+    if (position - requested >= batchSize) {
+      flush();
+    }
+  }
+
+  private void appendData(byte type, Slice data)
+  {
+    final int size = 1 + data.length;
+    final byte[] scratch = scratch(size + 5);
+    append(scratch, DataTuple.writeSerializedTuple(type, data, scratch, VarInt.write(size, scratch, 0)));
+    publishedByteCount.addAndGet(size);
+  }
+
+  private void appendMessage(byte[] array)
+  {
+    final byte[] scratch = scratch(array.length + 5);
+    final int offset = VarInt.write(array.length, scratch, 0);
+    System.arraycopy(array, 0, scratch, offset, array.length);
+    append(scratch, offset + array.length);
+    publishedByteCount.addAndGet(array.length);
+  }
+
+  /**
+   * Copies the bytes into the ring and makes them visible to the event loop, waits for the event loop to free the ring
+   * when it is full.
+   *
+   * @param array bytes to append
+   * @param length number of bytes from the start of the array
+   */
+  private void append(byte[] array, int length)
+  {
+    final int capacity = batchSize;
+    int offset = 0;
+    long parkNanos = MIN_PARK_NANOS;
+    while (offset < length) {
+      final long free = ringSize - (position - sent);
+      if (free == 0) {
+        flush();
+        parkNanos = park(parkNanos);
+        continue;
+      }
+      final int index = (int)(position / capacity % buffers.length);
+      final int bufferOffset = (int)(position % capacity);
+      final int n = (int)Math.min(Math.min(length - offset, capacity - bufferOffset), free);
+      final ByteBuffer buffer = buffers[index];
+      buffer.position(bufferOffset);
+      buffer.put(array, offset, n);
+      position += n;
+      offset += n;
+    }
+    appended.lazySet(position);
+  }
+
+  private static long park(long nanos)
+  {
+    LockSupport.parkNanos(nanos);
+    if (Thread.interrupted()) {
+      throw new RuntimeException(new InterruptedException());
+    }
+    return Math.min(nanos << 1, MAX_PARK_NANOS);
+  }
+
+  /**
+   * Asks the event loop to send all the bytes appended so far.
+   */
+  private void flush()
+  {
+    appended.set(position);
+    requested = position;
+    requestWrite();
+  }
+
+  /**
+   * Makes sure the event loop is interested in writing to the socket. The interest is set and cleared holding the
+   * monitor of the publisher, so a request can not be lost to the event loop clearing the interest after it sent the
+   * bytes appended before the request.
+   */
+  private synchronized void requestWrite()
+  {
+    if (connected && key.isValid() && (key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+      key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+      key.selector().wakeup();
+    }
+  }
+
+  /**
+   * @return position in the ring up to which the bytes are visible to the event loop
+   */
+  long getAppended()
+  {
+    return appended.get();
+  }
+
+  /**
+   * Collects the views of the ring between the given positions into the gathered array, at most one view per buffer.
+   *
+   * @param from start position in the ring
+   * @param to end position in the ring
+   * @return number of views collected
+   */
+  int gather(long from, long to)
+  {
+    final int capacity = batchSize;
+    int n = 0;
+    while (from < to && n < sendBuffers.length) {
+      final int bufferOffset = (int)(from % capacity);
+      final int length = (int)Math.min(capacity - bufferOffset, to - from);
+      final ByteBuffer buffer = sendBuffers[(int)(from / capacity % sendBuffers.length)];
+      buffer.limit(bufferOffset + length);
+      buffer.position(bufferOffset);
+      gathered[n++] = buffer;
+      from += length;
+    }
+    return n;
+  }
+
+  /**
+   * Sends the bytes appended to the ring with a single gathering write and stops the interest in writing once the
+   * socket has caught up with the ring.
+   *
+   * @throws IOException if the write fails
+   */
+  @Override
+  public void write() throws IOException
+  {
+    final long from = sent;
+    final long to = appended.get();
+    if (from < to) {
+      final long written = ((SocketChannel)key.channel()).write(gathered, 0, gather(from, to));
+      sent = from + written;
+      writeCount.incrementAndGet();
+      if (sent < to) {
+        return;
+      }
+    }
+
+    synchronized (this) {
+      if (appended.get() == sent) {
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+      }
+    }
+  }
+
+  @Override
+  public void read() throws IOException
+  {
+    SocketChannel channel = (SocketChannel)key.channel();
+    int read;
+    if ((read = channel.read(ByteBuffer.allocate(1))) > 0) {
+      throw new RuntimeException("Publisher " + this + " is not supposed to receive any data");
+    } else if (read == -1) {
+      try {
+        channel.close();
+      } finally {
+        unregistered(key);
+        key.attach(Listener.NOOP_CLIENT_LISTENER);
+      }
+    }
+  }
+
+  @Override
+  public void handleException(Exception cce, EventLoop el)
+  {
+    logger.error("Exception in publisher {}", this, cce);
+  }
+
+  @Override
+  public void registered(SelectionKey key)
+  {
+    this.key = key;
+  }
+
+  @Override
+  public void unregistered(SelectionKey key)
+  {
+  }
+
+  @Override
+  public void connected()
+  {
+    synchronized (this) {
+      connected = true;
+    }
+    requestWrite();
+  }
+
+  @Override
+  public synchronized void disconnected()
+  {
+    connected = false;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setup(StreamContext context)
+  {
+    StreamCodec<?> codec = context.get(StreamContext.CODEC);
+    if (codec == null) {
+      statefulSerde = ((StatefulStreamCodec<Object>)StreamContext.CODEC.defaultValue).newInstance();
+    } else if (codec instanceof StatefulStreamCodec) {
+      statefulSerde = ((StatefulStreamCodec<Object>)codec).newInstance();
+    } else {
+      serde = (StreamCodec<Object>)codec;
+    }
+    codecIdentifier = context.get(StreamContext.CODEC_IDENTIFIER);
+  }
+
+  @Override
+  public void teardown()
+  {
+  }
+
+  @Override
+  public void activate(StreamContext context)
+  {
+    byte[] token = context.get(StreamContext.BUFFER_SERVER_TOKEN);
+    if (token != null) {
+      appendMessage(token);
+    }
+    appendMessage(PublishRequestTuple.getSerializedRequest(null, id, context.getFinishedWindowId()));
+    flush();
+
+    InetSocketAddress address = context.getBufferServerAddress();
+    eventloop = context.get(StreamContext.EVENT_LOOP);
+    eventloop.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address, this);
+    lingerTask = lingerExecutor.scheduleWithFixedDelay(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        if (appended.get() != sent) {
+          requestWrite();
+        }
+      }
+    }, lingerMillis, lingerMillis, TimeUnit.MILLISECONDS);
+
+    logger.debug("Registering publisher: {} {} windowId={} server={}", context.getSourceId(), context.getId(),
+        Codec.getStringWindowId(context.getFinishedWindowId()), address);
+  }
+
+  @Override
+  public void deactivate()
+  {
+    if (lingerTask != null) {
+      lingerTask.cancel(false);
+      lingerTask = null;
+    }
+    eventloop.disconnect(this);
+  }
+
+  @Override
+  public long getByteCount(boolean reset)
+  {
+    if (reset) {
+      return publishedByteCount.getAndSet(0);
+    }
+
+    return publishedByteCount.get();
+  }
+
+  @Override
+  public long getWriteCount(boolean reset)
+  {
+    if (reset) {
+      return writeCount.getAndSet(0);
+    }
+
+    return writeCount.get();
+  }
+
+  @Override
+  public int getCount(boolean reset)
+  {
+    try {
+      return count;
+    } finally {
+      if (reset) {
+        count = 0;
+      }
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "CoalescingPublisher{" + "id=" + id + '}';
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(CoalescingPublisher.class);
+}
@@ -34,6 +34,7 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Output;
 
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.bufferserver.packet.BeginWindowTuple;
 import com.datatorrent.bufferserver.packet.EndStreamTuple;
 import com.datatorrent.bufferserver.packet.EndWindowTuple;
@@ -289,6 +290,9 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
       }
     } else {
       count++;
+      if (tuple instanceof LazyTuple) {
+        tuple = ((LazyTuple<?>)tuple).get();
+      }
       int hashcode = tuple.hashCode();
 
       int wi = writeIndex;
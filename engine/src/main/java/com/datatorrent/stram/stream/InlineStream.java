@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.apex.api.operator.ControlTuple;
 
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.stram.engine.AbstractReservoir;
 import com.datatorrent.stram.engine.Stream;
 import com.datatorrent.stram.engine.StreamContext;
@@ -44,7 +45,7 @@ public class InlineStream implements Stream
 
   public InlineStream(int capacity)
   {
-    reservoir = AbstractReservoir.newReservoir("InlineStream", capacity);
+    reservoir = AbstractReservoir.newContainerLocalReservoir("InlineStream", capacity);
   }
 
   public SweepableReservoir getReservoir()
@@ -91,7 +92,7 @@ public class InlineStream implements Stream
   public void put(Object tuple)
   {
     try {
-      reservoir.put(tuple);
+      reservoir.put(tuple instanceof LazyTuple ? ((LazyTuple<?>)tuple).get() : tuple);
       if (!(tuple instanceof Tuple)) {
         count++;
       }
@@ -20,6 +20,8 @@ package com.datatorrent.stram.stream;
 
 import org.apache.apex.api.operator.ControlTuple;
 
+import com.datatorrent.api.LazyTuple;
+import com.datatorrent.api.LazyTupleSink;
 import com.datatorrent.api.Sink;
 import com.datatorrent.stram.engine.Stream;
 import com.datatorrent.stram.engine.StreamContext;
@@ -68,6 +70,7 @@ public class OiOStream implements Stream
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public void put(Object t)
   {
     if (t instanceof Tuple) {
@@ -75,6 +78,13 @@ public class OiOStream implements Stream
     } else {
       count++;
       reservoir.count++;
+      if (t instanceof LazyTuple) {
+        if (sink instanceof LazyTupleSink) {
+          ((LazyTupleSink<Object>)sink).putLazy((LazyTuple<Object>)t);
+          return;
+        }
+        t = ((LazyTuple<?>)t).get();
+      }
       sink.put(t);
     }
   }
@@ -20,6 +20,7 @@ package com.datatorrent.stram.stream;
 
 import java.util.Set;
 
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.stram.tuple.Tuple;
@@ -58,14 +59,22 @@ public class PartitionAwareSink<T> implements Sink<T>
    * @param payload
    */
   @Override
+  @SuppressWarnings("unchecked")
   public void put(T payload)
   {
     if (payload instanceof Tuple) {
       count++;
       output.put(payload);
-    } else if (canSendToOutput(payload)) {
-      count++;
-      output.put(payload);
+    } else {
+      /* the codec partitions the value of the tuple, the partition a lazy tuple was received with belongs to the
+         codec of the upstream stream */
+      if (payload instanceof LazyTuple) {
+        payload = ((LazyTuple<T>)payload).get();
+      }
+      if (canSendToOutput(payload)) {
+        count++;
+        output.put(payload);
+      }
     }
   }
 
@@ -55,6 +55,17 @@ public abstract class AbstractWritableAdapter implements Writable, Serializable
     int len = arg0.readInt();
     byte[] bytes = new byte[len];
     arg0.readFully(bytes);
+    readFields(bytes);
+  }
+
+  /**
+   * Sets the fields from the serialized form that follows the length written by {@link #write(DataOutput)}.
+   *
+   * @param bytes serialized fields
+   * @throws IOException
+   */
+  protected void readFields(byte[] bytes) throws IOException
+  {
     try {
       ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
       @SuppressWarnings("unchecked")
@@ -102,6 +102,50 @@ public class MovingAverage
     }
   }
 
+  /**
+   * Percentiles over the most recent values.
+   */
+  public static class MovingPercentileLong implements java.io.Serializable
+  {
+    private static final long serialVersionUID = 201610171200L;
+    private final long[] values;
+    private int index = 0;
+    private boolean filled = false;
+
+    public MovingPercentileLong(int periods)
+    {
+      this.values = new long[periods];
+    }
+
+    public synchronized void add(long val)
+    {
+      values[index++] = val;
+      if (index == values.length) {
+        filled = true;
+        index = 0;
+      }
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return the smallest of the recent values that is larger than or equal to the given percentage of them, 0 when
+     * there are no values
+     */
+    public long getPercentile(double percentile)
+    {
+      long[] sorted;
+      synchronized (this) {
+        sorted = java.util.Arrays.copyOf(values, filled ? values.length : index);
+      }
+      if (sorted.length == 0) {
+        return 0;
+      }
+      java.util.Arrays.sort(sorted);
+      int rank = (int)Math.ceil(percentile / 100 * sorted.length) - 1;
+      return sorted[Math.min(Math.max(rank, 0), sorted.length - 1)];
+    }
+  }
+
   public static class TimedMovingAverageLong implements java.io.Serializable
   {
     private static final long serialVersionUID = 201404291550L;
@@ -124,6 +124,67 @@ public class AppInfo
       return 0;
     }
 
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getHeartbeatProcessingMicros50thPercentile()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getHeartbeatProcessingMicros99thPercentile()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getHeartbeatStatsRejections()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public int getPendingCheckpointPurges()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getCheckpointPurgeLagMillis()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getJournalRecordsPerSecond()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public long getJournalFlushMicros99thPercentile()
+    {
+      return 0;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    public Map<String, Long> getRecoveryMillis()
+    {
+      return null;
+    }
+
+    @javax.xml.bind.annotation.XmlElement
+    public Map<String, Map<String, Long>> getPluginStats()
+    {
+      return null;
+    }
+
     @javax.xml.bind.annotation.XmlElement
     public List<Integer> getCriticalPath()
     {
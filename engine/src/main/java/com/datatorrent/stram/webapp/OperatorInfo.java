@@ -93,6 +93,12 @@ public class OperatorInfo
   public long checkpointTime;
   @RecordField(type = "stats")
   public long checkpointTimeMA;
+  @RecordField(type = "stats")
+  public long checkpointBytes;
+  @RecordField(type = "stats")
+  public long checkpointSerializationTime;
+  @RecordField(type = "stats")
+  public long checkpointStoreThroughput;
 
   /**
    * @param info
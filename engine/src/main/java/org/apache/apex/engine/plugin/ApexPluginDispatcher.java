@@ -18,6 +18,9 @@
  */
 package org.apache.apex.engine.plugin;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.apache.apex.api.plugin.Event;
 import org.apache.hadoop.service.Service;
 
@@ -46,4 +49,14 @@ public interface ApexPluginDispatcher extends Service
   }
 
   void dispatch(Event e);
+
+  /**
+   * Delivery counters of the plugins, such as the number of delivered, dropped and coalesced events and the latency
+   * of the delivery.
+   * @return counters by plugin name
+   */
+  default Map<String, Map<String, Long>> getPluginStats()
+  {
+    return Collections.emptyMap();
+  }
 }
@@ -18,31 +18,35 @@
  */
 package org.apache.apex.engine.plugin;
 
-import java.util.NoSuchElementException;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.RejectedExecutionHandler;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.apex.api.plugin.Event;
 import org.apache.apex.api.plugin.Plugin.EventHandler;
 import org.apache.apex.engine.api.plugin.DAGExecutionEvent;
+import org.apache.apex.engine.api.plugin.DAGExecutionPlugin;
 import org.apache.apex.engine.api.plugin.PluginLocator;
 import org.apache.hadoop.conf.Configuration;
 
 import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.stram.StramAppContext;
 import com.datatorrent.stram.StreamingContainerManager;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
 import com.datatorrent.stram.webapp.AppInfo;
 
 /**
- * Handle dispatching of events from Stram to Plugins. This implementation creates an executor
- * service to process the event asynchronously. A separate task {@link DefaultApexPluginDispatcher.ProcessEventTask}
- * is created to process an event and then submitted to the executor for execution.
+ * Handle dispatching of events from Stram to Plugins. Each plugin has its own bounded queue, processed by a separate
+ * thread of the executor service, so that a slow plugin does not delay the delivery to other plugins. Commit and Stram
+ * events are delivered before heartbeat events. Heartbeat events are coalesced per container, only the latest heartbeat
+ * of a container that was not delivered yet is kept. When the queue of a plugin is full the oldest event is dropped.
  *
  * @since 3.6.0
  */
@@ -52,7 +56,7 @@ public class DefaultApexPluginDispatcher extends AbstractApexPluginDispatcher
   private static final int TIMEOUT = 10;
   private static final int QUEUE_SIZE = 4098;
 
-  private ArrayBlockingQueue<Runnable> blockingQueue;
+  private volatile Map<DAGExecutionPlugin, PluginQueue> queues = Collections.emptyMap();
   private ExecutorService executorService;
 
   public DefaultApexPluginDispatcher(PluginLocator locator, StramAppContext context, StreamingContainerManager dmgr, AppInfo.AppStats stats)
@@ -63,8 +67,14 @@ public class DefaultApexPluginDispatcher extends AbstractApexPluginDispatcher
   @Override
   protected void dispatchExecutionEvent(DAGExecutionEvent event)
   {
-    if (executorService != null) {
-      executorService.submit(new ProcessEventTask<>(event));
+    for (Map.Entry<DAGExecutionPlugin, PluginQueue> entry : queues.entrySet()) {
+      boolean registered;
+      synchronized (table) {
+        registered = table.contains(event.getType(), entry.getKey());
+      }
+      if (registered) {
+        entry.getValue().offer(event);
+      }
     }
   }
 
@@ -72,30 +82,30 @@ public class DefaultApexPluginDispatcher extends AbstractApexPluginDispatcher
   protected void serviceInit(Configuration conf) throws Exception
   {
     super.serviceInit(conf);
-    LOG.debug("Creating plugin dispatch queue with size {}", QUEUE_SIZE);
-    blockingQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
-    RejectedExecutionHandler rejectionHandler = new RejectedExecutionHandler()
-    {
-      @Override
-      public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
-      {
-        try {
-          blockingQueue.remove();
-          executor.submit(r);
-        } catch (NoSuchElementException ex) {
-          // Ignore no-such element as queue may finish, while this handler is called.
-        }
+    if (!plugins.isEmpty()) {
+      LOG.debug("Creating plugin dispatch queues with size {}", QUEUE_SIZE);
+      Map<DAGExecutionPlugin, PluginQueue> pluginQueues = new LinkedHashMap<>();
+      Map<String, Integer> names = new LinkedHashMap<>();
+      executorService = Executors.newFixedThreadPool(plugins.size(), new NameableThreadFactory("PluginExecutorThread", true));
+      for (DAGExecutionPlugin plugin : plugins) {
+        String name = plugin.getClass().getName();
+        Integer count = names.get(name);
+        names.put(name, count == null ? 1 : count + 1);
+        PluginQueue queue = new PluginQueue(plugin, count == null ? name : name + "#" + count);
+        pluginQueues.put(plugin, queue);
+        executorService.submit(queue);
       }
-    };
-
-    executorService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
-        blockingQueue, new NameableThreadFactory("PluginExecutorThread", true), rejectionHandler);
+      this.queues = pluginQueues;
+    }
   }
 
   @Override
   protected void serviceStop() throws Exception
   {
     if (executorService != null) {
+      for (PluginQueue queue : queues.values()) {
+        queue.stop();
+      }
       executorService.shutdown();
       boolean terminated = false;
       try {
@@ -105,31 +115,148 @@ public class DefaultApexPluginDispatcher extends AbstractApexPluginDispatcher
           LOG.warn("{} executor service {} failed to terminate withing {} seconds", getClass().getSimpleName(), executorService, TIMEOUT);
         }
         executorService = null;
-        super.serviceStop();
       }
     }
+    super.serviceStop();
+  }
+
+  @Override
+  public Map<String, Map<String, Long>> getPluginStats()
+  {
+    Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+    for (PluginQueue queue : queues.values()) {
+      stats.put(queue.name, queue.getStats());
+    }
+    return stats;
   }
 
-  private class ProcessEventTask<T extends DAGExecutionEvent.Type> implements Runnable
+  private static class QueuedEvent
   {
-    private final Event<T> event;
+    private final DAGExecutionEvent event;
+    private final long queuedNanos = System.nanoTime();
 
-    public ProcessEventTask(Event<T> event)
+    private QueuedEvent(DAGExecutionEvent event)
     {
       this.event = event;
     }
+  }
+
+  /**
+   * Events pending for a plugin and the counters of their delivery. Commit and Stram events are queued in order,
+   * heartbeat events are kept per container.
+   */
+  private class PluginQueue implements Runnable
+  {
+    private final DAGExecutionPlugin plugin;
+    private final String name;
+    private final ArrayDeque<QueuedEvent> events = new ArrayDeque<>();
+    private final LinkedHashMap<String, QueuedEvent> heartbeats = new LinkedHashMap<>();
+    private boolean running = true;
+    private long deliveredCount;
+    private long droppedCount;
+    private long coalescedCount;
+    private long failedCount;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    private PluginQueue(DAGExecutionPlugin plugin, String name)
+    {
+      this.plugin = plugin;
+      this.name = name;
+    }
+
+    private synchronized void offer(DAGExecutionEvent event)
+    {
+      QueuedEvent queuedEvent = new QueuedEvent(event);
+      if (event instanceof DAGExecutionEvent.HeartbeatExecutionEvent) {
+        ContainerHeartbeat heartbeat = ((DAGExecutionEvent.HeartbeatExecutionEvent)event).getHeartbeat();
+        if (heartbeats.put(heartbeat.stats == null ? null : heartbeat.getContainerId(), queuedEvent) != null) {
+          coalescedCount++;
+        } else if (heartbeats.size() > QUEUE_SIZE) {
+          Iterator<QueuedEvent> it = heartbeats.values().iterator();
+          it.next();
+          it.remove();
+          droppedCount++;
+        }
+      } else {
+        if (events.size() >= QUEUE_SIZE) {
+          QueuedEvent dropped = events.poll();
+          droppedCount++;
+          LOG.warn("Dropping event {} for plugin {}", dropped.event, name);
+        }
+        events.add(queuedEvent);
+      }
+      notifyAll();
+    }
+
+    private synchronized QueuedEvent take() throws InterruptedException
+    {
+      while (running && events.isEmpty() && heartbeats.isEmpty()) {
+        wait();
+      }
+      QueuedEvent queuedEvent = events.poll();
+      if (queuedEvent == null && !heartbeats.isEmpty()) {
+        Iterator<QueuedEvent> it = heartbeats.values().iterator();
+        queuedEvent = it.next();
+        it.remove();
+      }
+      return queuedEvent;
+    }
+
+    private synchronized void stop()
+    {
+      running = false;
+      notifyAll();
+    }
+
+    private synchronized void delivered(QueuedEvent queuedEvent, boolean failed)
+    {
+      long latencyNanos = System.nanoTime() - queuedEvent.queuedNanos;
+      deliveredCount++;
+      if (failed) {
+        failedCount++;
+      }
+      totalLatencyNanos += latencyNanos;
+      maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+
+    private synchronized Map<String, Long> getStats()
+    {
+      Map<String, Long> stats = new LinkedHashMap<>();
+      stats.put("queued", (long)(events.size() + heartbeats.size()));
+      stats.put("delivered", deliveredCount);
+      stats.put("dropped", droppedCount);
+      stats.put("coalesced", coalescedCount);
+      stats.put("failed", failedCount);
+      stats.put("avgLatencyMicros", deliveredCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos / deliveredCount));
+      stats.put("maxLatencyMicros", TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos));
+      return stats;
+    }
 
     @Override
     public void run()
     {
-      synchronized (table) {
-        for (EventHandler handler : table.row(event.getType()).values()) {
-          try {
-            handler.handle(event);
-          } catch (RuntimeException e) {
-            LOG.warn("Event {} caused exception in handler {}", event, handler, e);
+      try {
+        QueuedEvent queuedEvent;
+        // remaining events are delivered after stop
+        while ((queuedEvent = take()) != null) {
+          EventHandler handler;
+          synchronized (table) {
+            handler = table.get(queuedEvent.event.getType(), plugin);
+          }
+          boolean failed = false;
+          if (handler != null) {
+            try {
+              handler.handle(queuedEvent.event);
+            } catch (RuntimeException e) {
+              failed = true;
+              LOG.warn("Event {} caused exception in handler {}", queuedEvent.event, handler, e);
+            }
           }
+          delivered(queuedEvent, failed);
         }
+      } catch (InterruptedException e) {
+        LOG.debug("Plugin {} dispatch interrupted", name);
       }
     }
   }
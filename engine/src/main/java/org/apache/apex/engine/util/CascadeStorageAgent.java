@@ -28,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.apex.common.util.AsyncStorageAgent;
+import org.apache.apex.common.util.PurgeableStorageAgent;
 
 import com.google.common.collect.Maps;
 
@@ -43,7 +44,7 @@ import com.datatorrent.api.StorageAgent;
  *
  * @since 3.6.0
  */
-public class CascadeStorageAgent implements StorageAgent, AsyncStorageAgent, Serializable
+public class CascadeStorageAgent implements StorageAgent, AsyncStorageAgent, PurgeableStorageAgent, Serializable
 {
   private static final long serialVersionUID = 985557590735264920L;
   private static final Logger logger = LoggerFactory.getLogger(CascadeStorageAgent.class);
@@ -127,6 +128,34 @@ public class CascadeStorageAgent implements StorageAgent, AsyncStorageAgent, Ser
     }
   }
 
+  /**
+   * Purge old checkpoints from the current storage agent, the checkpoints of the old storage agent are not
+   * modified.
+   *
+   * @param operatorId
+   * @param windowId
+   * @param throttle
+   * @throws IOException
+   */
+  @Override
+  public void purge(int operatorId, long windowId, Throttle throttle) throws IOException
+  {
+    if (current instanceof PurgeableStorageAgent) {
+      ((PurgeableStorageAgent)current).purge(operatorId, windowId, throttle);
+    } else {
+      throttle.acquire();
+      long[] windowIds = current.getWindowIds(operatorId);
+      if (windowIds != null) {
+        for (long wid : windowIds) {
+          if (wid <= windowId) {
+            throttle.acquire();
+            current.delete(operatorId, wid);
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Load checkpoint from storage agents. Do a basic comparision of windowIds
    * to check the storage agent which has the checkpoint.
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.apex.common.util.PurgeableStorageAgent;
+
+import com.datatorrent.api.StorageAgent;
+import com.datatorrent.stram.support.StramTestSupport;
+
+public class CheckpointPurgerTest
+{
+  private static class RecordingStorageAgent implements StorageAgent
+  {
+    final List<String> calls = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void save(Object object, int operatorId, long windowId) throws IOException
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object load(int operatorId, long windowId) throws IOException
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(int operatorId, long windowId) throws IOException
+    {
+      calls.add("delete " + operatorId + " " + windowId);
+    }
+
+    @Override
+    public long[] getWindowIds(int operatorId) throws IOException
+    {
+      return new long[0];
+    }
+  }
+
+  private static class RecordingPurgeableStorageAgent extends RecordingStorageAgent implements PurgeableStorageAgent
+  {
+    /**
+     * number of storage operations a purge performs
+     */
+    int operations = 1;
+
+    @Override
+    public void purge(int operatorId, long windowId, Throttle throttle) throws IOException
+    {
+      for (int i = 0; i < operations; i++) {
+        throttle.acquire();
+      }
+      calls.add("purge " + operatorId + " " + windowId);
+    }
+  }
+
+  private static void awaitPurged(final CheckpointPurger purger, final long count) throws InterruptedException
+  {
+    Assert.assertTrue("purged", StramTestSupport.awaitCompletion(new StramTestSupport.WaitCondition()
+    {
+      @Override
+      public boolean isComplete()
+      {
+        return purger.getPurgedCount() == count;
+      }
+    }, 5000));
+    Assert.assertEquals("pending", 0, purger.getPendingCount());
+    Assert.assertEquals("lag", 0, purger.getLagMillis());
+  }
+
+  @Test
+  public void testPurgeableStorageAgent() throws Exception
+  {
+    RecordingPurgeableStorageAgent agent = new RecordingPurgeableStorageAgent();
+    // slow enough for the requests to queue up behind the first purge
+    CheckpointPurger purger = new CheckpointPurger(10);
+    try {
+      for (long windowId = 1; windowId <= 10; windowId++) {
+        purger.purge(1, agent, windowId);
+        purger.purge(2, agent, windowId);
+      }
+      awaitPurged(purger, 20);
+      Assert.assertTrue("coalesced " + agent.calls, agent.calls.size() < 20);
+      Assert.assertTrue("operator 1 " + agent.calls, agent.calls.contains("purge 1 10"));
+      Assert.assertTrue("operator 2 " + agent.calls, agent.calls.contains("purge 2 10"));
+      Assert.assertEquals("failed", 0, purger.getFailedCount());
+    } finally {
+      purger.shutdown();
+    }
+  }
+
+  @Test
+  public void testRateLimitPerStorageOperation() throws Exception
+  {
+    RecordingPurgeableStorageAgent agent = new RecordingPurgeableStorageAgent();
+    agent.operations = 6;
+    CheckpointPurger purger = new CheckpointPurger(20);
+    try {
+      long start = System.currentTimeMillis();
+      purger.purge(1, agent, 1);
+      awaitPurged(purger, 1);
+      // a single purge call is limited by the number of storage operations it performs
+      Assert.assertTrue("rate limited", System.currentTimeMillis() - start >= 200);
+      Assert.assertEquals("calls", Arrays.asList("purge 1 1"), agent.calls);
+    } finally {
+      purger.shutdown();
+    }
+  }
+
+  @Test
+  public void testRateLimit() throws Exception
+  {
+    RecordingStorageAgent agent = new RecordingStorageAgent();
+    CheckpointPurger purger = new CheckpointPurger(20);
+    try {
+      long start = System.currentTimeMillis();
+      for (long windowId = 1; windowId <= 5; windowId++) {
+        purger.purge(1, agent, windowId);
+      }
+      awaitPurged(purger, 5);
+      Assert.assertTrue("rate limited", System.currentTimeMillis() - start >= 150);
+      for (long windowId = 1; windowId <= 5; windowId++) {
+        Assert.assertTrue("deleted " + windowId + " " + agent.calls, agent.calls.contains("delete 1 " + windowId));
+      }
+    } finally {
+      purger.shutdown();
+    }
+  }
+}
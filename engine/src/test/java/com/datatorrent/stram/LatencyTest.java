@@ -18,6 +18,10 @@
  */
 package com.datatorrent.stram;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -137,4 +141,24 @@ public class LatencyTest
 
   }
 
+  @Test
+  public void testCriticalPath()
+  {
+    StreamingContainerManager.CriticalPathTracker tracker = new StreamingContainerManager.CriticalPathTracker();
+    Map<PTOperator, PTOperator> slowestUpstreamOp = new HashMap<>();
+    o1p1.stats.latencyMA.add(10);
+    o2p1.stats.latencyMA.add(50);
+    o3p1.stats.latencyMA.add(100);
+
+    slowestUpstreamOp.put(o3p1, o2p1);
+    StreamingContainerManager.CriticalPathInfo cpi = tracker.update(scm.getPhysicalPlan(), slowestUpstreamOp);
+    Assert.assertEquals(150, cpi.latency);
+    Assert.assertEquals(Arrays.asList(o2p1.getId(), o3p1.getId()), cpi.path);
+    Assert.assertSame("unchanged path is reused", cpi, tracker.update(scm.getPhysicalPlan(), slowestUpstreamOp));
+
+    slowestUpstreamOp.put(o3p1, o1p1);
+    cpi = tracker.update(scm.getPhysicalPlan(), slowestUpstreamOp);
+    Assert.assertEquals(110, cpi.latency);
+    Assert.assertEquals(Arrays.asList(o1p1.getId(), o3p1.getId()), cpi.path);
+  }
 }
@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.URI;
@@ -398,6 +399,130 @@ public class StramRecoveryTest
     scm.setPhysicalOperatorProperty(o1p1.getId(), "maxTuples", "50");
   }
 
+  @Test
+  public void testWriteAheadLogGroupCommit() throws Exception
+  {
+    final MutableInt flushCount = new MutableInt();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new FSStorageAgent(testMeta.getPath(), null));
+    dag.setAttribute(LogicalPlan.JOURNAL_GROUP_COMMIT_MILLIS, 1000);
+
+    TestGeneratorInputOperator o1 = dag.addOperator("o1", TestGeneratorInputOperator.class);
+    final StreamingContainerManager scm = new StreamingContainerManager(dag);
+    final Journal j = scm.getJournal();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream()
+    {
+      @Override
+      public void flush() throws IOException
+      {
+        super.flush();
+        flushCount.increment();
+      }
+    };
+    j.setOutputStream(new DataOutputStream(bos));
+
+    // the first writer waits for the others, which are flushed with its record
+    List<Thread> writers = Lists.newArrayList();
+    for (int i = 0; i < 4; i++) {
+      final String value = i == 0 ? "1" : "100";
+      Thread writer = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          j.write(scm.getSetOperatorProperty("o1", "maxTuples", value));
+        }
+      };
+      writer.start();
+      writers.add(writer);
+      if (i == 0) {
+        Thread.sleep(100);
+      }
+    }
+    for (Thread writer : writers) {
+      writer.join(5000);
+      Assert.assertFalse("writer done", writer.isAlive());
+    }
+    assertEquals("flush count", 1, flushCount.intValue());
+
+    o1.setMaxTuples(10);
+    j.setOutputStream(null);
+    j.replay(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+    assertEquals(100, o1.getMaxTuples());
+  }
+
+  @Test
+  public void testIncrementalSnapshot() throws Exception
+  {
+    String appPath = testMeta.getPath();
+    FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(appPath, new Configuration(false));
+    List<String> state = Lists.newArrayList();
+    for (int i = 0; i < 10000; i++) {
+      state.add("operator" + i);
+    }
+    recoveryHandler.save(state);
+    File snapshotFile = new File(recoveryHandler.getDir(), FSRecoveryHandler.FILE_SNAPSHOT);
+    File deltaFile = new File(recoveryHandler.getDir(), FSRecoveryHandler.FILE_SNAPSHOT_DELTA);
+    Assert.assertTrue("snapshot file " + snapshotFile, snapshotFile.exists());
+    Assert.assertFalse("delta file " + deltaFile, deltaFile.exists());
+
+    // changes are saved as delta against the base snapshot
+    state.set(100, "changed");
+    state.add(5000, "inserted");
+    long snapshotLength = snapshotFile.length();
+    recoveryHandler.save(state);
+    assertEquals("snapshot length", snapshotLength, snapshotFile.length());
+    Assert.assertTrue("delta file " + deltaFile, deltaFile.exists());
+    Assert.assertTrue("delta length " + deltaFile.length(), deltaFile.length() < snapshotLength / 4);
+
+    recoveryHandler = new FSRecoveryHandler(appPath, new Configuration(false));
+    assertEquals("restored state", state, recoveryHandler.restore());
+    Assert.assertTrue("restore times " + recoveryHandler.getRestoreMillis(), recoveryHandler.getRestoreMillis().containsKey("deserializeSnapshot"));
+
+    // the restored base is used for the next delta
+    state.remove(0);
+    recoveryHandler.save(state);
+    assertEquals("snapshot length", snapshotLength, snapshotFile.length());
+    assertEquals("restored state", state, new FSRecoveryHandler(appPath, new Configuration(false)).restore());
+
+    // a state that differs from the base is saved as new base
+    List<String> otherState = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      otherState.add("container" + i);
+    }
+    recoveryHandler.save(otherState);
+    Assert.assertFalse("delta file " + deltaFile, deltaFile.exists());
+    assertEquals("restored state", otherState, new FSRecoveryHandler(appPath, new Configuration(false)).restore());
+  }
+
+  @Test
+  public void testTruncatedSnapshotDelta() throws Exception
+  {
+    String appPath = testMeta.getPath();
+    FSRecoveryHandler recoveryHandler = new FSRecoveryHandler(appPath, new Configuration(false));
+    List<String> state = Lists.newArrayList();
+    for (int i = 0; i < 10000; i++) {
+      state.add("operator" + i);
+    }
+    recoveryHandler.save(state);
+    state.set(100, "changed");
+    recoveryHandler.save(state);
+
+    File deltaFile = new File(recoveryHandler.getDir(), FSRecoveryHandler.FILE_SNAPSHOT_DELTA);
+    Assert.assertTrue("delta file " + deltaFile, deltaFile.exists());
+    try (RandomAccessFile raf = new RandomAccessFile(deltaFile, "rw")) {
+      raf.setLength(raf.length() - 4);
+    }
+    // the checksum of the local file system would fail the read before the delta is applied
+    new File(deltaFile.getParentFile(), "." + deltaFile.getName() + ".crc").delete();
+    // a truncated delta must not silently restore the base snapshot
+    try {
+      new FSRecoveryHandler(appPath, new Configuration(false)).restore();
+      Assert.fail("restored from truncated delta");
+    } catch (IOException e) {
+      Assert.assertTrue("cause " + e.getCause(), e.getCause() instanceof IOException);
+    }
+  }
+
   private void testRestartApp(StorageAgent agent, String appPath1) throws Exception
   {
     String appId1 = "app1";
@@ -903,6 +903,59 @@ public class StreamingContainerManagerTest
     slc.run(5000);
   }
 
+  @Test
+  public void testStripedHeartbeatProcessing() throws Exception
+  {
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new MemoryStorageAgent());
+    dag.setAttribute(LogicalPlan.HEARTBEAT_PROCESSING_THREADS, 2);
+
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    dag.addStream("stream1", o1.outport1, o2.inport1);
+
+    StreamingContainerManager scm = new StreamingContainerManager(dag);
+    PhysicalPlan physicalPlan = scm.getPhysicalPlan();
+    final PTOperator o1p1 = physicalPlan.getOperators(dag.getMeta(o1)).get(0);
+    final PTOperator o2p1 = physicalPlan.getOperators(dag.getMeta(o2)).get(0);
+
+    try {
+      List<MockContainer> mockContainers = new ArrayList<>();
+      for (PTContainer c : physicalPlan.getContainers()) {
+        mockContainers.add(new MockContainer(scm, c));
+      }
+      for (MockContainer mc : mockContainers) {
+        mc.deploy();
+      }
+      for (MockContainer mc : mockContainers) {
+        for (PTOperator oper : mc.container.getOperators()) {
+          mc.stats(oper.getId()).currentWindowId(2).checkpointWindowId(1).deployState(DeployState.ACTIVE);
+        }
+        mc.sendHeartbeat();
+      }
+
+      // the deploy state is processed before the heartbeat is answered
+      Assert.assertEquals("o1p1 state", PTOperator.State.ACTIVE, o1p1.getState());
+      Assert.assertEquals("o2p1 state", PTOperator.State.ACTIVE, o2p1.getState());
+
+      // the stats are ingested by the heartbeat threads
+      Assert.assertTrue("stats ingested", StramTestSupport.awaitCompletion(new StramTestSupport.WaitCondition()
+      {
+        @Override
+        public boolean isComplete()
+        {
+          return o1p1.stats.currentWindowId.get() == 2 && o2p1.stats.currentWindowId.get() == 2 &&
+              o1p1.getRecentCheckpoint() != null && o2p1.getRecentCheckpoint() != null;
+        }
+      }, 5000));
+      Assert.assertEquals("o1p1 checkpoint", 1, o1p1.getRecentCheckpoint().windowId);
+      Assert.assertTrue("heartbeat processing time",
+          scm.getHeartbeatProcessingMicros(99) >= scm.getHeartbeatProcessingMicros(50));
+      Assert.assertEquals("heartbeats held up", 0, scm.getHeartbeatStatsRejections());
+    } finally {
+      scm.teardown();
+    }
+  }
+
   @Test
   public void testOIODownstreamPartition() throws Exception
   {
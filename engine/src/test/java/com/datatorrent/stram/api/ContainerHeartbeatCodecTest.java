@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.api;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerHeartbeat;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+
+public class ContainerHeartbeatCodecTest
+{
+  private final ContainerHeartbeatCodec.Sessions sessions = new ContainerHeartbeatCodec.Sessions();
+
+  private static ContainerHeartbeat createHeartbeat(String containerId, long windowId)
+  {
+    ContainerHeartbeat heartbeat = new ContainerHeartbeat();
+    heartbeat.jvmName = "1234@host";
+    heartbeat.bufferServerHost = "host";
+    heartbeat.bufferServerPort = 4321;
+    heartbeat.memoryMBFree = 512;
+    heartbeat.gcCollectionCount = 10 + windowId;
+    heartbeat.gcCollectionTime = 100 + windowId;
+    heartbeat.sentTms = 1000000 + windowId * 500;
+    ContainerStats stats = new ContainerStats(containerId);
+    for (int nodeId = 1; nodeId <= 3; nodeId++) {
+      OperatorHeartbeat ohb = new OperatorHeartbeat();
+      ohb.setNodeId(nodeId);
+      ohb.setState(OperatorHeartbeat.DeployState.ACTIVE);
+      ohb.setGeneratedTms(heartbeat.sentTms - 5);
+      ohb.setIntervalMs(1000);
+      for (long w = windowId; w < windowId + 2; w++) {
+        ContainerStats.OperatorStats os = new ContainerStats.OperatorStats();
+        os.windowId = w;
+        os.cpuTimeUsed = 12345;
+        os.checkpoint = new Checkpoint(w - 1, 1, 60);
+        os.inputPorts = new ArrayList<>();
+        ContainerStats.OperatorStats.PortStats ps = new ContainerStats.OperatorStats.PortStats("input");
+        ps.tupleCount = 1000;
+        ps.endWindowTimestamp = heartbeat.sentTms - 10;
+        ps.bufferServerBytes = 20000;
+        ps.queueSize = 3;
+        os.inputPorts.add(ps);
+        os.outputPorts = new ArrayList<>();
+        ps = new ContainerStats.OperatorStats.PortStats("output");
+        ps.tupleCount = 900;
+        ps.endWindowTimestamp = heartbeat.sentTms - 8;
+        ps.bufferServerBytes = 18000;
+        ps.bufferServerWrites = 7;
+        os.outputPorts.add(ps);
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("count", w);
+        os.metrics = metrics;
+        ohb.windowStats.add(os);
+      }
+      stats.addNodeStats(ohb);
+    }
+    heartbeat.setContainerStats(stats);
+    return heartbeat;
+  }
+
+  private static byte[] write(ContainerHeartbeat heartbeat) throws IOException
+  {
+    DataOutputBuffer out = new DataOutputBuffer();
+    heartbeat.write(out);
+    byte[] bytes = new byte[out.getLength()];
+    System.arraycopy(out.getData(), 0, bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  private ContainerHeartbeat read(byte[] bytes) throws IOException
+  {
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(bytes, bytes.length);
+    ContainerHeartbeat heartbeat = new ContainerHeartbeat();
+    heartbeat.readFields(in);
+    sessions.decode(heartbeat);
+    return heartbeat;
+  }
+
+  private static void assertHeartbeat(ContainerHeartbeat expected, ContainerHeartbeat actual)
+  {
+    Assert.assertFalse("resync", actual.isResyncRequired());
+    Assert.assertEquals("container", expected.getContainerId(), actual.getContainerId());
+    Assert.assertEquals("jvm", expected.jvmName, actual.jvmName);
+    Assert.assertEquals("buffer server host", expected.bufferServerHost, actual.bufferServerHost);
+    Assert.assertEquals("buffer server port", expected.bufferServerPort, actual.bufferServerPort);
+    Assert.assertEquals("memory", expected.memoryMBFree, actual.memoryMBFree);
+    Assert.assertEquals("gc count", expected.gcCollectionCount, actual.gcCollectionCount);
+    Assert.assertEquals("gc time", expected.gcCollectionTime, actual.gcCollectionTime);
+    Assert.assertEquals("sent", expected.sentTms, actual.sentTms);
+    Assert.assertEquals("operators", expected.stats.operators.size(), actual.stats.operators.size());
+    for (int i = 0; i < expected.stats.operators.size(); i++) {
+      OperatorHeartbeat eohb = expected.stats.operators.get(i);
+      OperatorHeartbeat aohb = actual.stats.operators.get(i);
+      Assert.assertEquals("node", eohb.nodeId, aohb.nodeId);
+      Assert.assertEquals("state", eohb.state, aohb.state);
+      Assert.assertEquals("generated", eohb.generatedTms, aohb.generatedTms);
+      Assert.assertEquals("interval", eohb.intervalMs, aohb.intervalMs);
+      Assert.assertEquals("stats", eohb.windowStats.size(), aohb.windowStats.size());
+      for (int j = 0; j < eohb.windowStats.size(); j++) {
+        ContainerStats.OperatorStats eos = eohb.windowStats.get(j);
+        ContainerStats.OperatorStats aos = aohb.windowStats.get(j);
+        Assert.assertEquals("window", eos.windowId, aos.windowId);
+        Assert.assertEquals("checkpoint", eos.checkpoint, aos.checkpoint);
+        Assert.assertEquals("cpu", eos.cpuTimeUsed, aos.cpuTimeUsed);
+        Assert.assertEquals("metrics", eos.metrics, aos.metrics);
+        Assert.assertEquals("output ports", eos.outputPorts.size(), aos.outputPorts.size());
+        ContainerStats.OperatorStats.PortStats eps = eos.inputPorts.get(0);
+        ContainerStats.OperatorStats.PortStats aps = aos.inputPorts.get(0);
+        Assert.assertEquals("port", eps.id, aps.id);
+        Assert.assertEquals("tuples", eps.tupleCount, aps.tupleCount);
+        Assert.assertEquals("end window", eps.endWindowTimestamp, aps.endWindowTimestamp);
+        Assert.assertEquals("buffer server bytes", eps.bufferServerBytes, aps.bufferServerBytes);
+        Assert.assertEquals("queue", eps.queueSize, aps.queueSize);
+        Assert.assertEquals("output end window", eos.outputPorts.get(0).endWindowTimestamp,
+            aos.outputPorts.get(0).endWindowTimestamp);
+        Assert.assertEquals("output buffer server writes", eos.outputPorts.get(0).bufferServerWrites,
+            aos.outputPorts.get(0).bufferServerWrites);
+      }
+    }
+  }
+
+  @Test
+  public void testDeltaHeartbeats() throws IOException
+  {
+    ContainerHeartbeatCodec codec = new ContainerHeartbeatCodec();
+    for (long windowId = 10; windowId < 20; windowId += 2) {
+      ContainerHeartbeat heartbeat = createHeartbeat("testDeltaHeartbeats", windowId);
+      byte[] serialized = write(heartbeat);
+      heartbeat.setCodec(codec);
+      byte[] encoded = write(heartbeat);
+      Assert.assertTrue("encoded " + encoded.length + " serialized " + serialized.length,
+          encoded.length * 2 < serialized.length);
+      assertHeartbeat(heartbeat, read(encoded));
+    }
+  }
+
+  @Test
+  public void testDecodeOutsideDeserialization() throws IOException
+  {
+    ContainerHeartbeatCodec codec = new ContainerHeartbeatCodec();
+    ContainerHeartbeat heartbeat = createHeartbeat("testDecodeOutsideDeserialization", 10);
+    heartbeat.setCodec(codec);
+    byte[] encoded = write(heartbeat);
+
+    // the deserialization only reads the encoded heartbeat
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(encoded, encoded.length);
+    ContainerHeartbeat decoded = new ContainerHeartbeat();
+    decoded.readFields(in);
+    Assert.assertEquals("container", "testDecodeOutsideDeserialization", decoded.getContainerId());
+    Assert.assertEquals("sent", heartbeat.sentTms, decoded.sentTms);
+    Assert.assertTrue("not decoded", decoded.stats.operators.isEmpty());
+    sessions.decode(decoded);
+    assertHeartbeat(heartbeat, decoded);
+
+    // other sessions do not have the session the next heartbeat is based on
+    heartbeat = createHeartbeat("testDecodeOutsideDeserialization", 12);
+    heartbeat.setCodec(codec);
+    encoded = write(heartbeat);
+    in.reset(encoded, encoded.length);
+    decoded = new ContainerHeartbeat();
+    decoded.readFields(in);
+    new ContainerHeartbeatCodec.Sessions().decode(decoded);
+    Assert.assertTrue("resync", decoded.isResyncRequired());
+  }
+
+  @Test
+  public void testJavaSerialization() throws IOException
+  {
+    ContainerHeartbeat heartbeat = createHeartbeat("testJavaSerialization", 10);
+    assertHeartbeat(heartbeat, read(write(heartbeat)));
+  }
+
+  @Test
+  public void testResync() throws IOException
+  {
+    ContainerHeartbeatCodec codec = new ContainerHeartbeatCodec();
+    ContainerHeartbeat heartbeat = createHeartbeat("testResync", 10);
+    heartbeat.setCodec(codec);
+    assertHeartbeat(heartbeat, read(write(heartbeat)));
+
+    // application master lost the session
+    sessions.remove("testResync");
+    heartbeat = createHeartbeat("testResync", 12);
+    heartbeat.setCodec(codec);
+    ContainerHeartbeat decoded = read(write(heartbeat));
+    Assert.assertTrue("resync", decoded.isResyncRequired());
+    Assert.assertEquals("container", "testResync", decoded.getContainerId());
+    Assert.assertTrue("no stats", decoded.stats.operators.isEmpty());
+
+    codec.reset();
+    assertHeartbeat(heartbeat, read(write(heartbeat)));
+  }
+}
@@ -18,8 +18,12 @@
  */
 package com.datatorrent.stram.engine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -34,6 +38,7 @@ import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.DefaultBatchInputPort;
 import com.datatorrent.api.Sink;
 import com.datatorrent.netlet.util.CircularBuffer;
 import com.datatorrent.stram.tuple.Tuple;
@@ -89,6 +94,7 @@ public class AbstractReservoirTest
         {null, NoSuchElementException.class},
         {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayQueueReservoir", NoSuchElementException.class},
         {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayBlockingQueueReservoir", NoSuchElementException.class},
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayParkingQueueReservoir", NoSuchElementException.class},
         {"com.datatorrent.stram.engine.AbstractReservoir$ArrayBlockingQueueReservoir", NoSuchElementException.class},
         {"com.datatorrent.stram.engine.AbstractReservoir$CircularBufferReservoir", IllegalStateException.class}
     };
@@ -121,6 +127,23 @@ public class AbstractReservoirTest
     return defaultTestParameters;
   }
 
+  @SuppressWarnings("unused")
+  private Object batchTestParameters()
+  {
+    Object[][] batchTestParameters = new Object[][] {
+        {null},
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayQueueReservoir"},
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayBlockingQueueReservoir"},
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayParkingQueueReservoir"},
+        {"com.datatorrent.stram.engine.AbstractReservoir$ArrayBlockingQueueReservoir"},
+        {"com.datatorrent.stram.engine.AbstractReservoir$CircularBufferReservoir"}
+    };
+    for (Object[] o : batchTestParameters) {
+      o[0] = newReservoir((String)o[0], 16);
+    }
+    return batchTestParameters;
+  }
+
   @SuppressWarnings("unused")
   private Object performanceTestParameters()
   {
@@ -128,6 +151,7 @@ public class AbstractReservoirTest
         {null, 2500},
         {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayQueueReservoir", 10000},
         {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayBlockingQueueReservoir", 2500},
+        {"com.datatorrent.stram.engine.AbstractReservoir$SpscArrayParkingQueueReservoir", 10000},
         {"com.datatorrent.stram.engine.AbstractReservoir$ArrayBlockingQueueReservoir", 10000},
         {"com.datatorrent.stram.engine.AbstractReservoir$CircularBufferReservoir", 100000}
     };
@@ -155,6 +179,40 @@ public class AbstractReservoirTest
     return performanceTestParameters;
   }
 
+  @Test
+  @Parameters(method = "batchTestParameters")
+  public void testSweepBatch(final AbstractReservoir reservoir)
+  {
+    final List<List<Object>> batches = new ArrayList<>();
+    final DefaultBatchInputPort<Object> port = new DefaultBatchInputPort<Object>()
+    {
+      @Override
+      public void processBatch(List<Object> tuples)
+      {
+        batches.add(new ArrayList<>(tuples));
+      }
+    };
+    setSink(reservoir, port);
+
+    final Tuple t = new Tuple(BEGIN_WINDOW, 0L);
+    reservoir.add(1);
+    reservoir.add(2);
+    reservoir.add(t);
+    reservoir.add(3);
+
+    assertEquals(t, reservoir.sweep());
+    assertEquals(Arrays.<Object>asList(1, 2), batches.get(0));
+    assertEquals(t, reservoir.remove());
+    assertNull(reservoir.sweep());
+    assertEquals(Arrays.<Object>asList(3), batches.get(1));
+    assertEquals(2, batches.size());
+    assertEquals(3, reservoir.getCount(false));
+    assertEquals(3, port.getCount(false));
+
+    port.put(4);
+    assertEquals(Arrays.<Object>asList(4), batches.get(2));
+  }
+
   @Test
   @Parameters(method = "defaultTestParameters")
   public void testEmpty(final AbstractReservoir reservoir, final Class<? extends Throwable> type)
@@ -227,6 +285,50 @@ public class AbstractReservoirTest
     reservoir.add(o);
   }
 
+  @Test
+  public void testParkingReservoir() throws InterruptedException
+  {
+    final AbstractReservoir reservoir =
+        newReservoir("com.datatorrent.stram.engine.AbstractReservoir$SpscArrayParkingQueueReservoir", 2);
+    final List<Object> received = new ArrayList<>();
+    final Thread consumer = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        try {
+          for (int i = 0; i < 8; i++) {
+            received.add(reservoir.take());
+          }
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    consumer.start();
+    for (int i = 0; i < 8; i++) {
+      reservoir.put(i);
+    }
+    consumer.join(1000);
+    assertFalse(consumer.isAlive());
+    assertEquals(Arrays.<Object>asList(0, 1, 2, 3, 4, 5, 6, 7), received);
+    assertNull(reservoir.poll(1, TimeUnit.MILLISECONDS));
+    /* the capacity of the queue is rounded up */
+    final int capacity = reservoir.capacity();
+    for (int i = 0; i < capacity; i++) {
+      assertTrue(reservoir.offer(i, 1, TimeUnit.MILLISECONDS));
+    }
+    assertFalse(reservoir.offer(capacity, 1, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void testContainerLocalReservoir()
+  {
+    System.clearProperty(AbstractReservoir.reservoirClassNameProperty);
+    assertEquals("com.datatorrent.stram.engine.AbstractReservoir$SpscArrayParkingQueueReservoir",
+        AbstractReservoir.newContainerLocalReservoir("ContainerLocal", 16).getClass().getName());
+  }
+
   @Test
   @Ignore
   @Parameters(method = "performanceTestParameters")
@@ -28,6 +28,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestWatcher;
@@ -959,5 +960,205 @@ public class GenericNodeTest
     t.join();
   }
 
+  @Test
+  public void testMicroBatch() throws InterruptedException
+  {
+    final int windows = 3;
+    final int tuplesPerWindow = 5;
+
+    /* without batching the operator drains a port up to the next control tuple before it moves on */
+    List<String> output = sweepWindows(0, windows, tuplesPerWindow);
+    String[] ports = output.get(1).startsWith("a") ? new String[] {"a", "b"} : new String[] {"b", "a"};
+    Assert.assertEquals("Output", expectedInterleaving(ports, windows, new int[] {0, tuplesPerWindow}), output);
+
+    /*
+     * with a batch of 3 tuples the begin window and the first 2 data tuples make up the first batch of a port, the
+     * remaining 3 data tuples the second one
+     */
+    output = sweepWindows(3, windows, tuplesPerWindow);
+    ports = output.get(1).startsWith("a") ? new String[] {"a", "b"} : new String[] {"b", "a"};
+    Assert.assertEquals("Output", expectedInterleaving(ports, windows, new int[] {0, 2, tuplesPerWindow}), output);
+  }
+
+  private static List<String> expectedInterleaving(String[] ports, int windows, int[] batches)
+  {
+    List<String> expected = new ArrayList<>();
+    for (long windowId = 1; windowId <= windows; windowId++) {
+      expected.add(MessageType.BEGIN_WINDOW + ":" + windowId);
+      for (int batch = 1; batch < batches.length; batch++) {
+        for (String port : ports) {
+          for (int i = batches[batch - 1]; i < batches[batch]; i++) {
+            expected.add(port + windowId + "-" + i);
+          }
+        }
+      }
+      expected.add(MessageType.END_WINDOW + ":" + windowId);
+    }
+    expected.add(MessageType.END_STREAM.toString());
+    return expected;
+  }
+
+  private List<String> sweepWindows(int batchSize, int windows, int tuplesPerWindow) throws InterruptedException
+  {
+    DefaultAttributeMap attributes = new DefaultAttributeMap();
+    attributes.put(Context.OperatorContext.INPUT_BATCH_SIZE, batchSize);
+    final GenericNode gn = new GenericNode(new GenericOperator(), new com.datatorrent.stram.engine.OperatorContext(0,
+        "operator", attributes, null));
+    gn.setId(1);
+    AbstractReservoir reservoir1 = AbstractReservoir.newReservoir("ip1Res", 1024);
+    AbstractReservoir reservoir2 = AbstractReservoir.newReservoir("ip2Res", 1024);
+    final List<String> output = new ArrayList<>();
+    Sink<Object> sink = new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        if (tuple instanceof Tuple) {
+          Tuple t = (Tuple)tuple;
+          output.add(t.getType() == MessageType.END_STREAM ? t.getType().toString() :
+              t.getType() + ":" + t.getWindowId());
+        } else {
+          output.add(tuple.toString());
+        }
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+    };
+
+    gn.connectInputPort("ip1", reservoir1);
+    gn.connectInputPort("ip2", reservoir2);
+    gn.connectOutputPort("op", sink);
+    gn.firstWindowMillis = 0;
+    gn.windowWidthMillis = 100;
+
+    for (long windowId = 1; windowId <= windows; windowId++) {
+      reservoir1.add(new Tuple(MessageType.BEGIN_WINDOW, windowId));
+      reservoir2.add(new Tuple(MessageType.BEGIN_WINDOW, windowId));
+      for (int i = 0; i < tuplesPerWindow; i++) {
+        reservoir1.add("a" + windowId + "-" + i);
+        reservoir2.add("b" + windowId + "-" + i);
+      }
+      reservoir1.add(new EndWindowTuple(windowId));
+      reservoir2.add(new EndWindowTuple(windowId));
+    }
+    reservoir1.add(new EndStreamTuple(0L));
+    reservoir2.add(new EndStreamTuple(0L));
+
+    Thread t = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        gn.activate();
+        gn.run();
+        gn.deactivate();
+      }
+    };
+    t.start();
+    t.join(10000);
+
+    Assert.assertEquals("Thread state", Thread.State.TERMINATED, t.getState());
+    return output;
+  }
+
+  /**
+   * Compares the throughput and the latency of the round robin loop with the micro-batch mode for an operator with
+   * short windows on both of its input ports.
+   */
+  @Test
+  @Ignore
+  public void testMicroBatchPerformance() throws InterruptedException
+  {
+    for (int batchSize : new int[] {0, 1024, 0, 1024}) {
+      measureThroughput(batchSize, 20000, 32);
+    }
+  }
+
+  private void measureThroughput(int batchSize, final int windows, final int tuplesPerWindow)
+      throws InterruptedException
+  {
+    DefaultAttributeMap attributes = new DefaultAttributeMap();
+    attributes.put(Context.OperatorContext.INPUT_BATCH_SIZE, batchSize);
+    attributes.put(Context.OperatorContext.WAIT_STRATEGY, Context.WaitStrategy.BUSY_SPIN);
+    final GenericNode gn = new GenericNode(new GenericOperator(), new com.datatorrent.stram.engine.OperatorContext(0,
+        "operator", attributes, null));
+    gn.setId(1);
+    final AbstractReservoir[] reservoirs = new AbstractReservoir[] {
+        AbstractReservoir.newReservoir("ip1Res", 16 * 1024), AbstractReservoir.newReservoir("ip2Res", 16 * 1024)};
+    final long[] latency = new long[2];
+    Sink<Object> sink = new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        if (tuple instanceof Long) {
+          latency[0] += System.nanoTime() - (Long)tuple;
+          latency[1]++;
+        }
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+    };
+
+    gn.connectInputPort("ip1", reservoirs[0]);
+    gn.connectInputPort("ip2", reservoirs[1]);
+    gn.connectOutputPort("op", sink);
+    gn.firstWindowMillis = 0;
+    gn.windowWidthMillis = 100;
+
+    Thread[] producers = new Thread[reservoirs.length];
+    for (int i = 0; i < producers.length; i++) {
+      final AbstractReservoir reservoir = reservoirs[i];
+      producers[i] = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try {
+            for (long windowId = 1; windowId <= windows; windowId++) {
+              reservoir.put(new Tuple(MessageType.BEGIN_WINDOW, windowId));
+              for (int j = 0; j < tuplesPerWindow; j++) {
+                reservoir.put(System.nanoTime());
+              }
+              reservoir.put(new EndWindowTuple(windowId));
+            }
+            reservoir.put(new EndStreamTuple(0L));
+          } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+          }
+        }
+      };
+    }
+
+    Thread t = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        gn.activate();
+        gn.run();
+        gn.deactivate();
+      }
+    };
+    long start = System.nanoTime();
+    t.start();
+    for (Thread producer : producers) {
+      producer.start();
+    }
+    t.join();
+    long elapsed = System.nanoTime() - start;
+
+    LOG.info("batch size {}: {} tuples/s, {} windows/s, average latency {} us", batchSize,
+        latency[1] * 1000000000L / elapsed, windows * 1000000000L / elapsed, latency[0] / latency[1] / 1000);
+  }
+
   private static final Logger LOG = LoggerFactory.getLogger(GenericNodeTest.class);
 }
@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+
+import com.datatorrent.api.Context.WaitStrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IdleWaiterTest
+{
+  @Test
+  public void testReservoirSignalsParkedThread() throws Exception
+  {
+    for (final WaitStrategy strategy : new WaitStrategy[] {WaitStrategy.PARK, WaitStrategy.HYBRID}) {
+      final AbstractReservoir reservoir = AbstractReservoir.newReservoir("testReservoir", 16);
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch done = new CountDownLatch(1);
+
+      Thread consumer = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          /* the park outlasts the test, the consumer resumes only if it is signalled */
+          final IdleWaiter idleWaiter = IdleWaiter.newInstance(strategy, 60000);
+          reservoir.setWaiter(idleWaiter);
+          started.countDown();
+          try {
+            while (reservoir.isEmpty()) {
+              idleWaiter.idle();
+            }
+            done.countDown();
+          } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+          }
+        }
+      };
+      consumer.start();
+      started.await();
+
+      Thread.sleep(100);
+      reservoir.add(1);
+      assertTrue(strategy + " waiter is signalled", done.await(10, TimeUnit.SECONDS));
+      consumer.join();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testSignalBeforePark() throws Exception
+  {
+    for (WaitStrategy strategy : new WaitStrategy[] {WaitStrategy.PARK, WaitStrategy.HYBRID}) {
+      IdleWaiter idleWaiter = IdleWaiter.newInstance(strategy, 60000);
+      /* a signal that comes before the thread parks is not lost, the hybrid waiter parks once it is done spinning */
+      for (int i = 0; i <= IdleWaiter.HybridWaiter.SPIN_ITERATIONS + IdleWaiter.HybridWaiter.YIELD_ITERATIONS; i++) {
+        idleWaiter.signal();
+        idleWaiter.idle();
+      }
+    }
+  }
+
+  @Test
+  public void testSignalDoesNotUnparkRunningThread() throws Exception
+  {
+    IdleWaiter idleWaiter = IdleWaiter.newInstance(WaitStrategy.PARK, 60000);
+    for (int i = 0; i < 1000; i++) {
+      idleWaiter.signal();
+    }
+    /* the thread was not parked, so it was not given a permit and parks till the timeout */
+    long start = System.nanoTime();
+    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+    assertTrue("no permit", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+
+    /* the pending signal makes the next idle return at once */
+    start = System.nanoTime();
+    idleWaiter.idle();
+    assertTrue("signalled", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+  }
+
+  @Test
+  public void testSleepBackoff() throws Exception
+  {
+    IdleWaiter.SleepWaiter idleWaiter = new IdleWaiter.SleepWaiter(2);
+    long start = System.nanoTime();
+    for (int i = 0; i < 10; i++) {
+      idleWaiter.idle();
+    }
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+
+    idleWaiter.busy();
+    start = System.nanoTime();
+    idleWaiter.idle();
+    assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+  }
+
+  @Test(expected = InterruptedException.class)
+  public void testInterrupt() throws Exception
+  {
+    IdleWaiter idleWaiter = IdleWaiter.newInstance(WaitStrategy.PARK, 60000);
+    Thread.currentThread().interrupt();
+    idleWaiter.idle();
+  }
+
+  @Test
+  public void testNewInstance()
+  {
+    assertEquals(IdleWaiter.SleepWaiter.class, IdleWaiter.newInstance(WaitStrategy.SLEEP, 10).getClass());
+    assertEquals(IdleWaiter.BusySpinWaiter.class, IdleWaiter.newInstance(WaitStrategy.BUSY_SPIN, 10).getClass());
+    assertEquals(IdleWaiter.YieldWaiter.class, IdleWaiter.newInstance(WaitStrategy.YIELD, 10).getClass());
+    assertEquals(IdleWaiter.ParkWaiter.class, IdleWaiter.newInstance(WaitStrategy.PARK, 10).getClass());
+    assertEquals(IdleWaiter.HybridWaiter.class, IdleWaiter.newInstance(WaitStrategy.HYBRID, 10).getClass());
+  }
+
+}
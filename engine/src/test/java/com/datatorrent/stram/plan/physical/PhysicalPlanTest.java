@@ -43,7 +43,10 @@ import org.apache.commons.lang3.mutable.MutableInt;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import com.datatorrent.api.AffinityRule;
+import com.datatorrent.api.AffinityRulesSet;
 import com.datatorrent.api.Context;
+import com.datatorrent.api.Context.DAGContext;
 import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.Context.PortContext;
 import com.datatorrent.api.DAG.Locality;
@@ -1731,6 +1734,89 @@ public class PhysicalPlanTest
 
   }
 
+  @Test
+  public void testAdaptiveCascadingUnifier()
+  {
+    LogicalPlan dag = new LogicalPlan();
+
+    PartitioningTestOperator o1 = dag.addOperator("o1", PartitioningTestOperator.class);
+    o1.partitionKeys = new Integer[] {0,1,2,3};
+    o1.setPartitionCount(o1.partitionKeys.length);
+    dag.setOutputPortAttribute(o1.outport1, LogicalPlan.UNIFIER_TUPLES_PER_SECOND, 100);
+    OperatorMeta o1Meta = dag.getMeta(o1);
+
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    OperatorMeta o2Meta = dag.getMeta(o2);
+
+    dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+
+    TestPlanContext ctx = new TestPlanContext();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+    Assert.assertEquals("number of containers", 5, plan.getContainers().size());
+    for (PTContainer container : plan.getContainers()) {
+      container.setState(PTContainer.State.ACTIVE);
+      container.setAllocatedMemoryMB(4096);
+    }
+
+    List<PTOperator> o1Partitions = plan.getOperators(o1Meta);
+    Assert.assertEquals("o1Unifiers " + o1Meta, 0, plan.getMergeOperators(o1Meta).size());
+    PTOperator o2p1 = plan.getOperators(o2Meta).get(0);
+    PTOperator mergeUnifier = o2p1.upstreamMerge.values().iterator().next();
+    Assert.assertEquals("inputs " + mergeUnifier, 4, mergeUnifier.getInputs().size());
+    Assert.assertEquals("stats listeners " + mergeUnifier, 1, mergeUnifier.statsListeners.size());
+
+    // overloaded unifier adds a level with half the fan in
+    ((StreamMapping.UnifierLoadWatch)mergeUnifier.statsListeners.get(0)).evalIntervalMillis = 0;
+    setThroughput(mergeUnifier, 1000);
+    plan.onStatusUpdate(mergeUnifier);
+    Assert.assertEquals("unifier changes triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    List<PTOperator> o1Unifiers = plan.getMergeOperators(o1Meta);
+    Assert.assertEquals("o1Unifiers " + o1Meta, 2, o1Unifiers.size());
+    Assert.assertEquals("inputs " + mergeUnifier, 2, mergeUnifier.getInputs().size());
+    Assert.assertEquals("number of containers", 5, plan.getContainers().size());
+    for (PTOperator o : o1Unifiers) {
+      Assert.assertEquals("inputs " + o, 2, o.getInputs().size());
+      Set<PTContainer> upstreamContainers = Sets.newHashSet();
+      for (PTInput in : o.getInputs()) {
+        Assert.assertTrue("input " + in, o1Partitions.contains(in.source.source));
+        upstreamContainers.add(in.source.source.getContainer());
+      }
+      Assert.assertTrue("placed with upstream partition " + o, upstreamContainers.contains(o.getContainer()));
+      Assert.assertTrue("deploy " + o, ctx.deploy.contains(o));
+
+      // the unifier adds its own memory and buffer server memory to the container
+      int memoryMB = 0;
+      for (PTOperator oper : o.getContainer().getOperators()) {
+        memoryMB += oper.getOperatorMeta().getValue(OperatorContext.MEMORY_MB) + oper.getBufferServerMemory();
+      }
+      Assert.assertEquals("memory " + o.getContainer(), memoryMB, o.getContainer().getRequiredMemoryMB());
+    }
+    Assert.assertTrue("redeploy " + mergeUnifier, ctx.undeploy.contains(mergeUnifier) && ctx.deploy.contains(mergeUnifier));
+    Assert.assertTrue("redeploy " + o2p1, ctx.undeploy.contains(o2p1) && ctx.deploy.contains(o2p1));
+
+    // all unifiers underloaded removes the level
+    List<PTOperator> unifiers = Lists.newArrayList(o1Unifiers);
+    unifiers.add(mergeUnifier);
+    for (PTOperator o : unifiers) {
+      ((StreamMapping.UnifierLoadWatch)o.statsListeners.get(0)).evalIntervalMillis = 0;
+      setThroughput(o, 0);
+      plan.onStatusUpdate(o);
+    }
+    Assert.assertEquals("unifier changes triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    Assert.assertEquals("o1Unifiers " + o1Meta, 0, plan.getMergeOperators(o1Meta).size());
+    Assert.assertEquals("inputs " + mergeUnifier, 4, mergeUnifier.getInputs().size());
+    for (PTOperator o : o1Unifiers) {
+      Assert.assertTrue("undeploy " + o, ctx.undeploy.contains(o));
+      Assert.assertFalse("container " + o, o.getContainer().getOperators().contains(o));
+    }
+  }
+
   @Test
   public void testSingleFinalCascadingUnifier()
   {
@@ -2046,6 +2132,124 @@ public class PhysicalPlanTest
     }
   }
 
+  @Test
+  public void testContainerPacking()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new StramTestSupport.MemoryStorageAgent());
+
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    GenericTestOperator o3 = dag.addOperator("o3", GenericTestOperator.class);
+    dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+    dag.addStream("o2.outport1", o2.outport1, o3.inport1);
+    dag.setAttribute(LogicalPlan.CONTAINER_PACKING_MEMORY_MB, 4096);
+
+    PhysicalPlan plan = new PhysicalPlan(dag, new TestPlanContext());
+    Assert.assertEquals("number of containers", 1, plan.getContainers().size());
+    PTContainer container = plan.getContainers().get(0);
+    Assert.assertEquals("number of operators", 3, container.getOperators().size());
+    Assert.assertEquals("memory without buffer server", 3072, container.getRequiredMemoryMB());
+
+    // anti-affine operators are placed into separate containers
+    AffinityRulesSet ruleSet = new AffinityRulesSet();
+    ruleSet.setAffinityRules(Lists.newArrayList(new AffinityRule(AffinityRule.Type.ANTI_AFFINITY, Locality.NODE_LOCAL, false, "o1", "o3")));
+    dag.setAttribute(DAGContext.AFFINITY_RULES_SET, ruleSet);
+
+    plan = new PhysicalPlan(dag, new TestPlanContext());
+    Assert.assertEquals("number of containers", 2, plan.getContainers().size());
+    PTContainer o1Container = plan.getOperators(dag.getMeta(o1)).get(0).getContainer();
+    PTContainer o2Container = plan.getOperators(dag.getMeta(o2)).get(0).getContainer();
+    PTContainer o3Container = plan.getOperators(dag.getMeta(o3)).get(0).getContainer();
+    Assert.assertNotSame("anti-affine operators", o1Container, o3Container);
+    Assert.assertTrue("o2 with neighbor", o2Container == o1Container || o2Container == o3Container);
+    Assert.assertEquals("strict anti-affinity", Sets.newHashSet(o3Container), o1Container.getStrictAntiPrefs());
+
+    // the container memory limits the packing
+    dag.getAttributes().get(DAGContext.AFFINITY_RULES_SET).getAffinityRules().clear();
+    dag.setAttribute(LogicalPlan.CONTAINER_PACKING_MEMORY_MB, 2048);
+    plan = new PhysicalPlan(dag, new TestPlanContext());
+    Assert.assertEquals("number of containers", 3, plan.getContainers().size());
+
+    // the container vCores limit the packing
+    dag.setAttribute(LogicalPlan.CONTAINER_PACKING_MEMORY_MB, 4096);
+    dag.setAttribute(LogicalPlan.CONTAINER_PACKING_VCORES, 2);
+    for (GenericTestOperator o : new GenericTestOperator[] {o1, o2, o3}) {
+      dag.setOperatorAttribute(o, OperatorContext.VCORES, 1);
+    }
+    plan = new PhysicalPlan(dag, new TestPlanContext());
+    Assert.assertEquals("number of containers", 2, plan.getContainers().size());
+    for (PTContainer c : plan.getContainers()) {
+      Assert.assertTrue("vCores " + c, c.getRequiredVCores() <= 2);
+    }
+
+    // anti-affinity is not violated to stay within the maximum container count
+    dag.setAttribute(LogicalPlan.CONTAINER_PACKING_VCORES, 0);
+    dag.setAttribute(LogicalPlan.CONTAINERS_MAX_COUNT, 1);
+    ruleSet.setAffinityRules(Lists.newArrayList(new AffinityRule(AffinityRule.Type.ANTI_AFFINITY, Locality.NODE_LOCAL, false, "o1", "o3")));
+    dag.setAttribute(DAGContext.AFFINITY_RULES_SET, ruleSet);
+    plan = new PhysicalPlan(dag, new TestPlanContext());
+    Assert.assertEquals("number of containers", 2, plan.getContainers().size());
+    Assert.assertNotSame("anti-affine operators", plan.getOperators(dag.getMeta(o1)).get(0).getContainer(),
+        plan.getOperators(dag.getMeta(o3)).get(0).getContainer());
+  }
+
+  @Test
+  public void testContainerPackingOnRepartition()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    GenericTestOperator o3 = dag.addOperator("o3", GenericTestOperator.class);
+    dag.addStream("o1.outport1", o1.outport1, o3.inport1);
+    dag.addStream("o2.outport1", o2.outport1, o3.inport2);
+    dag.setAttribute(LogicalPlan.CONTAINER_PACKING_MEMORY_MB, 4096);
+    AffinityRulesSet ruleSet = new AffinityRulesSet();
+    ruleSet.setAffinityRules(Lists.newArrayList(new AffinityRule(AffinityRule.Type.ANTI_AFFINITY, Locality.NODE_LOCAL, false, "o1", "o2")));
+    dag.setAttribute(DAGContext.AFFINITY_RULES_SET, ruleSet);
+
+    OperatorMeta o3Meta = dag.getMeta(o3);
+    o3Meta.getAttributes().put(OperatorContext.STATS_LISTENERS,
+        Lists.newArrayList((StatsListener)new PartitionLoadWatch(0, 5)));
+    o3Meta.getAttributes().put(OperatorContext.PARTITIONER, new StatelessPartitioner<GenericTestOperator>(1));
+
+    TestPlanContext ctx = new TestPlanContext();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, ctx);
+    PhysicalPlan plan = new PhysicalPlan(dag, ctx);
+    Assert.assertEquals("number of containers", 2, plan.getContainers().size());
+    for (PTContainer c : plan.getContainers()) {
+      c.setState(PTContainer.State.ACTIVE);
+      c.setAllocatedMemoryMB(8192);
+    }
+
+    // the new partition goes to the container of the upstream operator with the most traffic, which is not the
+    // container the existing partition shares with the other upstream operator
+    PTOperator o3p1 = plan.getOperators(o3Meta).get(0);
+    PTOperator neighbor = plan.getOperators(dag.getMeta(o1)).get(0);
+    if (neighbor.getContainer() == o3p1.getContainer()) {
+      neighbor = plan.getOperators(dag.getMeta(o2)).get(0);
+    }
+    Assert.assertNotSame("neighbor container", o3p1.getContainer(), neighbor.getContainer());
+    OperatorStatus.PortStatus ps = neighbor.stats.new PortStatus();
+    ps.tuplesPMSMA.add(1000, 1);
+    neighbor.stats.outputPortStatusList.put("outport1", ps);
+
+    ((PartitionLoadWatch)o3p1.statsListeners.get(0)).evalIntervalMillis = -1; // no delay
+    setThroughput(o3p1, 10);
+    plan.onStatusUpdate(o3p1);
+    Assert.assertEquals("partitioning triggered", 1, ctx.events.size());
+    ctx.events.remove(0).run();
+
+    List<PTOperator> o3Partitions = plan.getOperators(o3Meta);
+    Assert.assertEquals("partition count " + o3Partitions, 2, o3Partitions.size());
+    Assert.assertEquals("number of containers", 2, plan.getContainers().size());
+    for (PTOperator partition : o3Partitions) {
+      if (partition != o3p1) {
+        Assert.assertSame("new partition with " + neighbor, neighbor.getContainer(), partition.getContainer());
+      }
+    }
+  }
+
   private class TestPartitioner<T extends Operator> extends StatelessPartitioner<T>
   {
     private static final long serialVersionUID = 1L;
@@ -20,6 +20,7 @@ package com.datatorrent.stram.stream;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
@@ -27,10 +28,14 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.DefaultLazyInputPort;
+import com.datatorrent.api.DefaultOutputPort;
+import com.datatorrent.api.LazyTuple;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.engine.StreamContext;
 import com.datatorrent.stram.engine.SweepableReservoir;
 
 /**
@@ -122,5 +127,198 @@ public class BufferServerSubscriberTest
     Assert.assertEquals("10  received", 10, list.size());
   }
 
+  @Test
+  public void testLazyTuples()
+  {
+    final int[] deserialized = new int[1];
+    final StreamCodec<Object> myserde = new StreamCodec<Object>()
+    {
+      @Override
+      public Object fromByteArray(Slice fragment)
+      {
+        deserialized[0]++;
+        return fragment.buffer[fragment.offset];
+      }
+
+      @Override
+      public Slice toByteArray(Object o)
+      {
+        return new Slice(new byte[] {(Byte)o});
+      }
+
+      @Override
+      public int getPartition(Object o)
+      {
+        return (Byte)o;
+      }
+
+    };
+
+    final List<LazyTuple<Object>> list = new ArrayList<>();
+    DefaultLazyInputPort<Object> port = new DefaultLazyInputPort<Object>()
+    {
+      @Override
+      public void processLazy(LazyTuple<Object> tuple)
+      {
+        list.add(tuple);
+      }
+    };
+
+    BufferServerSubscriber bss = new BufferServerSubscriber("subscriber", 16)
+    {
+      @Override
+      public void suspendRead()
+      {
+      }
+
+      @Override
+      public void resumeRead()
+      {
+      }
+
+    };
+    StreamContext context = new StreamContext("stream");
+    context.put(StreamContext.CODEC, myserde);
+    context.put(StreamContext.CODEC_IDENTIFIER, 1);
+    bss.setup(context);
+
+    SweepableReservoir reservoir = bss.acquireReservoir("lazySink", 16);
+    reservoir.setSink(port);
+
+    for (byte i = 0; i < 5; i++) {
+      byte[] buffer = PayloadTuple.getSerializedTuple(i, myserde.toByteArray(i));
+      bss.onMessage(buffer, 0, buffer.length);
+    }
+
+    reservoir.sweep();
+    reservoir.sweep();
+    Assert.assertEquals("received", 5, list.size());
+    Assert.assertEquals("port count", 5, port.getCount(false));
+    Assert.assertEquals("deserialized", 0, deserialized[0]);
+
+    BufferServerSubscriber.LazyPayload tuple = (BufferServerSubscriber.LazyPayload)list.get(3);
+    Assert.assertEquals("serialized", 3, tuple.getSerializedData().buffer[tuple.getSerializedData().offset]);
+    Assert.assertEquals("partition", 3, tuple.getPartition());
+    Assert.assertTrue("publishable with the same codec", tuple.isPublishable(1));
+    Assert.assertFalse("publishable with another codec", tuple.isPublishable(2));
+
+    Assert.assertEquals("value", (byte)3, tuple.get());
+    Assert.assertEquals("value", (byte)3, tuple.get());
+    Assert.assertEquals("deserialized", 1, deserialized[0]);
+    Assert.assertTrue(tuple.isDeserialized());
+    Assert.assertFalse("publishable once deserialized", tuple.isPublishable(1));
+
+    port.put((byte)7);
+    Assert.assertTrue(list.get(5).isDeserialized());
+    Assert.assertEquals("value", (byte)7, list.get(5).get());
+  }
+
+  @Test
+  public void testPartitionedContainerLocalLazyTuples()
+  {
+    final StreamCodec<Object> myserde = new StreamCodec<Object>()
+    {
+      @Override
+      public Object fromByteArray(Slice fragment)
+      {
+        return fragment.buffer[fragment.offset];
+      }
+
+      @Override
+      public Slice toByteArray(Object o)
+      {
+        return new Slice(new byte[] {(Byte)o});
+      }
+
+      @Override
+      public int getPartition(Object o)
+      {
+        return (Byte)o;
+      }
+
+    };
+
+    final DefaultOutputPort<Object> output = new DefaultOutputPort<>();
+    DefaultLazyInputPort<Object> port = new DefaultLazyInputPort<Object>()
+    {
+      @Override
+      public void processLazy(LazyTuple<Object> tuple)
+      {
+        output.emitLazy(tuple);
+      }
+    };
+
+    BufferServerSubscriber bss = new BufferServerSubscriber("subscriber", 16)
+    {
+      @Override
+      public void suspendRead()
+      {
+      }
+
+      @Override
+      public void resumeRead()
+      {
+      }
+
+    };
+    StreamContext context = new StreamContext("stream");
+    context.put(StreamContext.CODEC, myserde);
+    context.put(StreamContext.CODEC_IDENTIFIER, 1);
+    bss.setup(context);
+
+    SweepableReservoir reservoir = bss.acquireReservoir("lazySink", 16);
+    reservoir.setSink(port);
+
+    /* the pass through operator emits to two container local partitions of the downstream operator */
+    InlineStream even = new InlineStream(16);
+    InlineStream odd = new InlineStream(16);
+    MuxStream mux = new MuxStream();
+    mux.setSink("even", new PartitionAwareSink<>(myserde, Collections.singleton(0), 1, even));
+    mux.setSink("odd", new PartitionAwareSink<>(myserde, Collections.singleton(1), 1, odd));
+    mux.activate(null);
+    output.setSink(mux);
+
+    for (byte i = 0; i < 6; i++) {
+      byte[] buffer = PayloadTuple.getSerializedTuple(myserde.getPartition(i), myserde.toByteArray(i));
+      bss.onMessage(buffer, 0, buffer.length);
+    }
+
+    reservoir.sweep();
+    reservoir.sweep();
+
+    final List<Object> evenList = new ArrayList<>();
+    final List<Object> oddList = new ArrayList<>();
+    even.getReservoir().setSink(new CollectingSink(evenList));
+    odd.getReservoir().setSink(new CollectingSink(oddList));
+    even.getReservoir().sweep();
+    odd.getReservoir().sweep();
+
+    Assert.assertEquals("even partition", Arrays.<Object>asList((byte)0, (byte)2, (byte)4), evenList);
+    Assert.assertEquals("odd partition", Arrays.<Object>asList((byte)1, (byte)3, (byte)5), oddList);
+  }
+
+  private static class CollectingSink implements Sink<Object>
+  {
+    private final List<Object> list;
+
+    CollectingSink(List<Object> list)
+    {
+      this.list = list;
+    }
+
+    @Override
+    public void put(Object tuple)
+    {
+      list.add(tuple);
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      return 0;
+    }
+
+  }
+
   private static final Logger logger = LoggerFactory.getLogger(BufferServerSubscriberTest.class);
 }
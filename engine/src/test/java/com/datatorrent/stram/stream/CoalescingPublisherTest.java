@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Sink;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.server.Server;
+import com.datatorrent.netlet.DefaultEventLoop;
+import com.datatorrent.stram.codec.DefaultStatefulStreamCodec;
+import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.engine.SweepableReservoir;
+import com.datatorrent.stram.support.StramTestSupport;
+import com.datatorrent.stram.tuple.EndWindowTuple;
+import com.datatorrent.stram.tuple.Tuple;
+
+public class CoalescingPublisherTest
+{
+  @Test
+  public void testCoalescing()
+  {
+    final String upstreamNodeId = "upstreamNodeId";
+    StreamContext context = new StreamContext("streamName");
+    context.put(StreamContext.CODEC, new DefaultStatefulStreamCodec<>());
+    CoalescingPublisher publisher = new CoalescingPublisher(upstreamNodeId, 64, 8, null, 1);
+    publisher.setup(context);
+
+    publisher.put(StramTestSupport.generateBeginWindowTuple(upstreamNodeId, 0));
+    for (int i = 0; i < 10; i++) {
+      publisher.put(StramTestSupport.generateTuple("hello" + i, 0));
+    }
+    publisher.put(StramTestSupport.generateEndWindowTuple(upstreamNodeId, 0));
+    Assert.assertEquals("count", 12, publisher.getCount(true));
+
+    /* the tuples span the buffers of the ring and are gathered for a single write */
+    long appended = publisher.getAppended();
+    Assert.assertTrue("appended", appended > 64);
+    int n = publisher.gather(0, appended);
+    Assert.assertEquals("buffers", (appended + 63) / 64, n);
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    for (int i = 0; i < n; i++) {
+      ByteBuffer buffer = publisher.gathered[i];
+      while (buffer.hasRemaining()) {
+        stream.write(buffer.get());
+      }
+    }
+    byte[] bytes = stream.toByteArray();
+    Assert.assertEquals("bytes", appended, bytes.length);
+
+    List<Byte> types = new ArrayList<>();
+    long size = 0;
+    for (int offset = 0; offset < bytes.length; ) {
+      int length = bytes[offset++];
+      Assert.assertTrue("single byte length", length > 0);
+      if (bytes[offset] != MessageType.CODEC_STATE_VALUE) {
+        types.add(bytes[offset]);
+      }
+      size += length;
+      offset += length;
+    }
+
+    List<Byte> expected = new ArrayList<>();
+    expected.add(MessageType.BEGIN_WINDOW_VALUE);
+    for (int i = 0; i < 10; i++) {
+      expected.add(MessageType.PAYLOAD_VALUE);
+    }
+    expected.add(MessageType.END_WINDOW_VALUE);
+    Assert.assertEquals("messages", expected, types);
+    Assert.assertEquals("byte count", size, publisher.getByteCount(false));
+  }
+
+  /**
+   * The tuples coalesced by the publisher are received by a subscriber through the shared memory.
+   */
+  @Test
+  public void testSharedMemorySubscriber() throws Exception
+  {
+    final String upstreamNodeId = "upstreamNodeId";
+    final String downstreamNodeId = "downstreamNodeId";
+    final StreamCodec<Object> codec = new DefaultStatefulStreamCodec<>();
+    DefaultEventLoop eventloop = DefaultEventLoop.createEventLoop("CoalescingPublisherTest");
+    ScheduledThreadPoolExecutor lingerExecutor = new ScheduledThreadPoolExecutor(1);
+    eventloop.start();
+    Server server = new Server(eventloop, 0);
+    InetSocketAddress address = server.run();
+    try {
+      StreamContext subscriberContext = new StreamContext("streamName");
+      subscriberContext.setSourceId(upstreamNodeId);
+      subscriberContext.setSinkId(downstreamNodeId);
+      subscriberContext.setFinishedWindowId(-1);
+      subscriberContext.setBufferServerAddress(InetSocketAddress.createUnresolved("localhost", address.getPort()));
+      subscriberContext.put(StreamContext.CODEC, codec);
+      subscriberContext.put(StreamContext.EVENT_LOOP, eventloop);
+
+      final AtomicInteger received = new AtomicInteger();
+      BufferServerSubscriber subscriber = new BufferServerSubscriber(downstreamNodeId, 1024);
+      subscriber.setSharedMemorySize(64 * 1024);
+      subscriber.setup(subscriberContext);
+      SweepableReservoir reservoir = subscriber.acquireReservoir("testReservoir", 1024);
+      reservoir.setSink(new Sink<Object>()
+      {
+        @Override
+        public void put(Object tuple)
+        {
+          received.incrementAndGet();
+        }
+
+        @Override
+        public int getCount(boolean reset)
+        {
+          throw new UnsupportedOperationException("Not supported yet.");
+        }
+      });
+      subscriber.activate(subscriberContext);
+
+      boolean reading = false;
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+        reading |= thread.getName().startsWith("SharedMemoryReader-");
+      }
+      Assert.assertTrue("shared memory reader", reading);
+
+      StreamContext publisherContext = new StreamContext("streamName");
+      publisherContext.setSourceId(upstreamNodeId);
+      publisherContext.setSinkId(downstreamNodeId);
+      publisherContext.setBufferServerAddress(InetSocketAddress.createUnresolved("localhost", address.getPort()));
+      publisherContext.put(StreamContext.CODEC, codec);
+      publisherContext.put(StreamContext.EVENT_LOOP, eventloop);
+
+      CoalescingPublisher publisher = new CoalescingPublisher(upstreamNodeId, 64, 8, lingerExecutor, 1);
+      publisher.setup(publisherContext);
+      publisher.activate(publisherContext);
+      publisher.put(StramTestSupport.generateBeginWindowTuple(upstreamNodeId, 0));
+      for (int i = 0; i < 10; i++) {
+        publisher.put(StramTestSupport.generateTuple("hello" + i, 0));
+      }
+      publisher.put(StramTestSupport.generateEndWindowTuple(upstreamNodeId, 0));
+
+      boolean endWindow = false;
+      long end = System.currentTimeMillis() + 10000;
+      while (!endWindow && System.currentTimeMillis() < end) {
+        Tuple t = reservoir.sweep();
+        if (t == null) {
+          Thread.sleep(5);
+          continue;
+        }
+        reservoir.remove();
+        endWindow = t instanceof EndWindowTuple;
+      }
+      Assert.assertTrue("end window", endWindow);
+      Assert.assertEquals("payload tuples", 10, received.get());
+
+      publisher.deactivate();
+      subscriber.deactivate();
+      publisher.teardown();
+      subscriber.teardown();
+    } finally {
+      server.stop();
+      lingerExecutor.shutdownNow();
+      eventloop.stop();
+    }
+  }
+
+}
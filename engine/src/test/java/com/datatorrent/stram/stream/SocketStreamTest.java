@@ -114,6 +114,30 @@ public class SocketStreamTest
     sendMessage();
   }
 
+  /**
+   * Test buffer server stream with the subscriber receiving the tuples through the shared memory
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testBufferServerStreamThroughSharedMemory() throws Exception
+  {
+    iss.setSharedMemorySize(64 * 1024);
+    iss.activate(issContext);
+    LOG.debug("input stream activated");
+
+    oss.activate(ossContext);
+    LOG.debug("output stream activated");
+
+    boolean reading = false;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      reading |= thread.getName().startsWith("SharedMemoryReader-");
+    }
+    Assert.assertTrue("shared memory reader", reading);
+
+    sendMessage();
+  }
+
   /**
    * Test buffer server stream by sending
    * tuple on outputstream and receive same tuple from inputstream with following changes
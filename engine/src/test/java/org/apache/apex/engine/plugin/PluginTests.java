@@ -18,7 +18,12 @@
  */
 package org.apache.apex.engine.plugin;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -104,4 +109,103 @@ public class PluginTests
     Assert.assertEquals(1, debugPlugin.getCommitCount());
     Assert.assertEquals(plan, debugPlugin.getLogicalPlan());
   }
+
+  @Test
+  public void testPerPluginDispatch() throws InterruptedException
+  {
+    DebugPlugin debugPlugin = new DebugPlugin();
+    BlockingPlugin blockingPlugin = new BlockingPlugin();
+    StaticPluginLocator<? extends DAGExecutionPlugin> locator = new StaticPluginLocator<>(blockingPlugin, debugPlugin);
+    ApexPluginDispatcher pluginManager = new DefaultApexPluginDispatcher(locator,
+        new StramTestSupport.TestAppContext(new Attribute.AttributeMap.DefaultAttributeMap()), null, null);
+    pluginManager.init(new Configuration());
+
+    pluginManager.dispatch(newHeartbeatEvent("container1"));
+    Assert.assertTrue("handler blocked", blockingPlugin.blocked.await(10, TimeUnit.SECONDS));
+    for (int i = 0; i < 3; i++) {
+      pluginManager.dispatch(newHeartbeatEvent("container1"));
+    }
+    pluginManager.dispatch(newHeartbeatEvent("container2"));
+    pluginManager.dispatch(new DAGExecutionEvent.CommitExecutionEvent(1234));
+    pluginManager.dispatch(new DAGExecutionEvent.StramExecutionEvent(new StramEvent(StramEvent.LogLevel.DEBUG)
+    {
+      @Override
+      public String getType()
+      {
+        return "TestEvent";
+      }
+    }));
+
+    // delivery to other plugins continues while a handler is blocked
+    debugPlugin.waitForEventDelivery(10);
+    Assert.assertEquals("events delivered to unblocked plugin", 0, debugPlugin.latch.getCount());
+
+    blockingPlugin.release.countDown();
+    pluginManager.stop();
+
+    List<DAGExecutionEvent.Type> expected = new ArrayList<>();
+    expected.add(DAGExecutionEvent.Type.HEARTBEAT_EVENT);
+    expected.add(DAGExecutionEvent.Type.COMMIT_EVENT);
+    expected.add(DAGExecutionEvent.Type.STRAM_EVENT);
+    expected.add(DAGExecutionEvent.Type.HEARTBEAT_EVENT);
+    expected.add(DAGExecutionEvent.Type.HEARTBEAT_EVENT);
+    Assert.assertEquals("delivery order", expected, blockingPlugin.types);
+    Assert.assertEquals("heartbeats", "[container1, container1, container2]", blockingPlugin.containers.toString());
+
+    Map<String, Long> stats = pluginManager.getPluginStats().get(BlockingPlugin.class.getName());
+    Assert.assertEquals("delivered", 5L, (long)stats.get("delivered"));
+    Assert.assertEquals("coalesced", 2L, (long)stats.get("coalesced"));
+    Assert.assertEquals("dropped", 0L, (long)stats.get("dropped"));
+    Assert.assertEquals("queued", 0L, (long)stats.get("queued"));
+  }
+
+  private static DAGExecutionEvent newHeartbeatEvent(String containerId)
+  {
+    StreamingContainerUmbilicalProtocol.ContainerHeartbeat heartbeat = new StreamingContainerUmbilicalProtocol.ContainerHeartbeat();
+    heartbeat.setContainerStats(new StreamingContainerUmbilicalProtocol.ContainerStats(containerId));
+    return new DAGExecutionEvent.HeartbeatExecutionEvent(heartbeat);
+  }
+
+  /**
+   * Plugin that blocks in the handler of the first event until released.
+   */
+  private static class BlockingPlugin implements DAGExecutionPlugin<DAGExecutionPlugin.Context>
+  {
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<DAGExecutionEvent.Type> types = new ArrayList<>();
+    private final List<String> containers = new ArrayList<>();
+
+    @Override
+    public void setup(DAGExecutionPlugin.Context context)
+    {
+      EventHandler<DAGExecutionEvent> handler = new EventHandler<DAGExecutionEvent>()
+      {
+        @Override
+        public void handle(DAGExecutionEvent event)
+        {
+          if (types.isEmpty()) {
+            blocked.countDown();
+            try {
+              release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+          }
+          types.add(event.getType());
+          if (event instanceof DAGExecutionEvent.HeartbeatExecutionEvent) {
+            containers.add(((DAGExecutionEvent.HeartbeatExecutionEvent)event).getHeartbeat().getContainerId());
+          }
+        }
+      };
+      for (DAGExecutionEvent.Type type : DAGExecutionEvent.Type.values()) {
+        context.register(type, handler);
+      }
+    }
+
+    @Override
+    public void teardown()
+    {
+    }
+  }
 }